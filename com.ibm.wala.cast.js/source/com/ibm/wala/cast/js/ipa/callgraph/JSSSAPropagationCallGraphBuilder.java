@@ -379,7 +379,7 @@ public class JSSSAPropagationCallGraphBuilder extends AstSSAPropagationCallGraph
 
   @Override
   protected PropagationSystem makeSystem(AnalysisOptions options) {
-    return new PropagationSystem(callGraph, pointerKeyFactory, instanceKeyFactory) {
+    return new PropagationSystem(callGraph, pointerKeyFactory, instanceKeyFactory, options.getWorklistStrategy()) {
       @Override
       public PointerAnalysis<InstanceKey> makePointerAnalysis(PropagationCallGraphBuilder builder) {
         return new JSPointerAnalysisImpl(builder, cg, pointsToMap, instanceKeys, pointerKeyFactory, instanceKeyFactory);
@@ -147,7 +147,7 @@ public abstract class AstSSAPropagationCallGraphBuilder extends SSAPropagationCa
 
   @Override
   protected PropagationSystem makeSystem(AnalysisOptions options) {
-    return new PropagationSystem(callGraph, pointerKeyFactory, instanceKeyFactory) {
+    return new PropagationSystem(callGraph, pointerKeyFactory, instanceKeyFactory, options.getWorklistStrategy()) {
       @Override
       public PointerAnalysis<InstanceKey> makePointerAnalysis(PropagationCallGraphBuilder builder) {
         return new AstPointerAnalysisImpl(builder, cg, pointsToMap, instanceKeys, pointerKeyFactory, instanceKeyFactory);
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.bench;
+
+import java.io.IOException;
+
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions.ReflectionOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+
+/**
+ * The programs analyzed by the benchmarks, named by a benchmark parameter:
+ * <ul>
+ * <li>"testdata": com.ibm.wala.core.testdata, the small programs of the regression tests
+ * <li>"bcel": the BCEL verifier, a medium-size jar
+ * </ul>
+ */
+final class BenchmarkPrograms {
+
+  private BenchmarkPrograms() {
+  }
+
+  /**
+   * entry points used for call graph construction on the test data
+   */
+  private static final String[] TESTDATA_MAINS = { TestConstants.RECURSE_MAIN, TestConstants.MULTI_DIM_MAIN,
+      TestConstants.ARRAY_ALIAS_MAIN, TestConstants.PI_TEST_MAIN, TestConstants.CLASSCONSTANT_MAIN };
+
+  static AnalysisScope makeScope(String program) throws IOException {
+    switch (program) {
+    case "testdata":
+      return CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    case "bcel":
+      return CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.BCEL, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    default:
+      throw new IllegalArgumentException("unknown program " + program);
+    }
+  }
+
+  static AnalysisOptions makeOptions(String program, AnalysisScope scope, IClassHierarchy cha) {
+    switch (program) {
+    case "testdata": {
+      Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(scope, cha, TESTDATA_MAINS);
+      return CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    }
+    case "bcel": {
+      Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(scope, cha, TestConstants.BCEL_VERIFIER_MAIN);
+      AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+      // as in CallGraphTest, keeps the call graph to a reasonable size
+      options.setReflectionOptions(ReflectionOptions.NONE);
+      return options;
+    }
+    default:
+      throw new IllegalArgumentException("unknown program " + program);
+    }
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.CallGraphBuilder;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.util.CancelException;
+
+/**
+ * Call graph and pointer analysis construction with the 0-CFA and 0-1-CFA builders. Each call graph is built with a fresh
+ * {@link AnalysisCacheImpl}, so the time includes building IRs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CallGraphBenchmark {
+
+  @Param({ "testdata", "bcel" })
+  public String program;
+
+  @Param({ "0-CFA", "0-1-CFA" })
+  public String algorithm;
+
+  private AnalysisScope scope;
+
+  private IClassHierarchy cha;
+
+  private AnalysisOptions options;
+
+  @Setup
+  public void setup() throws IOException, ClassHierarchyException {
+    scope = BenchmarkPrograms.makeScope(program);
+    cha = ClassHierarchyFactory.make(scope);
+    options = BenchmarkPrograms.makeOptions(program, scope, cha);
+  }
+
+  @Benchmark
+  public CallGraph makeCallGraph() throws CancelException {
+    AnalysisCacheImpl cache = new AnalysisCacheImpl();
+    CallGraphBuilder<InstanceKey> builder;
+    switch (algorithm) {
+    case "0-CFA":
+      builder = Util.makeZeroCFABuilder(Language.JAVA, options, cache, cha, scope);
+      break;
+    case "0-1-CFA":
+      builder = Util.makeZeroOneCFABuilder(Language.JAVA, options, cache, cha, scope);
+      break;
+    default:
+      throw new IllegalArgumentException("unknown algorithm " + algorithm);
+    }
+    return builder.makeCallGraph(options, null);
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.ibm.wala.util.intset.BitVectorIntSet;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableIntSet;
+import com.ibm.wala.util.intset.MutableSharedBitVectorIntSet;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+
+/**
+ * Basic operations on the {@link MutableIntSet} implementations used by the pointer analysis and the dataflow solvers
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntSetBenchmark {
+
+  @Param({ "sparse", "bitVector", "sharedBitVector" })
+  public String impl;
+
+  /**
+   * number of elements in each set
+   */
+  @Param({ "16", "1024", "65536" })
+  public int size;
+
+  /**
+   * elements are drawn from [0, size * spread)
+   */
+  @Param({ "4" })
+  public int spread;
+
+  private int[] values;
+
+  private int[] probes;
+
+  private MutableIntSet a;
+
+  private MutableIntSet b;
+
+  @Setup
+  public void setup() {
+    Random random = new Random(42);
+    int universe = size * spread;
+    values = new int[size];
+    probes = new int[size];
+    for (int i = 0; i < size; i++) {
+      values[i] = random.nextInt(universe);
+      probes[i] = random.nextInt(universe);
+    }
+    a = make();
+    b = make();
+    for (int i = 0; i < size; i++) {
+      a.add(values[i]);
+      b.add(probes[i]);
+    }
+  }
+
+  private MutableIntSet make() {
+    switch (impl) {
+    case "sparse":
+      return MutableSparseIntSet.makeEmpty();
+    case "bitVector":
+      return new BitVectorIntSet();
+    case "sharedBitVector":
+      return new MutableSharedBitVectorIntSet();
+    default:
+      throw new IllegalArgumentException("unknown set implementation " + impl);
+    }
+  }
+
+  private MutableIntSet copy(MutableIntSet s) {
+    MutableIntSet result = make();
+    result.copySet(s);
+    return result;
+  }
+
+  @Benchmark
+  public MutableIntSet add() {
+    MutableIntSet s = make();
+    for (int v : values) {
+      s.add(v);
+    }
+    return s;
+  }
+
+  @Benchmark
+  public int contains() {
+    int result = 0;
+    for (int v : probes) {
+      if (a.contains(v)) {
+        result++;
+      }
+    }
+    return result;
+  }
+
+  @Benchmark
+  public MutableIntSet addAll() {
+    MutableIntSet s = copy(a);
+    s.addAll(b);
+    return s;
+  }
+
+  @Benchmark
+  public IntSet intersection() {
+    return a.intersection(b);
+  }
+
+  @Benchmark
+  public boolean isSubset() {
+    return a.isSubset(b);
+  }
+
+  @Benchmark
+  public void iterate(Blackhole bh) {
+    for (IntIterator it = a.intIterator(); it.hasNext();) {
+      bh.consume(it.next());
+    }
+  }
+
+  @Benchmark
+  public void foreach(Blackhole bh) {
+    a.foreach(bh::consume);
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.bench;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IClassLoader;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.ShrikeCTMethod;
+import com.ibm.wala.classLoader.ShrikeClass;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.shrikeCT.ClassReader;
+import com.ibm.wala.shrikeCT.InvalidClassFileException;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.util.shrike.ShrikeClassReaderHandle;
+
+/**
+ * Parsing of class files into {@link ShrikeClass}es, from bytes already in memory, with and without decoding the bytecode of
+ * every method
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShrikeClassBenchmark {
+
+  @Param({ "testdata", "bcel" })
+  public String program;
+
+  private IClassHierarchy cha;
+
+  private IClassLoader loader;
+
+  /**
+   * handles on the application classes, which always re-read the class from memory
+   */
+  private final List<ShrikeClassReaderHandle> handles = new ArrayList<>();
+
+  /**
+   * A handle reading a class file from a byte array
+   */
+  private static class InMemoryHandle extends ShrikeClassReaderHandle {
+    private final byte[] bytes;
+
+    InMemoryHandle(ShrikeClass klass) throws InvalidClassFileException {
+      super(klass.getModuleEntry());
+      this.bytes = klass.getReader().getBytes();
+    }
+
+    @Override
+    public ClassReader get() throws InvalidClassFileException {
+      return new ClassReader(bytes);
+    }
+  }
+
+  @Setup
+  public void setup() throws IOException, ClassHierarchyException, InvalidClassFileException {
+    cha = ClassHierarchyFactory.make(BenchmarkPrograms.makeScope(program));
+    loader = cha.getLoader(ClassLoaderReference.Application);
+    for (IClass klass : cha) {
+      if (klass.getClassLoader() == loader && klass instanceof ShrikeClass) {
+        handles.add(new InMemoryHandle((ShrikeClass) klass));
+      }
+    }
+  }
+
+  @Benchmark
+  public void parse(Blackhole bh) throws InvalidClassFileException {
+    for (ShrikeClassReaderHandle h : handles) {
+      bh.consume(new ShrikeClass(h, loader, cha));
+    }
+  }
+
+  @Benchmark
+  public void parseAndDecode(Blackhole bh) throws InvalidClassFileException {
+    for (ShrikeClassReaderHandle h : handles) {
+      ShrikeClass klass = new ShrikeClass(h, loader, cha);
+      for (IMethod m : klass.getDeclaredMethods()) {
+        bh.consume(((ShrikeCTMethod) m).getInstructions());
+      }
+    }
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.basic;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Iterator2Collection;
+import com.ibm.wala.util.graph.NumberedGraph;
+import com.ibm.wala.util.graph.dominators.Dominators;
+import com.ibm.wala.util.graph.impl.CompactNumberedGraph;
+import com.ibm.wala.util.graph.impl.SlowSparseNumberedGraph;
+import com.ibm.wala.util.graph.traverse.DFS;
+import com.ibm.wala.util.graph.traverse.SCCIterator;
+import com.ibm.wala.util.intset.IntSet;
+
+/**
+ * Check that a {@link CompactNumberedGraph} is equivalent to the graph it was built from
+ */
+public class CompactNumberedGraphTest extends WalaTestCase {
+
+  private static final int NODES = 500;
+
+  private static NumberedGraph<Integer> makeRandomGraph(long seed) {
+    Random r = new Random(seed);
+    SlowSparseNumberedGraph<Integer> G = SlowSparseNumberedGraph.make();
+    for (int i = 0; i < NODES; i++) {
+      G.addNode(i);
+    }
+    for (int i = 0; i < 3 * NODES; i++) {
+      G.addEdge(r.nextInt(NODES), r.nextInt(NODES));
+    }
+    return G;
+  }
+
+  private static Set<Set<Integer>> sccs(NumberedGraph<Integer> G) {
+    Set<Set<Integer>> result = HashSetFactory.make();
+    for (Iterator<Set<Integer>> it = new SCCIterator<>(G); it.hasNext();) {
+      result.add(it.next());
+    }
+    return result;
+  }
+
+  /**
+   * the original graph may use null for an empty set
+   */
+  private static boolean sameValue(IntSet expected, IntSet actual) {
+    return expected == null ? actual.isEmpty() : actual.sameValue(expected);
+  }
+
+  private static void check(boolean offHeap) {
+    NumberedGraph<Integer> G = makeRandomGraph(11);
+    CompactNumberedGraph<Integer> C = CompactNumberedGraph.make(G, offHeap);
+    Assert.assertEquals(offHeap, C.isOffHeap());
+    Assert.assertEquals(G.getNumberOfNodes(), C.getNumberOfNodes());
+    Assert.assertEquals(G.getMaxNumber(), C.getMaxNumber());
+    int edges = 0;
+    for (Integer n : G) {
+      int number = G.getNumber(n);
+      Assert.assertEquals(number, C.getNumber(n));
+      Assert.assertSame(n, C.getNode(number));
+      Assert.assertTrue(sameValue(G.getSuccNodeNumbers(n), C.getSuccNodeNumbers(n)));
+      Assert.assertTrue(sameValue(G.getPredNodeNumbers(n), C.getPredNodeNumbers(n)));
+      Assert.assertEquals(G.getSuccNodeCount(n), C.getSuccNodeCount(n));
+      Assert.assertEquals(G.getPredNodeCount(n), C.getPredNodeCount(n));
+      Assert.assertEquals(Iterator2Collection.toList(G.getSuccNodes(n)), Iterator2Collection.toList(C.getSuccNodes(n)));
+      Assert.assertEquals(Iterator2Collection.toSet(G.getPredNodes(n)), Iterator2Collection.toSet(C.getPredNodes(n)));
+      for (Integer m : G) {
+        Assert.assertEquals(G.hasEdge(n, m), C.hasEdge(n, m));
+      }
+      edges += G.getSuccNodeCount(n);
+    }
+    Assert.assertEquals(edges, C.getNumberOfEdges());
+
+    // read-only algorithms give the same answers
+    Assert.assertEquals(sccs(G), sccs(C));
+    Integer root = G.getNode(0);
+    Assert.assertEquals(DFS.getReachableNodes(G, Collections.singleton(root)),
+        DFS.getReachableNodes(C, Collections.singleton(root)));
+    Dominators<Integer> gd = Dominators.make(G, root);
+    Dominators<Integer> cd = Dominators.make(C, root);
+    for (Integer n : DFS.getReachableNodes(G, Collections.singleton(root))) {
+      Assert.assertEquals(gd.getIdom(n), cd.getIdom(n));
+    }
+  }
+
+  @Test
+  public void testHeap() {
+    check(false);
+  }
+
+  @Test
+  public void testOffHeap() {
+    check(true);
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testReadOnly() {
+    NumberedGraph<Integer> G = makeRandomGraph(13);
+    CompactNumberedGraph.make(G).addEdge(G.getNode(0), G.getNode(1));
+  }
+}
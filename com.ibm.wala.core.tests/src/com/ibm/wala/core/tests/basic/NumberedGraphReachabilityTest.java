@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.basic;
+
+import java.util.Collections;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.graph.NumberedGraph;
+import com.ibm.wala.util.graph.NumberedGraphReachability;
+import com.ibm.wala.util.graph.impl.SlowSparseNumberedGraph;
+import com.ibm.wala.util.graph.traverse.DFS;
+import com.ibm.wala.util.intset.OrdinalSet;
+
+/**
+ * Check {@link NumberedGraphReachability} against depth-first search, before and after adding edges
+ */
+public class NumberedGraphReachabilityTest extends WalaTestCase {
+
+  private static final int NODES = 300;
+
+  private static final Predicate<Integer> interesting = n -> n % 3 == 0;
+
+  private static void check(NumberedGraph<Integer> G, NumberedGraphReachability<Integer, Integer> r) {
+    for (Integer n : G) {
+      Set<Integer> expected = HashSetFactory.make();
+      for (Integer m : DFS.getReachableNodes(G, Collections.singleton(n))) {
+        if (interesting.test(m)) {
+          expected.add(m);
+        }
+      }
+      Set<Integer> actual = HashSetFactory.make();
+      for (Integer m : OrdinalSet.toCollection(r.getReachableSet(n))) {
+        actual.add(m);
+      }
+      Assert.assertEquals("reachable from " + n, expected, actual);
+    }
+  }
+
+  @Test
+  public void testIncremental() throws CancelException {
+    Random random = new Random(17);
+    SlowSparseNumberedGraph<Integer> G = SlowSparseNumberedGraph.make();
+    for (int i = 0; i < NODES; i++) {
+      G.addNode(i);
+    }
+    for (int i = 0; i < NODES / 2; i++) {
+      G.addEdge(random.nextInt(NODES), random.nextInt(NODES));
+    }
+    NumberedGraphReachability<Integer, Integer> r = new NumberedGraphReachability<>(G, interesting);
+    r.solve(null);
+    check(G, r);
+
+    int size = NODES;
+    for (int round = 0; round < 10; round++) {
+      for (int i = 0; i < NODES / 10; i++) {
+        int src = random.nextInt(size);
+        int dst = random.nextInt(size);
+        if (random.nextInt(10) == 0) {
+          // a new node
+          G.addNode(size);
+          dst = size++;
+        }
+        G.addEdge(src, dst);
+        r.edgeAdded(src, dst);
+      }
+      check(G, r);
+    }
+  }
+
+  @Test
+  public void testCycle() throws CancelException {
+    SlowSparseNumberedGraph<Integer> G = SlowSparseNumberedGraph.make();
+    for (int i = 0; i < 10; i++) {
+      G.addNode(i);
+      if (i > 0) {
+        G.addEdge(i - 1, i);
+      }
+    }
+    NumberedGraphReachability<Integer, Integer> r = new NumberedGraphReachability<>(G, interesting);
+    r.solve(null);
+    Assert.assertEquals(4, r.getReachableSet(0).size());
+    Assert.assertEquals(1, r.getReachableSet(9).size());
+
+    G.addEdge(9, 0);
+    Assert.assertTrue(r.edgeAdded(9, 0));
+    check(G, r);
+    Assert.assertFalse(r.edgeAdded(9, 0));
+    Assert.assertSame(r.getReachableSet(0).getBackingSet(), r.getReachableSet(5).getBackingSet());
+  }
+
+  @Test
+  public void testCycleReachingNothing() throws CancelException {
+    SlowSparseNumberedGraph<Integer> G = SlowSparseNumberedGraph.make();
+    for (int i = 0; i < 3; i++) {
+      G.addNode(i);
+    }
+    G.addEdge(0, 1);
+    G.addEdge(1, 2);
+    NumberedGraphReachability<Integer, Integer> r = new NumberedGraphReachability<>(G, n -> n == 0);
+    r.solve(null);
+
+    // the cycle merges 1 and 2, which reach no interesting node
+    G.addEdge(2, 1);
+    r.edgeAdded(2, 1);
+    Assert.assertEquals(1, r.getReachableSet(0).size());
+    Assert.assertTrue(r.getReachableSet(1).isEmpty());
+    Assert.assertTrue(r.getReachableSet(2).isEmpty());
+  }
+}
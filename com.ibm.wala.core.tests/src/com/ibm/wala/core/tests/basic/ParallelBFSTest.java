@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.basic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Iterator2Collection;
+import com.ibm.wala.util.graph.NumberedGraph;
+import com.ibm.wala.util.graph.impl.SlowSparseNumberedGraph;
+import com.ibm.wala.util.graph.traverse.BoundedBFSIterator;
+import com.ibm.wala.util.graph.traverse.ParallelBFS;
+import com.ibm.wala.util.intset.IntSet;
+
+/**
+ * Check {@link ParallelBFS} against {@link BoundedBFSIterator}
+ */
+public class ParallelBFSTest extends WalaTestCase {
+
+  private static final int NODES = 5000;
+
+  private static NumberedGraph<Integer> makeRandomGraph(long seed) {
+    Random r = new Random(seed);
+    SlowSparseNumberedGraph<Integer> G = SlowSparseNumberedGraph.make();
+    for (int i = 0; i < NODES; i++) {
+      G.addNode(i);
+    }
+    for (int i = 0; i < 2 * NODES; i++) {
+      G.addEdge(r.nextInt(NODES), r.nextInt(NODES));
+    }
+    return G;
+  }
+
+  private static Set<Integer> expected(NumberedGraph<Integer> G, Integer root, int k) {
+    return Iterator2Collection.toSet(new BoundedBFSIterator<>(G, root, k));
+  }
+
+  @Test
+  public void testDistances() {
+    NumberedGraph<Integer> G = makeRandomGraph(5);
+    Integer root = 0;
+    int[] distance = ParallelBFS.computeDistances(G, Collections.singleton(root), Integer.MAX_VALUE, new ForkJoinPool(4));
+    for (int k = 0; k < 10; k++) {
+      Set<Integer> within = HashSetFactory.make();
+      for (int v = 0; v < distance.length; v++) {
+        if (distance[v] >= 0 && distance[v] <= k) {
+          within.add(G.getNode(v));
+        }
+      }
+      Assert.assertEquals("k = " + k, expected(G, root, k), within);
+    }
+
+    List<Integer> order = ParallelBFS.reachableWithin(G, Collections.singleton(root), 4);
+    Assert.assertEquals(expected(G, root, 4), HashSetFactory.make(order));
+    for (int i = 1; i < order.size(); i++) {
+      Assert.assertTrue(distance[G.getNumber(order.get(i - 1))] <= distance[G.getNumber(order.get(i))]);
+    }
+  }
+
+  @Test
+  public void testMultiSource() {
+    NumberedGraph<Integer> G = makeRandomGraph(6);
+    Random r = new Random(7);
+    // more than one batch of 64, with a repeated source
+    List<Integer> sources = new ArrayList<>();
+    for (int i = 0; i < 150; i++) {
+      sources.add(r.nextInt(NODES));
+    }
+    sources.add(sources.get(0));
+    for (int k : new int[] { 0, 1, 3 }) {
+      List<IntSet> result = ParallelBFS.multiSourceReachable(G, sources, k, new ForkJoinPool(4));
+      Assert.assertEquals(sources.size(), result.size());
+      for (int i = 0; i < sources.size(); i++) {
+        Set<Integer> actual = HashSetFactory.make();
+        result.get(i).foreach(v -> actual.add(G.getNode(v)));
+        Assert.assertEquals("source " + sources.get(i) + " k = " + k, expected(G, sources.get(i), k), actual);
+      }
+    }
+  }
+}
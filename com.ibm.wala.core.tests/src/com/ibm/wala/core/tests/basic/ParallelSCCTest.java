@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.basic;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.graph.NumberedGraph;
+import com.ibm.wala.util.graph.impl.SlowSparseNumberedGraph;
+import com.ibm.wala.util.graph.traverse.ParallelSCC;
+import com.ibm.wala.util.graph.traverse.SCCIterator;
+import com.ibm.wala.util.graph.traverse.Topological;
+
+/**
+ * Check {@link ParallelSCC} and {@link Topological#makeTopologicalOrder} against {@link SCCIterator}
+ */
+public class ParallelSCCTest extends WalaTestCase {
+
+  private static NumberedGraph<Integer> makeRandomGraph(long seed, int nodes, int edges) {
+    Random r = new Random(seed);
+    SlowSparseNumberedGraph<Integer> G = SlowSparseNumberedGraph.make();
+    for (int i = 0; i < nodes; i++) {
+      G.addNode(i);
+    }
+    for (int i = 0; i < edges; i++) {
+      G.addEdge(r.nextInt(nodes), r.nextInt(nodes));
+    }
+    return G;
+  }
+
+  /**
+   * a long chain of 2-cycles, with a few back edges making larger cycles
+   */
+  private static NumberedGraph<Integer> makeChain(int nodes) {
+    SlowSparseNumberedGraph<Integer> G = SlowSparseNumberedGraph.make();
+    for (int i = 0; i < nodes; i++) {
+      G.addNode(i);
+    }
+    for (int i = 0; i + 1 < nodes; i += 2) {
+      G.addEdge(i, i + 1);
+      G.addEdge(i + 1, i);
+      if (i + 2 < nodes) {
+        G.addEdge(i + 1, i + 2);
+      }
+      if (i % 1000 == 998) {
+        G.addEdge(i, i - 500);
+      }
+    }
+    return G;
+  }
+
+  private static Set<Set<Integer>> expected(NumberedGraph<Integer> G) {
+    Set<Set<Integer>> result = HashSetFactory.make();
+    for (Iterator<Set<Integer>> it = new SCCIterator<>(G); it.hasNext();) {
+      result.add(it.next());
+    }
+    return result;
+  }
+
+  private static void check(NumberedGraph<Integer> G) {
+    check(G, ParallelSCC.computeSCCs(G));
+    check(G, ParallelSCC.computeSCCs(G, new ForkJoinPool(4)));
+  }
+
+  private static void check(NumberedGraph<Integer> G, List<Set<Integer>> sccs) {
+    Assert.assertEquals(expected(G), HashSetFactory.make(sccs));
+
+    // no edge goes from a component to an earlier one
+    Map<Integer, Integer> position = HashMapFactory.make();
+    for (int i = 0; i < sccs.size(); i++) {
+      for (Integer n : sccs.get(i)) {
+        position.put(n, i);
+      }
+    }
+    for (Integer n : G) {
+      for (Iterator<Integer> s = G.getSuccNodes(n); s.hasNext();) {
+        Assert.assertTrue(position.get(n) <= position.get(s.next()));
+      }
+    }
+
+    // makeTopologicalOrder visits the nodes of each component together, and components in some topological order
+    List<Integer> order = Topological.makeTopologicalOrder(G);
+    Assert.assertEquals(G.getNumberOfNodes(), order.size());
+    Map<Integer, Integer> rank = HashMapFactory.make();
+    Set<Integer> seen = HashSetFactory.make();
+    int last = -1;
+    for (Integer n : order) {
+      int c = position.get(n);
+      if (c != last) {
+        Assert.assertTrue(seen.add(c));
+        last = c;
+      }
+      rank.put(c, seen.size());
+    }
+    for (Integer n : G) {
+      for (Iterator<Integer> s = G.getSuccNodes(n); s.hasNext();) {
+        Assert.assertTrue(rank.get(position.get(n)) <= rank.get(position.get(s.next())));
+      }
+    }
+  }
+
+  @Test
+  public void testSmallGraphs() {
+    for (int seed = 0; seed < 20; seed++) {
+      check(makeRandomGraph(seed, 100, 100 + 10 * seed));
+    }
+  }
+
+  @Test
+  public void testLargeGraph() {
+    check(makeRandomGraph(42, 20000, 24000));
+  }
+
+  @Test
+  public void testChain() {
+    check(makeChain(10000));
+  }
+
+  @Test
+  public void testEmptyGraph() {
+    NumberedGraph<Integer> G = SlowSparseNumberedGraph.make();
+    Assert.assertTrue(ParallelSCC.computeSCCs(G).isEmpty());
+    Assert.assertTrue(Topological.makeTopologicalOrder(G).isEmpty());
+  }
+}
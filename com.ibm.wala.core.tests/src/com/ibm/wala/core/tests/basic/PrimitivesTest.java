@@ -10,10 +10,12 @@
  */
 package com.ibm.wala.core.tests.basic;
 
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -942,6 +944,45 @@ public class PrimitivesTest extends WalaTestCase {
     testBitVectors(new BitVector(), new BitVector());
   }
 
+  /**
+   * check the word-at-a-time kernels of {@link BitVector} against {@link java.util.BitSet}
+   */
+  @Test public void testBitVectorKernels() {
+    Random r = new Random(3);
+    for (int round = 0; round < 100; round++) {
+      BitSet s1 = new BitSet();
+      BitSet s2 = new BitSet();
+      BitVector v1 = new BitVector();
+      BitVector v2 = new BitVector();
+      for (int i = r.nextInt(200); i > 0; i--) {
+        int x = r.nextInt(1000);
+        s1.set(x);
+        v1.set(x);
+      }
+      for (int i = r.nextInt(200); i > 0; i--) {
+        int x = r.nextInt(2000);
+        s2.set(x);
+        v2.set(x);
+      }
+      Assert.assertEquals(s1.cardinality(), v1.populationCount());
+      Assert.assertEquals(s1.length() - 1, v1.max());
+      for (int i = 0; i < 1100; i += 7) {
+        Assert.assertEquals(s1.nextSetBit(i), v1.nextSetBit(i));
+      }
+
+      BitSet union = (BitSet) s1.clone();
+      union.or(s2);
+      BitVector w = new BitVector(v1);
+      Assert.assertEquals(union.cardinality() - s1.cardinality(), w.orWithDelta(v2));
+      Assert.assertEquals(0, w.orWithDelta(v2));
+      BitVector u = new BitVector(v1);
+      Assert.assertEquals(!union.equals(s1), u.orWithChange(v2));
+      Assert.assertFalse(u.orWithChange(v2));
+      Assert.assertTrue(u.sameBits(w));
+      Assert.assertEquals(union.cardinality(), u.populationCount());
+    }
+  }
+
   @Test public void testOffsetBitVectors150_10() {
     testBitVectors(new OffsetBitVector(150, 10), new OffsetBitVector(150, 10));
   }
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.basic;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.util.graph.NumberedGraph;
+import com.ibm.wala.util.graph.dominators.Dominators;
+import com.ibm.wala.util.graph.dominators.NumberedDominators;
+import com.ibm.wala.util.graph.dominators.SemiNCADominators;
+import com.ibm.wala.util.graph.impl.SlowSparseNumberedGraph;
+
+/**
+ * Check {@link SemiNCADominators} against Lengauer and Tarjan's algorithm
+ */
+public class SemiNCADominatorsTest extends WalaTestCase {
+
+  private static NumberedGraph<Integer> makeRandomGraph(long seed, int nodes, int edges) {
+    Random r = new Random(seed);
+    SlowSparseNumberedGraph<Integer> G = SlowSparseNumberedGraph.make();
+    for (int i = 0; i < nodes; i++) {
+      G.addNode(i);
+    }
+    // a spanning path from the root keeps most nodes reachable; the last few are left unreachable
+    for (int i = 1; i < nodes - 5; i++) {
+      G.addEdge(r.nextInt(i), i);
+    }
+    for (int i = 0; i < edges; i++) {
+      G.addEdge(r.nextInt(nodes), r.nextInt(nodes));
+    }
+    return G;
+  }
+
+  /**
+   * @return true iff master is on the immediate dominator chain of node
+   */
+  private static boolean walk(Dominators<Integer> D, Integer node, Integer master) {
+    for (Integer x = node; x != null; x = D.getIdom(x)) {
+      if (x.equals(master)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Test
+  public void testRandomGraphs() {
+    for (int seed = 0; seed < 20; seed++) {
+      NumberedGraph<Integer> G = makeRandomGraph(seed, 200, 50 + 20 * seed);
+      Dominators<Integer> expected = new NumberedDominators<>(G, 0);
+      Dominators<Integer> actual = new SemiNCADominators<>(G, 0);
+      for (Integer n : G) {
+        Assert.assertEquals("idom of " + n, expected.getIdom(n), actual.getIdom(n));
+        for (Integer m : G) {
+          Assert.assertEquals(walk(expected, n, m), actual.isDominatedBy(n, m));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testDeepGraph() {
+    // a chain with a back edge to the root from every node; too deep for recursive traversals
+    int size = 200000;
+    SlowSparseNumberedGraph<Integer> G = SlowSparseNumberedGraph.make();
+    for (int i = 0; i < size; i++) {
+      G.addNode(i);
+      if (i > 0) {
+        G.addEdge(i - 1, i);
+        G.addEdge(i, 0);
+      }
+    }
+    Dominators<Integer> D = new SemiNCADominators<>(G, 0);
+    Assert.assertNull(D.getIdom(0));
+    Assert.assertEquals(Integer.valueOf(size - 2), D.getIdom(size - 1));
+    Assert.assertTrue(D.isDominatedBy(size - 1, 1));
+    Assert.assertFalse(D.isDominatedBy(1, size - 1));
+  }
+
+  @Test
+  public void testMakeSelectsAlgorithm() {
+    NumberedGraph<Integer> G = makeRandomGraph(7, 10, 10);
+    boolean old = Dominators.getUseSemiNCA();
+    try {
+      Dominators.setUseSemiNCA(true);
+      Assert.assertTrue(Dominators.make(G, 0) instanceof SemiNCADominators);
+      Dominators.setUseSemiNCA(false);
+      Assert.assertTrue(Dominators.make(G, 0) instanceof NumberedDominators);
+    } finally {
+      Dominators.setUseSemiNCA(old);
+    }
+  }
+}
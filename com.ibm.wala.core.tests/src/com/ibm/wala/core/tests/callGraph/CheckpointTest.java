@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.callGraph;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.CallGraphBuilderCancelException;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.AbstractRootMethod;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashSetFactory;
+
+/**
+ * Check that a call graph build resumed from a checkpoint computes the same call graph as one run in one go
+ */
+public class CheckpointTest extends WalaTestCase {
+
+  /**
+   * facts of the call graph, where those of the fake root nodes do not name value numbers: the fake world clinit gets its
+   * instructions in the order classes are discovered, which differs between a resumed build and one run in one go
+   */
+  private static Map<String, Set<String>> facts(CallGraph cg, PointerAnalysis<?> pa) {
+    Map<String, Set<String>> result = CycleEliminationTest.facts(cg, pa);
+    for (CGNode n : cg) {
+      if (n.getMethod() instanceof AbstractRootMethod) {
+        Set<String> facts = HashSetFactory.make();
+        for (String f : result.get(n.toString())) {
+          facts.add(f.replaceFirst("^[0-9]+ ", ""));
+        }
+        result.put(n.toString(), facts);
+      }
+    }
+    return result;
+  }
+
+  @Test
+  public void testResume() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope = CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(scope, cha, TestConstants.HELLO_MAIN);
+
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    SSAPropagationCallGraphBuilder builder = Util.makeZeroOneCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha, scope);
+    CallGraph cg = builder.makeCallGraph(options, null);
+    Map<String, Set<String>> expected = facts(cg, builder.getPointerAnalysis());
+    Assert.assertEquals(-1, builder.getNumberOfResumedFacts());
+
+    File file = File.createTempFile("checkpoint", ".bin");
+    Files.delete(file.toPath());
+    try {
+      // stop part of the way, as if the process were killed
+      options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+      options.setMaxNumberOfNodes(cg.getNumberOfNodes() / 2);
+      builder = Util.makeZeroOneCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha, scope);
+      builder.setCheckpoint(file, 0);
+      try {
+        builder.makeCallGraph(options, null);
+        Assert.fail("expected to hit the node limit");
+      } catch (CallGraphBuilderCancelException e) {
+        // expected
+      }
+      Assert.assertTrue(file.exists());
+
+      options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+      builder = Util.makeZeroOneCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha, scope);
+      builder.setCheckpoint(file, 0);
+      CallGraph resumed = builder.makeCallGraph(options, null);
+      Assert.assertTrue(builder.getNumberOfResumedFacts() > 0);
+      Assert.assertEquals(expected, facts(resumed, builder.getPointerAnalysis()));
+
+      // a checkpoint of a different analysis is ignored
+      options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+      builder = Util.makeZeroCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha, scope);
+      builder.setCheckpoint(file, Long.MAX_VALUE);
+      builder.makeCallGraph(options, null);
+      Assert.assertEquals(-1, builder.getNumberOfResumedFacts());
+
+      // a damaged checkpoint is reported, not silently ignored
+      byte[] bytes = Files.readAllBytes(file.toPath());
+      Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length / 2));
+      options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+      builder = Util.makeZeroOneCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha, scope);
+      builder.setCheckpoint(file, Long.MAX_VALUE);
+      try {
+        builder.makeCallGraph(options, null);
+        Assert.fail("expected a damaged checkpoint to be reported");
+      } catch (UncheckedIOException e) {
+        // expected
+      }
+    } finally {
+      Files.deleteIfExists(file.toPath());
+    }
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.callGraph;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.PropagationMetrics;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+
+/**
+ * Check that collapsing cycles of assignments does not change the call graph
+ */
+public class CycleEliminationTest extends WalaTestCase {
+
+  /**
+   * @return node -&gt; its callees, and the instances each of its locals may point to
+   */
+  static Map<String, Set<String>> facts(CallGraph cg, PointerAnalysis<?> pa) {
+    Map<String, Set<String>> result = HashMapFactory.make();
+    for (CGNode n : cg) {
+      Set<String> facts = HashSetFactory.make();
+      for (CGNode succ : Iterator2Iterable.make(cg.getSuccNodes(n))) {
+        facts.add(succ.toString());
+      }
+      if (n.getIR() != null) {
+        for (int v = 1; v <= n.getIR().getSymbolTable().getMaxValueNumber(); v++) {
+          PointerKey k = pa.getHeapModel().getPointerKeyForLocal(n, v);
+          for (Object ik : pa.getPointsToSet(k)) {
+            facts.add(v + " " + ik);
+          }
+        }
+      }
+      result.put(n.toString(), facts);
+    }
+    return result;
+  }
+
+  @Test
+  public void testSameResult() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope = CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(scope, cha, TestConstants.HELLO_MAIN);
+
+    Map<String, Set<String>> expected = null;
+    for (boolean collapse : new boolean[] { false, true }) {
+      AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+      options.setCycleElimination(collapse);
+      SSAPropagationCallGraphBuilder builder = Util.makeZeroCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha, scope);
+      PropagationMetrics metrics = new PropagationMetrics();
+      builder.setPropagationListener(metrics);
+      CallGraph cg = builder.makeCallGraph(options, null);
+      Map<String, Set<String>> result = facts(cg, builder.getPointerAnalysis());
+      if (expected == null) {
+        expected = result;
+        Assert.assertEquals(0, metrics.getNumberOfMergedVariables());
+      } else {
+        Assert.assertEquals(expected, result);
+        Assert.assertTrue(builder.getPropagationSystem().getNumberOfCollapsedCycles() > 0);
+        Assert.assertTrue(metrics.getNumberOfMergedVariables() >= metrics.getNumberOfCollapsedCycles());
+        Assert.assertTrue(metrics.toMap().containsKey("cycles.mergedVariables"));
+        try {
+          builder.getPropagationSystem().enableRetraction();
+          Assert.fail("retraction enabled on a system that collapses cycles");
+        } catch (IllegalStateException e) {
+          // expected
+        }
+      }
+    }
+  }
+}
@@ -19,6 +19,7 @@ import com.ibm.wala.ipa.cha.ClassHierarchyException;
 import com.ibm.wala.util.CancelException;
 import com.ibm.wala.util.intset.BimodalMutableIntSetFactory;
 import com.ibm.wala.util.intset.BitVectorIntSetFactory;
+import com.ibm.wala.util.intset.CompressedMutableIntSetFactory;
 import com.ibm.wala.util.intset.DebuggingMutableIntSetFactory;
 import com.ibm.wala.util.intset.IntSetUtil;
 import com.ibm.wala.util.intset.MutableIntSetFactory;
@@ -71,4 +72,8 @@ public class DebuggingBitsetCallGraphTest extends WalaTestCase {
     runBitsetTest(new SemiSparseMutableIntSetFactory(), new MutableSharedBitVectorIntSetFactory());
   }
 
+  @Test public void testCompressedSemiSparse() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    runBitsetTest(new CompressedMutableIntSetFactory(), new SemiSparseMutableIntSetFactory());
+  }
+
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.callGraph;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.ParallelSolver;
+import com.ibm.wala.ipa.callgraph.propagation.PropagationMetrics;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.util.CancelException;
+
+/**
+ * Check that propagating differences along assignments does not change the call graph, and propagates less
+ */
+public class DifferencePropagationTest extends WalaTestCase {
+
+  @Test
+  public void testSameResult() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope = CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(scope, cha, TestConstants.HELLO_MAIN);
+
+    Map<String, Set<String>> expected = null;
+    // without, with, and with the passes that unify variables too
+    for (int mode = 0; mode < 3; mode++) {
+      AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+      options.setDifferencePropagation(mode > 0);
+      options.setCycleElimination(mode == 2);
+      options.setVariableSubstitution(mode == 2);
+      SSAPropagationCallGraphBuilder builder = Util.makeZeroOneCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha, scope);
+      PropagationMetrics metrics = new PropagationMetrics();
+      builder.setPropagationListener(metrics);
+      CallGraph cg = builder.makeCallGraph(options, null);
+      Map<String, Set<String>> result = CycleEliminationTest.facts(cg, builder.getPointerAnalysis());
+      Assert.assertTrue(metrics.getNumberOfBitsPropagated() > 0);
+      Assert.assertEquals(builder.getPropagationSystem().getNumberOfBitsPropagated(), metrics.getNumberOfBitsPropagated());
+      if (expected == null) {
+        expected = result;
+        Assert.assertEquals(metrics.getNumberOfBitsPropagatedByFullSets(), metrics.getNumberOfBitsPropagated());
+        Assert.assertEquals(0, metrics.getNumberOfBitsScannedForDifferences());
+      } else {
+        Assert.assertEquals(expected, result);
+        Assert.assertTrue(metrics.getNumberOfBitsPropagated() < metrics.getNumberOfBitsPropagatedByFullSets());
+        Assert.assertTrue(metrics.getNumberOfBitsScannedForDifferences() > 0);
+        Assert.assertTrue(metrics.toMap().containsKey("bits.propagated.fullSets"));
+        Assert.assertTrue(metrics.toMap().containsKey("bits.scannedForDifferences"));
+      }
+    }
+
+    // without a listener, nothing is counted
+    AnalysisOptions quiet = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    quiet.setDifferencePropagation(true);
+    SSAPropagationCallGraphBuilder unobserved = Util.makeZeroOneCFABuilder(Language.JAVA, quiet, new AnalysisCacheImpl(), cha, scope);
+    CallGraph cg = unobserved.makeCallGraph(quiet, null);
+    Assert.assertEquals(expected, CycleEliminationTest.facts(cg, unobserved.getPointerAnalysis()));
+    Assert.assertEquals(0, unobserved.getPropagationSystem().getNumberOfBitsPropagated());
+    Assert.assertEquals(0, unobserved.getPropagationSystem().getNumberOfBitsScannedForDifferences());
+
+    // the parallel solver evaluates assignments itself, so it propagates whole sets
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    options.setDifferencePropagation(true);
+    options.setSolverThreads(2);
+    SSAPropagationCallGraphBuilder builder = Util.makeZeroOneCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha, scope);
+    builder.makeCallGraph(options, null);
+    Assert.assertFalse(builder.getPropagationSystem().isDifferencePropagationEnabled());
+    builder.getPropagationSystem().enableDifferencePropagation();
+    try {
+      new ParallelSolver(builder.getPropagationSystem(), builder, 2);
+      Assert.fail("parallel solver accepted difference propagation");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+}
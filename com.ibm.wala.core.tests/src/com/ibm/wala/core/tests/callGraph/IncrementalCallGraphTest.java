@@ -0,0 +1,315 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.callGraph;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.BinaryDirectoryTreeModule;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.classLoader.Module;
+import com.ibm.wala.classLoader.ModuleEntry;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.PropagationSystem;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ipa.summaries.MethodSummary;
+import com.ibm.wala.ipa.summaries.SummarizedMethod;
+import com.ibm.wala.shrikeBT.IInstruction;
+import com.ibm.wala.shrikeBT.IInvokeInstruction;
+import com.ibm.wala.shrikeBT.LoadInstruction;
+import com.ibm.wala.shrikeBT.MethodData;
+import com.ibm.wala.shrikeBT.MethodEditor;
+import com.ibm.wala.shrikeBT.shrikeCT.ClassInstrumenter;
+import com.ibm.wala.shrikeCT.ClassReader;
+import com.ibm.wala.shrikeCT.InvalidClassFileException;
+import com.ibm.wala.ssa.DefaultIRFactory;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.SSAOptions;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Iterator2Collection;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import com.ibm.wala.util.config.AnalysisScopeReader;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.IntSetUtil;
+import com.ibm.wala.util.io.FileProvider;
+
+/**
+ * Check that updating a call graph after code changes agrees with building it again
+ */
+public class IncrementalCallGraphTest extends WalaTestCase {
+
+  /**
+   * an IR factory that can pretend the body of some method has been deleted
+   */
+  private static class EditableIRFactory extends DefaultIRFactory {
+    private MethodReference emptied;
+
+    @Override
+    public IR makeIR(IMethod method, Context c, SSAOptions options) {
+      if (method.getReference().equals(emptied)) {
+        MethodSummary summary = new MethodSummary(method.getReference());
+        summary.setStatic(method.isStatic());
+        return new SummarizedMethod(method.getReference(), summary, method.getDeclaringClass()).makeIR(c, options);
+      }
+      return super.makeIR(method, c, options);
+    }
+  }
+
+  private final EditableIRFactory irFactory = new EditableIRFactory();
+
+  private IClassHierarchy cha;
+
+  private SSAPropagationCallGraphBuilder makeBuilder() throws ClassHierarchyException, IOException, CancelException {
+    AnalysisScope scope = CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    cha = ClassHierarchyFactory.make(scope);
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(scope, cha, TestConstants.HELLO_MAIN);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    SSAPropagationCallGraphBuilder builder = Util.makeZeroCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(irFactory), cha,
+        scope);
+    builder.setIncremental(true);
+    builder.makeCallGraph(options, null);
+    return builder;
+  }
+
+  private static SSAPropagationCallGraphBuilder makeBuilder(File bin) throws ClassHierarchyException, IOException, CancelException {
+    AnalysisScope scope = AnalysisScopeReader.makePrimordialScope((new FileProvider()).getFile(CallGraphTestUtil.REGRESSION_EXCLUSIONS));
+    scope.addToScope(ClassLoaderReference.Application, new BinaryDirectoryTreeModule(bin));
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(scope, cha, "Ldemandpa/TestGetterSetter");
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    SSAPropagationCallGraphBuilder builder = Util.makeVanillaZeroOneCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha, scope);
+    builder.setIncremental(true);
+    builder.makeCallGraph(options, null);
+    return builder;
+  }
+
+  /**
+   * @return the class file of demandpa.TestGetterSetter, with the receiver of its call to getF() read from the next local, i.e.
+   *         a1.getF() becomes a2.getF()
+   */
+  private static byte[] callGetterOnOtherInstance(byte[] bytes) throws InvalidClassFileException {
+    ClassInstrumenter ci = new ClassInstrumenter("demandpa/TestGetterSetter", bytes, null);
+    ClassReader cr = ci.getReader();
+    for (int i = 0; i < cr.getMethodCount(); i++) {
+      if (cr.getMethodName(i).equals("main")) {
+        MethodData data = ci.visitMethod(i);
+        MethodEditor me = new MethodEditor(data);
+        me.beginPass();
+        IInstruction[] instructions = me.getInstructions();
+        for (int j = 1; j < instructions.length; j++) {
+          if (instructions[j] instanceof IInvokeInstruction && ((IInvokeInstruction) instructions[j]).getMethodName().equals("getF")) {
+            final LoadInstruction receiver = (LoadInstruction) instructions[j - 1];
+            me.replaceWith(j - 1, new MethodEditor.Patch() {
+              @Override
+              public void emitTo(MethodEditor.Output w) {
+                w.emit(LoadInstruction.make(receiver.getType(), receiver.getVarIndex() + 1));
+              }
+            });
+          }
+        }
+        me.applyPatches();
+        me.endPass();
+      }
+    }
+    return ci.emitClass().makeBytes();
+  }
+
+  /**
+   * points-to sets by name, to compare the results of different class hierarchies
+   */
+  private static Map<String, Set<String>> namedPointsTo(PropagationSystem system) {
+    Map<String, Set<String>> result = HashMapFactory.make();
+    for (Map.Entry<PointerKey, IntSet> e : pointsTo(system).entrySet()) {
+      if (!e.getValue().isEmpty()) {
+        Set<String> names = HashSetFactory.make();
+        e.getValue().foreach(i -> names.add(system.getInstanceKey(i).toString()));
+        result.put(e.getKey().toString(), names);
+      }
+    }
+    return result;
+  }
+
+  private static Map<String, Set<String>> namedEdges(CallGraph cg) {
+    Map<String, Set<String>> result = HashMapFactory.make();
+    for (Map.Entry<CGNode, Set<CGNode>> e : edges(cg).entrySet()) {
+      Set<String> names = HashSetFactory.make();
+      for (CGNode n : e.getValue()) {
+        names.add(n.toString());
+      }
+      result.put(e.getKey().toString(), names);
+    }
+    return result;
+  }
+
+  private static Map<CGNode, Set<CGNode>> edges(CallGraph cg) {
+    Map<CGNode, Set<CGNode>> result = HashMapFactory.make();
+    for (CGNode n : cg) {
+      result.put(n, Iterator2Collection.toSet(cg.getSuccNodes(n)));
+    }
+    return result;
+  }
+
+  private static Map<PointerKey, IntSet> pointsTo(PropagationSystem system) {
+    Map<PointerKey, IntSet> result = HashMapFactory.make();
+    for (PointerKey k : Iterator2Iterable.make(system.iteratePointerKeys())) {
+      if (!system.isImplicit(k)) {
+        IntSet s = system.findOrCreatePointsToSet(k).getValue();
+        result.put(k, s == null ? IntSetUtil.make() : IntSetUtil.makeMutableCopy(s));
+      }
+    }
+    return result;
+  }
+
+  private static void assertSamePointsTo(Map<PointerKey, IntSet> expected, Map<PointerKey, IntSet> actual) {
+    for (Map.Entry<PointerKey, IntSet> e : actual.entrySet()) {
+      IntSet s = expected.get(e.getKey());
+      if (s == null) {
+        Assert.assertTrue(e.getKey().toString(), e.getValue().isEmpty());
+      } else {
+        Assert.assertTrue(e.getKey().toString(), s.sameValue(e.getValue()));
+      }
+    }
+    Assert.assertTrue(actual.keySet().containsAll(expected.keySet()));
+  }
+
+  private CGNode findMain(CallGraph cg) {
+    TypeReference hello = TypeReference.findOrCreate(ClassLoaderReference.Application, TestConstants.HELLO_MAIN);
+    Set<CGNode> nodes = cg.getNodes(MethodReference.findOrCreate(hello, "main", "([Ljava/lang/String;)V"));
+    Assert.assertEquals(1, nodes.size());
+    return nodes.iterator().next();
+  }
+
+  @Test
+  public void testUnchangedClasses() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    SSAPropagationCallGraphBuilder builder = makeBuilder();
+    CallGraph cg = builder.getCallGraph();
+    Map<CGNode, Set<CGNode>> edges = edges(cg);
+    Map<PointerKey, IntSet> pointsTo = pointsTo(builder.getPropagationSystem());
+
+    Set<IClass> changed = HashSetFactory.make();
+    changed.add(findMain(cg).getMethod().getDeclaringClass());
+    changed.add(cha.lookupClass(TypeReference.JavaLangString));
+    Assert.assertSame(cg, builder.updateCallGraph(changed, null));
+
+    Assert.assertEquals(edges, edges(cg));
+    assertSamePointsTo(pointsTo, pointsTo(builder.getPropagationSystem()));
+  }
+
+  @Test
+  public void testChangedMethod() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    SSAPropagationCallGraphBuilder builder = makeBuilder();
+    CallGraph cg = builder.getCallGraph();
+    Map<CGNode, Set<CGNode>> edges = edges(cg);
+    Map<PointerKey, IntSet> pointsTo = pointsTo(builder.getPropagationSystem());
+    CGNode main = findMain(cg);
+    Assert.assertTrue(cg.getSuccNodeCount(main) > 0);
+
+    // delete the body of main
+    irFactory.emptied = main.getMethod().getReference();
+    Set<IClass> changed = Collections.singleton(main.getMethod().getDeclaringClass());
+    builder.updateCallGraph(changed, null);
+    Assert.assertEquals(0, cg.getSuccNodeCount(main));
+    Assert.assertEquals(edges.keySet(), Iterator2Collection.toSet(cg.iterator()));
+
+    // and put it back
+    irFactory.emptied = null;
+    builder.updateCallGraph(changed, null);
+    Assert.assertEquals(edges, edges(cg));
+    assertSamePointsTo(pointsTo, pointsTo(builder.getPropagationSystem()));
+  }
+
+  /**
+   * a class file replaced in place is read again, and the result agrees with building from the new class file. Only main
+   * changes, but the field read in getF, an unchanged method, must forget the instance it was called on before.
+   */
+  @Test
+  public void testChangedClassFile() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException,
+      InvalidClassFileException {
+    File bin = Files.createTempDirectory("wala-bin").toFile();
+    File pkg = new File(bin, "demandpa");
+    Assert.assertTrue(pkg.mkdir());
+    AnalysisScope testdata = CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    for (Module m : testdata.getModules(ClassLoaderReference.Application)) {
+      for (ModuleEntry e : Iterator2Iterable.make(m.getEntries())) {
+        if (e.getName().equals("demandpa/TestGetterSetter.class") || e.getName().equals("demandpa/A.class")
+            || e.getName().equals("demandpa/DemandPATestUtil.class")) {
+          try (InputStream in = e.getInputStream()) {
+            Files.copy(in, new File(pkg, e.getName().substring(e.getName().indexOf('/') + 1)).toPath());
+          }
+        }
+      }
+    }
+    File main = new File(pkg, "TestGetterSetter.class");
+    File a = new File(pkg, "A.class");
+    File util = new File(pkg, "DemandPATestUtil.class");
+    Assert.assertTrue(main.isFile() && a.isFile() && util.isFile());
+
+    try {
+      SSAPropagationCallGraphBuilder builder = makeBuilder(bin);
+      Map<String, Set<String>> before = namedPointsTo(builder.getPropagationSystem());
+      Files.write(main.toPath(), callGetterOnOtherInstance(Files.readAllBytes(main.toPath())));
+      IClass changed = builder.getClassHierarchy().lookupClass(
+          TypeReference.findOrCreate(ClassLoaderReference.Application, "Ldemandpa/TestGetterSetter"));
+      CallGraph cg = builder.updateCallGraph(Collections.singleton(changed), null);
+
+      SSAPropagationCallGraphBuilder rebuilt = makeBuilder(bin);
+      Map<String, Set<String>> after = namedPointsTo(rebuilt.getPropagationSystem());
+      Assert.assertNotEquals(before, after);
+      Assert.assertEquals(after, namedPointsTo(builder.getPropagationSystem()));
+      Assert.assertEquals(namedEdges(rebuilt.getCallGraph()), namedEdges(cg));
+
+      // a different class in the same file is not a change of method bodies
+      Files.copy(a.toPath(), main.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      try {
+        builder.updateCallGraph(Collections.singleton(changed), null);
+        Assert.fail("declarations changed");
+      } catch (IllegalStateException e) {
+        // expected
+      }
+    } finally {
+      main.delete();
+      a.delete();
+      util.delete();
+      pkg.delete();
+      bin.delete();
+    }
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.callGraph;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.IPropagationListener.Phase;
+import com.ibm.wala.ipa.callgraph.propagation.PropagationMetrics;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.util.CancelException;
+
+/**
+ * Check that {@link PropagationMetrics} sees the whole of a call graph construction
+ */
+public class PropagationMetricsTest extends WalaTestCase {
+
+  @Test
+  public void testZeroCFA() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope = CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(scope, cha, TestConstants.HELLO_MAIN);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    SSAPropagationCallGraphBuilder builder = Util.makeZeroCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha, scope);
+    PropagationMetrics metrics = new PropagationMetrics(1);
+    builder.setPropagationListener(metrics);
+    CallGraph cg = builder.makeCallGraph(options, null);
+
+    // the call graph comes with the synthetic fakeWorldClinit node, whose calls are added directly
+    Assert.assertEquals(cg.getNumberOfNodes() - 1, metrics.getNumberOfDiscoveredNodes());
+    Assert.assertTrue(metrics.getPhaseCount(Phase.CONSTRAINTS) >= metrics.getNumberOfDiscoveredNodes());
+    Assert.assertTrue(metrics.getPhaseCount(Phase.IR) > 0);
+    Assert.assertTrue(metrics.getPhaseCount(Phase.SOLVE) > 0);
+    Assert.assertTrue(metrics.getTotalNanos() >= metrics.getPhaseNanos(Phase.SOLVE));
+
+    // the system does not count eager evaluations of new statements
+    Assert.assertTrue(metrics.getNumberOfEvaluations() >= builder.getPropagationSystem().getNumberOfEvaluations());
+    Assert.assertEquals(metrics.getNumberOfEvaluations(), metrics.getWorklistSamples().length);
+    long byOperator = 0;
+    boolean sawAssign = false;
+    for (Map.Entry<Class<?>, Long> e : metrics.getEvaluationsByOperator().entrySet()) {
+      byOperator += e.getValue();
+      sawAssign |= e.getKey().getSimpleName().equals("AssignOperator");
+    }
+    Assert.assertEquals(metrics.getNumberOfEvaluations(), byOperator);
+    Assert.assertTrue(sawAssign);
+
+    long sets = 0;
+    for (long n : metrics.getPointsToSetSizeHistogram()) {
+      sets += n;
+    }
+    Assert.assertTrue(sets > 0);
+    Assert.assertTrue(metrics.toMap().containsKey("time.solve.ns"));
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.callGraph;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.PropagationMetrics;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.util.CancelException;
+
+/**
+ * Check that substituting equivalent variables before solving does not change the call graph
+ */
+public class VariableSubstitutionTest extends WalaTestCase {
+
+  @Test
+  public void testSameResult() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope = CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(scope, cha, TestConstants.HELLO_MAIN);
+
+    Map<String, Set<String>> expected = null;
+    // with and without cycle elimination, which unifies variables too
+    for (boolean[] modes : new boolean[][] { { false, false }, { true, false }, { true, true } }) {
+      AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+      options.setVariableSubstitution(modes[0]);
+      options.setCycleElimination(modes[1]);
+      SSAPropagationCallGraphBuilder builder = Util.makeZeroOneCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha, scope);
+      PropagationMetrics metrics = new PropagationMetrics();
+      builder.setPropagationListener(metrics);
+      CallGraph cg = builder.makeCallGraph(options, null);
+      Map<String, Set<String>> result = CycleEliminationTest.facts(cg, builder.getPointerAnalysis());
+      if (expected == null) {
+        expected = result;
+        Assert.assertEquals(0, metrics.getNumberOfSubstitutedVariables());
+      } else {
+        Assert.assertEquals(expected, result);
+        Assert.assertTrue(metrics.getNumberOfSubstitutedVariables() > 0);
+        Assert.assertEquals(builder.getPropagationSystem().getNumberOfSubstitutedVariables(), metrics.getNumberOfSubstitutedVariables());
+        Assert.assertTrue(metrics.toMap().containsKey("substitution.mergedVariables"));
+      }
+    }
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.callGraph;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.fixedpoint.impl.WorklistStrategy;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.PropagationMetrics;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+
+/**
+ * Check that every {@link WorklistStrategy} computes the same call graph
+ */
+public class WorklistStrategyTest extends WalaTestCase {
+
+  @Test
+  public void testStrategiesAgree() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope = CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(scope, cha, TestConstants.HELLO_MAIN);
+
+    Map<String, Set<String>> expected = null;
+    for (WorklistStrategy strategy : WorklistStrategy.values()) {
+      AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+      options.setWorklistStrategy(strategy);
+      SSAPropagationCallGraphBuilder builder = Util.makeZeroCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha, scope);
+      PropagationMetrics metrics = new PropagationMetrics();
+      builder.setPropagationListener(metrics);
+      CallGraph cg = builder.makeCallGraph(options, null);
+
+      // which locals get variables of their own depends on the order of evaluation, so compare, for each node, its
+      // callees and the instances its locals may point to
+      Map<String, Set<String>> result = HashMapFactory.make();
+      PointerAnalysis<?> pa = builder.getPointerAnalysis();
+      for (CGNode n : cg) {
+        Set<String> facts = HashSetFactory.make();
+        for (CGNode succ : Iterator2Iterable.make(cg.getSuccNodes(n))) {
+          facts.add(succ.toString());
+        }
+        if (n.getIR() != null) {
+          for (int v = 1; v <= n.getIR().getSymbolTable().getMaxValueNumber(); v++) {
+            PointerKey k = pa.getHeapModel().getPointerKeyForLocal(n, v);
+            for (Object ik : pa.getPointsToSet(k)) {
+              facts.add(ik.toString());
+            }
+          }
+        }
+        result.put(n.toString(), facts);
+      }
+      if (expected == null) {
+        expected = result;
+      } else {
+        Assert.assertEquals(strategy.name(), expected, result);
+      }
+
+      Assert.assertEquals(strategy, builder.getPropagationSystem().getWorklistStrategy());
+      Map<WorklistStrategy, Integer> byStrategy = metrics.getEvaluationsByStrategy();
+      Assert.assertEquals(byStrategy.toString(), 1, byStrategy.size());
+      Assert.assertEquals(builder.getPropagationSystem().getNumberOfEvaluations(), (int) byStrategy.get(strategy));
+      Assert.assertTrue(metrics.toMap().containsKey("statements.evaluated.strategy." + strategy.name().toLowerCase()));
+    }
+  }
+}
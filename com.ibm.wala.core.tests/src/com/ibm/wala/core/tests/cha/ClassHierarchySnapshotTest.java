@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.cha;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.BinaryDirectoryTreeModule;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.SourceURLModule;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.ClassHierarchySnapshot;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.TypeReference;
+
+/**
+ * Check that a class hierarchy read from a {@link ClassHierarchySnapshot} is the same as one built from the scope
+ */
+public class ClassHierarchySnapshotTest extends WalaTestCase {
+
+  @Test
+  public void testSnapshot() throws ClassHierarchyException, IOException {
+    AnalysisScope scope = CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    File file = File.createTempFile("wala-cha", ".snapshot");
+    try {
+      Assert.assertTrue(file.delete());
+      ClassHierarchy built = ClassHierarchyFactory.makeWithSnapshot(scope, file);
+      Assert.assertTrue(file.isFile());
+
+      ClassHierarchySnapshot snapshot = ClassHierarchySnapshot.read(file);
+      Assert.assertTrue(snapshot.isValidFor(scope));
+      Assert.assertEquals(built.getNumberOfClasses(), snapshot.getNumberOfClasses());
+
+      ClassHierarchy restored = ClassHierarchyFactory.makeWithSnapshot(scope, file);
+      Assert.assertEquals(built.getNumberOfClasses(), restored.getNumberOfClasses());
+      for (IClass klass : built) {
+        IClass other = restored.lookupClass(klass.getReference());
+        Assert.assertNotNull(klass.toString(), other);
+        Assert.assertEquals(String.valueOf(klass.getSuperclass()), String.valueOf(other.getSuperclass()));
+        Assert.assertEquals(klass.getAllImplementedInterfaces().toString(), other.getAllImplementedInterfaces().toString());
+        Assert.assertEquals(klass.getDeclaredMethods().size(), other.getDeclaredMethods().size());
+      }
+      IClass string = restored.lookupClass(TypeReference.JavaLangString);
+      for (IMethod m : string.getDeclaredMethods()) {
+        Assert.assertNotNull(m.getSignature());
+      }
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testDamagedSnapshot() throws ClassHierarchyException, IOException {
+    AnalysisScope scope = CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    File file = File.createTempFile("wala-cha", ".snapshot");
+    try {
+      // an empty file is not a snapshot; it must be rebuilt
+      ClassHierarchy cha = ClassHierarchyFactory.makeWithSnapshot(scope, file);
+      Assert.assertTrue(ClassHierarchySnapshot.read(file).isValidFor(scope));
+      Assert.assertEquals(cha.getNumberOfClasses(), ClassHierarchySnapshot.read(file).getNumberOfClasses());
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testDirectoryFingerprint() throws IOException {
+    Path dir = Files.createTempDirectory("wala-bin");
+    try {
+      Path a = dir.resolve("A.class");
+      Files.write(a, new byte[] { 1 });
+      AnalysisScope scope = AnalysisScope.createJavaAnalysisScope();
+      scope.addToScope(ClassLoaderReference.Application, new BinaryDirectoryTreeModule(dir.toFile()));
+      byte[] before = ClassHierarchySnapshot.fingerprint(scope);
+      Assert.assertArrayEquals(before, ClassHierarchySnapshot.fingerprint(scope));
+
+      // a recompiled class
+      Files.write(a, new byte[] { 1, 2 });
+      byte[] changed = ClassHierarchySnapshot.fingerprint(scope);
+      Assert.assertFalse(Arrays.equals(before, changed));
+
+      // a new class in a subdirectory
+      Files.createDirectory(dir.resolve("p"));
+      Files.write(dir.resolve("p").resolve("B.class"), new byte[] { 1 });
+      Assert.assertFalse(Arrays.equals(changed, ClassHierarchySnapshot.fingerprint(scope)));
+    } finally {
+      Files.deleteIfExists(dir.resolve("p").resolve("B.class"));
+      Files.deleteIfExists(dir.resolve("p"));
+      Files.deleteIfExists(dir.resolve("A.class"));
+      Files.delete(dir);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownModule() throws IOException {
+    AnalysisScope scope = AnalysisScope.createJavaAnalysisScope();
+    scope.addToScope(ClassLoaderReference.Application, new SourceURLModule(new URL("http://example.com/A.java")));
+    ClassHierarchySnapshot.fingerprint(scope);
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.cha;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.JarFileModule;
+import com.ibm.wala.classLoader.MappedJarFileModule;
+import com.ibm.wala.classLoader.MappedModuleEntry;
+import com.ibm.wala.classLoader.Module;
+import com.ibm.wala.classLoader.ModuleEntry;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.shrikeCT.ClassReader;
+import com.ibm.wala.shrikeCT.InvalidClassFileException;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+
+/**
+ * Check that a {@link MappedJarFileModule} reads the same entries as a {@link JarFileModule}
+ */
+public class MappedJarFileModuleTest extends WalaTestCase {
+
+  private static JarFileModule getTestDataJar() throws IOException {
+    AnalysisScope scope = CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    for (Module m : scope.getModules(ClassLoaderReference.Application)) {
+      if (m instanceof JarFileModule) {
+        return (JarFileModule) m;
+      }
+    }
+    throw new AssertionError("no test data jar in scope");
+  }
+
+  private static byte[] toArray(ByteBuffer b) {
+    byte[] result = new byte[b.remaining()];
+    b.duplicate().get(result);
+    return result;
+  }
+
+  @Test
+  public void testSameContents() throws IOException, InvalidClassFileException {
+    JarFileModule jar = getTestDataJar();
+    MappedJarFileModule mapped = new MappedJarFileModule(new File(jar.getAbsolutePath()));
+
+    Map<String, MappedModuleEntry> entries = HashMapFactory.make();
+    for (ModuleEntry e : Iterator2Iterable.make(mapped.getEntries())) {
+      entries.put(e.getName(), (MappedModuleEntry) e);
+    }
+    int nClasses = 0;
+    for (ModuleEntry e : Iterator2Iterable.make(jar.getEntries())) {
+      MappedModuleEntry m = entries.remove(e.getName());
+      Assert.assertNotNull(e.getName(), m);
+      Assert.assertEquals(e.isClassFile(), m.isClassFile());
+      if (e.isClassFile()) {
+        byte[] expected = jar.getContents(jar.getJarFile().getEntry(e.getName()));
+        Assert.assertArrayEquals(e.getName(), expected, toArray(m.getByteBuffer()));
+        Assert.assertEquals(new ClassReader(expected).getName(), new ClassReader(m.getByteBuffer()).getName());
+        nClasses++;
+      }
+    }
+    Assert.assertTrue(entries.isEmpty());
+    Assert.assertTrue(nClasses > 0);
+  }
+
+  @Test
+  public void testStoredEntries() throws IOException, InvalidClassFileException {
+    JarFileModule jar = getTestDataJar();
+    File file = File.createTempFile("wala-stored", ".jar");
+    try {
+      // copy some class files into a jar without compression
+      int n = 0;
+      try (JarOutputStream out = new JarOutputStream(new FileOutputStream(file))) {
+        for (ModuleEntry e : Iterator2Iterable.make(jar.getEntries())) {
+          if (e.isClassFile() && n++ < 10) {
+            byte[] bytes = jar.getContents(jar.getJarFile().getEntry(e.getName()));
+            JarEntry entry = new JarEntry(e.getName());
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(bytes.length);
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            entry.setCrc(crc.getValue());
+            out.putNextEntry(entry);
+            out.write(bytes);
+            out.closeEntry();
+          }
+        }
+      }
+
+      MappedJarFileModule mapped = new MappedJarFileModule(file);
+      int nClasses = 0;
+      for (ModuleEntry e : Iterator2Iterable.make(mapped.getEntries())) {
+        if (e.isClassFile()) {
+          ByteBuffer b = ((MappedModuleEntry) e).getByteBuffer();
+          // a view of the mapped file, not a copy
+          Assert.assertTrue(b.isDirect());
+          byte[] expected = jar.getContents(jar.getJarFile().getEntry(e.getName()));
+          Assert.assertArrayEquals(expected, toArray(b));
+          Assert.assertArrayEquals(expected, new ClassReader(b).getBytes());
+          nClasses++;
+        }
+      }
+      Assert.assertEquals(10, nClasses);
+    } finally {
+      file.delete();
+    }
+  }
+}
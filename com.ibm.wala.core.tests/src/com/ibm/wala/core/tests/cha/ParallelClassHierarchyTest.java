@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.cha;
+
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+
+/**
+ * Check that parallel class hierarchy construction gives the same hierarchy as sequential construction
+ */
+public class ParallelClassHierarchyTest extends WalaTestCase {
+
+  private static void assertSameHierarchy(ClassHierarchy sequential, ClassHierarchy parallel) {
+    Assert.assertEquals(sequential.getNumberOfClasses(), parallel.getNumberOfClasses());
+    for (IClass klass : sequential) {
+      IClass other = parallel.lookupClass(klass.getReference());
+      Assert.assertNotNull(klass.toString(), other);
+      Assert.assertEquals(klass.toString(), sequential.getNumber(klass), parallel.getNumber(other));
+      Assert.assertEquals(String.valueOf(klass.getSuperclass()), String.valueOf(other.getSuperclass()));
+      Assert.assertEquals(klass.getAllImplementedInterfaces().toString(), other.getAllImplementedInterfaces().toString());
+      for (IMethod m : klass.getDeclaredMethods()) {
+        IMethod o = other.getMethod(m.getSelector());
+        Assert.assertNotNull(m.toString(), o);
+        // descriptors are interned, so both builds must share one instance
+        Assert.assertSame(m.toString(), m.getDescriptor(), o.getDescriptor());
+      }
+    }
+  }
+
+  @Test
+  public void testSameHierarchy() throws ClassHierarchyException, IOException {
+    AnalysisScope scope = CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    ClassHierarchy sequential = ClassHierarchyFactory.make(scope);
+    ClassHierarchy parallel = ClassHierarchyFactory.makeParallel(scope, 4);
+    assertSameHierarchy(sequential, parallel);
+  }
+
+  /**
+   * build in parallel again and again from fresh scopes, whose modules have not cached any class file yet, to shake out races
+   * on state shared between the parsing threads
+   */
+  @Test
+  public void testRepeatedBuilds() throws ClassHierarchyException, IOException {
+    AnalysisScope scope = CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    ClassHierarchy sequential = ClassHierarchyFactory.make(scope);
+    for (int i = 0; i < 5; i++) {
+      scope = CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+      assertSameHierarchy(sequential, ClassHierarchyFactory.makeParallel(scope, 8));
+    }
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.collections;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.util.intset.BitVectorIntSet;
+import com.ibm.wala.util.intset.BitVectorRepository;
+
+/**
+ * Check that {@link BitVectorRepository} hands out shared subsets from several threads at once
+ */
+public class BitVectorRepositoryTest extends WalaTestCase {
+
+  private static final int THREADS = 8;
+
+  private static final int VALUES = 200;
+
+  @Test
+  public void testConcurrentSharing() throws InterruptedException, ExecutionException {
+    Random r = new Random(7);
+    final List<BitVectorIntSet> values = new ArrayList<>();
+    for (int i = 0; i < VALUES; i++) {
+      BitVectorIntSet v = new BitVectorIntSet();
+      // a large offset keeps these vectors apart from those of other tests
+      for (int j = 0; j < 100 + r.nextInt(50); j++) {
+        v.add(1000000 + r.nextInt(1000));
+      }
+      values.add(v);
+    }
+
+    BitVectorRepository.resetStatistics();
+    ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+    try {
+      List<Future<List<BitVectorIntSet>>> results = new ArrayList<>();
+      for (int i = 0; i < THREADS; i++) {
+        results.add(pool.submit(() -> {
+          List<BitVectorIntSet> shared = new ArrayList<>();
+          for (BitVectorIntSet v : values) {
+            shared.add(BitVectorRepository.findOrCreateSharedSubset(v));
+          }
+          return shared;
+        }));
+      }
+      for (Future<List<BitVectorIntSet>> f : results) {
+        List<BitVectorIntSet> shared = f.get();
+        for (int i = 0; i < VALUES; i++) {
+          BitVectorIntSet v = values.get(i);
+          BitVectorIntSet s = shared.get(i);
+          Assert.assertTrue(s.isSubset(v));
+          Assert.assertTrue(s.size() > v.size() - 5);
+        }
+      }
+    } finally {
+      pool.shutdown();
+    }
+
+    Assert.assertEquals((long) THREADS * VALUES, BitVectorRepository.getQueries());
+    // only the first lookup of each value may miss, even when threads race
+    Assert.assertTrue(BitVectorRepository.getHits() >= (long) (THREADS - 1) * VALUES);
+    Assert.assertTrue(BitVectorRepository.getSharingRatio() > 0.8);
+    Assert.assertTrue(BitVectorRepository.getNumberOfEntries() > 0);
+  }
+}
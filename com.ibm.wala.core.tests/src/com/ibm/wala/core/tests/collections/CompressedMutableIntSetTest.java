@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.collections;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.util.intset.BitVectorIntSet;
+import com.ibm.wala.util.intset.CompressedMutableIntSet;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.IntSetUtil;
+import com.ibm.wala.util.intset.MutableIntSet;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+import com.ibm.wala.util.intset.SemiSparseMutableIntSet;
+
+/**
+ * Tests {@link CompressedMutableIntSet} against {@link MutableSparseIntSet}.
+ */
+public final class CompressedMutableIntSetTest extends WalaTestCase {
+
+  public static void main(final String[] args) {
+    justThisTest(CompressedMutableIntSetTest.class);
+  }
+
+  private static void assertSame(IntSet expected, IntSet actual) {
+    Assert.assertEquals(expected.size(), actual.size());
+    Assert.assertEquals(expected.isEmpty(), actual.isEmpty());
+    Assert.assertEquals(expected.isEmpty() ? -1 : expected.max(), actual.isEmpty() ? -1 : actual.max());
+    Assert.assertTrue(actual.sameValue(expected));
+    Assert.assertTrue(expected.sameValue(actual));
+    IntIterator e = expected.intIterator();
+    IntIterator a = actual.intIterator();
+    while (e.hasNext()) {
+      Assert.assertTrue(a.hasNext());
+      Assert.assertEquals(e.next(), a.next());
+    }
+    Assert.assertFalse(a.hasNext());
+  }
+
+  /**
+   * fill both sets with n random elements below bound
+   */
+  private static void fill(Random r, int n, int bound, MutableSparseIntSet b, CompressedMutableIntSet c) {
+    for (int i = 0; i < n; i++) {
+      int x = r.nextInt(bound);
+      Assert.assertEquals(b.add(x), c.add(x));
+    }
+  }
+
+  @Test
+  public void testAddRemove() {
+    Random r = new Random(17);
+    MutableSparseIntSet b = MutableSparseIntSet.makeEmpty();
+    CompressedMutableIntSet c = new CompressedMutableIntSet();
+    // enough elements in one chunk to switch to a bitmap and back
+    fill(r, 10000, 1 << 16, b, c);
+    assertSame(b, c);
+    for (int i = 0; i < 1 << 16; i++) {
+      Assert.assertEquals(b.contains(i), c.contains(i));
+      Assert.assertEquals(b.remove(i), c.remove(i));
+      if (i % 4096 == 0) {
+        assertSame(b, c);
+      }
+    }
+    Assert.assertTrue(c.isEmpty());
+    Assert.assertEquals(0, c.getNumberOfChunks());
+  }
+
+  @Test
+  public void testBinaryOperations() {
+    Random r = new Random(42);
+    for (int round = 0; round < 20; round++) {
+      // dense and sparse sets spread over several chunks
+      int bound = (round % 2 == 0) ? 1 << 17 : 1 << 22;
+      int n1 = r.nextInt(20000);
+      int n2 = r.nextInt(20000);
+      MutableSparseIntSet b1 = MutableSparseIntSet.makeEmpty();
+      CompressedMutableIntSet c1 = new CompressedMutableIntSet();
+      fill(r, n1, bound, b1, c1);
+      MutableSparseIntSet b2 = MutableSparseIntSet.makeEmpty();
+      CompressedMutableIntSet c2 = new CompressedMutableIntSet();
+      fill(r, n2, bound, b2, c2);
+
+      MutableSparseIntSet union = MutableSparseIntSet.make(b1);
+      union.addAll(b2);
+      MutableSparseIntSet intersection = MutableSparseIntSet.make(b1);
+      intersection.intersectWith(b2);
+      Assert.assertEquals(b1.containsAny(b2), c1.containsAny(c2));
+      Assert.assertEquals(b1.isSubset(b2), c1.isSubset(c2));
+      assertSame(union, c1.union(c2));
+      assertSame(intersection, c1.intersection(c2));
+      assertSame(b1, c1.union(c1.intersection(c2)));
+
+      MutableSparseIntSet bDiff = MutableSparseIntSet.make(b1);
+      bDiff.removeAll(b2);
+      assertSame(bDiff, CompressedMutableIntSet.diff(c1, c2));
+      Assert.assertTrue(IntSetUtil.diff(c1, c2).sameValue(bDiff));
+
+      MutableSparseIntSet b3 = MutableSparseIntSet.make(b1);
+      CompressedMutableIntSet c3 = new CompressedMutableIntSet(c1);
+      Assert.assertEquals(b3.addAll(b2), c3.addAll(c2));
+      assertSame(b3, c3);
+      Assert.assertTrue(c1.isSubset(c3));
+      Assert.assertTrue(c2.isSubset(c3));
+
+      b3 = MutableSparseIntSet.make(b1);
+      c3 = new CompressedMutableIntSet(c1);
+      b3.intersectWith(b2);
+      c3.intersectWith(c2);
+      assertSame(b3, c3);
+
+      MutableSparseIntSet filter = MutableSparseIntSet.makeEmpty();
+      CompressedMutableIntSet cFilter = new CompressedMutableIntSet();
+      fill(r, n1, bound, filter, cFilter);
+      b3 = MutableSparseIntSet.make(b1);
+      c3 = new CompressedMutableIntSet(c1);
+      Assert.assertEquals(b3.addAllInIntersection(b2, filter), c3.addAllInIntersection(c2, cFilter));
+      assertSame(b3, c3);
+
+      // operations with other IntSet implementations
+      MutableIntSet bits = (round % 2 == 0) ? new BitVectorIntSet() : new SemiSparseMutableIntSet();
+      bits.addAll(b2);
+      c3 = new CompressedMutableIntSet(c1);
+      c3.addAll(bits);
+      assertSame(union, c3);
+      assertSame(b2, new CompressedMutableIntSet(bits));
+    }
+  }
+
+  @Test
+  public void testToString() {
+    CompressedMutableIntSet c = new CompressedMutableIntSet();
+    c.add(70000);
+    c.add(1);
+    c.add(2);
+    Assert.assertEquals("{ 1 2 70000 }", c.toString());
+    Assert.assertEquals(2, c.getNumberOfChunks());
+  }
+}
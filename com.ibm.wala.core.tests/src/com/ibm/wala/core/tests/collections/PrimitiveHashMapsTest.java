@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.collections;
+
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.ObjectIntHashMap;
+import com.ibm.wala.util.intset.IntIntHashMap;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntObjectHashMap;
+
+/**
+ * Check the open-addressing primitive maps against {@link java.util.HashMap}, with enough removals to exercise the
+ * shifting of probe sequences
+ */
+public class PrimitiveHashMapsTest extends WalaTestCase {
+
+  private static final int OPERATIONS = 20000;
+
+  /**
+   * a small key range, so that keys collide and are removed often
+   */
+  private static final int KEYS = 500;
+
+  @Test
+  public void testIntIntHashMap() {
+    Random r = new Random(1);
+    IntIntHashMap map = new IntIntHashMap();
+    Map<Integer, Integer> expected = HashMapFactory.make();
+    for (int i = 0; i < OPERATIONS; i++) {
+      int key = r.nextInt(KEYS) - 10;
+      if (r.nextInt(3) == 0) {
+        Integer old = expected.remove(key);
+        Assert.assertEquals(old == null ? -1 : old.intValue(), map.remove(key));
+      } else {
+        int value = r.nextInt();
+        Integer old = expected.put(key, value);
+        Assert.assertEquals(old == null ? -1 : old.intValue(), map.put(key, value));
+      }
+      Assert.assertEquals(expected.size(), map.size());
+    }
+    for (int key = -10; key < KEYS; key++) {
+      Integer value = expected.get(key);
+      Assert.assertEquals(value != null, map.containsKey(key));
+      Assert.assertEquals(value == null ? -1 : value.intValue(), map.get(key));
+    }
+    int count = 0;
+    for (IntIterator it = map.keyIterator(); it.hasNext(); count++) {
+      Assert.assertTrue(expected.containsKey(it.next()));
+    }
+    Assert.assertEquals(expected.size(), count);
+  }
+
+  @Test
+  public void testIntObjectHashMap() {
+    Random r = new Random(2);
+    IntObjectHashMap<String> map = new IntObjectHashMap<>();
+    Map<Integer, String> expected = HashMapFactory.make();
+    for (int i = 0; i < OPERATIONS; i++) {
+      int key = r.nextInt(KEYS) - 10;
+      if (r.nextInt(3) == 0) {
+        Assert.assertEquals(expected.remove(key), map.remove(key));
+      } else {
+        String value = String.valueOf(r.nextInt());
+        Assert.assertEquals(expected.put(key, value), map.put(key, value));
+      }
+      Assert.assertEquals(expected.size(), map.size());
+    }
+    for (int key = -10; key < KEYS; key++) {
+      Assert.assertEquals(expected.get(key), map.get(key));
+    }
+    int count = 0;
+    for (IntIterator it = map.keyIterator(); it.hasNext(); count++) {
+      Assert.assertTrue(expected.containsKey(it.next()));
+    }
+    Assert.assertEquals(expected.size(), count);
+  }
+
+  @Test
+  public void testObjectIntHashMap() {
+    Random r = new Random(3);
+    ObjectIntHashMap<String> map = new ObjectIntHashMap<>(0, Integer.MIN_VALUE);
+    Map<String, Integer> expected = HashMapFactory.make();
+    for (int i = 0; i < OPERATIONS; i++) {
+      int k = r.nextInt(KEYS);
+      // include the null key
+      String key = k == 0 ? null : String.valueOf(k);
+      if (r.nextInt(3) == 0) {
+        Integer old = expected.remove(key);
+        Assert.assertEquals(old == null ? Integer.MIN_VALUE : old.intValue(), map.remove(key));
+      } else {
+        int value = r.nextInt(1000);
+        Integer old = expected.put(key, value);
+        Assert.assertEquals(old == null ? Integer.MIN_VALUE : old.intValue(), map.put(key, value));
+      }
+      Assert.assertEquals(expected.size(), map.size());
+    }
+    Assert.assertEquals(expected.keySet(), map.keySet());
+    for (String key : expected.keySet()) {
+      Assert.assertEquals(expected.get(key).intValue(), map.get(key));
+    }
+    ObjectIntHashMap<String> copy = new ObjectIntHashMap<>(map);
+    map.clear();
+    Assert.assertTrue(map.isEmpty());
+    Assert.assertEquals(expected.keySet(), copy.keySet());
+  }
+
+  /**
+   * like {@link com.ibm.wala.ipa.callgraph.propagation.ReturnValueKey}: equal to any Loose with the same id, subclasses included
+   */
+  private static class Loose {
+    final int id;
+
+    Loose(int id) {
+      this.id = id;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof Loose && ((Loose) obj).id == id;
+    }
+
+    @Override
+    public int hashCode() {
+      return 1283 * id;
+    }
+  }
+
+  private static class Strict extends Loose {
+    Strict(int id) {
+      super(id);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj != null && obj.getClass() == Strict.class && ((Loose) obj).id == id;
+    }
+
+    @Override
+    public int hashCode() {
+      return 1201 * id;
+    }
+  }
+
+  @Test
+  public void testObjectIntHashMapAsymmetricEquals() {
+    ObjectIntHashMap<Loose> map = new ObjectIntHashMap<>();
+    for (int id = 1; id <= KEYS; id++) {
+      map.put(new Loose(id), id);
+      map.put(new Strict(id), -id);
+    }
+    Assert.assertEquals(2 * KEYS, map.size());
+    for (int id = 1; id <= KEYS; id++) {
+      Assert.assertEquals(-id, map.get(new Strict(id)));
+      Assert.assertEquals(id, map.get(new Loose(id)));
+    }
+  }
+}
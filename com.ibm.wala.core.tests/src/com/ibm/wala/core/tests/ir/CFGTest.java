@@ -16,6 +16,7 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import com.ibm.wala.cfg.ControlFlowGraph;
+import com.ibm.wala.cfg.cdg.ControlDependenceGraph;
 import com.ibm.wala.classLoader.IMethod;
 import com.ibm.wala.classLoader.Language;
 import com.ibm.wala.core.tests.util.WalaTestCase;
@@ -31,8 +32,12 @@ import com.ibm.wala.ssa.SSAInstruction;
 import com.ibm.wala.ssa.SSAOptions;
 import com.ibm.wala.types.MethodReference;
 import com.ibm.wala.util.debug.Assertions;
+import com.ibm.wala.util.graph.Graph;
 import com.ibm.wala.util.graph.GraphIntegrity;
 import com.ibm.wala.util.graph.GraphIntegrity.UnsoundGraphException;
+import com.ibm.wala.util.graph.dominators.Dominators;
+import com.ibm.wala.util.graph.dominators.SemiNCADominators;
+import com.ibm.wala.util.graph.impl.GraphInverter;
 import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.strings.StringStuff;
 
@@ -160,6 +165,37 @@ public class CFGTest extends WalaTestCase {
     Assert.assertEquals(1, controlFlowGraph.getSuccNodeCount(controlFlowGraph.getBlockForInstruction(33)));
   }
 
+  /**
+   * post-dominators and control dependence walk an inverted SSACFG, which only answers node-based edge queries
+   */
+  @Test
+  public void testPostDominators() {
+    MethodReference mr = StringStuff.makeMethodReference("cfg.MonitorTest.sync2()V");
+
+    IMethod m = cha.resolveMethod(mr);
+    IAnalysisCacheView cache = makeAnalysisCache();
+    SSACFG cfg = cache.getIR(m).getControlFlowGraph();
+    Graph<ISSABasicBlock> inverted = GraphInverter.invert(cfg);
+    boolean old = Dominators.getUseSemiNCA();
+    try {
+      Dominators.setUseSemiNCA(false);
+      Dominators<ISSABasicBlock> expected = Dominators.make(inverted, cfg.exit());
+      ControlDependenceGraph<ISSABasicBlock> expectedCDG = new ControlDependenceGraph<>(cfg);
+      Dominators.setUseSemiNCA(true);
+      Dominators<ISSABasicBlock> actual = Dominators.make(inverted, cfg.exit());
+      Assert.assertTrue(actual instanceof SemiNCADominators);
+      ControlDependenceGraph<ISSABasicBlock> actualCDG = new ControlDependenceGraph<>(cfg);
+      for (ISSABasicBlock bb : cfg) {
+        Assert.assertEquals("post-dominator of " + bb, expected.getIdom(bb), actual.getIdom(bb));
+        for (ISSABasicBlock succ : cfg) {
+          Assert.assertEquals(expectedCDG.hasEdge(bb, succ), actualCDG.hasEdge(bb, succ));
+        }
+      }
+    } finally {
+      Dominators.setUseSemiNCA(old);
+    }
+  }
+
   public static void testCFG(SSACFG cfg, int[][] assertions) {
   	for(int i = 0; i < assertions.length; i++) {
   		SSACFG.BasicBlock bb= cfg.getNode(i);
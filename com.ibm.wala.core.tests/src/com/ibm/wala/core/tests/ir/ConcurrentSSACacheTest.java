@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.ir;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ssa.ConcurrentAuxiliaryCache;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.SSACache;
+import com.ibm.wala.ssa.SSAOptions;
+import com.ibm.wala.types.TypeReference;
+
+/**
+ * Check that the {@link SSACache} builds each IR once when used from several threads
+ */
+public class ConcurrentSSACacheTest extends WalaTestCase {
+
+  private static final int THREADS = 8;
+
+  @Test
+  public void testConcurrentIRs() throws ClassHierarchyException, IOException, InterruptedException, ExecutionException {
+    AnalysisScope scope = CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    final List<IMethod> methods = new ArrayList<>();
+    for (TypeReference t : new TypeReference[] { TypeReference.JavaLangString, TypeReference.JavaUtilHashSet }) {
+      IClass klass = cha.lookupClass(t);
+      for (IMethod m : klass.getDeclaredMethods()) {
+        if (!m.isAbstract() && !m.isNative()) {
+          methods.add(m);
+        }
+      }
+    }
+
+    final SSACache cache = new AnalysisCacheImpl().getSSACache();
+    final SSAOptions options = SSAOptions.defaultOptions();
+    ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+    try {
+      List<Future<List<IR>>> results = new ArrayList<>();
+      for (int i = 0; i < THREADS; i++) {
+        results.add(pool.submit(() -> {
+          List<IR> irs = new ArrayList<>();
+          for (IMethod m : methods) {
+            irs.add(cache.findOrCreateIR(m, Everywhere.EVERYWHERE, options));
+            cache.findOrCreateDU(m, Everywhere.EVERYWHERE, options);
+          }
+          return irs;
+        }));
+      }
+      List<IR> first = results.get(0).get();
+      for (Future<List<IR>> f : results) {
+        List<IR> irs = f.get();
+        for (int i = 0; i < irs.size(); i++) {
+          Assert.assertSame(first.get(i), irs.get(i));
+        }
+      }
+    } finally {
+      pool.shutdown();
+    }
+
+    ConcurrentAuxiliaryCache irCache = (ConcurrentAuxiliaryCache) cache.getIRCache();
+    Assert.assertEquals(methods.size(), irCache.getMisses());
+    Assert.assertEquals((long) THREADS * methods.size(), irCache.getHits());
+  }
+
+  /**
+   * a computation that asks for its own entry must neither wait for itself nor fail
+   */
+  @Test(timeout = 60000)
+  public void testReentrantRequest() throws ClassHierarchyException, IOException {
+    AnalysisScope scope = CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    final IMethod m = cha.lookupClass(TypeReference.JavaLangString).getDeclaredMethods().iterator().next();
+    final SSAOptions options = SSAOptions.defaultOptions();
+    final ConcurrentAuxiliaryCache cache = new ConcurrentAuxiliaryCache();
+
+    Object outer = cache.findOrCreate(m, Everywhere.EVERYWHERE, options,
+        () -> "outer " + cache.findOrCreate(m, Everywhere.EVERYWHERE, options, () -> "inner"));
+    Assert.assertEquals("outer inner", outer);
+    // only the outer value is cached
+    Assert.assertEquals("outer inner", cache.find(m, Everywhere.EVERYWHERE, options));
+    Assert.assertEquals(2, cache.getMisses());
+  }
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.ir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.BinaryDirectoryTreeModule;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.Module;
+import com.ibm.wala.classLoader.ModuleEntry;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ssa.DefUse;
+import com.ibm.wala.ssa.DefaultIRFactory;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.ISSABasicBlock;
+import com.ibm.wala.ssa.PersistentIRCache;
+import com.ibm.wala.ssa.PhiValue;
+import com.ibm.wala.ssa.SSACFG;
+import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.ssa.SSAOptions;
+import com.ibm.wala.ssa.SSAPhiInstruction;
+import com.ibm.wala.ssa.SymbolTable;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.Selector;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.WalaRuntimeException;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import com.ibm.wala.util.config.AnalysisScopeReader;
+import com.ibm.wala.util.io.FileProvider;
+
+/**
+ * Check that IRs restored from a {@link PersistentIRCache} are the same as freshly built ones
+ */
+public class PersistentIRCacheTest extends WalaTestCase {
+
+  private static int records(File dir) {
+    return dir.list((d, name) -> name.endsWith(".ir")).length;
+  }
+
+  private static List<Integer> numbers(Iterator<ISSABasicBlock> blocks) {
+    List<Integer> result = new ArrayList<>();
+    while (blocks.hasNext()) {
+      result.add(blocks.next().getNumber());
+    }
+    return result;
+  }
+
+  private static void assertSameIR(IR expected, IR actual) {
+    String m = expected.getMethod().toString();
+
+    SSAInstruction[] i1 = expected.getInstructions();
+    SSAInstruction[] i2 = actual.getInstructions();
+    Assert.assertEquals(m, i1.length, i2.length);
+    for (int i = 0; i < i1.length; i++) {
+      Assert.assertEquals(m, i1[i] == null ? null : i1[i].toString(expected.getSymbolTable()),
+          i2[i] == null ? null : i2[i].toString(actual.getSymbolTable()));
+    }
+
+    SymbolTable s1 = expected.getSymbolTable();
+    SymbolTable s2 = actual.getSymbolTable();
+    Assert.assertEquals(m, s1.getMaxValueNumber(), s2.getMaxValueNumber());
+    Assert.assertArrayEquals(m, s1.getParameterValueNumbers(), s2.getParameterValueNumbers());
+    for (int vn = 1; vn <= s1.getMaxValueNumber(); vn++) {
+      Assert.assertEquals(m, s1.getValueString(vn), s2.getValueString(vn));
+      Assert.assertEquals(m, s1.isConstant(vn), s2.isConstant(vn));
+      if (s1.isConstant(vn)) {
+        Assert.assertEquals(m, s1.getConstantValue(vn), s2.getConstantValue(vn));
+      }
+      Assert.assertEquals(m, s1.getValue(vn) instanceof PhiValue, s2.getValue(vn) instanceof PhiValue);
+    }
+
+    SSACFG c1 = expected.getControlFlowGraph();
+    SSACFG c2 = actual.getControlFlowGraph();
+    Assert.assertEquals(m, c1.getNumberOfNodes(), c2.getNumberOfNodes());
+    for (int b = 0; b < c1.getNumberOfNodes(); b++) {
+      ISSABasicBlock b1 = c1.getNode(b);
+      ISSABasicBlock b2 = c2.getNode(b);
+      Assert.assertEquals(m, b1.getFirstInstructionIndex(), b2.getFirstInstructionIndex());
+      Assert.assertEquals(m, b1.getLastInstructionIndex(), b2.getLastInstructionIndex());
+      Assert.assertEquals(m, b1.isCatchBlock(), b2.isCatchBlock());
+      Assert.assertTrue(m, c1.getSuccNodeNumbers(b1).sameValue(c2.getSuccNodeNumbers(b2)));
+      Assert.assertEquals(m, numbers(c1.getPredNodes(b1)), numbers(c2.getPredNodes(b2)));
+      Assert.assertEquals(m, String.valueOf(c1.getExceptionalSuccessors(b1)), String.valueOf(c2.getExceptionalSuccessors(b2)));
+      List<String> phis1 = new ArrayList<>();
+      for (SSAPhiInstruction phi : Iterator2Iterable.make(b1.iteratePhis())) {
+        phis1.add(phi.toString(s1));
+      }
+      List<String> phis2 = new ArrayList<>();
+      for (SSAPhiInstruction phi : Iterator2Iterable.make(b2.iteratePhis())) {
+        phis2.add(phi.toString(s2));
+      }
+      Assert.assertEquals(m, phis1, phis2);
+    }
+
+    Assert.assertEquals(expected.toString(), actual.toString());
+  }
+
+  @Test
+  public void testRoundTrip() throws ClassHierarchyException, IOException {
+    AnalysisScope scope = CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    File dir = Files.createTempDirectory("wala-ir").toFile();
+    try {
+      PersistentIRCache persistent = new PersistentIRCache(dir);
+      SSAOptions options = SSAOptions.defaultOptions();
+      DefaultIRFactory factory = new DefaultIRFactory();
+
+      // populate the on-disk cache; a method is eligible if the cache wrote a record for its IR
+      AnalysisCacheImpl first = new AnalysisCacheImpl(factory, options, persistent);
+      List<IMethod> methods = new ArrayList<>();
+      List<IMethod> eligible = new ArrayList<>();
+      for (IClass klass : cha) {
+        if (klass.getClassLoader().getReference().equals(ClassLoaderReference.Application)
+            || klass.getReference().equals(TypeReference.JavaLangString)) {
+          for (IMethod m : klass.getDeclaredMethods()) {
+            if (!m.isAbstract() && !m.isNative()) {
+              int before = records(dir);
+              try {
+                first.getIR(m);
+                methods.add(m);
+              } catch (WalaRuntimeException e) {
+                // some test data is deliberately broken
+              }
+              if (records(dir) > before) {
+                eligible.add(m);
+              }
+            }
+          }
+        }
+      }
+      Assert.assertTrue(persistent.size() > 0);
+      Assert.assertTrue("eligible " + eligible.size() + " of " + methods.size(), eligible.size() > methods.size() / 2);
+
+      // every stored IR must come back, and match the one built from bytecode
+      for (IMethod m : eligible) {
+        IR restored = persistent.find(factory, m, Everywhere.EVERYWHERE, options);
+        Assert.assertNotNull(m.toString(), restored);
+        assertSameIR(first.getIR(m), restored);
+      }
+
+      // a fresh cache, as in a new run, must find the same IRs on disk
+      AnalysisCacheImpl second = new AnalysisCacheImpl(factory, options, persistent);
+      for (IMethod m : methods) {
+        IR fresh = first.getIR(m);
+        IR ir = second.getIR(m);
+        Assert.assertNotSame(fresh, ir);
+        assertSameIR(fresh, ir);
+        DefUse du1 = first.getDefUse(fresh);
+        DefUse du2 = second.getDefUse(ir);
+        for (int vn = 1; vn <= fresh.getSymbolTable().getMaxValueNumber(); vn++) {
+          Assert.assertEquals(String.valueOf(du1.getDef(vn)), String.valueOf(du2.getDef(vn)));
+          Assert.assertEquals(du1.getNumberOfUses(vn), du2.getNumberOfUses(vn));
+        }
+      }
+    } finally {
+      new PersistentIRCache(dir).clear();
+      dir.delete();
+    }
+  }
+
+  private static IClassHierarchy makeHierarchy(File bin) throws IOException, ClassHierarchyException {
+    AnalysisScope scope = AnalysisScopeReader.makePrimordialScope((new FileProvider()).getFile(CallGraphTestUtil.REGRESSION_EXCLUSIONS));
+    scope.addToScope(ClassLoaderReference.Application, new BinaryDirectoryTreeModule(bin));
+    return ClassHierarchyFactory.make(scope);
+  }
+
+  /**
+   * an IR depends on the classes it catches, not only on its own class, so changing one of those must invalidate it
+   */
+  @Test
+  public void testDependentClassChanged() throws ClassHierarchyException, IOException {
+    // copy a class and the exception it catches out of the test data
+    File bin = Files.createTempDirectory("wala-bin").toFile();
+    File pkg = new File(bin, "exceptionpruning");
+    Assert.assertTrue(pkg.mkdir());
+    File test = new File(pkg, "TestPruning.class");
+    File exception = new File(pkg, "OwnException.class");
+    AnalysisScope testdata = CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    for (Module m : testdata.getModules(ClassLoaderReference.Application)) {
+      for (ModuleEntry e : Iterator2Iterable.make(m.getEntries())) {
+        if (e.getName().equals("exceptionpruning/TestPruning.class") || e.getName().equals("exceptionpruning/OwnException.class")) {
+          try (InputStream in = e.getInputStream()) {
+            Files.copy(in, new File(pkg, e.getName().substring(e.getName().indexOf('/') + 1)).toPath());
+          }
+        }
+      }
+    }
+    Assert.assertTrue(test.isFile() && exception.isFile());
+
+    File dir = Files.createTempDirectory("wala-ir").toFile();
+    try {
+      PersistentIRCache persistent = new PersistentIRCache(dir);
+      SSAOptions options = SSAOptions.defaultOptions();
+      DefaultIRFactory factory = new DefaultIRFactory();
+      TypeReference type = TypeReference.findOrCreate(ClassLoaderReference.Application, "Lexceptionpruning/TestPruning");
+      Selector selector = Selector.make("testTryCatchOwnException(I)V");
+
+      IMethod m = makeHierarchy(bin).lookupClass(type).getMethod(selector);
+      new AnalysisCacheImpl(factory, options, persistent).getIR(m);
+      Assert.assertTrue(persistent.size() > 0);
+
+      // the same files, in a new hierarchy, find the stored IR
+      m = makeHierarchy(bin).lookupClass(type).getMethod(selector);
+      Assert.assertNotNull(persistent.find(factory, m, Everywhere.EVERYWHERE, options));
+
+      // the class of the method is unchanged, but the exception it catches is gone
+      Assert.assertTrue(exception.delete());
+      m = makeHierarchy(bin).lookupClass(type).getMethod(selector);
+      Assert.assertNull(persistent.find(factory, m, Everywhere.EVERYWHERE, options));
+    } finally {
+      new PersistentIRCache(dir).clear();
+      dir.delete();
+      exception.delete();
+      test.delete();
+      pkg.delete();
+      bin.delete();
+    }
+  }
+}
@@ -15,6 +15,7 @@ import java.util.Collection;
 import com.ibm.wala.classLoader.IField;
 import com.ibm.wala.dataflow.IFDS.ICFGSupergraph;
 import com.ibm.wala.dataflow.IFDS.IFlowFunction;
+import com.ibm.wala.dataflow.IFDS.IFlowFunctionMap;
 import com.ibm.wala.dataflow.IFDS.IMergeFunction;
 import com.ibm.wala.dataflow.IFDS.IPartiallyBalancedFlowFunctions;
 import com.ibm.wala.dataflow.IFDS.ISupergraph;
@@ -25,6 +26,7 @@ import com.ibm.wala.dataflow.IFDS.PartiallyBalancedTabulationProblem;
 import com.ibm.wala.dataflow.IFDS.PartiallyBalancedTabulationSolver;
 import com.ibm.wala.dataflow.IFDS.PathEdge;
 import com.ibm.wala.dataflow.IFDS.TabulationDomain;
+import com.ibm.wala.dataflow.IFDS.TabulationProblem;
 import com.ibm.wala.dataflow.IFDS.TabulationResult;
 import com.ibm.wala.dataflow.IFDS.TabulationSolver;
 import com.ibm.wala.ipa.callgraph.CGNode;
@@ -57,6 +59,11 @@ public class ContextSensitiveReachingDefs {
    */
   private final ISupergraph<BasicBlockInContext<IExplodedBasicBlock>, CGNode> supergraph;
 
+  /**
+   * the root of the call graph, whose entry seeds {@link BalancedReachingDefsProblem}
+   */
+  private final CGNode fakeRoot;
+
   /**
    * the tabulation domain
    */
@@ -66,6 +73,7 @@ public class ContextSensitiveReachingDefs {
     this.cha = cg.getClassHierarchy();
     // we use an ICFGSupergraph, which basically adapts ExplodedInterproceduralCFG to the ISupergraph interface
     this.supergraph = ICFGSupergraph.make(cg);
+    this.fakeRoot = cg.getFakeRootNode();
   }
 
   /**
@@ -281,6 +289,128 @@ public class ContextSensitiveReachingDefs {
 
   }
 
+  /**
+   * The same analysis as a fully balanced tabulation problem, in the style of the Reps-Horwitz-Sagiv POPL95 paper: the domain is
+   * lifted with a 0 fact, which every flow function passes on and which generates each putstatic, and the solver is seeded
+   * with just (root_entry, 0) -&gt; (root_entry, 0). Definitions then only reach callers through matching calls.
+   */
+  private class BalancedReachingDefsProblem implements
+      TabulationProblem<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>> {
+
+    /**
+     * the 0 fact, numbered 0
+     */
+    private final Pair<CGNode, Integer> zero = Pair.make(null, -1);
+
+    private final ReachingDefsDomain balancedDomain = new ReachingDefsDomain();
+
+    private final ReachingDefsFlowFunctions delegate = new ReachingDefsFlowFunctions(balancedDomain);
+
+    private final Collection<PathEdge<BasicBlockInContext<IExplodedBasicBlock>>> initialSeeds = HashSetFactory.make();
+
+    private final IFlowFunctionMap<BasicBlockInContext<IExplodedBasicBlock>> flowFunctions = new IFlowFunctionMap<BasicBlockInContext<IExplodedBasicBlock>>() {
+
+      @Override
+      public IUnaryFlowFunction getNormalFlowFunction(final BasicBlockInContext<IExplodedBasicBlock> src,
+          BasicBlockInContext<IExplodedBasicBlock> dest) {
+        final IUnaryFlowFunction f = delegate.getNormalFlowFunction(src, dest);
+        if (f == IdentityFlowFunction.identity()) {
+          return f;
+        }
+        // a putstatic: 0 generates the definition, and the other facts are handled as before
+        final int def = balancedDomain.getMappedIndex(Pair.make(src.getNode(), src.getDelegate().getFirstInstructionIndex()));
+        return new IUnaryFlowFunction() {
+
+          @Override
+          public IntSet getTargets(int d1) {
+            if (d1 != 0) {
+              return f.getTargets(d1);
+            }
+            MutableSparseIntSet result = MutableSparseIntSet.makeEmpty();
+            result.add(0);
+            result.add(def);
+            return result;
+          }
+
+          @Override
+          public String toString() {
+            return "Balanced Reaching Defs Normal Flow";
+          }
+        };
+      }
+
+      @Override
+      public IUnaryFlowFunction getCallFlowFunction(BasicBlockInContext<IExplodedBasicBlock> src,
+          BasicBlockInContext<IExplodedBasicBlock> dest, BasicBlockInContext<IExplodedBasicBlock> ret) {
+        return delegate.getCallFlowFunction(src, dest, ret);
+      }
+
+      @Override
+      public IFlowFunction getReturnFlowFunction(BasicBlockInContext<IExplodedBasicBlock> call,
+          BasicBlockInContext<IExplodedBasicBlock> src, BasicBlockInContext<IExplodedBasicBlock> dest) {
+        return delegate.getReturnFlowFunction(call, src, dest);
+      }
+
+      @Override
+      public IUnaryFlowFunction getCallToReturnFlowFunction(BasicBlockInContext<IExplodedBasicBlock> src,
+          BasicBlockInContext<IExplodedBasicBlock> dest) {
+        return delegate.getCallToReturnFlowFunction(src, dest);
+      }
+
+      @Override
+      public IUnaryFlowFunction getCallNoneToReturnFlowFunction(BasicBlockInContext<IExplodedBasicBlock> src,
+          BasicBlockInContext<IExplodedBasicBlock> dest) {
+        return delegate.getCallNoneToReturnFlowFunction(src, dest);
+      }
+    };
+
+    BalancedReachingDefsProblem() {
+      balancedDomain.add(zero);
+      for (BasicBlockInContext<IExplodedBasicBlock> bb : supergraph) {
+        SSAInstruction instruction = bb.getDelegate().getInstruction();
+        if (instruction instanceof SSAPutInstruction && ((SSAPutInstruction) instruction).isStatic()) {
+          balancedDomain.add(Pair.make(bb.getNode(), bb.getDelegate().getFirstInstructionIndex()));
+        }
+      }
+      for (BasicBlockInContext<IExplodedBasicBlock> entry : supergraph.getEntriesForProcedure(fakeRoot)) {
+        initialSeeds.add(PathEdge.createPathEdge(entry, 0, entry, 0));
+      }
+    }
+
+    @Override
+    public IFlowFunctionMap<BasicBlockInContext<IExplodedBasicBlock>> getFunctionMap() {
+      return flowFunctions;
+    }
+
+    @Override
+    public TabulationDomain<Pair<CGNode, Integer>, BasicBlockInContext<IExplodedBasicBlock>> getDomain() {
+      return balancedDomain;
+    }
+
+    @Override
+    public IMergeFunction getMergeFunction() {
+      return null;
+    }
+
+    @Override
+    public ISupergraph<BasicBlockInContext<IExplodedBasicBlock>, CGNode> getSupergraph() {
+      return supergraph;
+    }
+
+    @Override
+    public Collection<PathEdge<BasicBlockInContext<IExplodedBasicBlock>>> initialSeeds() {
+      return initialSeeds;
+    }
+  }
+
+  /**
+   * @return a fresh instance of the analysis as a fully balanced tabulation problem, for solvers that do not support partially
+   *         balanced ones; fact 0 is the lifted 0 fact
+   */
+  TabulationProblem<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>> makeBalancedProblem() {
+    return new BalancedReachingDefsProblem();
+  }
+
   /**
    * perform the tabulation analysis and return the {@link TabulationResult}
    */
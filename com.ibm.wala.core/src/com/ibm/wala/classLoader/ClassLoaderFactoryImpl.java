@@ -13,6 +13,7 @@ package com.ibm.wala.classLoader;
 import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.util.HashMap;
+import java.util.List;
 
 import com.ibm.wala.ipa.callgraph.AnalysisScope;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
@@ -38,6 +39,11 @@ public class ClassLoaderFactoryImpl implements ClassLoaderFactory {
    */
   final private HashMap<ClassLoaderReference, IClassLoader> map = HashMapFactory.make(3);
 
+  /**
+   * number of threads each {@link ClassLoaderImpl} uses to parse class files
+   */
+  private int parallelism = 1;
+
   /**
    * @param exclusions
    *          A set of classes that class loaders should pretend don't exist.
@@ -46,6 +52,22 @@ public class ClassLoaderFactoryImpl implements ClassLoaderFactory {
     this.exclusions = exclusions;
   }
 
+  /**
+   * set the number of threads that the {@link ClassLoaderImpl}s made by this factory use to parse class files
+   * 
+   * @throws IllegalArgumentException if parallelism &lt; 1
+   */
+  public void setParallelism(int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("invalid parallelism " + parallelism);
+    }
+    this.parallelism = parallelism;
+  }
+
+  public int getParallelism() {
+    return parallelism;
+  }
+
   /**
    * Return a class loader corresponding to a given class loader identifier.
    * Create one if necessary.
@@ -112,10 +134,20 @@ public class ClassLoaderFactoryImpl implements ClassLoaderFactory {
           cl = new ClassLoaderImpl(classLoaderReference, scope.getArrayClassLoader(), parent, exclusions, cha);
         }
       }
-    cl.init(scope.getModules(classLoaderReference));
+    if (cl instanceof ClassLoaderImpl) {
+      ((ClassLoaderImpl) cl).setParallelism(parallelism);
+    }
+    cl.init(getModules(classLoaderReference, scope));
     return cl;
   }
 
+  /**
+   * @return the modules from which the loader for classLoaderReference reads its classes; by default, those in the scope
+   */
+  protected List<Module> getModules(ClassLoaderReference classLoaderReference, AnalysisScope scope) {
+    return scope.getModules(classLoaderReference);
+  }
+
   /**
    * A waring when we fail to load an appropriate class loader implementation
    */
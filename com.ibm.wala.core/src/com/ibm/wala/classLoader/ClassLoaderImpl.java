@@ -19,12 +19,17 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.jar.JarEntry;
 import java.util.jar.JarInputStream;
 
@@ -34,6 +39,7 @@ import com.ibm.wala.shrikeCT.InvalidClassFileException;
 import com.ibm.wala.ssa.SSAInstructionFactory;
 import com.ibm.wala.types.ClassLoaderReference;
 import com.ibm.wala.types.TypeName;
+import com.ibm.wala.util.WalaRuntimeException;
 import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Iterator2Iterable;
@@ -88,6 +94,16 @@ public class ClassLoaderImpl implements IClassLoader {
    */
   private final ArrayClassLoader arrayClassLoader;
 
+  /**
+   * number of threads used to parse class files in {@link #init(List)}
+   */
+  private int parallelism = 1;
+
+  /**
+   * modules with fewer class files than this are parsed sequentially, regardless of {@link #parallelism}
+   */
+  private static final int MIN_PARALLEL_CLASSES = 64;
+
   /**
    * @param loader class loader reference identifying this loader
    * @param parent parent loader for delegation
@@ -112,6 +128,22 @@ public class ClassLoaderImpl implements IClassLoader {
     }
   }
 
+  /**
+   * set the number of threads used to parse class files when this loader is initialized. The loaded classes do not depend on it.
+   * 
+   * @throws IllegalArgumentException if parallelism &lt; 1
+   */
+  public void setParallelism(int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("invalid parallelism " + parallelism);
+    }
+    this.parallelism = parallelism;
+  }
+
+  public int getParallelism() {
+    return parallelism;
+  }
+
   /**
    * Return the Set of (ModuleEntry) source files found in a module.
    * 
@@ -224,9 +256,15 @@ public class ClassLoaderImpl implements IClassLoader {
 
   /**
    * Set up the set of classes loaded by this object.
+   * 
+   * If {@link #setParallelism(int)} allows it, class files are parsed on several threads first; the classes are then registered
+   * sequentially, in the same order as without parallelism, so the result does not depend on the number of threads.
    */
   @SuppressWarnings("unused")
   private void loadAllClasses(Collection<ModuleEntry> moduleEntries, Map<String, Object> fileContents) {
+    List<ModuleEntry> entries = new ArrayList<>();
+    List<String> classNames = new ArrayList<>();
+    List<TypeName> names = new ArrayList<>();
     for (ModuleEntry entry : moduleEntries) {
       if (!entry.isClassFile()) {
         continue;
@@ -246,47 +284,110 @@ public class ClassLoaderImpl implements IClassLoader {
         continue;
       }
 
-      ShrikeClassReaderHandle entryReader = new ShrikeClassReaderHandle(entry);
-
       className = 'L' + className;
+      entries.add(entry);
+      classNames.add(className);
+      names.add(TypeName.string2TypeName(className));
+    }
+
+    ShrikeClass[] parsed = null;
+    if (parallelism > 1 && entries.size() >= MIN_PARALLEL_CLASSES) {
+      parsed = parseInParallel(entries, names, fileContents);
+    }
+
+    for (int i = 0; i < entries.size(); i++) {
+      TypeName T = names.get(i);
+      String className = classNames.get(i);
       if (DEBUG_LEVEL > 0) {
         System.err.println("Load class " + className);
       }
-      try {
-        TypeName T = TypeName.string2TypeName(className);
-        if (loadedClasses.get(T) != null) {
-          Warnings.add(MultipleImplementationsWarning.create(className));
-        } else if (parent != null && parent.lookupClass(T) != null) {
-          Warnings.add(MultipleImplementationsWarning.create(className));
-        } else {
-          // try to read from memory
-          ShrikeClassReaderHandle reader = entryReader;
-          if (fileContents != null) {
-            final Object contents = fileContents.get(entry.getName());
-            if (contents != null) {
-              // reader that uses the in-memory bytes
-              reader = new ByteArrayReaderHandle(entry, (byte[]) contents);
-            }
-          }
-          ShrikeClass tmpKlass = new ShrikeClass(reader, this, cha);
-          if (tmpKlass.getReference().getName().equals(T)) {
-            // always used the reader based on the entry after this point,
-            // so we can null out and re-read class file contents
-            loadedClasses.put(T, new ShrikeClass(entryReader, this, cha));
-            if (DEBUG_LEVEL > 1) {
-              System.err.println("put " + T + ' ');
-            }
-          } else {
-            Warnings.add(InvalidClassFile.create(className));
+      if (loadedClasses.get(T) != null) {
+        Warnings.add(MultipleImplementationsWarning.create(className));
+      } else if (parent != null && parent.lookupClass(T) != null) {
+        Warnings.add(MultipleImplementationsWarning.create(className));
+      } else {
+        ShrikeClass klass = parsed != null ? parsed[i] : parseClass(entries.get(i), T, fileContents);
+        if (klass != null) {
+          loadedClasses.put(T, klass);
+          if (DEBUG_LEVEL > 1) {
+            System.err.println("put " + T + ' ');
           }
+        } else {
+          Warnings.add(InvalidClassFile.create(className));
         }
-      } catch (InvalidClassFileException e) {
-        if (DEBUG_LEVEL > 0) {
-          System.err.println("Ignoring class " + className + " due to InvalidClassFileException");
+      }
+    }
+  }
+
+  /**
+   * @return the class read from entry, or null if the class file is invalid or does not define class T
+   */
+  private ShrikeClass parseClass(ModuleEntry entry, TypeName T, Map<String, Object> fileContents) {
+    ShrikeClassReaderHandle entryReader = new ShrikeClassReaderHandle(entry);
+    try {
+      // try to read from memory
+      ShrikeClassReaderHandle reader = entryReader;
+      if (fileContents != null) {
+        final Object contents = fileContents.get(entry.getName());
+        if (contents != null) {
+          // reader that uses the in-memory bytes
+          reader = new ByteArrayReaderHandle(entry, (byte[]) contents);
         }
-        Warnings.add(InvalidClassFile.create(className));
       }
+      ShrikeClass tmpKlass = new ShrikeClass(reader, this, cha);
+      if (tmpKlass.getReference().getName().equals(T)) {
+        // always used the reader based on the entry after this point,
+        // so we can null out and re-read class file contents
+        return reader == entryReader ? tmpKlass : new ShrikeClass(entryReader, this, cha);
+      } else {
+        return null;
+      }
+    } catch (InvalidClassFileException e) {
+      if (DEBUG_LEVEL > 0) {
+        System.err.println("Ignoring class " + T + " due to InvalidClassFileException");
+      }
+      return null;
+    }
+  }
+
+  /**
+   * parse all the given class files, using {@link #parallelism} threads
+   * 
+   * @return for each entry, the parsed class, or null if it is invalid
+   */
+  private ShrikeClass[] parseInParallel(final List<ModuleEntry> entries, final List<TypeName> names,
+      final Map<String, Object> fileContents) {
+    final ShrikeClass[] result = new ShrikeClass[entries.size()];
+    ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+    try {
+      List<Future<?>> tasks = new ArrayList<>();
+      int chunk = Math.max(1, (entries.size() + 4 * parallelism - 1) / (4 * parallelism));
+      for (int from = 0; from < entries.size(); from += chunk) {
+        final int start = from;
+        final int end = Math.min(entries.size(), from + chunk);
+        tasks.add(pool.submit(() -> {
+          for (int i = start; i < end; i++) {
+            result[i] = parseClass(entries.get(i), names.get(i), fileContents);
+          }
+        }));
+      }
+      for (Future<?> task : tasks) {
+        task.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new WalaRuntimeException("interrupted while loading classes", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      } else if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw new WalaRuntimeException("failed to load classes", e.getCause());
+    } finally {
+      pool.shutdown();
     }
+    return result;
   }
 
   @SuppressWarnings("unused")
@@ -13,13 +13,13 @@ package com.ibm.wala.classLoader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Enumeration;
-import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.zip.ZipEntry;
 
-import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.io.FileUtil;
 import com.ibm.wala.util.ref.CacheReference;
@@ -32,9 +32,10 @@ public class JarFileModule implements Module {
   private final JarFile file;
 
   /**
-   * For efficiency, try to cache the byte[] holding each ZipEntries contents; this will help avoid multiple unzipping
+   * For efficiency, try to cache the byte[] holding each ZipEntries contents; this will help avoid multiple unzipping. Concurrent,
+   * since class files may be read on several threads.
    */
-  private final HashMap<ZipEntry, Object> cache = HashMapFactory.make();
+  private final Map<ZipEntry, Object> cache = new ConcurrentHashMap<>();
 
   public JarFileModule(JarFile f) {
     if (f == null) {
@@ -0,0 +1,318 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.classLoader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+
+import com.ibm.wala.util.WalaRuntimeException;
+import com.ibm.wala.util.io.ByteBufferInputStream;
+import com.ibm.wala.util.io.FileSuffixes;
+
+/**
+ * A module for a jar file that is memory-mapped rather than opened as a {@link java.util.jar.JarFile}.
+ *
+ * The zip central directory is read once, when the module is created. Entries stored without compression, as in jars built with
+ * <code>jar -0</code> or extracted caches, are handed out as views of the mapped file, so class files are parsed straight from the
+ * OS page cache and never copied onto the heap. Compressed entries are inflated from the mapped file into a buffer of exactly the
+ * right size, which is not cached; the garbage collector may reclaim it as soon as the {@link ShrikeClass} reader is dropped.
+ *
+ * Nested jar files are read the same way, from their bytes in the enclosing module. ZIP64 archives and encrypted entries are not
+ * supported; use a {@link JarFileModule} for those.
+ */
+public class MappedJarFileModule implements Module {
+
+  private static final int END_SIGNATURE = 0x06054b50;
+
+  private static final int CENTRAL_SIGNATURE = 0x02014b50;
+
+  private static final int LOCAL_SIGNATURE = 0x04034b50;
+
+  private static final int END_SIZE = 22;
+
+  private static final int CENTRAL_SIZE = 46;
+
+  private static final int LOCAL_SIZE = 30;
+
+  private static final int MAX_COMMENT_SIZE = 0xffff;
+
+  /**
+   * the file this module maps, or null for a nested jar
+   */
+  private final File file;
+
+  private final String name;
+
+  /**
+   * the whole archive, little-endian
+   */
+  private final ByteBuffer data;
+
+  private final List<Entry> entries = new ArrayList<>();
+
+  /**
+   * map the jar file f
+   *
+   * @throws IOException if f cannot be mapped, or is not a zip file this module can read
+   */
+  public MappedJarFileModule(File f) throws IOException {
+    this(map(f), f, f.getAbsolutePath());
+  }
+
+  private MappedJarFileModule(ByteBuffer data, File file, String name) throws IOException {
+    this.file = file;
+    this.name = name;
+    this.data = data.slice().order(ByteOrder.LITTLE_ENDIAN);
+    readCentralDirectory();
+  }
+
+  private static ByteBuffer map(File f) throws IOException {
+    if (f == null) {
+      throw new IllegalArgumentException("null f");
+    }
+    try (FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("jar file too large to map: " + f);
+      }
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+  }
+
+  private void readCentralDirectory() throws IOException {
+    int end = -1;
+    for (int i = data.limit() - END_SIZE; i >= Math.max(0, data.limit() - END_SIZE - MAX_COMMENT_SIZE); i--) {
+      if (data.getInt(i) == END_SIGNATURE) {
+        end = i;
+        break;
+      }
+    }
+    if (end < 0) {
+      throw new IOException("not a zip file: " + name);
+    }
+    int count = data.getShort(end + 10) & 0xffff;
+    long offset = data.getInt(end + 16) & 0xffffffffL;
+    if (count == 0xffff || offset == 0xffffffffL) {
+      throw new IOException("ZIP64 archives are not supported: " + name);
+    }
+    try {
+      int pos = (int) offset;
+      for (int i = 0; i < count; i++) {
+        if (data.getInt(pos) != CENTRAL_SIGNATURE) {
+          throw new IOException("bad central directory entry at " + pos + " in " + name);
+        }
+        int flags = data.getShort(pos + 8) & 0xffff;
+        int method = data.getShort(pos + 10) & 0xffff;
+        long compressedSize = data.getInt(pos + 20) & 0xffffffffL;
+        long size = data.getInt(pos + 24) & 0xffffffffL;
+        int nameLength = data.getShort(pos + 28) & 0xffff;
+        int extraLength = data.getShort(pos + 30) & 0xffff;
+        int commentLength = data.getShort(pos + 32) & 0xffff;
+        long localOffset = data.getInt(pos + 42) & 0xffffffffL;
+        byte[] entryName = new byte[nameLength];
+        ByteBuffer b = data.duplicate();
+        b.position(pos + CENTRAL_SIZE);
+        b.get(entryName);
+        entries.add(new Entry(new String(entryName, StandardCharsets.UTF_8), flags, method, compressedSize, size, localOffset));
+        pos += CENTRAL_SIZE + nameLength + extraLength + commentLength;
+      }
+    } catch (IndexOutOfBoundsException e) {
+      throw new IOException("truncated zip file: " + name, e);
+    }
+  }
+
+  /**
+   * @return the mapped file, or null if this module is nested in another one
+   */
+  public File getFile() {
+    return file;
+  }
+
+  public String getAbsolutePath() {
+    return name;
+  }
+
+  @Override
+  public Iterator<? extends ModuleEntry> getEntries() {
+    return entries.iterator();
+  }
+
+  @Override
+  public String toString() {
+    return "MappedJarFileModule:" + name;
+  }
+
+  @Override
+  public int hashCode() {
+    return name.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj)
+      return true;
+    if (obj == null)
+      return false;
+    if (getClass() != obj.getClass())
+      return false;
+    final MappedJarFileModule other = (MappedJarFileModule) obj;
+    // nested modules are only equal to themselves
+    return file != null && name.equals(other.name);
+  }
+
+  /**
+   * An entry in a {@link MappedJarFileModule}
+   */
+  private final class Entry implements MappedModuleEntry {
+    private final String entryName;
+
+    private final int flags;
+
+    private final int method;
+
+    private final long compressedSize;
+
+    private final long size;
+
+    private final long localOffset;
+
+    Entry(String entryName, int flags, int method, long compressedSize, long size, long localOffset) {
+      this.entryName = entryName;
+      this.flags = flags;
+      this.method = method;
+      this.compressedSize = compressedSize;
+      this.size = size;
+      this.localOffset = localOffset;
+    }
+
+    @Override
+    public ByteBuffer getByteBuffer() throws IOException {
+      if ((flags & 1) != 0) {
+        throw new IOException("encrypted entries are not supported: " + this);
+      }
+      ByteBuffer raw;
+      try {
+        int local = (int) localOffset;
+        if (data.getInt(local) != LOCAL_SIGNATURE) {
+          throw new IOException("bad local header for " + this);
+        }
+        int start = local + LOCAL_SIZE + (data.getShort(local + 26) & 0xffff) + (data.getShort(local + 28) & 0xffff);
+        raw = data.duplicate();
+        raw.position(start);
+        raw.limit(Math.addExact(start, (int) compressedSize));
+        raw = raw.slice();
+      } catch (IndexOutOfBoundsException | IllegalArgumentException | ArithmeticException e) {
+        throw new IOException("truncated entry " + this, e);
+      }
+      switch (method) {
+      case ZipEntry.STORED:
+        return raw;
+      case ZipEntry.DEFLATED:
+        return inflate(raw);
+      default:
+        throw new IOException("unsupported compression method " + method + " for " + this);
+      }
+    }
+
+    private ByteBuffer inflate(ByteBuffer raw) throws IOException {
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException("entry too large: " + this);
+      }
+      byte[] input = new byte[raw.remaining()];
+      raw.get(input);
+      byte[] result = new byte[(int) size];
+      Inflater inflater = new Inflater(true);
+      try {
+        inflater.setInput(input);
+        int n = 0;
+        while (n < result.length) {
+          int k = inflater.inflate(result, n, result.length - n);
+          if (k == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+            break;
+          }
+          n += k;
+        }
+        if (n != result.length) {
+          throw new IOException("corrupt entry " + this);
+        }
+      } catch (DataFormatException e) {
+        throw new IOException("corrupt entry " + this, e);
+      } finally {
+        inflater.end();
+      }
+      return ByteBuffer.wrap(result);
+    }
+
+    @Override
+    public String getName() {
+      return entryName;
+    }
+
+    @Override
+    public boolean isClassFile() {
+      return FileSuffixes.isClassFile(entryName);
+    }
+
+    @Override
+    public InputStream getInputStream() {
+      try {
+        return new ByteBufferInputStream(getByteBuffer());
+      } catch (IOException e) {
+        throw new WalaRuntimeException("cannot read " + this, e);
+      }
+    }
+
+    @Override
+    public boolean isModuleFile() {
+      return FileSuffixes.isJarFile(entryName) || FileSuffixes.isWarFile(entryName);
+    }
+
+    @Override
+    public Module asModule() {
+      try {
+        return new MappedJarFileModule(getByteBuffer(), null, this.toString());
+      } catch (IOException e) {
+        throw new WalaRuntimeException("cannot read " + this, e);
+      }
+    }
+
+    @Override
+    public String getClassName() {
+      return FileSuffixes.stripSuffix(entryName);
+    }
+
+    @Override
+    public boolean isSourceFile() {
+      return FileSuffixes.isSourceFile(entryName);
+    }
+
+    @Override
+    public Module getContainer() {
+      return MappedJarFileModule.this;
+    }
+
+    @Override
+    public String toString() {
+      return name + ':' + entryName;
+    }
+  }
+}
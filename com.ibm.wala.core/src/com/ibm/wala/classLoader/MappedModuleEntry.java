@@ -0,0 +1,26 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.classLoader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link ModuleEntry} whose contents can be had as a {@link ByteBuffer}, typically a view of a memory-mapped file, so they can
+ * be parsed without being copied onto the heap.
+ */
+public interface MappedModuleEntry extends ModuleEntry {
+
+  /**
+   * @return the contents of this entry, from position 0 to the limit. Callers must not modify the buffer.
+   */
+  ByteBuffer getByteBuffer() throws IOException;
+}
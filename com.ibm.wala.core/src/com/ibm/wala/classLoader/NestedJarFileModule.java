@@ -32,6 +32,13 @@ public class NestedJarFileModule extends AbstractNestedJarFileModule {
     }
   }
 
+  /**
+   * @return the jar file holding this one
+   */
+  public JarFileModule getParent() {
+    return parent;
+  }
+
   @Override
   public InputStream getNestedContents() {
     return new ByteArrayInputStream(parent.getContents(entry));
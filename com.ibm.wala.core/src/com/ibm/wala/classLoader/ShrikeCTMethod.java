@@ -90,6 +90,13 @@ public final class ShrikeCTMethod extends ShrikeBTMethod implements IBytecodeMet
     return reader.getMethodType(shrikeMethodIndex);
   }
 
+  /**
+   * @return the index of this method in the class file
+   */
+  int getIndex() {
+    return shrikeMethodIndex;
+  }
+
   @Override
   protected int getModifiers() {
     if (modifiers == -1) {
@@ -27,6 +27,7 @@ import com.ibm.wala.shrikeCT.SignatureReader;
 import com.ibm.wala.shrikeCT.SourceFileReader;
 import com.ibm.wala.shrikeCT.TypeAnnotationsReader;
 import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.Selector;
 import com.ibm.wala.types.TypeName;
 import com.ibm.wala.types.TypeReference;
 import com.ibm.wala.types.annotations.Annotation;
@@ -237,6 +238,81 @@ public final class ShrikeClass extends JVMClass<IClassLoader> {
     reader.clear();
   }
 
+  /**
+   * Read this class again from its module entry, after its class file was replaced by one that differs only in the code of its
+   * methods, e.g. a method body that was edited and recompiled. This object, its methods and fields stay valid, as does
+   * everything the class hierarchy derived from them; only the cached bytecode is dropped, so that IR is built from the new class
+   * file.
+   * 
+   * @throws IllegalStateException if the new class file declares a different name, modifiers, supertypes, fields or methods;
+   *           these need a new class hierarchy
+   * @throws InvalidClassFileException if the new class file cannot be read
+   */
+  public void reload() throws InvalidClassFileException {
+    ClassReader cr = new ShrikeClassReaderHandle(getModuleEntry()).get();
+    if (!sameDeclarations(cr)) {
+      throw new IllegalStateException("declarations of " + this + " changed; build a new class hierarchy");
+    }
+    clearSoftCaches();
+  }
+
+  /**
+   * @return true iff cr declares the same class as this one, up to the code of its methods
+   */
+  private boolean sameDeclarations(ClassReader cr) throws InvalidClassFileException {
+    if (!getName().toString().equals('L' + cr.getName()) || cr.getAccessFlags() != modifiers) {
+      return false;
+    }
+    String s = cr.getSuperName();
+    if (superName == null ? s != null : s == null || !superName.toString().equals('L' + s)) {
+      return false;
+    }
+    String[] interfaces = cr.getInterfaceNames();
+    if (interfaces.length != interfaceNames.length) {
+      return false;
+    }
+    for (int i = 0; i < interfaces.length; i++) {
+      if (!interfaceNames[i].toString().equals('L' + interfaces[i])) {
+        return false;
+      }
+    }
+    int instance = 0;
+    int statics = 0;
+    for (int i = 0; i < cr.getFieldCount(); i++) {
+      IField f;
+      if ((cr.getFieldAccessFlags(i) & ClassConstants.ACC_STATIC) == 0) {
+        f = instance < instanceFields.length ? instanceFields[instance++] : null;
+      } else {
+        f = statics < staticFields.length ? staticFields[statics++] : null;
+      }
+      // type names of fields drop the ';' of class types, see addFieldToList
+      String type = cr.getFieldType(i);
+      if (type.endsWith(";")) {
+        type = type.substring(0, type.length() - 1);
+      }
+      if (f == null || !f.getName().toString().equals(cr.getFieldName(i))
+          || !f.getFieldTypeReference().getName().toString().equals(type)) {
+        return false;
+      }
+    }
+    if (instance != instanceFields.length || statics != staticFields.length) {
+      return false;
+    }
+    Collection<IMethod> methods = getDeclaredMethods();
+    if (methods.size() != cr.getMethodCount()) {
+      return false;
+    }
+    for (IMethod m : methods) {
+      ShrikeCTMethod method = (ShrikeCTMethod) m;
+      int index = method.getIndex();
+      if (!m.getSelector().equals(Selector.make(cr.getMethodName(index) + cr.getMethodType(index)))
+          || method.getModifiers() != cr.getMethodAccessFlags(index)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   public Collection<Annotation> getRuntimeInvisibleAnnotations() throws InvalidClassFileException {
     return getAnnotations(true);
   }
@@ -0,0 +1,606 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.dataflow.IFDS;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.MonitorUtil;
+import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Iterator2Collection;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import com.ibm.wala.util.collections.Pair;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableIntSet;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+
+/**
+ * A multi-threaded version of the {@link TabulationSolver}.
+ * <p>
+ * Path edges are processed as tasks of a {@link ForkJoinPool}: each worker thread pushes the path edges it discovers onto its
+ * own deque, and idle workers steal from the others. Path edges, summary edges and call flow edges are kept in the same
+ * structures as in {@link TabulationSolver}, each guarded by its own monitor, so that threads working in different procedures
+ * rarely contend.
+ * <p>
+ * Recording a call flow edge into a callee and reading the callee's summary edges happen atomically with respect to recording
+ * a summary edge and reading the call flow edges, under the monitor of the callee's {@link CallFlowEdges}. So, whichever of a
+ * call and a matching exit is processed second always sees the other, and the solution is the same as that of
+ * {@link TabulationSolver}, though path edges are not processed in the order given by
+ * {@link TabulationDomain#hasPriorityOver(PathEdge, PathEdge)}. With a merge function, the result may depend on the order in
+ * which facts arrive, as it does for the sequential solver with a different worklist order.
+ * <p>
+ * The flow functions and the domain of the problem are called from several threads at once, and must allow that. The
+ * supergraph is fully built before tabulation starts, since lazily built supergraphs are not safe for concurrent use.
+ * Subclass hooks of {@link TabulationSolver}, such as {@link TabulationSolver#newSummaryEdge}, are not supported. Neither are
+ * partially balanced problems: like {@link TabulationSolver}, and unlike {@link PartiallyBalancedTabulationSolver}, this solver
+ * never follows an unbalanced return, so a {@link PartiallyBalancedTabulationProblem} is solved as if it were balanced.
+ *
+ * @param <T> type of node in the supergraph
+ * @param <P> type of a procedure (like a box in an RSM)
+ * @param <F> type of factoids propagated when solving this problem
+ */
+public class ParallelTabulationSolver<T, P, F> {
+
+  /**
+   * how often, in milliseconds, the thread that called {@link #solve()} checks the progress monitor
+   */
+  private static final long POLL_INTERVAL = 100;
+
+  private final ISupergraph<T, P> supergraph;
+
+  private final IFlowFunctionMap<T> flowFunctionMap;
+
+  private final TabulationProblem<T, P, F> problem;
+
+  private final int nThreads;
+
+  private final IProgressMonitor progressMonitor;
+
+  /**
+   * entry node in supergraph -&gt; LocalPathEdges
+   */
+  private final Map<T, LocalPathEdges> pathEdges = new ConcurrentHashMap<>();
+
+  /**
+   * entry node in supergraph -&gt; CallFlowEdges. Each CallFlowEdges also guards the summary edges from its entry.
+   */
+  private final Map<T, CallFlowEdges> callFlowEdges = new ConcurrentHashMap<>();
+
+  /**
+   * procedure -&gt; LocalSummaryEdges
+   */
+  private final Map<P, LocalSummaryEdges> summaryEdges = new ConcurrentHashMap<>();
+
+  /**
+   * the seeds of the tabulation, grouped by procedure
+   */
+  private final Map<P, Set<PathEdge<T>>> seeds = new ConcurrentHashMap<>();
+
+  private final Set<PathEdge<T>> allSeeds = ConcurrentHashMap.newKeySet();
+
+  private ForkJoinPool pool;
+
+  /**
+   * the first exception thrown by a worker, if any
+   */
+  private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+  private volatile boolean canceled;
+
+  /**
+   * @param p a description of the dataflow problem to solve
+   * @param nThreads number of worker threads
+   * @throws IllegalArgumentException if p is null or nThreads &lt; 1
+   */
+  protected ParallelTabulationSolver(TabulationProblem<T, P, F> p, int nThreads, IProgressMonitor monitor) {
+    if (p == null) {
+      throw new IllegalArgumentException("p is null");
+    }
+    if (nThreads < 1) {
+      throw new IllegalArgumentException("invalid number of threads: " + nThreads);
+    }
+    this.supergraph = p.getSupergraph();
+    this.flowFunctionMap = p.getFunctionMap();
+    this.problem = p;
+    this.nThreads = nThreads;
+    this.progressMonitor = monitor;
+  }
+
+  /**
+   * @param p a description of the dataflow problem to solve
+   * @throws IllegalArgumentException if p is null
+   */
+  public static <T, P, F> ParallelTabulationSolver<T, P, F> make(TabulationProblem<T, P, F> p) {
+    return new ParallelTabulationSolver<>(p, Runtime.getRuntime().availableProcessors(), null);
+  }
+
+  /**
+   * @param p a description of the dataflow problem to solve
+   * @param nThreads number of worker threads
+   * @throws IllegalArgumentException if p is null or nThreads &lt; 1
+   */
+  public static <T, P, F> ParallelTabulationSolver<T, P, F> make(TabulationProblem<T, P, F> p, int nThreads,
+      IProgressMonitor monitor) {
+    return new ParallelTabulationSolver<>(p, nThreads, monitor);
+  }
+
+  /**
+   * Solve the dataflow problem.
+   *
+   * @return a representation of the result
+   * @throws CancelException if the progress monitor was canceled
+   */
+  public TabulationResult<T, P, F> solve() throws CancelException {
+    // force construction of the whole supergraph before any worker touches it
+    supergraph.getNumberOfNodes();
+    pool = new ForkJoinPool(nThreads);
+    try {
+      for (PathEdge<T> seed : problem.initialSeeds()) {
+        addSeed(seed);
+      }
+      while (!pool.awaitQuiescence(POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+        if (MonitorUtil.isCanceled(progressMonitor)) {
+          canceled = true;
+        }
+      }
+    } finally {
+      pool.shutdownNow();
+      pool = null;
+    }
+    Throwable t = failure.get();
+    if (t instanceof RuntimeException) {
+      throw (RuntimeException) t;
+    } else if (t instanceof Error) {
+      throw (Error) t;
+    }
+    if (canceled) {
+      throw CancelException.make("tabulation canceled");
+    }
+    return new Result();
+  }
+
+  private void addSeed(PathEdge<T> seed) {
+    seeds.computeIfAbsent(supergraph.getProcOf(seed.entry), p -> ConcurrentHashMap.newKeySet()).add(seed);
+    allSeeds.add(seed);
+    propagate(seed.entry, seed.d1, seed.target, seed.d2);
+  }
+
+  /**
+   * A path edge waiting to be processed
+   */
+  private final class EdgeTask extends RecursiveAction {
+
+    private static final long serialVersionUID = -1786436591236426453L;
+
+    private final PathEdge<T> edge;
+
+    EdgeTask(PathEdge<T> edge) {
+      this.edge = edge;
+    }
+
+    @Override
+    protected void compute() {
+      if (canceled || failure.get() != null) {
+        return;
+      }
+      try {
+        process(edge);
+      } catch (RuntimeException | Error e) {
+        failure.compareAndSet(null, e);
+      }
+    }
+  }
+
+  /**
+   * See POPL 95 paper for this algorithm, Figure 3; this is the body of the main loop
+   */
+  private void process(PathEdge<T> edge) {
+    int j = merge(edge.entry, edge.d1, edge.target, edge.d2);
+    if (j == -1) {
+      return;
+    }
+    if (j != edge.d2) {
+      propagate(edge.entry, edge.d1, edge.target, j);
+    } else if (supergraph.isCall(edge.target)) {
+      // [13]
+      processCall(edge);
+    } else if (supergraph.isExit(edge.target)) {
+      // [21]
+      processExit(edge);
+    } else {
+      // [33]
+      processNormal(edge);
+    }
+  }
+
+  /**
+   * Handle lines [33-37] of the algorithm
+   */
+  private void processNormal(final PathEdge<T> edge) {
+    for (T m : Iterator2Iterable.make(supergraph.getSuccNodes(edge.target))) {
+      IUnaryFlowFunction f = flowFunctionMap.getNormalFlowFunction(edge.target, m);
+      IntSet D3 = f.getTargets(edge.d2);
+      if (D3 != null) {
+        D3.foreach(d3 -> propagate(edge.entry, edge.d1, m, d3));
+      }
+    }
+  }
+
+  /**
+   * Handle lines [21 - 32] of the algorithm, propagating information from an exit node.
+   */
+  private void processExit(final PathEdge<T> edge) {
+    final LocalSummaryEdges summaries = findOrCreateLocalSummaryEdges(supergraph.getProcOf(edge.target));
+    int s_p_n = supergraph.getLocalBlockNumber(edge.entry);
+    int x = supergraph.getLocalBlockNumber(edge.target);
+
+    // [22] for each c /in callers(p), [23] for each d4 s.t. <c,d4> -> <s_p,d1> occurred earlier
+    List<Pair<Integer, IntSet>> callers = new ArrayList<>();
+    final CallFlowEdges callFlow = findOrCreateCallFlowEdges(edge.entry);
+    synchronized (callFlow) {
+      synchronized (summaries) {
+        if (!summaries.contains(s_p_n, x, edge.d1, edge.d2)) {
+          summaries.insertSummaryEdge(s_p_n, x, edge.d1, edge.d2);
+        }
+      }
+      IntSet callFlowSourceNodes = callFlow.getCallFlowSourceNodes(edge.d1);
+      if (callFlowSourceNodes != null) {
+        for (IntIterator it = callFlowSourceNodes.intIterator(); it.hasNext();) {
+          int globalC = it.next();
+          callers.add(Pair.make(globalC, copy(callFlow.getCallFlowSources(globalC, edge.d1))));
+        }
+      }
+    }
+    for (Pair<Integer, IntSet> caller : callers) {
+      propagateToReturnSites(edge, supergraph.getNode(caller.fst), caller.snd);
+    }
+  }
+
+  /**
+   * Propagate information for an "exit" edge to the appropriate return sites
+   *
+   * @param edge the edge being processed
+   * @param c a call site of edge.s_p
+   * @param D4 set of d1 s.t. {@literal <c, d1> -> <edge.s_p, edge.d2>} was recorded as call flow
+   */
+  private void propagateToReturnSites(final PathEdge<T> edge, final T c, final IntSet D4) {
+    P proc = supergraph.getProcOf(c);
+    final T[] entries = supergraph.getEntriesForProcedure(proc);
+    for (T retSite : Iterator2Iterable.make(supergraph.getReturnSites(c, supergraph.getProcOf(edge.target)))) {
+      // only process return sites reachable from this exit
+      if (!supergraph.hasEdge(edge.target, retSite)) {
+        continue;
+      }
+      final IFlowFunction retf = flowFunctionMap.getReturnFlowFunction(c, edge.target, retSite);
+      if (retf instanceof IBinaryReturnFlowFunction) {
+        D4.foreach(d4 -> propToReturnSite(c, entries, retSite, d4, ((IBinaryReturnFlowFunction) retf).getTargets(d4, edge.d2)));
+      } else {
+        final IntSet D5 = ((IUnaryFlowFunction) retf).getTargets(edge.d2);
+        D4.foreach(d4 -> propToReturnSite(c, entries, retSite, d4, D5));
+      }
+    }
+  }
+
+  /**
+   * Propagate information to a particular return site, [26 - 28], for each potential entry node of the caller
+   */
+  private void propToReturnSite(final T c, final T[] entries, final T retSite, final int d4, final IntSet D5) {
+    if (D5 != null) {
+      for (final T s_p : entries) {
+        IntSet D3 = getInversePathEdges(s_p, c, d4);
+        if (D3 != null) {
+          D3.foreach(d3 -> D5.foreach(d5 -> propagate(s_p, d3, retSite, d5)));
+        }
+      }
+    }
+  }
+
+  /**
+   * @return a copy of the set of d1 s.t. {@literal <s_p, d1> -> <n, d2>} is a path edge, or null if none found
+   */
+  private IntSet getInversePathEdges(T s_p, T n, int d2) {
+    int number = supergraph.getLocalBlockNumber(n);
+    LocalPathEdges lp = pathEdges.get(s_p);
+    if (lp == null) {
+      return null;
+    }
+    synchronized (lp) {
+      return copy(lp.getInverse(number, d2));
+    }
+  }
+
+  /**
+   * Handle lines [14 - 19] of the algorithm, propagating information into and across a call site.
+   */
+  private void processCall(final PathEdge<T> edge) {
+    final int c = supergraph.getNumber(edge.target);
+
+    Collection<T> allReturnSites = HashSetFactory.make();
+    for (T retSite : Iterator2Iterable.make(supergraph.getReturnSites(edge.target, null))) {
+      allReturnSites.add(retSite);
+    }
+    // [14 - 16]
+    boolean hasCallee = false;
+    for (T callee : Iterator2Iterable.make(supergraph.getCalledNodes(edge.target))) {
+      hasCallee = true;
+      processParticularCallee(edge, c, allReturnSites, callee);
+    }
+    // in backwards problems, a "call" node can have "normal" successors as well
+    for (T m : Iterator2Iterable.make(supergraph.getNormalSuccessors(edge.target))) {
+      IUnaryFlowFunction f = flowFunctionMap.getNormalFlowFunction(edge.target, m);
+      IntSet D3 = f.getTargets(edge.d2);
+      if (D3 != null) {
+        D3.foreach(d3 -> propagate(edge.entry, edge.d1, m, d3));
+      }
+    }
+    // [17 - 19]
+    for (final T returnSite : allReturnSites) {
+      IUnaryFlowFunction f = hasCallee ? flowFunctionMap.getCallToReturnFlowFunction(edge.target, returnSite)
+          : flowFunctionMap.getCallNoneToReturnFlowFunction(edge.target, returnSite);
+      IntSet reached = f.getTargets(edge.d2);
+      if (reached != null) {
+        reached.foreach(x -> propagate(edge.entry, edge.d1, returnSite, x));
+      }
+    }
+  }
+
+  /**
+   * handle a particular callee for some call node.
+   *
+   * @param edge the path edge being processed
+   * @param callNodeNum the number of the call node in the supergraph
+   * @param allReturnSites a set collecting return sites for the call. This set is mutated with the return sites for this callee.
+   * @param calleeEntry the entry node of the callee in question
+   */
+  private void processParticularCallee(final PathEdge<T> edge, final int callNodeNum, Collection<T> allReturnSites,
+      final T calleeEntry) {
+    // reached := {d1} that reach the callee
+    MutableSparseIntSet reached = MutableSparseIntSet.makeEmpty();
+    final Collection<T> returnSitesForCallee = Iterator2Collection.toSet(supergraph.getReturnSites(edge.target,
+        supergraph.getProcOf(calleeEntry)));
+    allReturnSites.addAll(returnSitesForCallee);
+    for (final T returnSite : returnSitesForCallee) {
+      IntSet r = flowFunctionMap.getCallFlowFunction(edge.target, calleeEntry, returnSite).getTargets(edge.d2);
+      if (r != null) {
+        reached.addAll(r);
+      }
+    }
+    // flow into a callee that can never flow out via a return
+    IntSet r = flowFunctionMap.getCallFlowFunction(edge.target, calleeEntry, null).getTargets(edge.d2);
+    if (r != null) {
+      reached.addAll(r);
+    }
+
+    final P p = supergraph.getProcOf(calleeEntry);
+    final T[] exits = supergraph.getExitsForProcedure(p);
+    final CallFlowEdges callFlow = findOrCreateCallFlowEdges(calleeEntry);
+    final int s_p_num = supergraph.getLocalBlockNumber(calleeEntry);
+
+    reached.foreach(d1 -> {
+      propagate(calleeEntry, d1, calleeEntry, d1);
+      // record the call flow <c, d2> -> <callee, d1> and read the summary edges from <callee, d1> in one step, so that
+      // a concurrent processExit() for this callee either sees the call flow or is seen here
+      IntSet[] reachedBySummary = new IntSet[exits.length];
+      synchronized (callFlow) {
+        callFlow.addCallEdge(callNodeNum, edge.d2, d1);
+        LocalSummaryEdges summaries = summaryEdges.get(p);
+        if (summaries != null) {
+          synchronized (summaries) {
+            for (int i = 0; i < exits.length; i++) {
+              reachedBySummary[i] = copy(summaries.getSummaryEdges(s_p_num, supergraph.getLocalBlockNumber(exits[i]), d1));
+            }
+          }
+        }
+      }
+      for (int i = 0; i < exits.length; i++) {
+        if (reachedBySummary[i] != null) {
+          applySummaryEdges(edge, exits[i], returnSitesForCallee, reachedBySummary[i]);
+        }
+      }
+    });
+  }
+
+  /**
+   * apply summary edges from a callee to the path edge reaching its call site
+   *
+   * @param edge the path edge ending at the call site
+   * @param exit the exit of the callee
+   * @param returnSites the return sites of the call for the callee
+   * @param reachedBySummary {d2} s.t. &lt;callee,d1&gt; -&gt; &lt;exit,d2&gt; was recorded as a summary edge
+   */
+  private void applySummaryEdges(final PathEdge<T> edge, final T exit, Collection<T> returnSites, IntSet reachedBySummary) {
+    for (final T returnSite : returnSites) {
+      if (supergraph.hasEdge(exit, returnSite)) {
+        final IFlowFunction retf = flowFunctionMap.getReturnFlowFunction(edge.target, exit, returnSite);
+        reachedBySummary.foreach(d2 -> {
+          IntSet D5 = retf instanceof IBinaryReturnFlowFunction ? ((IBinaryReturnFlowFunction) retf).getTargets(edge.d2, d2)
+              : ((IUnaryFlowFunction) retf).getTargets(d2);
+          if (D5 != null) {
+            D5.foreach(d5 -> propagate(edge.entry, edge.d1, returnSite, d5));
+          }
+        });
+      }
+    }
+  }
+
+  /**
+   * Record the path edge &lt;s_p,i&gt; -&gt; &lt;n, j&gt;, and schedule it for processing if it is new.
+   *
+   * @return true iff the path edge was not previously observed
+   */
+  private boolean propagate(T s_p, int i, T n, int j) {
+    int number = supergraph.getLocalBlockNumber(n);
+    assert number >= 0;
+    assert j >= 0;
+    LocalPathEdges pLocal = findOrCreateLocalPathEdges(s_p);
+    synchronized (pLocal) {
+      if (pLocal.contains(i, number, j)) {
+        return false;
+      }
+      pLocal.addPathEdge(i, number, j);
+    }
+    EdgeTask task = new EdgeTask(PathEdge.createPathEdge(s_p, i, n, j));
+    Thread current = Thread.currentThread();
+    if (current instanceof ForkJoinWorkerThread && ((ForkJoinWorkerThread) current).getPool() == pool) {
+      // push onto this worker's own deque
+      task.fork();
+    } else {
+      pool.execute(task);
+    }
+    return true;
+  }
+
+  /**
+   * see {@link TabulationSolver}; return -1 if no fact should be propagated
+   */
+  private int merge(T s_p, int i, T n, int j) {
+    IMergeFunction alpha = problem.getMergeFunction();
+    if (alpha == null) {
+      return j;
+    }
+    IntSet preExistFacts;
+    LocalPathEdges lp = pathEdges.get(s_p);
+    synchronized (lp) {
+      preExistFacts = copy(lp.getReachable(supergraph.getLocalBlockNumber(n), i));
+    }
+    if (preExistFacts == null) {
+      return j;
+    }
+    int size = preExistFacts.size();
+    if ((size == 0) || ((size == 1) && preExistFacts.contains(j))) {
+      return j;
+    }
+    return alpha.merge(preExistFacts, j);
+  }
+
+  private static IntSet copy(IntSet s) {
+    return s == null ? null : MutableSparseIntSet.make(s);
+  }
+
+  private LocalPathEdges findOrCreateLocalPathEdges(T s_p) {
+    return pathEdges.computeIfAbsent(s_p, n -> new LocalPathEdges(problem.getMergeFunction() != null));
+  }
+
+  private LocalSummaryEdges findOrCreateLocalSummaryEdges(P proc) {
+    return summaryEdges.computeIfAbsent(proc, p -> new LocalSummaryEdges());
+  }
+
+  private CallFlowEdges findOrCreateCallFlowEdges(T s_p) {
+    return callFlowEdges.computeIfAbsent(s_p, n -> new CallFlowEdges());
+  }
+
+  /**
+   * get the bitvector of facts that hold at the entry to a given node
+   *
+   * @return IntSet representing the bitvector
+   */
+  public IntSet getResult(T node) {
+    P proc = supergraph.getProcOf(node);
+    int n = supergraph.getLocalBlockNumber(node);
+    MutableIntSet result = MutableSparseIntSet.makeEmpty();
+
+    Set<T> allEntries = HashSetFactory.make(Arrays.asList(supergraph.getEntriesForProcedure(proc)));
+    Set<PathEdge<T>> pSeeds = seeds.get(proc);
+    if (pSeeds != null) {
+      for (PathEdge<T> seed : pSeeds) {
+        allEntries.add(seed.entry);
+      }
+    }
+    for (T entry : allEntries) {
+      LocalPathEdges lp = pathEdges.get(entry);
+      if (lp != null) {
+        synchronized (lp) {
+          result.addAll(lp.getReachable(n));
+        }
+      }
+    }
+    return result;
+  }
+
+  public class Result implements TabulationResult<T, P, F> {
+
+    @Override
+    public IntSet getResult(T node) {
+      return ParallelTabulationSolver.this.getResult(node);
+    }
+
+    @Override
+    public TabulationProblem<T, P, F> getProblem() {
+      return problem;
+    }
+
+    @Override
+    public Collection<T> getSupergraphNodesReached() {
+      Collection<T> result = HashSetFactory.make();
+      for (Map.Entry<T, LocalPathEdges> e : pathEdges.entrySet()) {
+        P proc = supergraph.getProcOf(e.getKey());
+        IntSet reached = e.getValue().getReachedNodeNumbers();
+        for (IntIterator ii = reached.intIterator(); ii.hasNext();) {
+          result.add(supergraph.getLocalBlock(proc, ii.next()));
+        }
+      }
+      return result;
+    }
+
+    @Override
+    public IntSet getSummaryTargets(T n1, int d1, T n2) {
+      LocalSummaryEdges summaries = summaryEdges.get(supergraph.getProcOf(n1));
+      if (summaries == null) {
+        return null;
+      }
+      return summaries.getSummaryEdges(supergraph.getLocalBlockNumber(n1), supergraph.getLocalBlockNumber(n2), d1);
+    }
+
+    @Override
+    public Collection<PathEdge<T>> getSeeds() {
+      return ParallelTabulationSolver.this.getSeeds();
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder result = new StringBuilder();
+      for (T n : supergraph) {
+        result.append(n).append(" : ").append(getResult(n)).append('\n');
+      }
+      return result.toString();
+    }
+  }
+
+  public ISupergraph<T, P> getSupergraph() {
+    return supergraph;
+  }
+
+  public TabulationProblem<T, P, F> getProblem() {
+    return problem;
+  }
+
+  public Collection<PathEdge<T>> getSeeds() {
+    return Collections.unmodifiableCollection(allSeeds);
+  }
+
+  public int getNumberOfThreads() {
+    return nThreads;
+  }
+}
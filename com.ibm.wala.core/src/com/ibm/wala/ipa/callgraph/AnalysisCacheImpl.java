@@ -11,16 +11,24 @@
 package com.ibm.wala.ipa.callgraph;
 
 import com.ibm.wala.classLoader.IMethod;
-import com.ibm.wala.ssa.AuxiliaryCache;
+import com.ibm.wala.ssa.ConcurrentAuxiliaryCache;
 import com.ibm.wala.ssa.DefaultIRFactory;
 import com.ibm.wala.ssa.IRFactory;
+import com.ibm.wala.ssa.PersistentIRCache;
 import com.ibm.wala.ssa.SSACache;
 import com.ibm.wala.ssa.SSAOptions;
 
 public class AnalysisCacheImpl extends AnalysisCache {
 
   public AnalysisCacheImpl(IRFactory<IMethod> irFactory, SSAOptions ssaOptions) {
-    super(irFactory, ssaOptions, new SSACache(irFactory, new AuxiliaryCache(), new AuxiliaryCache()));
+    this(irFactory, ssaOptions, null);
+  }
+
+  /**
+   * @param persistentCache an on-disk cache that keeps IRs across runs, or null
+   */
+  public AnalysisCacheImpl(IRFactory<IMethod> irFactory, SSAOptions ssaOptions, PersistentIRCache persistentCache) {
+    super(irFactory, ssaOptions, new SSACache(irFactory, new ConcurrentAuxiliaryCache(), new ConcurrentAuxiliaryCache(), persistentCache));
   }
   
   public AnalysisCacheImpl(SSAOptions ssaOptions) {
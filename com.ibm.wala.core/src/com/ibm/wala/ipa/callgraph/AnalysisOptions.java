@@ -12,7 +12,10 @@ package com.ibm.wala.ipa.callgraph;
 
 import com.ibm.wala.analysis.reflection.ReflectionContextInterpreter;
 import com.ibm.wala.analysis.reflection.ReflectionContextSelector;
+import com.ibm.wala.fixedpoint.impl.WorklistStrategy;
 import com.ibm.wala.ipa.callgraph.impl.ExplicitCallGraph;
+import com.ibm.wala.ipa.callgraph.propagation.ParallelSolver;
+import com.ibm.wala.ipa.callgraph.propagation.PropagationSystem;
 import com.ibm.wala.ipa.callgraph.propagation.ReflectionHandler;
 import com.ibm.wala.ssa.SSAOptions;
 
@@ -197,6 +200,41 @@ public class AnalysisOptions {
    * Should call graph construction handle arrays of zero-length differently?
    */
   private boolean handleZeroLengthArray = true;
+
+  /**
+   * How many threads should the pointer analysis solver use? With a value greater than 1, propagation builders use a
+   * {@link ParallelSolver}.
+   */
+  private int solverThreads = 1;
+
+  /**
+   * Should the pointer analysis solver unify the variables on cycles of assignments as it finds them? Not used when
+   * building incrementally.
+   */
+  private boolean cycleElimination = false;
+
+  /**
+   * Should the pointer analysis solver unify equivalent variables before each round of solving? Not used when building
+   * incrementally.
+   */
+  private boolean variableSubstitution = false;
+
+  /**
+   * Should the pointer analysis solver propagate only the differences of points-to sets along assignments? Not used when
+   * building incrementally, or with more than one solver thread.
+   */
+  private boolean differencePropagation = false;
+
+  /**
+   * How many elements of points-to sets should the pointer analysis solver keep in memory, spilling the rest to disk? Negative
+   * to keep them all. Not used with more than one solver thread.
+   */
+  private long pointsToSetSpillBudget = -1;
+
+  /**
+   * In what order should the pointer analysis solver evaluate statements? Defaults to {@link WorklistStrategy#getDefault()}.
+   */
+  private WorklistStrategy worklistStrategy = WorklistStrategy.getDefault();
   
   // SJF: I'm not sure these factories and caches belong here.
   // TODO: figure out how to clean this up.
@@ -439,4 +477,102 @@ public class AnalysisOptions {
   public void setHandleZeroLengthArray(boolean handleZeroLengthArray) {
     this.handleZeroLengthArray = handleZeroLengthArray;
   }
+
+  /**
+   * How many threads should the pointer analysis solver use?
+   */
+  public int getSolverThreads() {
+    return solverThreads;
+  }
+
+  /**
+   * How many threads should the pointer analysis solver use? With a value greater than 1, propagation builders use a
+   * {@link ParallelSolver}.
+   */
+  public void setSolverThreads(int solverThreads) {
+    if (solverThreads < 1) {
+      throw new IllegalArgumentException("invalid number of solver threads: " + solverThreads);
+    }
+    this.solverThreads = solverThreads;
+  }
+
+  /**
+   * Should the pointer analysis solver unify the variables on cycles of assignments as it finds them?
+   */
+  public boolean getCycleElimination() {
+    return cycleElimination;
+  }
+
+  /**
+   * Should the pointer analysis solver unify the variables on cycles of assignments as it finds them? See
+   * {@link PropagationSystem#enableCycleElimination()}. Not used when building incrementally.
+   */
+  public void setCycleElimination(boolean cycleElimination) {
+    this.cycleElimination = cycleElimination;
+  }
+
+  /**
+   * Should the pointer analysis solver unify equivalent variables before each round of solving?
+   */
+  public boolean getVariableSubstitution() {
+    return variableSubstitution;
+  }
+
+  /**
+   * Should the pointer analysis solver unify equivalent variables before each round of solving? See
+   * {@link PropagationSystem#substituteVariables()}. Not used when building incrementally.
+   */
+  public void setVariableSubstitution(boolean variableSubstitution) {
+    this.variableSubstitution = variableSubstitution;
+  }
+
+  /**
+   * Should the pointer analysis solver propagate only the differences of points-to sets along assignments?
+   */
+  public boolean getDifferencePropagation() {
+    return differencePropagation;
+  }
+
+  /**
+   * Should the pointer analysis solver propagate only the differences of points-to sets along assignments? See
+   * {@link PropagationSystem#enableDifferencePropagation()}. Not used when building incrementally, or with more than one
+   * solver thread.
+   */
+  public void setDifferencePropagation(boolean differencePropagation) {
+    this.differencePropagation = differencePropagation;
+  }
+
+  /**
+   * How many elements of points-to sets should the pointer analysis solver keep in memory? Negative if all.
+   */
+  public long getPointsToSetSpillBudget() {
+    return pointsToSetSpillBudget;
+  }
+
+  /**
+   * How many elements of points-to sets should the pointer analysis solver keep in memory, spilling the rest to disk? See
+   * {@link PropagationSystem#enableSpilling(long)}. Negative to keep them all, the default. Not used with more than one solver
+   * thread. The budget holds while the call graph is built; the sets are read back into memory once it is finished.
+   */
+  public void setPointsToSetSpillBudget(long pointsToSetSpillBudget) {
+    this.pointsToSetSpillBudget = pointsToSetSpillBudget;
+  }
+
+  /**
+   * In what order should the pointer analysis solver evaluate statements?
+   */
+  public WorklistStrategy getWorklistStrategy() {
+    return worklistStrategy;
+  }
+
+  /**
+   * In what order should the pointer analysis solver evaluate statements? See {@link WorklistStrategy}. Defaults to the
+   * strategy named by the system property {@link WorklistStrategy#CONFIG_PROPERTY_NAME}, or {@link WorklistStrategy#PRIORITY}.
+   */
+  public void setWorklistStrategy(WorklistStrategy worklistStrategy) {
+    if (worklistStrategy == null) {
+      throw new IllegalArgumentException("null worklistStrategy");
+    }
+    this.worklistStrategy = worklistStrategy;
+  }
 }
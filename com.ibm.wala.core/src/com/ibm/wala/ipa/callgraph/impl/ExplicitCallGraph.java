@@ -288,6 +288,14 @@ public class ExplicitCallGraph extends BasicCallGraph<SSAContextInterpreter> imp
       allTargets.clear();
     }
 
+    /**
+     * forget the IR and DefUse held for this node, e.g. because the code of its method changed
+     */
+    public void clearCachedIR() {
+      ir = new WeakReference<>(null);
+      du = new WeakReference<>(null);
+    }
+
     @Override
     public IR getIR() {
       if (getMethod().isWalaSynthetic()) {
@@ -437,8 +445,12 @@ public class ExplicitCallGraph extends BasicCallGraph<SSAContextInterpreter> imp
 
     @Override
     public void removeOutgoingEdges(CGNode node) {
-      Assertions.UNREACHABLE();
-
+      ExplicitNode n = (ExplicitNode) node;
+      int x = getNumber(n);
+      for (IntIterator it = n.getAllTargetNumbers().intIterator(); it.hasNext();) {
+        predecessors.remove(it.next(), x);
+      }
+      n.clearAllTargets();
     }
 
     @Override
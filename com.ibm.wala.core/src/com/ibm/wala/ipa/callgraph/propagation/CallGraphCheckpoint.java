@@ -0,0 +1,582 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.propagation;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.IField;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.NewSiteReference;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.callgraph.impl.ExplicitCallGraph;
+import com.ibm.wala.ipa.callgraph.impl.ExplicitCallGraph.ExplicitNode;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.ExceptionReturnValueKey;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.ZeroXInstanceKeys;
+import com.ibm.wala.ipa.cha.ClassHierarchySnapshot;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.FieldReference;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.Selector;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.strings.Atom;
+
+/**
+ * Saves the progress of a {@link PropagationCallGraphBuilder} to disk, so that a later process can resume building the same
+ * call graph, for the same {@link AnalysisScope}, entrypoints and builder configuration, instead of starting over.
+ *
+ * A checkpoint names things rather than numbering them: call graph nodes by method, instance keys by allocation site or type,
+ * and pointer keys by node and value number, field or instance. Resuming re-creates the nodes and call edges and adds every
+ * recorded instance key to the points-to set it was in. Since the analysis is monotone, each such fact holds in the final
+ * result too, so a resumed build computes the same call graph, but its worklist starts out with the recorded sets already in
+ * place. The worklist itself is not saved: resuming adds the constraints of every recorded node, which puts them all on the
+ * worklist anyway.
+ *
+ * Only nodes of methods the class hierarchy resolves, in the {@link Everywhere} context, and the keys built from them, can be
+ * named this way; facts about other nodes, e.g. synthetic ones, and instance keys of other kinds, are left out and simply
+ * recomputed. A checkpoint is ignored if the scope, the entrypoints, or the kinds of context selector and key factories differ
+ * from those of the builder; other changes to the configuration, e.g. of the method target selector, are the caller's
+ * responsibility.
+ */
+public class CallGraphCheckpoint {
+
+  private static final boolean DEBUG = false;
+
+  private static final int MAGIC = 0x57414c43;
+
+  /**
+   * bump this whenever the file format changes
+   */
+  private static final int FORMAT_VERSION = 1;
+
+  private static final byte NO_INSTANCE = 0;
+
+  private static final byte TYPE = 1;
+
+  private static final byte ALLOCATION = 2;
+
+  private static final byte LOCAL = 0;
+
+  private static final byte RETURN_VALUE = 1;
+
+  private static final byte EXCEPTIONAL_RETURN_VALUE = 2;
+
+  private static final byte STATIC_FIELD = 3;
+
+  private static final byte INSTANCE_FIELD = 4;
+
+  private static final byte ARRAY_CONTENTS = 5;
+
+  private CallGraphCheckpoint() {
+  }
+
+  /**
+   * write the state of builder's call graph and pointer analysis to file. The file is replaced atomically, so a process killed
+   * while writing leaves the previous checkpoint in place.
+   */
+  public static void write(PropagationCallGraphBuilder builder, File file) throws IOException {
+    if (builder == null) {
+      throw new IllegalArgumentException("null builder");
+    }
+    if (file == null) {
+      throw new IllegalArgumentException("null file");
+    }
+    File dir = file.getAbsoluteFile().getParentFile();
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      throw new IOException("cannot create directory " + dir);
+    }
+    Path tmp = Files.createTempFile(dir.toPath(), file.getName(), ".tmp");
+    try {
+      try (OutputStream s = Files.newOutputStream(tmp); DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s))) {
+        new Writer(builder, out).write();
+      }
+      Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  /**
+   * Seed builder with the state saved in file. The builder must have set up its system and entrypoints, and not yet have
+   * started solving.
+   *
+   * @return number of points-to facts restored, or -1 if file does not exist or was written for another scope or configuration
+   * @throws IOException if the file cannot be read or is not a valid checkpoint
+   */
+  public static int resume(PropagationCallGraphBuilder builder, File file) throws IOException, CancelException {
+    if (builder == null) {
+      throw new IllegalArgumentException("null builder");
+    }
+    if (file == null) {
+      throw new IllegalArgumentException("null file");
+    }
+    if (!file.exists()) {
+      return -1;
+    }
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      // a checkpoint ends with its magic number, so a truncated one is rejected before anything is restored
+      if (buffer.limit() < 8 || buffer.getInt(0) != MAGIC || buffer.getInt(buffer.limit() - 4) != MAGIC) {
+        throw new IOException("not a call graph checkpoint: " + file);
+      }
+      return new Reader(builder, buffer).read();
+    } catch (BufferUnderflowException | IllegalArgumentException e) {
+      throw new IOException("damaged call graph checkpoint: " + file, e);
+    }
+  }
+
+  /**
+   * @return a description of what, besides the scope, determines the call graph that builder computes
+   */
+  private static String configuration(PropagationCallGraphBuilder builder) {
+    StringBuilder result = new StringBuilder();
+    result.append(builder.getClass().getName()).append('\n');
+    result.append(builder.getContextSelector().getClass().getName()).append('\n');
+    result.append(builder.getInstanceKeys().getClass().getName()).append('\n');
+    if (builder.getInstanceKeys() instanceof ZeroXInstanceKeys) {
+      result.append(((ZeroXInstanceKeys) builder.getInstanceKeys()).getPolicy()).append('\n');
+    }
+    result.append(builder.getPointerKeyFactory().getClass().getName()).append('\n');
+    AnalysisOptions options = builder.getOptions();
+    result.append(options.getReflectionOptions()).append(' ').append(options.getHandleStaticInit()).append(' ')
+        .append(options.getHandleZeroLengthArray()).append(' ').append(options.getUseConstantSpecificKeys()).append('\n');
+    options.getEntrypoints().forEach(e -> result.append(e).append('\n'));
+    return result.toString();
+  }
+
+  private static final class Writer {
+    private final PropagationCallGraphBuilder builder;
+
+    private final PropagationSystem system;
+
+    private final ExplicitCallGraph cg;
+
+    private final IClassHierarchy cha;
+
+    private final DataOutputStream out;
+
+    /**
+     * graph node id -&gt; whether the node can be written
+     */
+    private final boolean[] named;
+
+    /**
+     * instance key index -&gt; whether the key can be written
+     */
+    private boolean[] namedInstances;
+
+    Writer(PropagationCallGraphBuilder builder, DataOutputStream out) {
+      this.builder = builder;
+      this.system = builder.getPropagationSystem();
+      this.cg = builder.getCallGraph();
+      this.cha = builder.getClassHierarchy();
+      this.out = out;
+      this.named = new boolean[cg.getMaxNumber() + 1];
+    }
+
+    void write() throws IOException {
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      byte[] f = ClassHierarchySnapshot.fingerprint(cha.getScope());
+      out.writeInt(f.length);
+      out.write(f);
+      writeString(configuration(builder));
+      writeNodes();
+      writeEdges();
+      writeInstanceKeys();
+      writePointsTo();
+      out.writeInt(MAGIC);
+    }
+
+    private void writeNodes() throws IOException {
+      List<CGNode> nodes = new ArrayList<>();
+      for (CGNode n : cg) {
+        // synthetic methods are left out; the fake world clinit, e.g., gets its instructions in the order classes are found
+        if (n.getContext().equals(Everywhere.EVERYWHERE) && n.getMethod().equals(cha.resolveMethod(n.getMethod().getReference()))) {
+          named[n.getGraphNodeId()] = true;
+          nodes.add(n);
+        }
+      }
+      out.writeInt(nodes.size());
+      for (CGNode n : nodes) {
+        out.writeInt(n.getGraphNodeId());
+        MethodReference m = n.getMethod().getReference();
+        writeType(m.getDeclaringClass());
+        writeString(m.getSelector().toString());
+      }
+    }
+
+    private void writeEdges() throws IOException {
+      List<int[]> edges = new ArrayList<>();
+      for (CGNode n : cg) {
+        if (!named[n.getGraphNodeId()]) {
+          continue;
+        }
+        for (Iterator<CallSiteReference> sites = n.iterateCallSites(); sites.hasNext();) {
+          CallSiteReference site = sites.next();
+          for (CGNode target : cg.getPossibleTargets(n, site)) {
+            if (named[target.getGraphNodeId()]) {
+              edges.add(new int[] { n.getGraphNodeId(), site.getProgramCounter(), target.getGraphNodeId() });
+            }
+          }
+        }
+      }
+      out.writeInt(edges.size());
+      for (int[] e : edges) {
+        out.writeInt(e[0]);
+        out.writeInt(e[1]);
+        out.writeInt(e[2]);
+      }
+    }
+
+    private void writeInstanceKeys() throws IOException {
+      int n = system.instanceKeys.getMaximumIndex() + 1;
+      namedInstances = new boolean[n];
+      out.writeInt(n);
+      for (int i = 0; i < n; i++) {
+        InstanceKey ik = system.instanceKeys.getMappedObject(i);
+        if (ik != null && ik.getClass() == ConcreteTypeKey.class) {
+          out.writeByte(TYPE);
+          writeType(((ConcreteTypeKey) ik).getType().getReference());
+          namedInstances[i] = true;
+        } else if (ik instanceof AllocationSiteInNode && named[((AllocationSiteInNode) ik).getNode().getGraphNodeId()]) {
+          AllocationSiteInNode a = (AllocationSiteInNode) ik;
+          out.writeByte(ALLOCATION);
+          writeString(ik.getClass().getName());
+          out.writeInt(a.getNode().getGraphNodeId());
+          out.writeInt(a.getSite().getProgramCounter());
+          namedInstances[i] = true;
+        } else {
+          out.writeByte(NO_INSTANCE);
+        }
+      }
+    }
+
+    private void writePointsTo() throws IOException {
+      List<PointerKey> keys = new ArrayList<>();
+      for (Iterator<PointerKey> it = system.pointsToMap.iterateKeys(); it.hasNext();) {
+        PointerKey key = it.next();
+        if (!system.pointsToMap.isImplicit(key) && canName(key)) {
+          PointsToSetVariable v = system.pointsToMap.getPointsToSet(key);
+          if (v != null && v.size() > 0) {
+            keys.add(key);
+          }
+        }
+      }
+      out.writeInt(keys.size());
+      for (PointerKey key : keys) {
+        writePointerKey(key);
+        IntSet value = system.pointsToMap.getPointsToSet(key).getValue();
+        int size = 0;
+        for (IntIterator it = value.intIterator(); it.hasNext();) {
+          if (namedInstances[it.next()]) {
+            size++;
+          }
+        }
+        out.writeInt(size);
+        for (IntIterator it = value.intIterator(); it.hasNext();) {
+          int i = it.next();
+          if (namedInstances[i]) {
+            out.writeInt(i);
+          }
+        }
+      }
+    }
+
+    /**
+     * only keys of exactly these classes are written, since a key rebuilt by the builder must be equal to the original
+     */
+    private boolean canName(PointerKey key) {
+      if (key instanceof LocalPointerKey) {
+        // equality of local keys ignores filters
+        return named[((LocalPointerKey) key).getNode().getGraphNodeId()];
+      } else if (key.getClass() == ReturnValueKey.class || key.getClass() == ReturnValueKeyWithFilter.class
+          || key.getClass() == ExceptionReturnValueKey.class) {
+        return named[((ReturnValueKey) key).getNode().getGraphNodeId()];
+      } else if (key.getClass() == StaticFieldKey.class) {
+        return true;
+      } else if (key.getClass() == InstanceFieldKey.class) {
+        return namedInstances[system.instanceKeys.getMappedIndex(((InstanceFieldKey) key).getInstanceKey())];
+      } else if (key.getClass() == ArrayContentsKey.class) {
+        return namedInstances[system.instanceKeys.getMappedIndex(((ArrayContentsKey) key).getInstanceKey())];
+      } else {
+        return false;
+      }
+    }
+
+    private void writePointerKey(PointerKey key) throws IOException {
+      if (key instanceof LocalPointerKey) {
+        out.writeByte(LOCAL);
+        out.writeInt(((LocalPointerKey) key).getNode().getGraphNodeId());
+        out.writeInt(((LocalPointerKey) key).getValueNumber());
+      } else if (key instanceof ExceptionReturnValueKey) {
+        out.writeByte(EXCEPTIONAL_RETURN_VALUE);
+        out.writeInt(((ReturnValueKey) key).getNode().getGraphNodeId());
+      } else if (key instanceof ReturnValueKey) {
+        out.writeByte(RETURN_VALUE);
+        out.writeInt(((ReturnValueKey) key).getNode().getGraphNodeId());
+      } else if (key instanceof StaticFieldKey) {
+        out.writeByte(STATIC_FIELD);
+        writeField(((StaticFieldKey) key).getField());
+      } else if (key instanceof InstanceFieldKey) {
+        out.writeByte(INSTANCE_FIELD);
+        out.writeInt(system.instanceKeys.getMappedIndex(((InstanceFieldKey) key).getInstanceKey()));
+        writeField(((InstanceFieldKey) key).getField());
+      } else {
+        out.writeByte(ARRAY_CONTENTS);
+        out.writeInt(system.instanceKeys.getMappedIndex(((ArrayContentsKey) key).getInstanceKey()));
+      }
+    }
+
+    private void writeField(IField f) throws IOException {
+      FieldReference ref = f.getReference();
+      writeType(ref.getDeclaringClass());
+      writeString(ref.getName().toString());
+      writeType(ref.getFieldType());
+    }
+
+    private void writeType(TypeReference t) throws IOException {
+      writeString(t.getClassLoader().getName().toString());
+      writeString(t.getName().toString());
+    }
+
+    private void writeString(String s) throws IOException {
+      byte[] b = s.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(b.length);
+      out.write(b);
+    }
+  }
+
+  private static final class Reader {
+    private final PropagationCallGraphBuilder builder;
+
+    private final PropagationSystem system;
+
+    private final ExplicitCallGraph cg;
+
+    private final IClassHierarchy cha;
+
+    private final ByteBuffer in;
+
+    /**
+     * graph node id in the checkpoint -&gt; node in this call graph, or null if the method is gone
+     */
+    private CGNode[] nodes = new CGNode[0];
+
+    /**
+     * instance key index in the checkpoint -&gt; key in this system, or null
+     */
+    private InstanceKey[] instances;
+
+    Reader(PropagationCallGraphBuilder builder, ByteBuffer in) {
+      this.builder = builder;
+      this.system = builder.getPropagationSystem();
+      this.cg = builder.getCallGraph();
+      this.cha = builder.getClassHierarchy();
+      this.in = in;
+    }
+
+    int read() throws IOException, CancelException {
+      if (in.getInt() != MAGIC || in.getInt() != FORMAT_VERSION) {
+        return -1;
+      }
+      byte[] f = new byte[in.getInt()];
+      in.get(f);
+      if (!Arrays.equals(f, ClassHierarchySnapshot.fingerprint(cha.getScope())) || !readString().equals(configuration(builder))) {
+        if (DEBUG) {
+          System.err.println("checkpoint is for another scope or configuration");
+        }
+        return -1;
+      }
+      readNodes();
+      readEdges();
+      readInstanceKeys();
+      return readPointsTo();
+    }
+
+    private void readNodes() throws CancelException {
+      int n = in.getInt();
+      for (int i = 0; i < n; i++) {
+        int id = in.getInt();
+        if (id >= nodes.length) {
+          nodes = Arrays.copyOf(nodes, Math.max(id + 1, 2 * nodes.length));
+        }
+        TypeReference type = readType();
+        Selector selector = Selector.make(readString());
+        IMethod m = type == null ? null : cha.resolveMethod(MethodReference.findOrCreate(type, selector));
+        if (m != null) {
+          CGNode node = cg.findOrCreateNode(m, Everywhere.EVERYWHERE);
+          builder.markDiscovered(node);
+          nodes[id] = node;
+        }
+      }
+    }
+
+    private void readEdges() {
+      int n = in.getInt();
+      for (int i = 0; i < n; i++) {
+        CGNode caller = node(in.getInt());
+        int pc = in.getInt();
+        CGNode target = node(in.getInt());
+        if (caller != null && target != null) {
+          for (Iterator<CallSiteReference> sites = caller.iterateCallSites(); sites.hasNext();) {
+            CallSiteReference site = sites.next();
+            if (site.getProgramCounter() == pc) {
+              ((ExplicitNode) caller).addTarget(site, target);
+              break;
+            }
+          }
+        }
+      }
+    }
+
+    private void readInstanceKeys() {
+      instances = new InstanceKey[in.getInt()];
+      for (int i = 0; i < instances.length; i++) {
+        byte kind = in.get();
+        if (kind == TYPE) {
+          TypeReference t = readType();
+          if (t != null && cha.lookupClass(t) != null) {
+            instances[i] = new ConcreteTypeKey(cha.lookupClass(t));
+          }
+        } else if (kind == ALLOCATION) {
+          String klass = readString();
+          CGNode node = node(in.getInt());
+          int pc = in.getInt();
+          if (node != null) {
+            for (Iterator<NewSiteReference> sites = node.iterateNewSites(); sites.hasNext();) {
+              NewSiteReference site = sites.next();
+              if (site.getProgramCounter() == pc) {
+                InstanceKey ik = builder.getInstanceKeyForAllocation(node, site);
+                // the instance key factory may model this site differently now
+                if (ik != null && ik.getClass().getName().equals(klass)) {
+                  instances[i] = ik;
+                }
+                break;
+              }
+            }
+          }
+        }
+      }
+    }
+
+    private int readPointsTo() {
+      int facts = 0;
+      int n = in.getInt();
+      for (int i = 0; i < n; i++) {
+        PointerKey key = readPointerKey();
+        int size = in.getInt();
+        for (int j = 0; j < size; j++) {
+          InstanceKey ik = instance(in.getInt());
+          if (key != null && ik != null) {
+            system.newConstraint(key, ik);
+            facts++;
+          }
+        }
+      }
+      if (in.getInt() != MAGIC) {
+        throw new IllegalArgumentException("missing end of checkpoint");
+      }
+      return facts;
+    }
+
+    private PointerKey readPointerKey() {
+      byte kind = in.get();
+      switch (kind) {
+      case LOCAL: {
+        CGNode node = node(in.getInt());
+        int vn = in.getInt();
+        return node == null ? null : builder.getPointerKeyForLocal(node, vn);
+      }
+      case RETURN_VALUE: {
+        CGNode node = node(in.getInt());
+        return node == null ? null : builder.getPointerKeyForReturnValue(node);
+      }
+      case EXCEPTIONAL_RETURN_VALUE: {
+        CGNode node = node(in.getInt());
+        return node == null ? null : builder.getPointerKeyForExceptionalReturnValue(node);
+      }
+      case STATIC_FIELD: {
+        IField f = readField();
+        return f == null ? null : builder.getPointerKeyForStaticField(f);
+      }
+      case INSTANCE_FIELD: {
+        InstanceKey ik = instance(in.getInt());
+        IField f = readField();
+        return ik == null || f == null ? null : builder.getPointerKeyForInstanceField(ik, f);
+      }
+      case ARRAY_CONTENTS: {
+        InstanceKey ik = instance(in.getInt());
+        return ik == null ? null : builder.getPointerKeyForArrayContents(ik);
+      }
+      default:
+        throw new IllegalArgumentException("unknown pointer key kind " + kind);
+      }
+    }
+
+    private CGNode node(int id) {
+      return id < nodes.length ? nodes[id] : null;
+    }
+
+    private InstanceKey instance(int i) {
+      return i < instances.length ? instances[i] : null;
+    }
+
+    private IField readField() {
+      TypeReference declaringClass = readType();
+      Atom name = Atom.findOrCreateUnicodeAtom(readString());
+      TypeReference type = readType();
+      if (declaringClass == null || type == null) {
+        return null;
+      }
+      return cha.resolveField(FieldReference.findOrCreate(declaringClass, name, type));
+    }
+
+    /**
+     * @return the type, or null if its loader is not in the scope
+     */
+    private TypeReference readType() {
+      String loader = readString();
+      String name = readString();
+      ClassLoaderReference ref = cha.getScope().getLoader(Atom.findOrCreateUnicodeAtom(loader));
+      return ref == null ? null : TypeReference.findOrCreate(ref, name);
+    }
+
+    private String readString() {
+      byte[] b = new byte[in.getInt()];
+      in.get(b);
+      return new String(b, StandardCharsets.UTF_8);
+    }
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.propagation;
+
+import com.ibm.wala.fixpoint.IFixedPointSolverListener;
+import com.ibm.wala.ipa.callgraph.CGNode;
+
+/**
+ * Receives events from a {@link PropagationCallGraphBuilder} and its {@link PropagationSystem} during call graph construction, e.g.
+ * to find out where the time goes. See {@link PropagationMetrics} for a listener that collects the usual numbers.
+ *
+ * Register a listener with {@link PropagationCallGraphBuilder#setPropagationListener(IPropagationListener)}. Without one, the
+ * builder and solver do no extra work beyond a null check.
+ */
+public interface IPropagationListener extends IFixedPointSolverListener<PointsToSetVariable> {
+
+  /**
+   * The phases of call graph construction. Phases nest: {@link #IR} happens during {@link #CONSTRAINTS}, and both may happen during
+   * {@link #SOLVE}, when evaluating a statement discovers new call targets.
+   */
+  enum Phase {
+    /**
+     * fetching, and if need be building, the IR of a node; its def-use information is charged to {@link #CONSTRAINTS}
+     */
+    IR,
+    /**
+     * generating constraints for a node, including building its IR
+     */
+    CONSTRAINTS,
+    /**
+     * iterating the propagation system to a fixed point
+     */
+    SOLVE,
+    /**
+     * updating the constraints for reflection
+     */
+    REFLECTION
+  }
+
+  /**
+   * called once call graph construction starts, before any constraints are added, and again when an incremental update starts
+   */
+  default void callGraphStarted(@SuppressWarnings("unused") PropagationSystem system) {
+  }
+
+  /**
+   * called once call graph construction is done, or has been canceled
+   */
+  default void callGraphFinished(@SuppressWarnings("unused") PropagationSystem system) {
+  }
+
+  /**
+   * called when the builder discovers a node it has not yet added constraints for
+   */
+  default void nodeDiscovered(@SuppressWarnings("unused") CGNode node) {
+  }
+
+  /**
+   * called each time the builder leaves a phase
+   *
+   * @param nanos wall time spent in the phase
+   */
+  default void phaseFinished(@SuppressWarnings("unused") Phase phase, @SuppressWarnings("unused") long nanos) {
+  }
+}
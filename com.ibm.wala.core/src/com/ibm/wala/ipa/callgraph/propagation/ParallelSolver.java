@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.propagation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.ibm.wala.fixedpoint.impl.AbstractFixedPointSolver;
+import com.ibm.wala.fixedpoint.impl.Worklist;
+import com.ibm.wala.fixpoint.AbstractStatement;
+import com.ibm.wala.fixpoint.FixedPointConstants;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.MonitorUtil;
+import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+
+/**
+ * A pointer analysis solver that evaluates assignment constraints on multiple threads.
+ *
+ * The worklist is processed in waves. Each wave drains the current worklist; statements that may have side effects on the
+ * constraint system (field and array accesses, dispatch, filters, ...) are evaluated sequentially, in the usual order. The
+ * remaining {@link AssignEquation}s are grouped by left-hand side and evaluated in two phases on a {@link ForkJoinPool}:
+ * <ol>
+ * <li>a read-only phase computes, for each left-hand side, the delta of its right-hand sides that it does not yet contain;</li>
+ * <li>a write phase adds each delta to its left-hand side.</li>
+ * </ol>
+ * Since each variable is written by exactly one task, and no variable is written while another task reads it, no locking is
+ * needed on {@link PointsToSetVariable}s, and the {@link PointsToMap} is only ever touched from the calling thread. All
+ * constraints are monotone, so the solver reaches the same fixed point as {@link StandardSolver}.
+ */
+public class ParallelSolver extends StandardSolver {
+
+  /**
+   * waves with fewer distinct assignment targets than this are evaluated sequentially, since forking would cost more than it saves
+   */
+  private static final int MIN_PARALLEL_TARGETS = 64;
+
+  /**
+   * number of assignment targets handled by a single fork-join task
+   */
+  private static final int TARGETS_PER_TASK = 32;
+
+  private final int parallelism;
+
+  /**
+   * pool of worker threads, live for the duration of {@link #solve(IProgressMonitor)}
+   */
+  private ForkJoinPool pool;
+
+  public ParallelSolver(PropagationSystem system, PropagationCallGraphBuilder builder, int parallelism) {
+    super(system, builder);
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("invalid parallelism " + parallelism);
+    }
+    // both rely on every statement going through PropagationSystem.evaluate, on one thread
+    if (system.isDifferencePropagationEnabled()) {
+      throw new IllegalArgumentException("difference propagation is not supported by the parallel solver");
+    }
+    if (system.getSpillStore() != null) {
+      throw new IllegalArgumentException("spilling is not supported by the parallel solver");
+    }
+    this.parallelism = parallelism;
+  }
+
+  @Override
+  public void solve(IProgressMonitor monitor) throws IllegalArgumentException, CancelException {
+    pool = new ForkJoinPool(parallelism);
+    try {
+      super.solve(monitor);
+    } finally {
+      pool.shutdown();
+      pool = null;
+    }
+  }
+
+  /**
+   * Like {@link AbstractFixedPointSolver#solve(IProgressMonitor)}, every evaluation goes through
+   * {@link PropagationSystem#statementEvaluated}, so the listener, the verbose action and periodic maintenance see the same
+   * evaluations as with the standard solver. Assignments within a parallel batch are reported after the batch.
+   */
+  @Override
+  protected void solveSystem(IProgressMonitor monitor) throws CancelException {
+    PropagationSystem system = getSystem();
+    if (system.isFirstSolve()) {
+      system.initForFirstSolve();
+    }
+    while (!system.emptyWorkList()) {
+      MonitorUtil.throwExceptionIfCanceled(monitor);
+      system.orderStatements();
+
+      // drain the current wave; note that reordering may have replaced the worklist
+      Worklist workList = system.getWorklist();
+      List<AssignEquation> assigns = new ArrayList<>();
+      List<AbstractStatement<PointsToSetVariable, ?>> sequential = new ArrayList<>();
+      Map<PointsToSetVariable, List<PointsToSetVariable>> assignments = HashMapFactory.make();
+      List<PointsToSetVariable> targets = new ArrayList<>();
+      while (!workList.isEmpty()) {
+        AbstractStatement<PointsToSetVariable, ?> s = takeStatement(workList);
+        if (s instanceof AssignEquation) {
+          AssignEquation assign = (AssignEquation) s;
+          List<PointsToSetVariable> sources = assignments.get(assign.getLHS());
+          if (sources == null) {
+            sources = new ArrayList<>(2);
+            assignments.put(assign.getLHS(), sources);
+            targets.add(assign.getLHS());
+          }
+          sources.add(assign.getRightHandSide());
+          assigns.add(assign);
+        } else {
+          sequential.add(s);
+        }
+      }
+
+      for (AbstractStatement<PointsToSetVariable, ?> s : sequential) {
+        evaluate(s);
+      }
+
+      Set<PointsToSetVariable> changedTargets = HashSetFactory.make();
+      if (targets.size() < MIN_PARALLEL_TARGETS) {
+        for (PointsToSetVariable lhs : targets) {
+          boolean changed = false;
+          for (PointsToSetVariable rhs : assignments.get(lhs)) {
+            changed |= lhs.addAll(rhs);
+          }
+          if (changed) {
+            changedTargets.add(lhs);
+          }
+        }
+      } else {
+        PointsToSetVariable[] lhs = targets.toArray(new PointsToSetVariable[targets.size()]);
+        PointsToSetVariable[][] rhs = new PointsToSetVariable[lhs.length][];
+        for (int i = 0; i < lhs.length; i++) {
+          List<PointsToSetVariable> sources = assignments.get(lhs[i]);
+          rhs[i] = sources.toArray(new PointsToSetVariable[sources.size()]);
+        }
+        MutableSparseIntSet[] deltas = new MutableSparseIntSet[lhs.length];
+        pool.invoke(new ComputeDeltas(lhs, rhs, deltas, 0, lhs.length));
+        pool.invoke(new ApplyDeltas(lhs, deltas, 0, lhs.length));
+        for (int i = 0; i < lhs.length; i++) {
+          if (deltas[i] != null) {
+            changedTargets.add(lhs[i]);
+          }
+        }
+      }
+      for (PointsToSetVariable lhs : targets) {
+        if (changedTargets.contains(lhs)) {
+          system.changedVariable(lhs);
+        }
+      }
+      // evaluations within a batch are not ordered, so report a change for every assignment to a changed target
+      for (AssignEquation assign : assigns) {
+        byte code = changedTargets.contains(assign.getLHS()) ? FixedPointConstants.CHANGED : FixedPointConstants.NOT_CHANGED;
+        system.statementEvaluated(assign, code);
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static AbstractStatement<PointsToSetVariable, ?> takeStatement(Worklist workList) {
+    return workList.takeStatement();
+  }
+
+  /**
+   * evaluate a statement on the calling thread, updating the worklist as {@link AbstractFixedPointSolver#solve} would
+   */
+  private void evaluate(AbstractStatement<PointsToSetVariable, ?> s) {
+    PropagationSystem system = getSystem();
+    byte code = s.evaluate();
+    system.statementEvaluated(s, code);
+    if (AbstractFixedPointSolver.isChanged(code) && s.getLHS() != null) {
+      system.changedVariable(s.getLHS());
+    }
+    if (AbstractFixedPointSolver.isFixed(code)) {
+      system.removeStatement(s);
+    }
+  }
+
+  /**
+   * read-only phase: deltas[i] := (U rhs[i]) - lhs[i], or null if empty
+   */
+  private static class ComputeDeltas extends RecursiveAction {
+
+    private static final long serialVersionUID = 4457962138236612384L;
+
+    private final PointsToSetVariable[] lhs;
+
+    private final PointsToSetVariable[][] rhs;
+
+    private final MutableSparseIntSet[] deltas;
+
+    private final int from;
+
+    private final int to;
+
+    ComputeDeltas(PointsToSetVariable[] lhs, PointsToSetVariable[][] rhs, MutableSparseIntSet[] deltas, int from, int to) {
+      this.lhs = lhs;
+      this.rhs = rhs;
+      this.deltas = deltas;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from > TARGETS_PER_TASK) {
+        int mid = (from + to) >>> 1;
+        invokeAll(new ComputeDeltas(lhs, rhs, deltas, from, mid), new ComputeDeltas(lhs, rhs, deltas, mid, to));
+        return;
+      }
+      for (int i = from; i < to; i++) {
+        IntSet current = lhs[i].getValue();
+        MutableSparseIntSet delta = MutableSparseIntSet.makeEmpty();
+        for (PointsToSetVariable r : rhs[i]) {
+          IntSet value = r.getValue();
+          if (value == null) {
+            continue;
+          }
+          if (current == null) {
+            delta.addAll(value);
+          } else {
+            value.foreachExcluding(current, delta::add);
+          }
+        }
+        deltas[i] = delta.isEmpty() ? null : delta;
+      }
+    }
+  }
+
+  /**
+   * write phase: lhs[i] := lhs[i] U deltas[i]. Each task writes a disjoint set of variables, and reads only private deltas.
+   */
+  private static class ApplyDeltas extends RecursiveAction {
+
+    private static final long serialVersionUID = -2010950307374839147L;
+
+    private final PointsToSetVariable[] lhs;
+
+    private final MutableSparseIntSet[] deltas;
+
+    private final int from;
+
+    private final int to;
+
+    ApplyDeltas(PointsToSetVariable[] lhs, MutableSparseIntSet[] deltas, int from, int to) {
+      this.lhs = lhs;
+      this.deltas = deltas;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from > TARGETS_PER_TASK) {
+        int mid = (from + to) >>> 1;
+        invokeAll(new ApplyDeltas(lhs, deltas, from, mid), new ApplyDeltas(lhs, deltas, mid, to));
+        return;
+      }
+      for (int i = from; i < to; i++) {
+        if (deltas[i] != null) {
+          lhs[i].addAll(deltas[i]);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,331 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.propagation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSetUtil;
+import com.ibm.wala.util.intset.MutableIntSet;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+
+/**
+ * Keeps the points-to sets of a {@link PropagationSystem} within a budget of elements in memory, by writing the sets not used
+ * recently to a memory-mapped temporary file and reading them back when they are next used.
+ *
+ * Variables are chosen for eviction with the clock algorithm, an approximation of least recently used: every access marks a
+ * variable, and the hand of the clock passes over marked variables once, unmarking them, before evicting. Eviction only
+ * happens in {@link #evictIfOverBudget()}, which the system calls between statements, so that no variable loses its value in
+ * the middle of an operation. The budget may thus be exceeded by what one statement touches, and by queries after solving.
+ *
+ * Not thread safe. Closing the store reads every evicted set back into memory and removes the file; the file is also removed
+ * when the JVM exits.
+ */
+public class PointsToSetStore implements Closeable {
+
+  /**
+   * size, in ints, of each mapped region of the file; larger sets get a region of their own
+   */
+  private static final int SEGMENT_INTS = 1 << 22;
+
+  /**
+   * where a variable's value lives when it is not in memory
+   */
+  static final class Slot {
+    final PointsToSetStore store;
+
+    /**
+     * is the value on disk rather than in memory?
+     */
+    boolean spilled;
+
+    /**
+     * has the variable been used since the hand of the clock last passed it?
+     */
+    boolean referenced;
+
+    /**
+     * is the variable on the clock?
+     */
+    boolean resident;
+
+    /**
+     * the size of the value when last seen, as counted in {@link PointsToSetStore#residentElements}
+     */
+    int accounted;
+
+    int segment = -1;
+
+    int offset;
+
+    int capacity;
+
+    Slot(PointsToSetStore store) {
+      this.store = store;
+    }
+  }
+
+  private final long maxResidentElements;
+
+  private final Path file;
+
+  private final FileChannel channel;
+
+  /**
+   * every variable whose value this store manages
+   */
+  private final ArrayList<PointsToSetVariable> managed = new ArrayList<>();
+
+  private boolean closed;
+
+  private final List<IntBuffer> segments = new ArrayList<>();
+
+  /**
+   * number of ints in use in the last segment
+   */
+  private int segmentEnd;
+
+  private long fileSize;
+
+  /**
+   * variables whose values may be in memory, in clock order
+   */
+  private final ArrayList<PointsToSetVariable> clock = new ArrayList<>();
+
+  private int hand;
+
+  private long residentElements;
+
+  private long evictions;
+
+  private long loads;
+
+  /**
+   * @param maxResidentElements number of elements of points-to sets to keep in memory
+   * @throws IOException if the temporary file cannot be created
+   */
+  public PointsToSetStore(long maxResidentElements) throws IOException {
+    if (maxResidentElements < 0) {
+      throw new IllegalArgumentException("invalid budget: " + maxResidentElements);
+    }
+    this.maxResidentElements = maxResidentElements;
+    this.file = Files.createTempFile("wala-pts", ".bin");
+    file.toFile().deleteOnExit();
+    this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+  }
+
+  /**
+   * let this store manage the value of v, unless the store is closed
+   */
+  void manage(PointsToSetVariable v) {
+    if (!closed) {
+      v.setSlot(new Slot(this));
+      managed.add(v);
+    }
+  }
+
+  /**
+   * called before each access to the value of v: read it back if it was evicted, and mark it as used
+   */
+  void access(PointsToSetVariable v) {
+    Slot s = v.getSlot();
+    if (s.spilled) {
+      s.spilled = false;
+      v.setResidentValue(read(s));
+      loads++;
+    }
+    s.referenced = true;
+    account(v, s);
+    if (!s.resident) {
+      s.resident = true;
+      clock.add(v);
+    }
+  }
+
+  private void account(PointsToSetVariable v, Slot s) {
+    MutableIntSet value = v.getResidentValue();
+    int size = value == null ? 0 : value.size();
+    residentElements += size - s.accounted;
+    s.accounted = size;
+  }
+
+  /**
+   * evict values until the elements left in memory fit in the budget
+   */
+  public void evictIfOverBudget() {
+    while (residentElements > maxResidentElements && !clock.isEmpty()) {
+      if (hand >= clock.size()) {
+        hand = 0;
+      }
+      PointsToSetVariable v = clock.get(hand);
+      Slot s = v.getSlot();
+      // sets grow after they are accessed, so recount before deciding
+      account(v, s);
+      if (s.referenced) {
+        s.referenced = false;
+        hand++;
+      } else {
+        evict(v, s);
+        PointsToSetVariable last = clock.remove(clock.size() - 1);
+        if (hand < clock.size()) {
+          clock.set(hand, last);
+        }
+      }
+    }
+  }
+
+  private void evict(PointsToSetVariable v, Slot s) {
+    MutableIntSet value = v.getResidentValue();
+    if (value != null && !value.isEmpty()) {
+      write(s, value);
+      s.spilled = true;
+      v.setResidentValue(null);
+      evictions++;
+    }
+    // the snapshot kept for difference propagation may be dropped; the next propagation then takes the whole set
+    v.setPropagated(null);
+    residentElements -= s.accounted;
+    s.accounted = 0;
+    s.resident = false;
+  }
+
+  private void write(Slot s, MutableIntSet value) {
+    int n = value.size();
+    if (s.segment < 0 || s.capacity < n) {
+      // leave room to grow, so that a set evicted again after gaining a few elements is written in place
+      allocate(s, n + n / 4);
+    }
+    IntBuffer b = segments.get(s.segment);
+    int p = s.offset;
+    b.put(p++, n);
+    for (IntIterator it = value.intIterator(); it.hasNext();) {
+      b.put(p++, it.next());
+    }
+  }
+
+  private void allocate(Slot s, int capacity) {
+    int need = capacity + 1;
+    if (segments.isEmpty() || segments.get(segments.size() - 1).capacity() - segmentEnd < need) {
+      int ints = Math.max(SEGMENT_INTS, need);
+      try {
+        segments.add(channel.map(FileChannel.MapMode.READ_WRITE, fileSize, 4L * ints).asIntBuffer());
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      fileSize += 4L * ints;
+      segmentEnd = 0;
+    }
+    s.segment = segments.size() - 1;
+    s.offset = segmentEnd;
+    s.capacity = capacity;
+    segmentEnd += need;
+  }
+
+  private MutableIntSet read(Slot s) {
+    IntBuffer b = segments.get(s.segment);
+    int n = b.get(s.offset);
+    MutableSparseIntSet result = MutableSparseIntSet.createMutableSparseIntSet(n);
+    for (int i = 1; i <= n; i++) {
+      // elements were written in increasing order, so each add appends
+      result.add(b.get(s.offset + i));
+    }
+    return IntSetUtil.getDefaultIntSetFactory().makeCopy(result);
+  }
+
+  /**
+   * @return the size of the value of v, without reading it back if it was evicted
+   */
+  int peekSize(PointsToSetVariable v) {
+    Slot s = v.getSlot();
+    if (s != null && s.spilled) {
+      return segments.get(s.segment).get(s.offset);
+    }
+    MutableIntSet value = v.getResidentValue();
+    return value == null ? 0 : value.size();
+  }
+
+  /**
+   * @return number of values written out to make room
+   */
+  public long getNumberOfEvictions() {
+    return evictions;
+  }
+
+  /**
+   * @return number of values read back in
+   */
+  public long getNumberOfLoads() {
+    return loads;
+  }
+
+  /**
+   * @return number of elements of points-to sets in memory, as last counted
+   */
+  public long getNumberOfResidentElements() {
+    return residentElements;
+  }
+
+  /**
+   * @return number of bytes of the temporary file mapped so far
+   */
+  public long getFileSize() {
+    return fileSize;
+  }
+
+  /**
+   * @return the temporary file the sets are written to; it no longer exists once the store is closed
+   */
+  public Path getFile() {
+    return file;
+  }
+
+  /**
+   * @return true iff {@link #close()} has been called
+   */
+  public boolean isClosed() {
+    return closed;
+  }
+
+  /**
+   * Read every evicted value back into memory, stop managing the variables, and remove the file. The counters stay available;
+   * otherwise the store does nothing once closed, so the variables keep all their values in memory from then on.
+   */
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    for (PointsToSetVariable v : managed) {
+      Slot s = v.getSlot();
+      if (s.spilled) {
+        v.setResidentValue(read(s));
+      }
+      v.setSlot(null);
+    }
+    managed.clear();
+    managed.trimToSize();
+    clock.clear();
+    clock.trimToSize();
+    residentElements = 0;
+    segments.clear();
+    channel.close();
+  }
+}
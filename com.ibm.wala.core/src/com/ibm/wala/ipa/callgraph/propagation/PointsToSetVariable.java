@@ -19,6 +19,7 @@ import com.ibm.wala.ssa.IR;
 import com.ibm.wala.types.TypeReference;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableIntSet;
 import com.ibm.wala.util.intset.MutableMapping;
 import com.ibm.wala.util.intset.MutableSparseIntSet;
 
@@ -44,6 +45,17 @@ public class PointsToSetVariable extends IntSetVariable<PointsToSetVariable> {
 
   private PointerKey pointerKey;
 
+  /**
+   * the value of this variable when it was last propagated along its assignments, under difference propagation; null if it
+   * has not been
+   */
+  private MutableIntSet propagated;
+
+  /**
+   * where the value of this variable goes when it is evicted from memory; null unless the system spills points-to sets
+   */
+  private PointsToSetStore.Slot slot;
+
   public PointsToSetVariable(PointerKey key) {
     super();
     if (key == null) {
@@ -144,6 +156,37 @@ public class PointsToSetVariable extends IntSetVariable<PointsToSetVariable> {
     return v;
   }
 
+  MutableIntSet getPropagated() {
+    return propagated;
+  }
+
+  void setPropagated(MutableIntSet propagated) {
+    this.propagated = propagated;
+  }
+
+  PointsToSetStore.Slot getSlot() {
+    return slot;
+  }
+
+  void setSlot(PointsToSetStore.Slot slot) {
+    this.slot = slot;
+  }
+
+  @Override
+  protected void beforeAccess() {
+    if (slot != null) {
+      slot.store.access(this);
+    }
+  }
+
+  MutableIntSet getResidentValue() {
+    return peekValue();
+  }
+
+  void setResidentValue(MutableIntSet value) {
+    replaceValue(value);
+  }
+
   /**
    * Use this with extreme care, to add filters to this variable..
    * 
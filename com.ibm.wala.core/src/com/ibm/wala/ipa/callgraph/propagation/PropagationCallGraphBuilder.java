@@ -10,6 +10,9 @@
  */
 package com.ibm.wala.ipa.callgraph.propagation;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
@@ -33,8 +36,11 @@ import com.ibm.wala.ipa.callgraph.ContextSelector;
 import com.ibm.wala.ipa.callgraph.Entrypoint;
 import com.ibm.wala.ipa.callgraph.IAnalysisCacheView;
 import com.ibm.wala.ipa.callgraph.impl.AbstractRootMethod;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
 import com.ibm.wala.ipa.callgraph.impl.ExplicitCallGraph;
+import com.ibm.wala.ipa.callgraph.impl.ExplicitCallGraph.ExplicitNode;
 import com.ibm.wala.ipa.callgraph.propagation.rta.RTAContextInterpreter;
+import com.ibm.wala.ipa.cha.ClassHierarchySnapshot;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
 import com.ibm.wala.ssa.SSAAbstractInvokeInstruction;
 import com.ibm.wala.types.TypeReference;
@@ -43,6 +49,7 @@ import com.ibm.wala.util.CancelRuntimeException;
 import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
 import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.debug.Assertions;
+import com.ibm.wala.util.intset.BitVectorIntSet;
 import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.IntSetAction;
 import com.ibm.wala.util.intset.IntSetUtil;
@@ -130,6 +137,35 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
    */
   private IPointsToSolver solver;
 
+  /**
+   * receives events during construction; null if nobody is listening
+   */
+  private IPropagationListener listener;
+
+  /**
+   * numbers of the nodes reported to the listener as discovered
+   */
+  private MutableIntSet reportedNodes;
+
+  /**
+   * should the system keep what it needs to update the call graph after the IR of some methods changes?
+   */
+  private boolean incremental = false;
+
+  /**
+   * file to resume from and to write checkpoints to; null if none. See {@link #setCheckpoint(File, long)}.
+   */
+  private File checkpointFile;
+
+  private long checkpointInterval;
+
+  private long lastCheckpoint;
+
+  /**
+   * number of points-to facts restored from a checkpoint by the last {@link #makeCallGraph}, or -1 if none
+   */
+  private int resumedFacts = -1;
+
   /**
    * The call graph under construction
    */
@@ -226,6 +262,31 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
       throw new IllegalArgumentException("options is null");
     }
     system = makeSystem(options);
+    system.setListener(listener);
+    if (incremental) {
+      system.enableRetraction();
+    } else {
+      if (options.getCycleElimination()) {
+        system.enableCycleElimination();
+      }
+      if (options.getVariableSubstitution()) {
+        system.enableVariableSubstitution();
+      }
+      if (options.getDifferencePropagation() && options.getSolverThreads() == 1) {
+        system.enableDifferencePropagation();
+      }
+    }
+    if (options.getPointsToSetSpillBudget() >= 0 && options.getSolverThreads() == 1) {
+      try {
+        system.enableSpilling(options.getPointsToSetSpillBudget());
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    if (listener != null) {
+      reportedNodes = new BitVectorIntSet();
+      listener.callGraphStarted(system);
+    }
 
     if (DEBUG_GENERAL) {
       System.err.println("Enter makeCallGraph!");
@@ -240,7 +301,7 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
     system.setMaxEvalBetweenTopo(options.getMaxEvalBetweenTopo());
 
     discoveredNodes = HashSetFactory.make();
-    discoveredNodes.add(callGraph.getFakeRootNode());
+    markDiscovered(callGraph.getFakeRootNode());
 
     // Set up the initially reachable methods and classes
     for (Entrypoint E : options.getEntrypoints()) {
@@ -263,7 +324,26 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
 /** END Custom change: throw exception on empty entry points. This is a severe issue that should not go undetected! */
     customInit();
 
+    resumedFacts = -1;
+    if (checkpointFile != null) {
+      try {
+        resumedFacts = CallGraphCheckpoint.resume(this, checkpointFile);
+      } catch (IOException e) {
+        // part of a damaged checkpoint may already be restored, so do not go on as if it were not there
+        throw new UncheckedIOException(e);
+      } catch (CancelException e) {
+        throw CallGraphBuilderCancelException.createCallGraphBuilderCancelException(e, callGraph,
+            system.extractPointerAnalysis(this));
+      }
+      lastCheckpoint = System.currentTimeMillis();
+    }
+
     solver = makeSolver();
+    solve(monitor);
+    return callGraph;
+  }
+
+  private void solve(IProgressMonitor monitor) throws CallGraphBuilderCancelException {
     try {
       solver.solve(monitor);
     } catch (CancelException e) {
@@ -274,13 +354,50 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
       CallGraphBuilderCancelException c = CallGraphBuilderCancelException.createCallGraphBuilderCancelException(e, callGraph,
           system.extractPointerAnalysis(this));
       throw c;
+    } finally {
+      if (listener != null) {
+        listener.callGraphFinished(system);
+      }
+      // the points-to sets are read back, and the temporary file removed, once the call graph is finished
+      try {
+        system.disableSpilling();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
     }
+  }
 
+  /**
+   * Retract the constraints contributed by the given nodes, and solve again after adding constraints from their current IR.
+   * Nodes that are no longer reachable remain in the call graph.
+   * 
+   * @throws IllegalStateException if the call graph was not built with {@link #setIncremental(boolean)} enabled
+   */
+  protected CallGraph reprocessNodes(Set<CGNode> nodes, IProgressMonitor monitor) throws CallGraphBuilderCancelException {
+    if (nodes == null) {
+      throw new IllegalArgumentException("null nodes");
+    }
+    if (solver == null || !system.isRetractionEnabled()) {
+      throw new IllegalStateException("no incremental call graph built yet");
+    }
+    if (listener != null) {
+      listener.callGraphStarted(system);
+    }
+    system.retractConstraints(nodes);
+    for (CGNode n : nodes) {
+      callGraph.removeOutgoingEdges(n);
+      ((ExplicitNode) n).clearCachedIR();
+      analysisCache.invalidate(n.getMethod(), n.getContext());
+      // context-insensitive interpreters cache the IR for all contexts
+      analysisCache.invalidate(n.getMethod(), Everywhere.EVERYWHERE);
+      markChanged(n);
+    }
+    solve(monitor);
     return callGraph;
   }
 
-  protected PropagationSystem makeSystem(@SuppressWarnings("unused") AnalysisOptions options) {
-    return new PropagationSystem(callGraph, pointerKeyFactory, instanceKeyFactory);
+  protected PropagationSystem makeSystem(AnalysisOptions options) {
+    return new PropagationSystem(callGraph, pointerKeyFactory, instanceKeyFactory, options.getWorklistStrategy());
   }
 
   protected abstract IPointsToSolver makeSolver();
@@ -330,7 +447,19 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
       discoveredNodes = HashSetFactory.make();
       while (it.hasNext()) {
         CGNode n = it.next();
-        result |= addConstraintsFromNode(n, monitor);
+        // values added directly are retracted with the constraints of n
+        CGNode previous = system.setContributor(n);
+        try {
+          if (listener != null && !haveAlreadyVisited(n)) {
+            long start = System.nanoTime();
+            result |= addConstraintsFromNode(n, monitor);
+            listener.phaseFinished(IPropagationListener.Phase.CONSTRAINTS, System.nanoTime() - start);
+          } else {
+            result |= addConstraintsFromNode(n, monitor);
+          }
+        } finally {
+          system.setContributor(previous);
+        }
       }
     }
     return result;
@@ -689,6 +818,88 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
     return system;
   }
 
+  /**
+   * @return the listener receiving events during construction, or null if none
+   */
+  public IPropagationListener getPropagationListener() {
+    return listener;
+  }
+
+  /**
+   * register a listener for events during call graph construction, e.g. a {@link PropagationMetrics}. Takes effect at the next
+   * call to {@link #makeCallGraph(AnalysisOptions, IProgressMonitor)}.
+   *
+   * @param listener the listener, or null to stop reporting events
+   */
+  public void setPropagationListener(IPropagationListener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * Resume {@link #makeCallGraph} from the checkpoint in file, if there is one for the same scope and configuration, and write
+   * a new one there after each round of solving that ends at least intervalMillis after the last; see
+   * {@link CallGraphCheckpoint}. Cannot be combined with {@link #setIncremental(boolean)}. {@link #makeCallGraph} throws an
+   * {@link UncheckedIOException} if the checkpoint is damaged or cannot be written.
+   *
+   * @param file the checkpoint file, or null to stop checkpointing
+   * @throws IllegalArgumentException if the scope holds modules whose state cannot be fingerprinted; see
+   *           {@link ClassHierarchySnapshot#fingerprint(com.ibm.wala.ipa.callgraph.AnalysisScope)}
+   */
+  public void setCheckpoint(File file, long intervalMillis) {
+    if (intervalMillis < 0) {
+      throw new IllegalArgumentException("invalid interval: " + intervalMillis);
+    }
+    if (file != null && incremental) {
+      throw new IllegalStateException("cannot resume an incremental build from a checkpoint");
+    }
+    if (file != null) {
+      // a checkpoint is valid only for the same state of the scope, so it must be possible to describe that state
+      ClassHierarchySnapshot.fingerprint(cha.getScope());
+    }
+    this.checkpointFile = file;
+    this.checkpointInterval = intervalMillis;
+  }
+
+  /**
+   * @return number of points-to facts the last {@link #makeCallGraph} restored from a checkpoint, or -1 if it did not resume
+   */
+  public int getNumberOfResumedFacts() {
+    return resumedFacts;
+  }
+
+  /**
+   * write a checkpoint if one is due. Called by solvers between rounds, when the call graph and points-to sets agree.
+   *
+   * @throws UncheckedIOException if the checkpoint cannot be written
+   */
+  protected void checkpointIfDue() {
+    if (checkpointFile != null && System.currentTimeMillis() - lastCheckpoint >= checkpointInterval) {
+      try {
+        CallGraphCheckpoint.write(this, checkpointFile);
+      } catch (IOException e) {
+        // the previous checkpoint, if any, is left in place
+        throw new UncheckedIOException(e);
+      }
+      lastCheckpoint = System.currentTimeMillis();
+    }
+  }
+
+  public boolean isIncremental() {
+    return incremental;
+  }
+
+  /**
+   * Should {@link #makeCallGraph} keep what is needed to update the call graph after the IR of some methods changes? This costs
+   * some extra space during construction, and must be set before the call graph is built. See
+   * {@link SSAPropagationCallGraphBuilder#updateCallGraph}.
+   */
+  public void setIncremental(boolean incremental) {
+    if (incremental && checkpointFile != null) {
+      throw new IllegalStateException("cannot resume an incremental build from a checkpoint");
+    }
+    this.incremental = incremental;
+  }
+
   public PointerKeyFactory getPointerKeyFactory() {
     return pointerKeyFactory;
   }
@@ -786,12 +997,25 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
    * record that we've discovered a node
    */
   public void markDiscovered(CGNode node) {
-    discoveredNodes.add(node);
+    if (discoveredNodes.add(node)) {
+      reportDiscovered(node);
+    }
   }
 
   protected void markChanged(CGNode node) {
     alreadyVisited.remove(node);
     discoveredNodes.add(node);
+    reportDiscovered(node);
+  }
+
+  /**
+   * tell the listener about a node, unless it has already been told; a node may be discovered again before its constraints are
+   * added, or change after they were
+   */
+  private void reportDiscovered(CGNode node) {
+    if (listener != null && reportedNodes != null && reportedNodes.add(node.getGraphNodeId())) {
+      listener.nodeDiscovered(node);
+    }
   }
 
   protected boolean wasChanged(CGNode node) {
@@ -878,6 +1102,13 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
       return true;
     }
 
+    @Override
+    protected void forgetHistory() {
+      if (priorInstances != null) {
+        priorInstances.clear();
+      }
+    }
+
     /*
      * @see com.ibm.wala.ipa.callgraph.propagation.IPointerOperator#isComplex()
      */
@@ -1068,6 +1299,13 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
       return true;
     }
 
+    @Override
+    protected void forgetHistory() {
+      if (priorInstances != null) {
+        priorInstances.clear();
+      }
+    }
+
     /*
      * @see com.ibm.wala.ipa.callgraph.propagation.IPointerOperator#isComplex()
      */
@@ -1192,12 +1430,21 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
     protected boolean isLoadOperator() {
       return false;
     }
+
+    @Override
+    protected void forgetHistory() {
+      if (priorInstances != null) {
+        priorInstances.clear();
+      }
+    }
   }
 
   /**
    * Update the points-to-set for a field to include a particular instance key.
    */
   public final class InstancePutFieldOperator extends UnaryOperator<PointsToSetVariable> implements IPointerOperator {
+    final private CGNode node;
+
     final private IField field;
 
     final private InstanceKey instance;
@@ -1209,7 +1456,11 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
       return "InstancePutField" + field;
     }
 
-    public InstancePutFieldOperator(IField field, InstanceKey instance) {
+    /**
+     * @param node the node that stores the instance
+     */
+    public InstancePutFieldOperator(CGNode node, IField field, InstanceKey instance) {
+      this.node = node;
       this.field = field;
       this.instance = instance;
     }
@@ -1234,12 +1485,14 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
           }
         }
       };
+      CGNode previous = system.setContributor(node);
       if (priorInstances != null) {
         value.foreachExcluding(priorInstances, action);
         priorInstances.addAll(value);
       } else {
         value.foreach(action);
       }
+      system.setContributor(previous);
       byte sideEffectMask = sideEffect.b ? (byte) SIDE_EFFECT_MASK : 0;
       return (byte) (NOT_CHANGED | sideEffectMask);
     }
@@ -1272,6 +1525,8 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
    * Update the points-to-set for an array contents to include a particular instance key.
    */
   public final class InstanceArrayStoreOperator extends UnaryOperator<PointsToSetVariable> implements IPointerOperator {
+    final private CGNode node;
+
     final private InstanceKey instance;
 
     protected final MutableIntSet priorInstances = rememberGetPutHistory ? IntSetUtil.make() : null;
@@ -1281,7 +1536,11 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
       return "InstanceArrayStore ";
     }
 
-    public InstanceArrayStoreOperator(InstanceKey instance) {
+    /**
+     * @param node the node that stores the instance
+     */
+    public InstanceArrayStoreOperator(CGNode node, InstanceKey instance) {
+      this.node = node;
       this.instance = instance;
     }
 
@@ -1323,12 +1582,14 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
           }
         }
       };
+      CGNode previous = system.setContributor(node);
       if (priorInstances != null) {
         value.foreachExcluding(priorInstances, action);
         priorInstances.addAll(value);
       } else {
         value.foreach(action);
       }
+      system.setContributor(previous);
       byte sideEffectMask = sideEffect.b ? (byte) SIDE_EFFECT_MASK : 0;
       return (byte) (NOT_CHANGED | sideEffectMask);
     }
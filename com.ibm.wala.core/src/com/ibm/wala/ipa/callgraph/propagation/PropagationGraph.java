@@ -11,6 +11,7 @@
 package com.ibm.wala.ipa.callgraph.propagation;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -89,6 +90,14 @@ public class PropagationGraph implements IFixedPointSystem<PointsToSetVariable>
    */
   private int implicitUnaryCount = 0;
 
+  /**
+   * assignments added since the last call to {@link #takeNewAssignments()}, as consecutive pairs (lhs, rhs) of variable
+   * numbers; null unless {@link #trackNewAssignments()} has been called
+   */
+  private int[] newAssignments;
+
+  private int nNewAssignments;
+
   /**
    * @return a relation in map m corresponding to a key
    */
@@ -249,9 +258,69 @@ public class PropagationGraph implements IFixedPointSystem<PointsToSetVariable>
       implicitUnaryCount++;
       IBinaryNaturalRelation iR = findOrCreateRelation(invImplicitUnaryMap, eq.getOperator());
       iR.add(rhs, lhs);
+      if (newAssignments != null && eq.getOperator() instanceof AssignOperator) {
+        if (nNewAssignments == newAssignments.length) {
+          newAssignments = Arrays.copyOf(newAssignments, 2 * newAssignments.length);
+        }
+        newAssignments[nNewAssignments++] = lhs;
+        newAssignments[nNewAssignments++] = rhs;
+      }
     }
   }
 
+  /**
+   * Start remembering the assignments added to this graph, for {@link #takeNewAssignments()}.
+   */
+  public void trackNewAssignments() {
+    if (newAssignments == null) {
+      newAssignments = new int[64];
+    }
+  }
+
+  /**
+   * @return the assignments added since the last call, as consecutive pairs (lhs, rhs) of variable numbers
+   * @throws IllegalStateException if {@link #trackNewAssignments()} has not been called
+   */
+  public int[] takeNewAssignments() {
+    if (newAssignments == null) {
+      throw new IllegalStateException("new assignments are not tracked");
+    }
+    int[] result = Arrays.copyOf(newAssignments, nNewAssignments);
+    nNewAssignments = 0;
+    return result;
+  }
+
+  /**
+   * @return numbers of the variables that are assigned the variable with number v, or null if there are none
+   */
+  public IntSet getAssignmentUses(int v) {
+    IBinaryNaturalRelation iR = invImplicitUnaryMap.get(PropagationCallGraphBuilder.assignOperator);
+    return iR == null ? null : iR.getRelated(v);
+  }
+
+  /**
+   * @return numbers of the variables assigned to the variable with number v, or null if there are none
+   */
+  public IntSet getAssignmentDefs(int v) {
+    IBinaryNaturalRelation R = implicitUnaryMap.get(PropagationCallGraphBuilder.assignOperator);
+    return R == null ? null : R.getRelated(v);
+  }
+
+  /**
+   * @return the largest number of a variable or statement in the graph
+   */
+  public int getMaxNumber() {
+    return delegateGraph.getMaxNumber();
+  }
+
+  /**
+   * @return the variable with the given number, or null if it is not in the graph
+   */
+  public PointsToSetVariable getVariable(int number) {
+    INodeWithNumber n = delegateGraph.getNode(number);
+    return n instanceof PointsToSetVariable ? (PointsToSetVariable) n : null;
+  }
+
   private void removeImplicitStatement(UnaryStatement<PointsToSetVariable> eq) {
     if (DEBUG) {
       System.err.println(("removeImplicitStatement " + eq));
@@ -429,7 +498,7 @@ public class PropagationGraph implements IFixedPointSystem<PointsToSetVariable>
   public void reorder() {
     VariableGraphView graph = new VariableGraphView();
 
-    Iterator<PointsToSetVariable> order = Topological.makeTopologicalIter(graph).iterator();
+    Iterator<PointsToSetVariable> order = Topological.makeTopologicalOrder(graph).iterator();
 
     int number = 0;
     while (order.hasNext()) {
@@ -0,0 +1,426 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.propagation;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import com.ibm.wala.fixedpoint.impl.AbstractFixedPointSolver;
+import com.ibm.wala.fixedpoint.impl.WorklistStrategy;
+import com.ibm.wala.fixpoint.AbstractStatement;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import com.ibm.wala.util.graph.INodeWithNumber;
+
+/**
+ * An {@link IPropagationListener} that collects statistics about one call graph construction:
+ * <ul>
+ * <li>wall time and number of entries per {@link IPropagationListener.Phase phase}</li>
+ * <li>number of statements created, and evaluated per operator class and per worklist strategy</li>
+ * <li>worklist sizes, sampled every {@link #getSampleInterval()} evaluations</li>
+ * <li>times at which new call graph nodes were discovered</li>
+ * <li>cycles of assignments collapsed, and equivalent variables substituted, if the system does so</li>
+ * <li>elements propagated along assignments, how many propagating whole sets would have taken, and the elements visited to
+ * compute the differences</li>
+ * <li>points-to sets evicted to disk and read back, if the system spills them</li>
+ * <li>a histogram of the sizes of the points-to sets at the end</li>
+ * </ul>
+ *
+ * {@link #toMap()} flattens all of these into named numbers, for dumping in whatever format a tool wants.
+ */
+public class PropagationMetrics implements IPropagationListener {
+
+  public static final int DEFAULT_SAMPLE_INTERVAL = 1000;
+
+  /**
+   * record the worklist size every this many evaluations
+   */
+  private final int sampleInterval;
+
+  private final long[] phaseNanos = new long[Phase.values().length];
+
+  private final long[] phaseCounts = new long[Phase.values().length];
+
+  /**
+   * operator class -&gt; { number of evaluations, number of evaluations that changed the lhs }
+   */
+  private final Map<Class<?>, long[]> evaluationsByOperator = HashMapFactory.make();
+
+  private long evaluations;
+
+  /**
+   * worklist strategy -&gt; number of evaluations under it, as counted by the solver
+   */
+  private Map<WorklistStrategy, Integer> evaluationsByStrategy = Collections.emptyMap();
+
+  private int collapsedCycles;
+
+  private int mergedVariables;
+
+  private int substitutedVariables;
+
+  private long bitsPropagated;
+
+  private long bitsPropagatedByFullSets;
+
+  private long bitsScannedForDifferences;
+
+  private long spillEvictions;
+
+  private long spillLoads;
+
+  private long statementsCreated;
+
+  private long reorders;
+
+  private long reorderNanos;
+
+  private int maxWorklistSize;
+
+  private int[] worklistSamples = new int[64];
+
+  private int nWorklistSamples;
+
+  /**
+   * discovery times of new nodes, in nanoseconds since construction started
+   */
+  private long[] discoveryTimes = new long[64];
+
+  private int nDiscovered;
+
+  private long startNanos;
+
+  private long totalNanos;
+
+  /**
+   * histogram[0] counts empty points-to sets; histogram[i] for i &gt; 0 counts sets with size in [2^(i-1), 2^i)
+   */
+  private final long[] pointsToHistogram = new long[Integer.SIZE + 1];
+
+  private int maxPointsToSetSize;
+
+  public PropagationMetrics() {
+    this(DEFAULT_SAMPLE_INTERVAL);
+  }
+
+  /**
+   * @param sampleInterval record the worklist size every this many evaluations
+   */
+  public PropagationMetrics(int sampleInterval) {
+    if (sampleInterval < 1) {
+      throw new IllegalArgumentException("invalid sample interval " + sampleInterval);
+    }
+    this.sampleInterval = sampleInterval;
+  }
+
+  @Override
+  public void callGraphStarted(PropagationSystem system) {
+    startNanos = System.nanoTime();
+  }
+
+  @Override
+  public void callGraphFinished(PropagationSystem system) {
+    totalNanos = System.nanoTime() - startNanos;
+    evaluationsByStrategy = system.getEvaluationsByStrategy();
+    collapsedCycles = system.getNumberOfCollapsedCycles();
+    mergedVariables = system.getNumberOfMergedVariables();
+    substitutedVariables = system.getNumberOfSubstitutedVariables();
+    bitsPropagated = system.getNumberOfBitsPropagated();
+    bitsPropagatedByFullSets = system.getNumberOfBitsPropagatedByFullSets();
+    bitsScannedForDifferences = system.getNumberOfBitsScannedForDifferences();
+    PointsToSetStore store = system.getSpillStore();
+    spillEvictions = store == null ? 0 : store.getNumberOfEvictions();
+    spillLoads = store == null ? 0 : store.getNumberOfLoads();
+    Arrays.fill(pointsToHistogram, 0);
+    maxPointsToSetSize = 0;
+    for (INodeWithNumber v : Iterator2Iterable.make(system.getFixedPointSystem().getVariables())) {
+      // do not read spilled sets back just to count them
+      int size = store == null ? ((PointsToSetVariable) v).size() : store.peekSize((PointsToSetVariable) v);
+      pointsToHistogram[bucket(size)]++;
+      maxPointsToSetSize = Math.max(maxPointsToSetSize, size);
+    }
+  }
+
+  /**
+   * @return index of the histogram bucket for a set of the given size
+   */
+  public static int bucket(int size) {
+    return Integer.SIZE - Integer.numberOfLeadingZeros(size);
+  }
+
+  @Override
+  public void nodeDiscovered(CGNode node) {
+    if (nDiscovered == discoveryTimes.length) {
+      discoveryTimes = Arrays.copyOf(discoveryTimes, 2 * nDiscovered);
+    }
+    discoveryTimes[nDiscovered++] = System.nanoTime() - startNanos;
+  }
+
+  @Override
+  public void phaseFinished(Phase phase, long nanos) {
+    phaseNanos[phase.ordinal()] += nanos;
+    phaseCounts[phase.ordinal()]++;
+  }
+
+  @Override
+  public void statementCreated(AbstractStatement<PointsToSetVariable, ?> s) {
+    statementsCreated++;
+  }
+
+  @Override
+  public void statementEvaluated(AbstractStatement<PointsToSetVariable, ?> s, byte code, int worklistSize) {
+    Class<?> op = s.getOperator().getClass();
+    long[] counts = evaluationsByOperator.get(op);
+    if (counts == null) {
+      counts = new long[2];
+      evaluationsByOperator.put(op, counts);
+    }
+    counts[0]++;
+    if (AbstractFixedPointSolver.isChanged(code)) {
+      counts[1]++;
+    }
+    maxWorklistSize = Math.max(maxWorklistSize, worklistSize);
+    if (evaluations++ % sampleInterval == 0) {
+      if (nWorklistSamples == worklistSamples.length) {
+        worklistSamples = Arrays.copyOf(worklistSamples, 2 * nWorklistSamples);
+      }
+      worklistSamples[nWorklistSamples++] = worklistSize;
+    }
+  }
+
+  @Override
+  public void statementsReordered(long nanos) {
+    reorders++;
+    reorderNanos += nanos;
+  }
+
+  public int getSampleInterval() {
+    return sampleInterval;
+  }
+
+  /**
+   * @return total wall time spent in a phase; note that phases nest
+   */
+  public long getPhaseNanos(Phase phase) {
+    return phaseNanos[phase.ordinal()];
+  }
+
+  /**
+   * @return number of times the builder went through a phase
+   */
+  public long getPhaseCount(Phase phase) {
+    return phaseCounts[phase.ordinal()];
+  }
+
+  /**
+   * @return wall time of the whole call graph construction
+   */
+  public long getTotalNanos() {
+    return totalNanos;
+  }
+
+  public long getNumberOfEvaluations() {
+    return evaluations;
+  }
+
+  public long getNumberOfStatementsCreated() {
+    return statementsCreated;
+  }
+
+  /**
+   * @return operator class -&gt; number of statements evaluated with that operator
+   */
+  public Map<Class<?>, Long> getEvaluationsByOperator() {
+    Map<Class<?>, Long> result = HashMapFactory.make();
+    for (Map.Entry<Class<?>, long[]> e : evaluationsByOperator.entrySet()) {
+      result.put(e.getKey(), e.getValue()[0]);
+    }
+    return Collections.unmodifiableMap(result);
+  }
+
+  /**
+   * @return worklist strategy -&gt; number of statements the solver evaluated while using it
+   */
+  public Map<WorklistStrategy, Integer> getEvaluationsByStrategy() {
+    return Collections.unmodifiableMap(evaluationsByStrategy);
+  }
+
+  /**
+   * @return number of cycles of assignments the solver unified; see {@link PropagationSystem#collapseAssignmentCycles()}
+   */
+  public int getNumberOfCollapsedCycles() {
+    return collapsedCycles;
+  }
+
+  /**
+   * @return number of variables the solver merged into others because they were on a cycle of assignments
+   */
+  public int getNumberOfMergedVariables() {
+    return mergedVariables;
+  }
+
+  /**
+   * @return number of variables the solver merged into equivalent ones before solving; see
+   *         {@link PropagationSystem#substituteVariables()}
+   */
+  public int getNumberOfSubstitutedVariables() {
+    return substitutedVariables;
+  }
+
+  /**
+   * @return number of elements the solver propagated along assignments; see {@link PropagationSystem#getNumberOfBitsPropagated()}
+   */
+  public long getNumberOfBitsPropagated() {
+    return bitsPropagated;
+  }
+
+  /**
+   * @return number of elements the solver would have propagated along the same assignments without difference propagation
+   */
+  public long getNumberOfBitsPropagatedByFullSets() {
+    return bitsPropagatedByFullSets;
+  }
+
+  /**
+   * @return number of elements the solver visited to compute the differences it propagated; see
+   *         {@link PropagationSystem#getNumberOfBitsScannedForDifferences()}
+   */
+  public long getNumberOfBitsScannedForDifferences() {
+    return bitsScannedForDifferences;
+  }
+
+  /**
+   * @return number of points-to sets evicted to disk while solving; see {@link PropagationSystem#enableSpilling(long)}
+   */
+  public long getNumberOfSpillEvictions() {
+    return spillEvictions;
+  }
+
+  /**
+   * @return number of evicted points-to sets read back while solving
+   */
+  public long getNumberOfSpillLoads() {
+    return spillLoads;
+  }
+
+  /**
+   * @return number of topological reorderings of the statements
+   */
+  public long getNumberOfReorders() {
+    return reorders;
+  }
+
+  public long getReorderNanos() {
+    return reorderNanos;
+  }
+
+  public int getMaxWorklistSize() {
+    return maxWorklistSize;
+  }
+
+  /**
+   * @return the worklist size after evaluations 0, n, 2n, ..., where n is {@link #getSampleInterval()}
+   */
+  public int[] getWorklistSamples() {
+    return Arrays.copyOf(worklistSamples, nWorklistSamples);
+  }
+
+  public int getNumberOfDiscoveredNodes() {
+    return nDiscovered;
+  }
+
+  /**
+   * @return for each node discovered, in order, the nanoseconds since construction started
+   */
+  public long[] getNodeDiscoveryTimes() {
+    return Arrays.copyOf(discoveryTimes, nDiscovered);
+  }
+
+  /**
+   * @return number of nodes discovered in each consecutive interval of the given length, from the start of construction
+   */
+  public int[] getNodeDiscoveryRate(long intervalNanos) {
+    if (intervalNanos <= 0) {
+      throw new IllegalArgumentException("invalid interval " + intervalNanos);
+    }
+    int n = nDiscovered == 0 ? 0 : (int) (discoveryTimes[nDiscovered - 1] / intervalNanos) + 1;
+    int[] result = new int[n];
+    for (int i = 0; i < nDiscovered; i++) {
+      result[(int) (discoveryTimes[i] / intervalNanos)]++;
+    }
+    return result;
+  }
+
+  /**
+   * @return histogram of points-to set sizes when construction finished; see {@link #bucket(int)}
+   */
+  public long[] getPointsToSetSizeHistogram() {
+    return pointsToHistogram.clone();
+  }
+
+  public int getMaxPointsToSetSize() {
+    return maxPointsToSetSize;
+  }
+
+  /**
+   * @return all scalar metrics, by name
+   */
+  public SortedMap<String, Long> toMap() {
+    SortedMap<String, Long> result = new TreeMap<>();
+    result.put("time.total.ns", totalNanos);
+    for (Phase p : Phase.values()) {
+      result.put("time." + p.name().toLowerCase() + ".ns", getPhaseNanos(p));
+      result.put("count." + p.name().toLowerCase(), getPhaseCount(p));
+    }
+    result.put("time.reorder.ns", reorderNanos);
+    result.put("count.reorder", reorders);
+    result.put("statements.created", statementsCreated);
+    result.put("statements.evaluated", evaluations);
+    for (Map.Entry<Class<?>, long[]> e : evaluationsByOperator.entrySet()) {
+      String op = e.getKey().getName();
+      result.put("statements.evaluated." + op, e.getValue()[0]);
+      result.put("statements.changed." + op, e.getValue()[1]);
+    }
+    for (Map.Entry<WorklistStrategy, Integer> e : evaluationsByStrategy.entrySet()) {
+      result.put("statements.evaluated.strategy." + e.getKey().name().toLowerCase(), (long) e.getValue());
+    }
+    result.put("worklist.max", (long) maxWorklistSize);
+    result.put("cycles.collapsed", (long) collapsedCycles);
+    result.put("cycles.mergedVariables", (long) mergedVariables);
+    result.put("substitution.mergedVariables", (long) substitutedVariables);
+    result.put("bits.propagated", bitsPropagated);
+    result.put("bits.propagated.fullSets", bitsPropagatedByFullSets);
+    result.put("bits.scannedForDifferences", bitsScannedForDifferences);
+    result.put("spill.evicted", spillEvictions);
+    result.put("spill.loaded", spillLoads);
+    result.put("nodes.discovered", (long) nDiscovered);
+    result.put("pointsTo.max", (long) maxPointsToSetSize);
+    for (int i = 0; i < pointsToHistogram.length; i++) {
+      if (pointsToHistogram[i] > 0) {
+        result.put("pointsTo.histogram." + (i == 0 ? 0 : 1L << (i - 1)), pointsToHistogram[i]);
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder result = new StringBuilder("PropagationMetrics:\n");
+    for (Map.Entry<String, Long> e : toMap().entrySet()) {
+      result.append(e.getKey()).append('=').append(e.getValue()).append('\n');
+    }
+    return result.toString();
+  }
+}
@@ -10,6 +10,9 @@
  */
 package com.ibm.wala.ipa.callgraph.propagation;
 
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -19,34 +22,43 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
 
 import com.ibm.wala.classLoader.ArrayClass;
 import com.ibm.wala.classLoader.IClass;
 import com.ibm.wala.fixedpoint.impl.DefaultFixedPointSolver;
 import com.ibm.wala.fixedpoint.impl.Worklist;
+import com.ibm.wala.fixedpoint.impl.WorklistStrategy;
 import com.ibm.wala.fixpoint.AbstractOperator;
 import com.ibm.wala.fixpoint.AbstractStatement;
 import com.ibm.wala.fixpoint.IFixedPointSystem;
 import com.ibm.wala.fixpoint.IVariable;
 import com.ibm.wala.fixpoint.UnaryOperator;
 import com.ibm.wala.fixpoint.UnaryStatement;
+import com.ibm.wala.ipa.callgraph.CGNode;
 import com.ibm.wala.ipa.callgraph.CallGraph;
 import com.ibm.wala.ipa.callgraph.propagation.PropagationCallGraphBuilder.FilterOperator;
 import com.ibm.wala.types.TypeReference;
 import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Iterator2Collection;
+import com.ibm.wala.util.collections.Iterator2Iterable;
 import com.ibm.wala.util.collections.MapUtil;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.debug.VerboseAction;
 import com.ibm.wala.util.graph.Graph;
 import com.ibm.wala.util.graph.NumberedGraph;
 import com.ibm.wala.util.heapTrace.HeapTracer;
+import com.ibm.wala.util.intset.EmptyIntSet;
+import com.ibm.wala.util.intset.IntIntHashMap;
 import com.ibm.wala.util.intset.IntIterator;
 import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.IntSetUtil;
 import com.ibm.wala.util.intset.MutableIntSet;
 import com.ibm.wala.util.intset.MutableMapping;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
 import com.ibm.wala.util.ref.ReferenceCleanser;
 
 /**
@@ -105,6 +117,83 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
    */
   final private Map<PointsToSetVariable, Set<UnarySideEffect>> fixedSetMap = HashMapFactory.make();
 
+  /**
+   * For each variable, the instance keys added to it directly by {@link #newConstraint(PointerKey, InstanceKey)} rather than by
+   * evaluating a statement. Only tracked once {@link #enableRetraction()} is called; null otherwise.
+   */
+  private Map<PointsToSetVariable, MutableIntSet> directValues;
+
+  /**
+   * For each variable, the instance keys added to it directly on behalf of each call graph node, e.g. the constants a node passes
+   * to its callees or stores in the heap. Tracked instead of {@link #directValues} while a {@link #setContributor(CGNode)
+   * contributor} is set, so that they are retracted with the constraints of that node.
+   */
+  private Map<PointsToSetVariable, Map<CGNode, MutableIntSet>> contributedValues;
+
+  /**
+   * the node on whose behalf constraints are being added, if known
+   */
+  private CGNode contributor;
+
+  /**
+   * Should {@link #collapseAssignmentCycles()} be used? See {@link #enableCycleElimination()}.
+   */
+  private boolean cycleElimination = false;
+
+  /**
+   * number of cycles of assignments unified by {@link #collapseAssignmentCycles()}
+   */
+  private int collapsedCycles;
+
+  /**
+   * number of variables merged into others by {@link #collapseAssignmentCycles()}
+   */
+  private int mergedVariables;
+
+  /**
+   * keys whose defining constraints have all been added since the last {@link #substituteVariables()}; null unless
+   * {@link #enableVariableSubstitution()} has been called
+   */
+  private List<PointerKey> closedKeys;
+
+  /**
+   * indices in the points-to map of the keys given instance keys directly; tracked along with {@link #closedKeys}
+   */
+  private MutableIntSet directlyAssigned;
+
+  /**
+   * number of variables merged into others by {@link #substituteVariables()}
+   */
+  private int substitutedVariables;
+
+  /**
+   * Should assignments propagate only what their right-hand sides gained since they were last propagated? See
+   * {@link #enableDifferencePropagation()}.
+   */
+  private boolean differencePropagation = false;
+
+  /**
+   * number of elements added across assignments evaluated off the worklist; only counted when a listener is registered
+   */
+  private long bitsPropagated;
+
+  /**
+   * number of elements that would have been added across the same assignments had the whole right-hand sides been propagated;
+   * only counted when a listener is registered
+   */
+  private long bitsPropagatedByFullSets;
+
+  /**
+   * number of elements visited to compute the differences to propagate and to update the snapshots of what was propagated; only
+   * counted when a listener is registered
+   */
+  private long bitsScannedForDifferences;
+
+  /**
+   * keeps the points-to sets within a budget of memory; null unless {@link #enableSpilling(long)} has been called
+   */
+  private PointsToSetStore spillStore;
+
   /**
    * Governing call graph;
    */
@@ -115,12 +204,21 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
   private int periodicMaintainInterval = DEFAULT_PERIODIC_MAINTENANCE_INTERVAL;
 
   public PropagationSystem(CallGraph cg, PointerKeyFactory pointerKeyFactory, InstanceKeyFactory instanceKeyFactory) {
+    this(cg, pointerKeyFactory, instanceKeyFactory, WorklistStrategy.getDefault());
+  }
+
+  /**
+   * @param worklistStrategy the order in which to evaluate statements
+   */
+  public PropagationSystem(CallGraph cg, PointerKeyFactory pointerKeyFactory, InstanceKeyFactory instanceKeyFactory,
+      WorklistStrategy worklistStrategy) {
     if (cg == null) {
       throw new IllegalArgumentException("null cg");
     }
     this.cg = cg;
     this.pointerKeyFactory = pointerKeyFactory;
     this.instanceKeyFactory = instanceKeyFactory;
+    setWorklistStrategy(worklistStrategy);
     // when doing paranoid checking of points-to sets, code in PointsToSetVariable needs to know about the instance key
     // mapping
     if (PointsToSetVariable.PARANOID) {
@@ -263,6 +361,9 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     PointsToSetVariable result = pointsToMap.getPointsToSet(key);
     if (result == null) {
       result = new PointsToSetVariable(key);
+      if (spillStore != null) {
+        spillStore.manage(result);
+      }
       pointsToMap.put(key, result);
     } else {
       // check that the filter for this variable remains unique
@@ -409,6 +510,27 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     // This works since the solver is monotonic with TOP = {}
     PointsToSetVariable L = findOrCreatePointsToSet(lhs);
     int index = findOrCreateIndexForInstanceKey(value);
+    if (directlyAssigned != null) {
+      directlyAssigned.add(pointsToMap.getIndex(lhs));
+    }
+    if (directValues != null) {
+      MutableIntSet s;
+      if (contributor != null) {
+        Map<CGNode, MutableIntSet> byNode = MapUtil.findOrCreateMap(contributedValues, L);
+        s = byNode.get(contributor);
+        if (s == null) {
+          s = IntSetUtil.make();
+          byNode.put(contributor, s);
+        }
+      } else {
+        s = directValues.get(L);
+        if (s == null) {
+          s = IntSetUtil.make();
+          directValues.put(L, s);
+        }
+      }
+      s.add(index);
+    }
     if (!L.add(index)) {
       // a no-op
       return false;
@@ -731,6 +853,698 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     this.periodicMaintainInterval = periodicMaintainInteval;
   }
 
+  /**
+   * Start remembering the values added directly to points-to sets, so that constraints can later be retracted with
+   * {@link #retractConstraints(Set)}. This must be called before any constraints are added.
+   */
+  public void enableRetraction() {
+    if (cycleElimination || closedKeys != null) {
+      throw new IllegalStateException("cannot retract constraints on unified variables");
+    }
+    if (differencePropagation) {
+      throw new IllegalStateException("cannot retract constraints under difference propagation");
+    }
+    if (directValues == null) {
+      directValues = HashMapFactory.make();
+      contributedValues = HashMapFactory.make();
+    }
+  }
+
+  public boolean isRetractionEnabled() {
+    return directValues != null;
+  }
+
+  /**
+   * Attribute the values that later calls to {@link #newConstraint(PointerKey, InstanceKey)} add to node, until the next call.
+   * Builders set this while they add the constraints of a node or evaluate its side effects, so that
+   * {@link #retractConstraints(Set)} can take back what the node passed to other nodes or stored in the heap.
+   * 
+   * @param node the contributing node, or null if unknown
+   * @return the previous contributor
+   */
+  public CGNode setContributor(CGNode node) {
+    CGNode result = contributor;
+    contributor = node;
+    return result;
+  }
+
+  /**
+   * Allow solvers to unify the variables on cycles of assignments with {@link #collapseAssignmentCycles()}. The variables on
+   * such a cycle always end up with the same points-to set, so keeping one copy saves propagating it around the cycle. This
+   * cannot be combined with {@link #enableRetraction()}, and assumes that no constraints are added for a call graph node twice.
+   */
+  public void enableCycleElimination() {
+    if (directValues != null) {
+      throw new IllegalStateException("cannot retract constraints on unified variables");
+    }
+    if (!cycleElimination) {
+      cycleElimination = true;
+      flowGraph.trackNewAssignments();
+    }
+  }
+
+  public boolean isCycleEliminationEnabled() {
+    return cycleElimination;
+  }
+
+  /**
+   * @return number of cycles of assignments that have been unified
+   */
+  public int getNumberOfCollapsedCycles() {
+    return collapsedCycles;
+  }
+
+  /**
+   * @return number of variables that have been merged into others because they were on a cycle of assignments
+   */
+  public int getNumberOfMergedVariables() {
+    return mergedVariables;
+  }
+
+  /**
+   * Propagate differences along assignments, as in Pearce, Kelly and Hankin's difference propagation (SCAM 2003): each variable
+   * remembers its value when last propagated, and when an assignment from it comes off the worklist, only what it has gained
+   * since then is added to every variable it is assigned to. Assignments added later, or rewritten by unification, still see
+   * the whole set. Field and array accesses already remember the instances they have handled. This cannot be combined with
+   * {@link #enableRetraction()}, nor used with {@link ParallelSolver}, which evaluates assignments itself.
+   */
+  public void enableDifferencePropagation() {
+    if (directValues != null) {
+      throw new IllegalStateException("cannot retract constraints under difference propagation");
+    }
+    differencePropagation = true;
+  }
+
+  public boolean isDifferencePropagationEnabled() {
+    return differencePropagation;
+  }
+
+  /**
+   * @return number of elements added across the assignments evaluated off the worklist, counting each element once per
+   *         assignment it was propagated along; 0 unless a listener is registered
+   */
+  public long getNumberOfBitsPropagated() {
+    return bitsPropagated;
+  }
+
+  /**
+   * @return number of elements the assignments evaluated off the worklist would have propagated had they propagated whole sets;
+   *         equal to {@link #getNumberOfBitsPropagated()} unless difference propagation is enabled
+   */
+  public long getNumberOfBitsPropagatedByFullSets() {
+    return bitsPropagatedByFullSets;
+  }
+
+  /**
+   * @return number of elements visited to compute the differences propagated and to keep the snapshots of what was propagated;
+   *         0 unless difference propagation is enabled and a listener is registered
+   */
+  public long getNumberOfBitsScannedForDifferences() {
+    return bitsScannedForDifferences;
+  }
+
+  /**
+   * Keep at most about maxResidentElements elements of points-to sets in memory while solving, writing the sets not used
+   * recently to a temporary file; see {@link PointsToSetStore}. This must be called before any constraints are added, and
+   * cannot be used with {@link ParallelSolver}, since the store is not thread safe. Only the contents of points-to sets are
+   * spilled; the variables themselves and the propagation graph stay in memory.
+   *
+   * @throws IOException if the temporary file cannot be created
+   */
+  public void enableSpilling(long maxResidentElements) throws IOException {
+    if (spillStore != null) {
+      throw new IllegalStateException("spilling already enabled");
+    }
+    spillStore = new PointsToSetStore(maxResidentElements);
+  }
+
+  /**
+   * Stop spilling: read the points-to sets written out back into memory, and remove the temporary file. From then on, all sets
+   * stay in memory. Does nothing if spilling is not enabled, or already stopped.
+   *
+   * @throws IOException if the temporary file cannot be closed
+   */
+  public void disableSpilling() throws IOException {
+    if (spillStore != null) {
+      spillStore.close();
+    }
+  }
+
+  /**
+   * @return the store the points-to sets are spilled to, or null if {@link #enableSpilling(long)} has not been called; once
+   *         spilling is disabled, the closed store still reports what it did
+   */
+  public PointsToSetStore getSpillStore() {
+    return spillStore;
+  }
+
+  @Override
+  protected byte evaluate(AbstractStatement<PointsToSetVariable, ?> s) {
+    if (spillStore != null) {
+      // between statements no variable is in the middle of an update, so this is when values may be evicted
+      spillStore.evictIfOverBudget();
+    }
+    if (!(s instanceof AssignEquation)) {
+      return super.evaluate(s);
+    }
+    AssignEquation assign = (AssignEquation) s;
+    PointsToSetVariable rhs = assign.getRightHandSide();
+    boolean counting = getListener() != null;
+    IntSet uses = differencePropagation ? flowGraph.getAssignmentUses(rhs.getGraphNodeId()) : null;
+    if (uses == null || !uses.contains(assign.getLHS().getGraphNodeId())) {
+      // full propagation, or an assignment rewritten since it was put on the worklist
+      if (counting) {
+        int size = rhs.size();
+        bitsPropagated += size;
+        bitsPropagatedByFullSets += size;
+      }
+      return super.evaluate(s);
+    }
+
+    // propagate what rhs gained along all of its assignments at once; the others may still be on the worklist, and will then
+    // find nothing new
+    MutableIntSet value = rhs.getValue();
+    if (value == null || value.isEmpty()) {
+      return NOT_CHANGED;
+    }
+    MutableIntSet prior = rhs.getPropagated();
+    IntSet delta;
+    if (prior == null) {
+      delta = value;
+      rhs.setPropagated(IntSetUtil.getDefaultIntSetFactory().makeCopy(value));
+      if (counting) {
+        bitsScannedForDifferences += value.size();
+      }
+    } else if (prior.size() == value.size()) {
+      // the snapshot only ever holds elements of the value, so nothing is new
+      return NOT_CHANGED;
+    } else {
+      MutableSparseIntSet d = MutableSparseIntSet.makeEmpty();
+      value.foreachExcluding(prior, d::add);
+      prior.addAll(d);
+      delta = d;
+      if (counting) {
+        bitsScannedForDifferences += value.size() + d.size();
+      }
+    }
+    byte result = NOT_CHANGED;
+    for (IntIterator it = uses.intIterator(); it.hasNext();) {
+      PointsToSetVariable lhs = flowGraph.getVariable(it.next());
+      if (counting) {
+        bitsPropagated += delta.size();
+        bitsPropagatedByFullSets += value.size();
+      }
+      if (lhs.addAll(delta)) {
+        if (lhs == assign.getLHS()) {
+          result = CHANGED;
+        } else {
+          changedVariable(lhs);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Allow solvers to unify equivalent variables before solving, with {@link #substituteVariables()}. Builders then report, with
+   * {@link #recordClosedKey(PointerKey)}, the keys that no constraint added later can define. This cannot be combined with
+   * {@link #enableRetraction()}.
+   */
+  public void enableVariableSubstitution() {
+    if (directValues != null) {
+      throw new IllegalStateException("cannot retract constraints on unified variables");
+    }
+    if (closedKeys == null) {
+      closedKeys = new ArrayList<>();
+      directlyAssigned = IntSetUtil.make();
+    }
+  }
+
+  public boolean isVariableSubstitutionEnabled() {
+    return closedKeys != null;
+  }
+
+  /**
+   * record that every constraint that defines key has been added, e.g. those for the phi that defines a local, or for the
+   * returns of a method; a no-op unless variable substitution is enabled
+   */
+  public void recordClosedKey(PointerKey key) {
+    if (closedKeys != null) {
+      closedKeys.add(key);
+    }
+  }
+
+  /**
+   * @return number of variables that have been merged into others by {@link #substituteVariables()}
+   */
+  public int getNumberOfSubstitutedVariables() {
+    return substitutedVariables;
+  }
+
+  /**
+   * Unify the variables that must end up with equal points-to sets, judging by the assignments that define the keys closed
+   * since the last call, in the manner of Rountev and Chandra's offline variable substitution (PLDI 2000) and Hardekopf and
+   * Lin's hash-based value numbering (SAS 2007).
+   * 
+   * A closed variable that is defined only by assignments, and given no instance keys directly, is labeled by the set of labels
+   * of the variables assigned to it, where any other variable is labeled by itself; the closed variables on a cycle share a
+   * label. Variables with equal labels always hold equal sets: a return value that is only ever assigned one local is that
+   * local, and so are two phis of the same values. Variables with a type filter are left alone.
+   * 
+   * Run this before solving; the statements rewritten by unification are put on the worklist.
+   * 
+   * @return the number of variables merged into others
+   * @throws IllegalStateException if variable substitution is not enabled
+   */
+  public int substituteVariables() {
+    if (closedKeys == null) {
+      throw new IllegalStateException("variable substitution is not enabled");
+    }
+    MutableIntSet closed = IntSetUtil.make();
+    for (PointerKey key : closedKeys) {
+      if (pointsToMap.isImplicit(key) || pointsToMap.isUnified(key)) {
+        continue;
+      }
+      int index = pointsToMap.getIndex(key);
+      if (index == -1 || directlyAssigned.contains(index)) {
+        continue;
+      }
+      PointsToSetVariable v = pointsToMap.getPointsToSet(index);
+      int n = v.getGraphNodeId();
+      if (n == -1 || !isCollapsible(v)) {
+        continue;
+      }
+      IntSet defs = flowGraph.getAssignmentDefs(n);
+      if (defs != null && defs.size() == flowGraph.getNumberOfStatementsThatDef(v)) {
+        closed.add(n);
+      }
+    }
+    closedKeys.clear();
+
+    // label the closed variables, those they are assigned from first; labels past the largest variable number stand for
+    // sets of labels, or for cycles assigned nothing
+    IntIntHashMap label = new IntIntHashMap(16, -1);
+    Map<List<Integer>, Integer> labelSets = HashMapFactory.make();
+    int firstSetLabel = flowGraph.getMaxNumber() + 1;
+    int[] nextLabel = { firstSetLabel };
+    Map<Integer, List<PointsToSetVariable>> classes = HashMapFactory.make();
+    IntIntHashMap index = new IntIntHashMap(16, -1);
+    for (IntIterator it = closed.intIterator(); it.hasNext();) {
+      int root = it.next();
+      if (index.containsKey(root)) {
+        continue;
+      }
+      findComponents(root, flowGraph::getAssignmentDefs, closed::contains, index, scc -> {
+        MutableIntSet in = IntSetUtil.make();
+        for (PointsToSetVariable v : scc) {
+          for (IntIterator defs = flowGraph.getAssignmentDefs(v.getGraphNodeId()).intIterator(); defs.hasNext();) {
+            int w = defs.next();
+            if (!closed.contains(w)) {
+              in.add(w);
+            } else if (label.containsKey(w)) {
+              in.add(label.get(w));
+            }
+          }
+        }
+        int l;
+        if (in.size() == 1) {
+          l = in.max();
+        } else {
+          List<Integer> set = new ArrayList<>(in.size());
+          in.foreach(set::add);
+          Integer old = in.isEmpty() ? null : labelSets.get(set);
+          if (old == null) {
+            l = nextLabel[0]++;
+            labelSets.put(set, l);
+          } else {
+            l = old;
+          }
+        }
+        List<PointsToSetVariable> c = MapUtil.findOrCreateList(classes, l);
+        for (PointsToSetVariable v : scc) {
+          label.put(v.getGraphNodeId(), l);
+          c.add(v);
+        }
+      });
+    }
+
+    int merged = 0;
+    List<PointsToSetVariable> reps = new ArrayList<>();
+    List<PointsToSetVariable> grown = new ArrayList<>();
+    for (Map.Entry<Integer, List<PointsToSetVariable>> e : classes.entrySet()) {
+      List<PointsToSetVariable> c = e.getValue();
+      PointsToSetVariable self = e.getKey() < firstSetLabel ? flowGraph.getVariable(e.getKey()) : null;
+      if (self != null && isCollapsible(self)) {
+        c.add(self);
+      }
+      if (c.size() > 1) {
+        MutableIntSet keys = IntSetUtil.make();
+        boolean same = true;
+        for (PointsToSetVariable v : c) {
+          keys.add(pointsToMap.getIndex(v.getPointerKey()));
+          same &= sameValue(v, c.get(0));
+        }
+        unify(keys);
+        PointsToSetVariable rep = pointsToMap.getPointsToSet(keys.intIterator().next());
+        reps.add(rep);
+        if (!same) {
+          grown.add(rep);
+        }
+        merged += c.size() - 1;
+      }
+    }
+    // the rewritten statements are not on the worklist, though some of those they replace may be; the statements that use a
+    // variable need another look only if unification added to what they have seen
+    for (PointsToSetVariable rep : reps) {
+      for (AbstractStatement<PointsToSetVariable, ?> s : Iterator2Iterable.make(flowGraph.getStatementsThatDef(rep))) {
+        addToWorkList(s);
+      }
+    }
+    for (PointsToSetVariable rep : grown) {
+      changedVariable(rep);
+    }
+    substitutedVariables += merged;
+    return merged;
+  }
+
+  /**
+   * Find the cycles of assignments that pass through an assignment added since the last call, and unify the variables on each.
+   * Call this only at a fixed point, when the worklist is empty; there the variables on a cycle hold equal sets, so the
+   * system stays at the fixed point, and only
+   * assignments between equal sets need to be followed, as in Hardekopf and Lin's lazy cycle detection (PLDI 2007). Variables
+   * with a type filter are left alone.
+   * 
+   * @return the number of variables merged into others
+   * @throws IllegalStateException if cycle elimination is not enabled
+   */
+  public int collapseAssignmentCycles() {
+    if (!cycleElimination) {
+      throw new IllegalStateException("cycle elimination is not enabled");
+    }
+    int[] added = flowGraph.takeNewAssignments();
+    IntIntHashMap index = new IntIntHashMap(16, -1);
+    List<List<PointsToSetVariable>> cycles = new ArrayList<>();
+    for (int i = 0; i < added.length; i += 2) {
+      int lhs = added[i];
+      PointsToSetVariable L = flowGraph.getVariable(lhs);
+      PointsToSetVariable R = flowGraph.getVariable(added[i + 1]);
+      if (L != null && R != null && L != R && isCollapsible(L) && isCollapsible(R) && L.size() == R.size()
+          && !index.containsKey(lhs)) {
+        int size = L.size();
+        findComponents(lhs, flowGraph::getAssignmentUses, w -> {
+          PointsToSetVariable W = flowGraph.getVariable(w);
+          return W != null && isCollapsible(W) && W.size() == size;
+        }, index, scc -> {
+          if (scc.size() > 1) {
+            cycles.add(scc);
+          }
+        });
+      }
+    }
+
+    // at the fixed point every variable on a cycle already holds the set of its representative, so the statements
+    // rewritten by unification are satisfied and need not go on the worklist
+    int merged = 0;
+    for (List<PointsToSetVariable> cycle : cycles) {
+      MutableIntSet keys = IntSetUtil.make();
+      for (PointsToSetVariable v : cycle) {
+        keys.add(pointsToMap.getIndex(v.getPointerKey()));
+      }
+      unify(keys);
+      merged += cycle.size() - 1;
+    }
+    collapsedCycles += cycles.size();
+    mergedVariables += merged;
+    return merged;
+  }
+
+  private static boolean sameValue(PointsToSetVariable v, PointsToSetVariable w) {
+    IntSet a = v.getValue();
+    IntSet b = w.getValue();
+    if (a == null || a.isEmpty()) {
+      return b == null || b.isEmpty();
+    }
+    return b != null && a.sameValue(b);
+  }
+
+  private static boolean isCollapsible(PointsToSetVariable v) {
+    return !(v.getPointerKey() instanceof FilteredPointerKey);
+  }
+
+  /**
+   * Tarjan's algorithm, iteratively, from root over the edges to the variables that satisfy follow
+   * 
+   * @param edges variable number -&gt; numbers of the variables it has edges to, or null
+   * @param index variable number -&gt; order of discovery, for all variables visited so far
+   * @param components receives the strongly connected components, each after those it has edges to
+   */
+  private void findComponents(int root, IntFunction<IntSet> edges, IntPredicate follow, IntIntHashMap index,
+      Consumer<List<PointsToSetVariable>> components) {
+    // low links of the variables on the stack
+    IntIntHashMap low = new IntIntHashMap();
+    int[] stack = new int[16];
+    int sp = 0;
+    // the depth-first search path, and the successors left to visit of each variable on it
+    int[] path = new int[16];
+    ArrayDeque<IntIterator> succs = new ArrayDeque<>();
+    int depth = 0;
+    index.put(root, index.size());
+    low.put(root, index.get(root));
+    stack[sp++] = root;
+    path[depth++] = root;
+    succs.push(successors(edges, root));
+    while (depth > 0) {
+      int v = path[depth - 1];
+      IntIterator it = succs.peek();
+      if (it.hasNext()) {
+        int w = it.next();
+        if (!follow.test(w)) {
+          continue;
+        }
+        if (!index.containsKey(w)) {
+          index.put(w, index.size());
+          low.put(w, index.get(w));
+          if (sp == stack.length) {
+            stack = Arrays.copyOf(stack, 2 * sp);
+          }
+          stack[sp++] = w;
+          if (depth == path.length) {
+            path = Arrays.copyOf(path, 2 * depth);
+          }
+          path[depth++] = w;
+          succs.push(successors(edges, w));
+        } else if (low.containsKey(w)) {
+          low.put(v, Math.min(low.get(v), index.get(w)));
+        }
+        continue;
+      }
+      depth--;
+      succs.pop();
+      if (depth > 0) {
+        int parent = path[depth - 1];
+        low.put(parent, Math.min(low.get(parent), low.get(v)));
+      }
+      if (low.get(v) == index.get(v)) {
+        List<PointsToSetVariable> scc = new ArrayList<>();
+        int w;
+        do {
+          w = stack[--sp];
+          low.remove(w);
+          scc.add(flowGraph.getVariable(w));
+        } while (w != v);
+        components.accept(scc);
+      }
+    }
+  }
+
+  private static IntIterator successors(IntFunction<IntSet> edges, int v) {
+    IntSet s = edges.apply(v);
+    return s == null ? EmptyIntSet.instance.intIterator() : s.intIterator();
+  }
+
+  /**
+   * Retract the constraints contributed by the given call graph nodes, in preparation for adding constraints from their new IR.
+   * 
+   * A node contributes the statements that define its local variables (other than its parameters), its return values, all
+   * statements that use its local variables, including those that pass arguments to callees, and the values added directly while
+   * it was the {@link #setContributor(CGNode) contributor}. Since the system does not record why a variable holds a value, every
+   * variable to which a retracted statement or value may have propagated is cleared and recomputed from the remaining statements;
+   * the statements that recompute it are added to the work list, so the next {@link #solve} restores the fixed point.
+   * 
+   * The field accesses that remain, in other nodes, may have generated statements for instances that a cleared variable no
+   * longer holds. Those statements are retracted as well, and the field accesses registered for the same
+   * {@link UnarySideEffect#getFixedSet() fixed set} are evaluated again from scratch. Kept are the call edges of the remaining
+   * nodes, the values their dispatch and stores of constants added for such instances, and values added with no contributor;
+   * this is sound, but may be less precise than solving from scratch.
+   * 
+   * @return the number of variables cleared
+   * @throws IllegalStateException if retraction was not enabled before constraints were added
+   * @throws UnsupportedOperationException if the variables of some node have been unified
+   */
+  public int retractConstraints(Set<CGNode> nodes) {
+    if (nodes == null) {
+      throw new IllegalArgumentException("null nodes");
+    }
+    if (directValues == null) {
+      throw new IllegalStateException("retraction not enabled");
+    }
+    // the variables of the nodes: those they define, and those they use
+    Set<PointsToSetVariable> defined = HashSetFactory.make();
+    Set<PointsToSetVariable> used = HashSetFactory.make();
+    for (Iterator<PointerKey> it = pointsToMap.iterateKeys(); it.hasNext();) {
+      PointerKey key = it.next();
+      if (!(key instanceof AbstractLocalPointerKey) || !nodes.contains(((AbstractLocalPointerKey) key).getNode())
+          || pointsToMap.isImplicit(key)) {
+        continue;
+      }
+      if (pointsToMap.isUnified(key)) {
+        throw new UnsupportedOperationException("cannot retract constraints on unified variable " + key);
+      }
+      PointsToSetVariable v = pointsToMap.getPointsToSet(key);
+      if (v == null) {
+        continue;
+      }
+      if (!(key instanceof LocalPointerKey) || !((LocalPointerKey) key).isParameter()) {
+        // parameters are defined by the callers
+        defined.add(v);
+      }
+      if (key instanceof LocalPointerKey) {
+        // return values are used by the callers
+        used.add(v);
+      }
+    }
+
+    Set<AbstractStatement<PointsToSetVariable, ?>> retracted = HashSetFactory.make();
+    for (PointsToSetVariable v : defined) {
+      retracted.addAll(Iterator2Collection.toSet(flowGraph.getStatementsThatDef(v)));
+    }
+    for (PointsToSetVariable v : used) {
+      for (AbstractStatement<?, ?> s : Iterator2Iterable.make(flowGraph.getStatementsThatUse(v))) {
+        // every statement of the flow graph is over points-to set variables
+        @SuppressWarnings("unchecked")
+        AbstractStatement<PointsToSetVariable, ?> use = (AbstractStatement<PointsToSetVariable, ?>) s;
+        retracted.add(use);
+      }
+    }
+
+    // clear everything the retracted statements flow to
+    Set<PointsToSetVariable> cleared = HashSetFactory.make(defined);
+    for (AbstractStatement<PointsToSetVariable, ?> s : retracted) {
+      flowGraph.removeStatement(s);
+      if (s.getLHS() != null) {
+        cleared.add(s.getLHS());
+      }
+      if (s.getOperator() instanceof UnarySideEffect) {
+        UnarySideEffect effect = (UnarySideEffect) s.getOperator();
+        Set<UnarySideEffect> effects = fixedSetMap.get(effect.getFixedSet());
+        if (effects != null && effects.remove(effect) && effects.isEmpty()) {
+          fixedSetMap.remove(effect.getFixedSet());
+        }
+      }
+    }
+    // values the nodes added elsewhere
+    for (Iterator<Map.Entry<PointsToSetVariable, Map<CGNode, MutableIntSet>>> it = contributedValues.entrySet().iterator(); it
+        .hasNext();) {
+      Map.Entry<PointsToSetVariable, Map<CGNode, MutableIntSet>> e = it.next();
+      if (e.getValue().keySet().removeAll(nodes)) {
+        cleared.add(e.getKey());
+        if (e.getValue().isEmpty()) {
+          it.remove();
+        }
+      }
+    }
+    // a field access whose reference is cleared is stale: the statements generated for its fixed set go, and flow is
+    // cleared from there as well
+    Set<UnarySideEffect> stale = HashSetFactory.make();
+    LinkedList<PointsToSetVariable> todo = new LinkedList<>(cleared);
+    while (!todo.isEmpty()) {
+      PointsToSetVariable v = todo.removeFirst();
+      List<UnaryStatement<PointsToSetVariable>> generated = new ArrayList<>();
+      for (AbstractStatement<?, ?> s : Iterator2Iterable.make(flowGraph.getStatementsThatUse(v))) {
+        if (s.getOperator() instanceof UnarySideEffect) {
+          PointsToSetVariable fixed = ((UnarySideEffect) s.getOperator()).getFixedSet();
+          Set<UnarySideEffect> effects = fixedSetMap.get(fixed);
+          if (effects != null && stale.addAll(effects)) {
+            generated.addAll(generatedStatements(fixed));
+          }
+        }
+        PointsToSetVariable lhs = (PointsToSetVariable) s.getLHS();
+        if (lhs != null && cleared.add(lhs)) {
+          todo.add(lhs);
+        }
+      }
+      for (UnaryStatement<PointsToSetVariable> s : generated) {
+        flowGraph.removeStatement(s);
+        if (cleared.add(s.getLHS())) {
+          todo.add(s.getLHS());
+        }
+      }
+    }
+
+    for (PointsToSetVariable v : defined) {
+      directValues.remove(v);
+    }
+    for (PointsToSetVariable v : cleared) {
+      v.removeAll();
+      MutableIntSet direct = directValues.get(v);
+      if (direct != null) {
+        v.addAll(direct);
+      }
+      Map<CGNode, MutableIntSet> contributed = contributedValues.get(v);
+      if (contributed != null) {
+        for (MutableIntSet values : contributed.values()) {
+          v.addAll(values);
+        }
+      }
+    }
+    for (PointsToSetVariable v : cleared) {
+      for (Iterator<AbstractStatement<PointsToSetVariable, ?>> it = flowGraph.getStatementsThatDef(v); it.hasNext();) {
+        addToWorkList(it.next());
+      }
+      changedVariable(v);
+    }
+    if (!stale.isEmpty()) {
+      for (UnarySideEffect effect : stale) {
+        effect.forgetHistory();
+      }
+      for (AbstractStatement<?, ?> s : Iterator2Iterable.make(flowGraph.getStatements())) {
+        if (stale.contains(s.getOperator())) {
+          addToWorkList(s);
+        }
+      }
+    }
+    return cleared.size();
+  }
+
+  /**
+   * @return the statements that field accesses generated for a fixed set: reads into it and writes from it, both connecting it
+   *         to the contents of some instance
+   */
+  private List<UnaryStatement<PointsToSetVariable>> generatedStatements(PointsToSetVariable fixed) {
+    List<UnaryStatement<PointsToSetVariable>> result = new ArrayList<>();
+    for (AbstractStatement<?, ?> s : Iterator2Iterable.make(flowGraph.getStatementsThatDef(fixed))) {
+      if (s instanceof UnaryStatement && isInstanceContents(((UnaryStatement<?>) s).getRightHandSide())) {
+        result.add(asUnary(s));
+      }
+    }
+    for (AbstractStatement<?, ?> s : Iterator2Iterable.make(flowGraph.getStatementsThatUse(fixed))) {
+      if (s instanceof UnaryStatement && isInstanceContents(s.getLHS())) {
+        result.add(asUnary(s));
+      }
+    }
+    return result;
+  }
+
+  private static boolean isInstanceContents(IVariable<?> v) {
+    return v instanceof PointsToSetVariable && ((PointsToSetVariable) v).getPointerKey() instanceof InstanceFieldPointerKey;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static UnaryStatement<PointsToSetVariable> asUnary(AbstractStatement<?, ?> s) {
+    // every statement of the flow graph is over points-to set variables
+    return (UnaryStatement<PointsToSetVariable>) s;
+  }
+
   /**
    * Unify the points-to-sets for the variables identified by the set s
    * 
@@ -751,6 +1565,8 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     // unify the variables
     pointsToMap.unify(s);
     int rep = pointsToMap.getRepresentative(s.intIterator().next());
+    // the assignments of the others now start from the representative, and have not seen all of it
+    pointsToMap.getPointsToSet(rep).setPropagated(null);
 
     // clean up the equations
     updateEquationsForUnification(cache, rep);
@@ -30,9 +30,12 @@ import com.ibm.wala.classLoader.IField;
 import com.ibm.wala.classLoader.IMethod;
 import com.ibm.wala.classLoader.NewSiteReference;
 import com.ibm.wala.classLoader.ProgramCounter;
+import com.ibm.wala.classLoader.ShrikeClass;
 import com.ibm.wala.fixpoint.AbstractOperator;
 import com.ibm.wala.ipa.callgraph.AnalysisOptions;
 import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.CallGraphBuilderCancelException;
 import com.ibm.wala.ipa.callgraph.ContextKey;
 import com.ibm.wala.ipa.callgraph.ContextSelector;
 import com.ibm.wala.ipa.callgraph.Entrypoint;
@@ -43,6 +46,7 @@ import com.ibm.wala.ipa.callgraph.impl.ExplicitCallGraph;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
 import com.ibm.wala.shrikeBT.ConditionalBranchInstruction;
 import com.ibm.wala.shrikeBT.IInvokeInstruction;
+import com.ibm.wala.shrikeCT.InvalidClassFileException;
 import com.ibm.wala.ssa.DefUse;
 import com.ibm.wala.ssa.IRView;
 import com.ibm.wala.ssa.ISSABasicBlock;
@@ -168,6 +172,50 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
     return (SSAContextInterpreter) getContextInterpreter();
   }
 
+  /**
+   * Update the call graph and pointer analysis after the code of the methods of some classes changed, rather than building them
+   * again. The constraints contributed by the nodes for methods of those classes are retracted, constraints are added from the
+   * current IR of those methods, and solving resumes from the previous fixed point.
+   * 
+   * A class file that was replaced in place, e.g. recompiled into a class directory of the scope, is {@link ShrikeClass#reload()
+   * read again}, so the IR is built from its new method bodies; the IR may also change because the
+   * {@link com.ibm.wala.ssa.IRFactory} of the context interpreter started to apply an edit. The class hierarchy itself is not
+   * updated: the classes must be those of this builder's hierarchy, and must still declare the same supertypes, fields and
+   * methods, so that no dispatch result changes. Classes that were added, removed, or changed in their declarations need a new
+   * class hierarchy and call graph. The call graph must have been built with {@link #setIncremental(boolean)} enabled.
+   * 
+   * @return the updated call graph, which is the same object as before
+   * @throws IllegalArgumentException if a class is not from this builder's class hierarchy, or its class file cannot be read
+   * @throws IllegalStateException if the declarations of a class changed
+   */
+  public CallGraph updateCallGraph(Collection<? extends IClass> changedClasses, IProgressMonitor monitor)
+      throws CallGraphBuilderCancelException {
+    if (changedClasses == null) {
+      throw new IllegalArgumentException("null changedClasses");
+    }
+    Set<IClass> changed = HashSetFactory.make();
+    for (IClass klass : changedClasses) {
+      if (klass.getClassHierarchy() != cha) {
+        throw new IllegalArgumentException("not a class of this builder's class hierarchy: " + klass);
+      }
+      if (klass instanceof ShrikeClass) {
+        try {
+          ((ShrikeClass) klass).reload();
+        } catch (InvalidClassFileException e) {
+          throw new IllegalArgumentException("cannot read class file of " + klass, e);
+        }
+      }
+      changed.add(klass);
+    }
+    Set<CGNode> nodes = HashSetFactory.make();
+    for (CGNode n : callGraph) {
+      if (changed.contains(n.getMethod().getDeclaringClass())) {
+        nodes.add(n);
+      }
+    }
+    return reprocessNodes(nodes, monitor);
+  }
+
   /**
    * @return the instance key that represents the exception of type _type_ thrown by a particular PEI.
    * @throws IllegalArgumentException if ikFactory is null
@@ -207,7 +255,12 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
     if (DEBUG) {
       System.err.println("\n\nAdd constraints from node " + node);
     }
+    IPropagationListener listener = getPropagationListener();
+    long start = listener == null ? 0 : System.nanoTime();
     IRView ir = getCFAContextInterpreter().getIRView(node);
+    if (listener != null && ir != null) {
+      listener.phaseFinished(IPropagationListener.Phase.IR, System.nanoTime() - start);
+    }
     if (DEBUG) {
       if (ir == null) {
         System.err.println("\n   No statements\n");
@@ -327,6 +380,7 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
               system.newConstraint(def, assignOperator, use);
             }
           }
+          system.recordClosedKey(def);
         }
       }
     }
@@ -802,7 +856,7 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
           for (InstanceKey element : ik) {
             system.findOrCreateIndexForInstanceKey(element);
             assert !system.isUnified(arrayRefPtrKey);
-            system.newSideEffect(getBuilder().new InstanceArrayStoreOperator(element), arrayRefPtrKey);
+            system.newSideEffect(getBuilder().new InstanceArrayStoreOperator(node, element), arrayRefPtrKey);
           }
         } else {
           system.newSideEffect(getBuilder().new ArrayStoreOperator(system.findOrCreatePointsToSet(valuePtrKey)), arrayRefPtrKey);
@@ -907,6 +961,7 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
       } else {
         system.newConstraint(returnValue, assignOperator, result);
       }
+      system.recordClosedKey(returnValue);
     }
 
     /*
@@ -1038,7 +1093,7 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
         } else {
           for (InstanceKey element : ik) {
             system.findOrCreateIndexForInstanceKey(element);
-            system.newSideEffect(getBuilder().new InstancePutFieldOperator(f, element), refKey);
+            system.newSideEffect(getBuilder().new InstancePutFieldOperator(node, f, element), refKey);
           }
         }
       } else {
@@ -1626,9 +1681,12 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
         PointerKey formal = getTargetPointerKey(target, i);
         if (constParams != null && constParams[i] != null) {
           InstanceKey[] ik = constParams[i];
+          // the constants are retracted with the constraints of the caller
+          CGNode previous = system.setContributor(caller);
           for (InstanceKey element : ik) {
               system.newConstraint(formal, element);
           }
+          system.setContributor(previous);
         } else {
           if (instruction.getUse(i) < 0) {
             Assertions.UNREACHABLE("unexpected " + instruction + " in " + caller);
@@ -2397,6 +2455,9 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
    */
   @Override
   protected IPointsToSolver makeSolver() {
+    if (getOptions().getSolverThreads() > 1) {
+      return new ParallelSolver(system, this, getOptions().getSolverThreads());
+    }
     return new StandardSolver(system, this);
     // return usePreTransitiveSolver ? (IPointsToSolver) new PreTransitiveSolver(system, this) : new StandardSolver(system, this);
     // return true ? (IPointsToSolver)new PreTransitiveSolver(system,this) : new
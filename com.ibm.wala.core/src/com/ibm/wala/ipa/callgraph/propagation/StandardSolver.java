@@ -37,10 +37,18 @@ public class StandardSolver extends AbstractPointsToSolver {
       if (DEBUG_PHASES) {
         System.err.println("Iteration " + i);
       }
-      getSystem().solve(monitor);
+      IPropagationListener listener = getBuilder().getPropagationListener();
+      if (listener != null) {
+        long start = System.nanoTime();
+        solveToFixedPoint(monitor);
+        listener.phaseFinished(IPropagationListener.Phase.SOLVE, System.nanoTime() - start);
+      } else {
+        solveToFixedPoint(monitor);
+      }
       if (DEBUG_PHASES) {
         System.err.println("Solved " + i);
       }
+      getBuilder().checkpointIfDue();
 
       if (getBuilder().getOptions().getMaxNumberOfNodes() > -1) {
         if (getBuilder().getCallGraph().getNumberOfNodes() >= getBuilder().getOptions().getMaxNumberOfNodes()) {
@@ -63,7 +71,13 @@ public class StandardSolver extends AbstractPointsToSolver {
         System.err.println("handling reflection");
       }
       if (i <= getBuilder().getOptions().getReflectionOptions().getNumFlowToCastIterations()) {
-        getReflectionHandler().updateForReflection(monitor);
+        if (listener != null) {
+          long start = System.nanoTime();
+          getReflectionHandler().updateForReflection(monitor);
+          listener.phaseFinished(IPropagationListener.Phase.REFLECTION, System.nanoTime() - start);
+        } else {
+          getReflectionHandler().updateForReflection(monitor);
+        }
       }
       // Handling reflection may have discovered new nodes!
       if (DEBUG_PHASES) {
@@ -78,4 +92,27 @@ public class StandardSolver extends AbstractPointsToSolver {
 
   }
 
+  /**
+   * run the system to a fixed point; if variable substitution is enabled, first unify the variables the new constraints make
+   * equivalent, and if cycle elimination is enabled, collapse the cycles of assignments found at the fixed point, so that
+   * later rounds propagate around them no more
+   */
+  private void solveToFixedPoint(IProgressMonitor monitor) throws CancelException {
+    if (getSystem().isVariableSubstitutionEnabled()) {
+      getSystem().substituteVariables();
+    }
+    solveSystem(monitor);
+    if (getSystem().isCycleEliminationEnabled()) {
+      getSystem().collapseAssignmentCycles();
+    }
+  }
+
+  /**
+   * run the underlying propagation system to a fixed point, given the constraints discovered so far. subclasses may override to
+   * change how the worklist is processed.
+   */
+  protected void solveSystem(IProgressMonitor monitor) throws CancelException {
+    getSystem().solve(monitor);
+  }
+
 }
@@ -64,6 +64,13 @@ public abstract class UnarySideEffect extends UnaryOperator<PointsToSetVariable>
    */
   abstract protected boolean isLoadOperator();
 
+  /**
+   * Forget the instances seen by earlier evaluations, so that the next evaluation generates equations for all of them again.
+   * Called when the equations this side effect generated have been retracted.
+   */
+  protected void forgetHistory() {
+  }
+
   /**
    * Update the fixed points-to-set associated with this side effect.
    */
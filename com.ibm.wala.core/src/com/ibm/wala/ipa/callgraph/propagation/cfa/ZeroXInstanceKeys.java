@@ -169,6 +169,13 @@ public class ZeroXInstanceKeys implements InstanceKeyFactory {
     return (policy & SMUSH_STRINGS) > 0;
   }
 
+  /**
+   * @return the policy for instance disambiguation, a combination of the flags defined in this class
+   */
+  public int getPolicy() {
+    return policy;
+  }
+
   public boolean smushThrowables() {
     return (policy & SMUSH_THROWABLES) > 0;
   }
@@ -16,6 +16,8 @@ import com.ibm.wala.classLoader.Language;
 import com.ibm.wala.ipa.callgraph.AnalysisScope;
 import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -53,6 +55,59 @@ public class ClassHierarchyFactory {
     return makeWithRoot(scope, new ClassLoaderFactoryImpl(scope.getExclusions()));
   }
 
+  /**
+   * @return a ClassHierarchy object representing the analysis scope, where class files are parsed on nThreads threads. The
+   *         hierarchy, including the numbering of its classes, is the same as that built by {@link #make(AnalysisScope)}.
+   */
+  public static ClassHierarchy makeParallel(AnalysisScope scope, int nThreads) throws ClassHierarchyException {
+    if (scope == null) {
+      throw new IllegalArgumentException("null scope");
+    }
+    ClassLoaderFactoryImpl factory = new ClassLoaderFactoryImpl(scope.getExclusions());
+    factory.setParallelism(nThreads);
+    return make(scope, factory);
+  }
+
+  /**
+   * @return a ClassHierarchy object representing the analysis scope, where class files are parsed on all available processors
+   */
+  public static ClassHierarchy makeParallel(AnalysisScope scope) throws ClassHierarchyException {
+    return makeParallel(scope, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * @return a ClassHierarchy object representing the analysis scope, read from the {@link ClassHierarchySnapshot} in snapshot if
+   *         it is valid for the scope. Otherwise, the hierarchy is built from the scope and a new snapshot is written; failure to
+   *         write it is ignored.
+   */
+  public static ClassHierarchy makeWithSnapshot(AnalysisScope scope, File snapshot) throws ClassHierarchyException {
+    if (scope == null) {
+      throw new IllegalArgumentException("null scope");
+    }
+    if (snapshot == null) {
+      throw new IllegalArgumentException("null snapshot");
+    }
+    if (snapshot.isFile()) {
+      try {
+        ClassHierarchySnapshot s = ClassHierarchySnapshot.read(snapshot);
+        if (s.isValidFor(scope)) {
+          return make(scope, s.makeClassLoaderFactory(scope.getExclusions()));
+        }
+      } catch (IOException e) {
+        // a damaged snapshot is rebuilt below
+      } catch (IllegalArgumentException e) {
+        // the scope cannot be fingerprinted, so no snapshot is valid for it
+      }
+    }
+    ClassHierarchy cha = make(scope);
+    try {
+      ClassHierarchySnapshot.write(cha, snapshot);
+    } catch (IOException | IllegalArgumentException e) {
+      // the snapshot is only an optimization
+    }
+    return cha;
+  }
+
   /**
    * temporarily marking this internal to avoid infinite sleep with randomly chosen IProgressMonitor.
    */
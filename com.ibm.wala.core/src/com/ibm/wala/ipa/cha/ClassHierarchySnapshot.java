@@ -0,0 +1,406 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.cha;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.ibm.wala.classLoader.ClassLoaderFactoryImpl;
+import com.ibm.wala.classLoader.DirectoryTreeModule;
+import com.ibm.wala.classLoader.FileModule;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IClassLoader;
+import com.ibm.wala.classLoader.JarFileModule;
+import com.ibm.wala.classLoader.MappedJarFileModule;
+import com.ibm.wala.classLoader.MappedModuleEntry;
+import com.ibm.wala.classLoader.Module;
+import com.ibm.wala.classLoader.ModuleEntry;
+import com.ibm.wala.classLoader.NestedJarFileModule;
+import com.ibm.wala.classLoader.ShrikeClass;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.util.WalaRuntimeException;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.config.SetOfClasses;
+import com.ibm.wala.util.io.ByteBufferInputStream;
+
+/**
+ * A compact, memory-mapped image of the class files loaded by a {@link ClassHierarchy}, for quick start-up of analyses that
+ * repeatedly use the same {@link AnalysisScope}.
+ *
+ * The snapshot holds, for each class loader, the uncompressed bytes of exactly those classes that the hierarchy loaded, i.e.
+ * after exclusions and duplicates have been dealt with, together with a fingerprint of the scope. A hierarchy built from a
+ * snapshot does not open, scan or inflate any jar file; class headers are read from the mapped file, and method bodies are
+ * decoded from it only when first needed, as with any other {@link ShrikeClass}.
+ *
+ * The fingerprint covers the scope description, the exclusions, and the size and modification time of each jar file and class
+ * file in the scope, including every file under the directories in it, so a snapshot is ignored once any of them changes. Scopes
+ * with modules whose state cannot be described this way, such as streams and URLs, cannot be snapshot.
+ */
+public class ClassHierarchySnapshot {
+
+  private static final boolean DEBUG = false;
+
+  private static final int MAGIC = 0x57414c41;
+
+  /**
+   * bump this whenever the file format changes
+   */
+  private static final int FORMAT_VERSION = 1;
+
+  private static final String CLASS_SUFFIX = ".class";
+
+  /**
+   * fingerprint of the scope this snapshot was taken from
+   */
+  private final byte[] fingerprint;
+
+  /**
+   * loader name -&gt; classes of that loader
+   */
+  private final Map<String, SnapshotModule> modules = HashMapFactory.make();
+
+  private final File file;
+
+  private int numberOfClasses;
+
+  private ClassHierarchySnapshot(File file, ByteBuffer buffer) throws IOException {
+    this.file = file;
+    try {
+      if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+        throw new IOException("not a class hierarchy snapshot: " + file);
+      }
+      fingerprint = new byte[buffer.getInt()];
+      buffer.get(fingerprint);
+      int nLoaders = buffer.getInt();
+      for (int i = 0; i < nLoaders; i++) {
+        String loader = readString(buffer);
+        int nClasses = buffer.getInt();
+        SnapshotModule module = new SnapshotModule(loader, nClasses);
+        for (int j = 0; j < nClasses; j++) {
+          String name = readString(buffer);
+          int length = buffer.getInt();
+          ByteBuffer bytes = buffer.slice();
+          bytes.limit(length);
+          buffer.position(buffer.position() + length);
+          module.entries.add(new SnapshotEntry(module, name, bytes));
+        }
+        modules.put(loader, module);
+        numberOfClasses += nClasses;
+      }
+    } catch (BufferUnderflowException | IllegalArgumentException e) {
+      throw new IOException("truncated class hierarchy snapshot: " + file, e);
+    }
+  }
+
+  /**
+   * map a snapshot written by {@link #write(IClassHierarchy, File)}
+   *
+   * @throws IOException if the file cannot be read or is not a valid snapshot
+   */
+  public static ClassHierarchySnapshot read(File file) throws IOException {
+    if (file == null) {
+      throw new IllegalArgumentException("null file");
+    }
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      return new ClassHierarchySnapshot(file, buffer);
+    }
+  }
+
+  /**
+   * write a snapshot of the classes loaded by cha to file. The file is replaced atomically, so concurrent readers see either the
+   * old or the new snapshot.
+   *
+   * @throws IllegalArgumentException if cha holds classes that were not read from class files, e.g. from source code
+   */
+  public static void write(IClassHierarchy cha, File file) throws IOException {
+    if (cha == null) {
+      throw new IllegalArgumentException("null cha");
+    }
+    if (file == null) {
+      throw new IllegalArgumentException("null file");
+    }
+    File dir = file.getAbsoluteFile().getParentFile();
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      throw new IOException("cannot create directory " + dir);
+    }
+    Path tmp = Files.createTempFile(dir.toPath(), file.getName(), ".tmp");
+    try {
+      try (OutputStream s = Files.newOutputStream(tmp); DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s))) {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        byte[] f = fingerprint(cha.getScope());
+        out.writeInt(f.length);
+        out.write(f);
+        IClassLoader[] loaders = cha.getLoaders();
+        out.writeInt(loaders.length);
+        for (IClassLoader loader : loaders) {
+          List<ShrikeClass> classes = new ArrayList<>();
+          for (Iterator<IClass> it = loader.iterateAllClasses(); it.hasNext();) {
+            IClass klass = it.next();
+            if (!(klass instanceof ShrikeClass)) {
+              throw new IllegalArgumentException("cannot snapshot " + klass);
+            }
+            classes.add((ShrikeClass) klass);
+          }
+          writeString(out, loader.getName().toString());
+          out.writeInt(classes.size());
+          for (ShrikeClass klass : classes) {
+            // strip the leading 'L' of the type name
+            writeString(out, klass.getName().toString().substring(1) + CLASS_SUFFIX);
+            byte[] bytes = klass.getReader().getBytes();
+            out.writeInt(bytes.length);
+            out.write(bytes);
+          }
+        }
+      }
+      Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  /**
+   * @return true iff this snapshot was taken from a hierarchy for scope, and none of the files in scope changed since
+   */
+  public boolean isValidFor(AnalysisScope scope) {
+    if (scope == null) {
+      throw new IllegalArgumentException("null scope");
+    }
+    return Arrays.equals(fingerprint, fingerprint(scope));
+  }
+
+  /**
+   * @return a factory for class loaders that read their classes from this snapshot instead of from the modules of the scope.
+   *         Loaders for which the snapshot has no classes fall back to the modules of the scope.
+   */
+  public ClassLoaderFactoryImpl makeClassLoaderFactory(SetOfClasses exclusions) {
+    return new ClassLoaderFactoryImpl(exclusions) {
+      @Override
+      protected List<Module> getModules(ClassLoaderReference classLoaderReference, AnalysisScope scope) {
+        SnapshotModule module = modules.get(classLoaderReference.getName().toString());
+        if (module == null) {
+          return super.getModules(classLoaderReference, scope);
+        }
+        return Collections.<Module> singletonList(module);
+      }
+    };
+  }
+
+  /**
+   * @return the number of classes in this snapshot
+   */
+  public int getNumberOfClasses() {
+    return numberOfClasses;
+  }
+
+  /**
+   * @return a digest describing the scope and the state of the files in it, which changes whenever any of them changes
+   * @throws IllegalArgumentException if the scope holds a module that is not backed by files, such as a stream or a URL
+   */
+  public static byte[] fingerprint(AnalysisScope scope) {
+    if (scope == null) {
+      throw new IllegalArgumentException("null scope");
+    }
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new WalaRuntimeException("SHA-1 unavailable", e);
+    }
+    StringBuilder s = new StringBuilder(scope.toString());
+    for (ClassLoaderReference loader : scope.getLoaders()) {
+      for (Module m : scope.getModules(loader)) {
+        describe(s, m);
+      }
+    }
+    if (DEBUG) {
+      System.err.println("snapshot fingerprint: " + s);
+    }
+    return digest.digest(s.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static void describe(StringBuilder s, Module m) {
+    if (m instanceof JarFileModule) {
+      describe(s, new File(((JarFileModule) m).getAbsolutePath()));
+    } else if (m instanceof MappedJarFileModule) {
+      describe(s, ((MappedJarFileModule) m).getFile());
+    } else if (m instanceof FileModule) {
+      describe(s, ((FileModule) m).getFile());
+    } else if (m instanceof NestedJarFileModule) {
+      // the nested jar changes only with the jar holding it
+      describe(s, ((NestedJarFileModule) m).getParent());
+      s.append(m).append('\n');
+    } else if (m instanceof DirectoryTreeModule) {
+      // files may be added or removed as well as changed, so list them all, in a stable order
+      List<File> files = new ArrayList<>();
+      listFiles(new File(((DirectoryTreeModule) m).getPath()), files);
+      Collections.sort(files);
+      s.append(((DirectoryTreeModule) m).getPath()).append(':').append(files.size()).append('\n');
+      for (File f : files) {
+        describe(s, f);
+      }
+    } else {
+      throw new IllegalArgumentException("cannot fingerprint " + m);
+    }
+  }
+
+  private static void listFiles(File dir, List<File> result) {
+    File[] files = dir.listFiles();
+    if (files != null) {
+      for (File f : files) {
+        if (f.isDirectory()) {
+          listFiles(f, result);
+        } else {
+          result.add(f);
+        }
+      }
+    }
+  }
+
+  private static void describe(StringBuilder s, File f) {
+    s.append(f.getAbsolutePath()).append(':').append(f.length()).append(':').append(f.lastModified()).append('\n');
+  }
+
+  private static void writeString(DataOutputStream out, String s) throws IOException {
+    byte[] b = s.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(b.length);
+    out.write(b);
+  }
+
+  private static String readString(ByteBuffer buffer) {
+    byte[] b = new byte[buffer.getInt()];
+    buffer.get(b);
+    return new String(b, StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public String toString() {
+    return "ClassHierarchySnapshot: " + file + " (" + numberOfClasses + " classes)";
+  }
+
+  /**
+   * The classes of one loader in a snapshot
+   */
+  private final class SnapshotModule implements Module {
+    private final String loader;
+
+    private final List<ModuleEntry> entries;
+
+    SnapshotModule(String loader, int nClasses) {
+      this.loader = loader;
+      this.entries = new ArrayList<>(nClasses);
+    }
+
+    @Override
+    public Iterator<? extends ModuleEntry> getEntries() {
+      return entries.iterator();
+    }
+
+    @Override
+    public String toString() {
+      return "SnapshotModule:" + file + ':' + loader;
+    }
+  }
+
+  /**
+   * A class file held in a snapshot
+   */
+  private static final class SnapshotEntry implements MappedModuleEntry {
+    private final SnapshotModule container;
+
+    private final String name;
+
+    /**
+     * the class file bytes, a view of the mapped snapshot
+     */
+    private final ByteBuffer bytes;
+
+    SnapshotEntry(SnapshotModule container, String name, ByteBuffer bytes) {
+      this.container = container;
+      this.name = name;
+      this.bytes = bytes;
+    }
+
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public boolean isClassFile() {
+      return true;
+    }
+
+    @Override
+    public boolean isSourceFile() {
+      return false;
+    }
+
+    @Override
+    public InputStream getInputStream() {
+      return new ByteBufferInputStream(bytes.duplicate());
+    }
+
+    @Override
+    public ByteBuffer getByteBuffer() {
+      return bytes.duplicate();
+    }
+
+    @Override
+    public boolean isModuleFile() {
+      return false;
+    }
+
+    @Override
+    public Module asModule() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getClassName() {
+      return name.substring(0, name.length() - CLASS_SUFFIX.length());
+    }
+
+    @Override
+    public Module getContainer() {
+      return container;
+    }
+
+    @Override
+    public String toString() {
+      return container + ":" + name;
+    }
+  }
+
+}
@@ -0,0 +1,323 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ssa;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.MapUtil;
+import com.ibm.wala.util.collections.Pair;
+import com.ibm.wala.util.ref.CacheReference;
+
+/**
+ * An {@link IAuxiliaryCache} that may be used from many threads at once.
+ *
+ * Entries are spread over a fixed number of stripes by &lt;method, context&gt;, each guarded by its own lock, so threads working
+ * on different methods rarely contend. {@link #findOrCreate} computes each entry once: the first thread to miss computes the
+ * value outside of any lock, and other threads asking for the same entry wait for it. A request for the same entry from within
+ * its own computation, on the computing thread, cannot wait for it; that value is computed again directly, and not cached.
+ *
+ * As in {@link AuxiliaryCache}, values are held through {@link CacheReference}s, so the garbage collector may evict them. The
+ * cache counts hits, misses and evictions.
+ */
+public class ConcurrentAuxiliaryCache implements IAuxiliaryCache {
+
+  private static final int DEFAULT_STRIPES = 64;
+
+  /**
+   * a stripe is scanned for entries cleared by the garbage collector after this many insertions
+   */
+  private static final int PURGE_THRESHOLD = 256;
+
+  private static class Stripe {
+    /**
+     * &lt;method, context&gt; -&gt; options -&gt; reference to a value, or a {@link Pending} computation
+     */
+    final Map<Pair<IMethod, Context>, Map<SSAOptions, Object>> dictionary = HashMapFactory.make();
+
+    int insertions = 0;
+  }
+
+  /**
+   * a value being computed by some thread
+   */
+  private static class Pending {
+    /**
+     * the thread computing the value
+     */
+    final Thread owner = Thread.currentThread();
+
+    private Object value;
+
+    private boolean done;
+
+    private boolean failed;
+
+    synchronized void complete(Object v, boolean failure) {
+      value = v;
+      failed = failure;
+      done = true;
+      notifyAll();
+    }
+
+    /**
+     * @return true if the value was computed, false if the computation failed
+     */
+    synchronized boolean await() {
+      boolean interrupted = false;
+      while (!done) {
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+      return !failed;
+    }
+  }
+
+  private final Stripe[] stripes;
+
+  private final LongAdder hits = new LongAdder();
+
+  private final LongAdder misses = new LongAdder();
+
+  private final LongAdder evictions = new LongAdder();
+
+  public ConcurrentAuxiliaryCache() {
+    this(DEFAULT_STRIPES);
+  }
+
+  /**
+   * @param nStripes number of independently locked partitions
+   */
+  public ConcurrentAuxiliaryCache(int nStripes) {
+    if (nStripes < 1) {
+      throw new IllegalArgumentException("invalid number of stripes: " + nStripes);
+    }
+    stripes = new Stripe[nStripes];
+    for (int i = 0; i < nStripes; i++) {
+      stripes[i] = new Stripe();
+    }
+  }
+
+  private Stripe stripe(Pair<IMethod, Context> p) {
+    int h = p.hashCode();
+    h ^= (h >>> 16);
+    return stripes[(h & 0x7fffffff) % stripes.length];
+  }
+
+  @Override
+  public void wipe() {
+    for (Stripe s : stripes) {
+      synchronized (s) {
+        s.dictionary.clear();
+        s.insertions = 0;
+      }
+    }
+  }
+
+  @Override
+  public Object find(IMethod m, Context c, SSAOptions options) {
+    Pair<IMethod, Context> p = Pair.make(m, c);
+    Stripe s = stripe(p);
+    Object ref;
+    synchronized (s) {
+      Map<SSAOptions, Object> methodMap = s.dictionary.get(p);
+      ref = methodMap == null ? null : methodMap.get(options);
+    }
+    if (ref instanceof Pending) {
+      misses.increment();
+      return null;
+    }
+    Object result = CacheReference.get(ref);
+    if (result != null) {
+      hits.increment();
+    } else {
+      if (ref != null) {
+        evictions.increment();
+      }
+      misses.increment();
+    }
+    return result;
+  }
+
+  @Override
+  public void cache(IMethod m, Context c, SSAOptions options, Object aux) {
+    Pair<IMethod, Context> p = Pair.make(m, c);
+    Stripe s = stripe(p);
+    synchronized (s) {
+      insert(s, p, options, CacheReference.make(aux));
+    }
+  }
+
+  /**
+   * If compute itself asks for the same entry, on the same thread, the inner request computes its value directly rather than
+   * wait for the outer one, which would never finish.
+   */
+  @Override
+  public Object findOrCreate(IMethod m, Context c, SSAOptions options, Supplier<?> compute) {
+    Pair<IMethod, Context> p = Pair.make(m, c);
+    Stripe s = stripe(p);
+    while (true) {
+      Pending pending;
+      boolean owner = false;
+      synchronized (s) {
+        Map<SSAOptions, Object> methodMap = MapUtil.findOrCreateMap(s.dictionary, p);
+        Object ref = methodMap.get(options);
+        if (ref instanceof Pending) {
+          pending = (Pending) ref;
+          if (pending.owner == Thread.currentThread()) {
+            misses.increment();
+            pending = null;
+          }
+        } else {
+          Object result = CacheReference.get(ref);
+          if (result != null) {
+            hits.increment();
+            return result;
+          }
+          if (ref != null) {
+            evictions.increment();
+          }
+          misses.increment();
+          pending = new Pending();
+          insert(s, p, options, pending);
+          owner = true;
+        }
+      }
+
+      if (pending == null) {
+        // re-entrant request from the computation of this very entry
+        return compute.get();
+      } else if (owner) {
+        Object result;
+        try {
+          result = compute.get();
+        } catch (RuntimeException | Error e) {
+          synchronized (s) {
+            remove(s, p, options, pending);
+          }
+          pending.complete(null, true);
+          throw e;
+        }
+        synchronized (s) {
+          // the entry may have been invalidated meanwhile, in which case the result is not cached
+          Map<SSAOptions, Object> methodMap = s.dictionary.get(p);
+          if (methodMap != null && methodMap.get(options) == pending) {
+            methodMap.put(options, CacheReference.make(result));
+          }
+        }
+        pending.complete(result, false);
+        return result;
+      } else if (pending.await()) {
+        hits.increment();
+        return pending.value;
+      }
+      // the computing thread failed; try again ourselves
+    }
+  }
+
+  @Override
+  public void invalidate(IMethod method, Context c) {
+    Pair<IMethod, Context> p = Pair.make(method, c);
+    Stripe s = stripe(p);
+    synchronized (s) {
+      s.dictionary.remove(p);
+    }
+  }
+
+  /**
+   * caller must hold the monitor of s
+   */
+  private void insert(Stripe s, Pair<IMethod, Context> p, SSAOptions options, Object ref) {
+    if (++s.insertions > PURGE_THRESHOLD) {
+      purge(s);
+    }
+    MapUtil.findOrCreateMap(s.dictionary, p).put(options, ref);
+  }
+
+  /**
+   * caller must hold the monitor of s
+   */
+  private static void remove(Stripe s, Pair<IMethod, Context> p, SSAOptions options, Object ref) {
+    Map<SSAOptions, Object> methodMap = s.dictionary.get(p);
+    if (methodMap != null && methodMap.get(options) == ref) {
+      methodMap.remove(options);
+      if (methodMap.isEmpty()) {
+        s.dictionary.remove(p);
+      }
+    }
+  }
+
+  /**
+   * clear out entries whose values have been collected. caller must hold the monitor of s
+   */
+  private void purge(Stripe s) {
+    s.insertions = 0;
+    for (Iterator<Map<SSAOptions, Object>> it = s.dictionary.values().iterator(); it.hasNext();) {
+      Map<SSAOptions, Object> methodMap = it.next();
+      for (Iterator<Object> refs = methodMap.values().iterator(); refs.hasNext();) {
+        Object ref = refs.next();
+        if (!(ref instanceof Pending) && CacheReference.get(ref) == null) {
+          refs.remove();
+          evictions.increment();
+        }
+      }
+      if (methodMap.isEmpty()) {
+        it.remove();
+      }
+    }
+  }
+
+  /**
+   * @return number of lookups that found a cached value, including those that waited for another thread to compute it
+   */
+  public long getHits() {
+    return hits.sum();
+  }
+
+  /**
+   * @return number of lookups that found no cached value
+   */
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  /**
+   * @return number of values found to have been collected by the garbage collector
+   */
+  public long getEvictions() {
+    return evictions.sum();
+  }
+
+  /**
+   * reset the hit, miss and eviction counters
+   */
+  public void resetStatistics() {
+    hits.reset();
+    misses.reset();
+    evictions.reset();
+  }
+
+  @Override
+  public String toString() {
+    return "ConcurrentAuxiliaryCache: hits=" + getHits() + ", misses=" + getMisses() + ", evictions=" + getEvictions();
+  }
+}
@@ -10,10 +10,15 @@
  */
 package com.ibm.wala.ssa;
 
+import java.util.function.Supplier;
+
 import com.ibm.wala.classLoader.IMethod;
 import com.ibm.wala.ipa.callgraph.Context;
 
-interface IAuxiliaryCache {
+/**
+ * A cache for auxiliary information (IRs, {@link DefUse}, ...) about a &lt;method, context, options&gt; triple
+ */
+public interface IAuxiliaryCache {
 
   /**
    * The existence of this is unfortunate.
@@ -40,4 +45,19 @@ interface IAuxiliaryCache {
    */
   void invalidate(IMethod method, Context c);
 
+  /**
+   * @return the object cached for m, or else the result of compute, which is then cached. By default, this holds the monitor of
+   *         this cache while computing; concurrent implementations should do better.
+   */
+  default Object findOrCreate(IMethod m, Context c, SSAOptions options, Supplier<?> compute) {
+    synchronized (this) {
+      Object result = find(m, c, options);
+      if (result == null) {
+        result = compute.get();
+        cache(m, c, options, result);
+      }
+      return result;
+    }
+  }
+
 }
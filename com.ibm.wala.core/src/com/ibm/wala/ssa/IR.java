@@ -27,6 +27,7 @@ import com.ibm.wala.util.collections.CompoundIterator;
 import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Iterator2Iterable;
+import com.ibm.wala.util.collections.ObjectIntHashMap;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.intset.BasicNaturalRelation;
 import com.ibm.wala.util.intset.IntIterator;
@@ -78,12 +79,12 @@ public abstract class IR implements IRView {
   /**
    * Mapping from NewSiteReference program counters to instruction[] indices
    */
-  private final Map<NewSiteReference, Integer> newSiteMapping = HashMapFactory.make();
+  private final ObjectIntHashMap<NewSiteReference> newSiteMapping = new ObjectIntHashMap<>();
 
   /**
    * Mapping from PEI program counters to instruction[] indices
    */
-  final private Map<ProgramCounter, Integer> peiMapping = HashMapFactory.make();
+  final private ObjectIntHashMap<ProgramCounter> peiMapping = new ObjectIntHashMap<>();
 
   /**
    * Mapping from SSAInstruction to Basic Block, computed lazily
@@ -125,10 +126,10 @@ public abstract class IR implements IRView {
           callSiteMapping.add(((SSAAbstractInvokeInstruction) x).getCallSite().getProgramCounter(), i);
         }
         if (x instanceof SSANewInstruction) {
-          newSiteMapping.put(((SSANewInstruction) x).getNewSite(), Integer.valueOf(i));
+          newSiteMapping.put(((SSANewInstruction) x).getNewSite(), i);
         }
         if (x.isPEI()) {
-           peiMapping.put(new ProgramCounter(cfg.getProgramCounter(i)), Integer.valueOf(i));
+           peiMapping.put(new ProgramCounter(cfg.getProgramCounter(i)), i);
         }
       }
     }
@@ -577,16 +578,14 @@ public abstract class IR implements IRView {
    * Return the new instruction corresponding to an allocation site
    */
   public SSANewInstruction getNew(NewSiteReference site) {
-    Integer i = newSiteMapping.get(site);
-    return (SSANewInstruction) instructions[i.intValue()];
+    return (SSANewInstruction) instructions[newSiteMapping.get(site)];
   }
 
   /**
    * Return the instruction index corresponding to an allocation site
    */
   public int getNewInstructionIndex(NewSiteReference site) {
-    Integer i = newSiteMapping.get(site);
-    return i.intValue();
+    return newSiteMapping.get(site);
   }
 
   /**
@@ -595,8 +594,7 @@ public abstract class IR implements IRView {
    */
   @Override
   public SSAInstruction getPEI(ProgramCounter pc) {
-    Integer i = peiMapping.get(pc);
-    return instructions[i.intValue()];
+    return instructions[peiMapping.get(pc)];
   }
 
   /**
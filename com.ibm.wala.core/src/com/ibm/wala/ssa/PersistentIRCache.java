@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ssa;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.JavaLanguage;
+import com.ibm.wala.classLoader.ShrikeCTMethod;
+import com.ibm.wala.classLoader.ShrikeClass;
+import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.cha.ClassHierarchySnapshot;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.util.WalaRuntimeException;
+
+/**
+ * An on-disk tier for {@link SSACache}, which keeps the {@link IR}s of bytecode methods across JVM runs, so that library code
+ * (the JDK, Android framework jars, ...) need not be converted to SSA form by every analysis.
+ *
+ * Each IR is stored in its own file under a cache directory, and read back through a memory-mapped buffer. The file name is a
+ * digest of the bytes of the declaring class file, the method selector, the class loader, the IR factory, a format version and
+ * the {@link ClassHierarchySnapshot#fingerprint fingerprint} of the analysis scope. The IR depends on other classes as well,
+ * e.g. the exceptional edges of its control-flow graph, and hence its phis, depend on the exception types it resolves. So, when
+ * any input jar or class file changes, the stored IRs are simply never found again; stale files can be removed by deleting the
+ * directory. Methods of hierarchies whose scope cannot be fingerprinted are not stored.
+ *
+ * Only IRs built for the {@link Everywhere} context with default {@link SSAOptions} (no pi nodes, no default values) for Java
+ * bytecode are stored; all other requests miss. {@link DefUse} is not stored, since it is a cheap index over the instructions of
+ * an IR and is recomputed from the restored IR.
+ */
+public class PersistentIRCache {
+
+  private static final boolean DEBUG = false;
+
+  /**
+   * bump this whenever the record format of {@link ShrikeIRCodec} changes
+   */
+  private static final int FORMAT_VERSION = 1;
+
+  private static final String SUFFIX = ".ir";
+
+  private final File directory;
+
+  /**
+   * digest of each class file seen so far, so that class bytes are hashed once, not once per method
+   */
+  private final Map<IClass, byte[]> classDigests = new ConcurrentHashMap<>();
+
+  /**
+   * fingerprint of the scope of each class hierarchy seen so far, or an empty array if its scope cannot be fingerprinted
+   */
+  private final Map<IClassHierarchy, byte[]> scopeDigests = Collections.synchronizedMap(new WeakHashMap<>());
+
+  /**
+   * @param directory directory holding the cached IRs; created if it does not exist
+   * @throws IllegalArgumentException if directory is null, or cannot be used as a directory
+   */
+  public PersistentIRCache(File directory) {
+    if (directory == null) {
+      throw new IllegalArgumentException("null directory");
+    }
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IllegalArgumentException("cannot create directory " + directory);
+    }
+    this.directory = directory;
+  }
+
+  public File getDirectory() {
+    return directory;
+  }
+
+  /**
+   * @return the IR for m stored by an earlier {@link #cache} call, possibly in a different JVM, or null if none
+   */
+  public IR find(IRFactory<?> factory, IMethod m, Context c, SSAOptions options) {
+    File f = file(factory, m, c, options);
+    if (f == null || !f.isFile()) {
+      return null;
+    }
+    try (FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      return ShrikeIRCodec.decode((ShrikeCTMethod) m, options, buffer);
+    } catch (IOException | IllegalArgumentException e) {
+      // a truncated or otherwise damaged entry is just a miss; it will be overwritten
+      if (DEBUG) {
+        System.err.println("failed to read " + f + ": " + e);
+      }
+      return null;
+    }
+  }
+
+  /**
+   * store ir, if it is of a kind that this cache handles. Failures to write are ignored, since the cache is only an optimization.
+   */
+  public void cache(IRFactory<?> factory, IMethod m, Context c, SSAOptions options, IR ir) {
+    File f = file(factory, m, c, options);
+    if (f == null || ir == null) {
+      return;
+    }
+    byte[] record = ShrikeIRCodec.encode(ir);
+    if (record == null) {
+      return;
+    }
+    try {
+      // write to a temporary file first, so that concurrent readers never see a partial record
+      Path tmp = Files.createTempFile(directory.toPath(), "ir", ".tmp");
+      try {
+        Files.write(tmp, record);
+        Files.move(tmp, f.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(tmp);
+      }
+    } catch (IOException e) {
+      if (DEBUG) {
+        System.err.println("failed to write " + f + ": " + e);
+      }
+    }
+  }
+
+  /**
+   * @return the file holding the IR for m, or null if this cache does not handle the request
+   */
+  private File file(IRFactory<?> factory, IMethod m, Context c, SSAOptions options) {
+    if (!(m instanceof ShrikeCTMethod) || !Everywhere.EVERYWHERE.equals(c) || options.getPiNodePolicy() != null
+        || options.getDefaultValues() != null || !(m.getDeclaringClass().getClassLoader().getLanguage() instanceof JavaLanguage)) {
+      return null;
+    }
+    byte[] scopeDigest = scopeDigest(m.getClassHierarchy());
+    if (scopeDigest.length == 0) {
+      return null;
+    }
+    MessageDigest digest = newDigest();
+    digest.update(scopeDigest);
+    digest.update(classDigest(m.getDeclaringClass()));
+    update(digest, Integer.toString(FORMAT_VERSION));
+    update(digest, factory.getClass().getName());
+    update(digest, m.getDeclaringClass().getClassLoader().getReference().getName().toString());
+    update(digest, m.getSelector().toString());
+    StringBuilder name = new StringBuilder();
+    for (byte b : digest.digest()) {
+      name.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return new File(directory, name.append(SUFFIX).toString());
+  }
+
+  private byte[] scopeDigest(IClassHierarchy cha) {
+    byte[] result = scopeDigests.get(cha);
+    if (result == null) {
+      try {
+        // taken once per hierarchy, so files changing later do not disturb this run
+        result = ClassHierarchySnapshot.fingerprint(cha.getScope());
+      } catch (IllegalArgumentException e) {
+        result = new byte[0];
+      }
+      scopeDigests.put(cha, result);
+    }
+    return result;
+  }
+
+  private byte[] classDigest(IClass klass) {
+    byte[] result = classDigests.get(klass);
+    if (result == null) {
+      MessageDigest digest = newDigest();
+      digest.update(((ShrikeClass) klass).getReader().getBytes());
+      result = digest.digest();
+      classDigests.put(klass, result);
+    }
+    return result;
+  }
+
+  /**
+   * forget what was computed from the class file of klass and the scope of its hierarchy, since the file has been replaced
+   */
+  public void invalidate(IClass klass) {
+    classDigests.remove(klass);
+    scopeDigests.remove(klass.getClassHierarchy());
+  }
+
+  private static void update(MessageDigest digest, String s) {
+    digest.update(s.getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new WalaRuntimeException("SHA-1 unavailable", e);
+    }
+  }
+
+  /**
+   * remove all stored IRs
+   */
+  public void clear() {
+    File[] files = directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+    if (files != null) {
+      for (File f : files) {
+        f.delete();
+      }
+    }
+  }
+
+  /**
+   * @return the number of bytes used by stored IRs
+   */
+  public long size() {
+    long result = 0;
+    File[] files = directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+    if (files != null) {
+      for (File f : files) {
+        result += f.length();
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return "PersistentIRCache: " + directory;
+  }
+}
@@ -18,6 +18,9 @@ import com.ibm.wala.ipa.callgraph.impl.Everywhere;
  * A mapping from IMethod -&gt; SSAOptions -&gt; SoftReference -&gt; Something
  * 
  * This doesn't work very well ... GCs don't do such a great job with SoftReferences ... revamp it.
+ * 
+ * This class holds no locks of its own; it is as thread-safe as its {@link IAuxiliaryCache}s. With
+ * {@link ConcurrentAuxiliaryCache}s, IRs for different methods are built in parallel, and each IR is built once.
  */
 public class SSACache {
 
@@ -41,13 +44,27 @@ public class SSACache {
    */
   final private IAuxiliaryCache duCache;
 
+  /**
+   * An optional on-disk cache of SSA IRs, consulted on misses in irCache; may be null
+   */
+  final private PersistentIRCache persistentCache;
+
   /**
    * @param factory a factory for creating IRs
    */
   public SSACache(IRFactory<IMethod> factory, IAuxiliaryCache irCache, IAuxiliaryCache duCache) {
+    this(factory, irCache, duCache, null);
+  }
+
+  /**
+   * @param factory a factory for creating IRs
+   * @param persistentCache an on-disk cache that keeps IRs across runs, or null
+   */
+  public SSACache(IRFactory<IMethod> factory, IAuxiliaryCache irCache, IAuxiliaryCache duCache, PersistentIRCache persistentCache) {
     this.factory = factory;
     this.irCache = irCache;
     this.duCache = duCache;
+    this.persistentCache = persistentCache;
   }
 
   /**
@@ -56,7 +73,7 @@ public class SSACache {
    * @return an IR for m, built according to the specified options. null if m is abstract or native.
    * @throws IllegalArgumentException if m is null
    */
-  public synchronized IR findOrCreateIR(final IMethod m, Context c, final SSAOptions options) {
+  public IR findOrCreateIR(final IMethod m, Context c, final SSAOptions options) {
 
     if (m == null) {
       throw new IllegalArgumentException("m is null");
@@ -73,12 +90,20 @@ public class SSACache {
       return factory.makeIR(m, c, options);
     }
 
-    IR ir = (IR) irCache.find(m, c, options);
-    if (ir == null) {
-      ir = factory.makeIR(m, c, options);
-      irCache.cache(m, c, options, ir);
-    }
-    return ir;
+    final Context context = c;
+    return (IR) irCache.findOrCreate(m, context, options, () -> {
+      IR ir = null;
+      if (persistentCache != null) {
+        ir = persistentCache.find(factory, m, context, options);
+      }
+      if (ir == null) {
+        ir = factory.makeIR(m, context, options);
+        if (persistentCache != null) {
+          persistentCache.cache(factory, m, context, options, ir);
+        }
+      }
+      return ir;
+    });
   }
 
   /**
@@ -87,7 +112,7 @@ public class SSACache {
    * @return DefUse information for m, built according to the specified options. null if unavailable
    * @throws IllegalArgumentException if m is null
    */
-  public synchronized DefUse findOrCreateDU(IMethod m, Context c, SSAOptions options) {
+  public DefUse findOrCreateDU(final IMethod m, Context c, final SSAOptions options) {
     if (m == null) {
       throw new IllegalArgumentException("m is null");
     }
@@ -98,29 +123,33 @@ public class SSACache {
       c = Everywhere.EVERYWHERE;
     }
 
-    DefUse du = (DefUse) duCache.find(m, c, options);
-    if (du == null) {
-      IR ir = findOrCreateIR(m, c, options);
-      du = new DefUse(ir);
-      duCache.cache(m, c, options, du);
-    }
-    return du;
+    final Context context = c;
+    return (DefUse) duCache.findOrCreate(m, context, options, () -> new DefUse(findOrCreateIR(m, context, options)));
   }
 
   /**
    * @return {@link DefUse} information for m, built according to the specified options. null if unavailable
    * @throws IllegalArgumentException if ir is null
    */
-  public synchronized DefUse findOrCreateDU(IR ir, Context C) {
+  public DefUse findOrCreateDU(final IR ir, Context C) {
     if (ir == null) {
       throw new IllegalArgumentException("ir is null");
     }
-    DefUse du = (DefUse) duCache.find(ir.getMethod(), C, ir.getOptions());
-    if (du == null) {
-      du = new DefUse(ir);
-      duCache.cache(ir.getMethod(), C, ir.getOptions(), du);
-    }
-    return du;
+    return (DefUse) duCache.findOrCreate(ir.getMethod(), C, ir.getOptions(), () -> new DefUse(ir));
+  }
+
+  /**
+   * @return the cache of IRs
+   */
+  public IAuxiliaryCache getIRCache() {
+    return irCache;
+  }
+
+  /**
+   * @return the cache of {@link DefUse} information
+   */
+  public IAuxiliaryCache getDUCache() {
+    return duCache;
   }
 
   /**
@@ -136,6 +165,10 @@ public class SSACache {
    */
   public void invalidateIR(IMethod method, Context c) {
     irCache.invalidate(method, c);
+    if (persistentCache != null) {
+      // the class file may have changed
+      persistentCache.invalidate(method.getDeclaringClass());
+    }
   }
 
   /**
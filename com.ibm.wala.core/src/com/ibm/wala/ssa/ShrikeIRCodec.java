@@ -0,0 +1,925 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ssa;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.ibm.wala.cfg.ShrikeCFG;
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.IBytecodeMethod;
+import com.ibm.wala.classLoader.IClassLoader;
+import com.ibm.wala.classLoader.JavaLanguage;
+import com.ibm.wala.classLoader.NewSiteReference;
+import com.ibm.wala.shrikeBT.IBinaryOpInstruction;
+import com.ibm.wala.shrikeBT.IComparisonInstruction;
+import com.ibm.wala.shrikeBT.IConditionalBranchInstruction;
+import com.ibm.wala.shrikeBT.IInstruction;
+import com.ibm.wala.shrikeBT.IInvokeInstruction;
+import com.ibm.wala.shrikeBT.IShiftInstruction;
+import com.ibm.wala.shrikeBT.IUnaryOpInstruction;
+import com.ibm.wala.shrikeCT.InvalidClassFileException;
+import com.ibm.wala.ssa.SSABuilder.SSA2LocalMap;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.FieldReference;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.Selector;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.ObjectIntHashMap;
+import com.ibm.wala.util.intset.IntObjectHashMap;
+import com.ibm.wala.util.intset.IntPair;
+import com.ibm.wala.util.strings.Atom;
+
+/**
+ * A compact binary encoding of the {@link IR}s built by {@link com.ibm.wala.classLoader.ShrikeIRFactory}, used by
+ * {@link PersistentIRCache}.
+ *
+ * A record holds the symbol table, the phis and catch instructions of each basic block, the normal instructions and the local
+ * variable map. The control-flow graph is not stored; it is rebuilt from the bytecode, which is cheap compared to SSA
+ * construction. Strings are shared through a per-record pool, and integers are written as zig-zag varints.
+ *
+ * Only IRs in the shapes produced for Java bytecode are encoded; {@link #encode} returns null for anything else (e.g.
+ * invokedynamic, pi nodes or indirect local accesses), and the caller should simply not persist such IRs.
+ */
+final class ShrikeIRCodec {
+
+  private static final int ARRAY_LENGTH = 1;
+
+  private static final int ARRAY_LOAD = 2;
+
+  private static final int ARRAY_STORE = 3;
+
+  private static final int BINARY_OP = 4;
+
+  private static final int SHIFT_OP = 5;
+
+  private static final int CHECK_CAST = 6;
+
+  private static final int COMPARISON = 7;
+
+  private static final int CONDITIONAL_BRANCH = 8;
+
+  private static final int CONVERSION = 9;
+
+  private static final int GET = 10;
+
+  private static final int GET_STATIC = 11;
+
+  private static final int GOTO = 12;
+
+  private static final int INSTANCEOF = 13;
+
+  private static final int INVOKE = 14;
+
+  private static final int LOAD_METADATA = 15;
+
+  private static final int MONITOR = 16;
+
+  private static final int NEW = 17;
+
+  private static final int NEW_SAFE_ARRAY = 18;
+
+  private static final int PUT = 19;
+
+  private static final int PUT_STATIC = 20;
+
+  private static final int RETURN = 21;
+
+  private static final int RETURN_VOID = 22;
+
+  private static final int SWITCH = 23;
+
+  private static final int THROW = 24;
+
+  private static final int UNARY_OP = 25;
+
+  private static final int CONSTANT_NULL = 0;
+
+  private static final int CONSTANT_INT = 1;
+
+  private static final int CONSTANT_LONG = 2;
+
+  private static final int CONSTANT_FLOAT = 3;
+
+  private static final int CONSTANT_DOUBLE = 4;
+
+  private static final int CONSTANT_STRING = 5;
+
+  private static final int CONSTANT_BOOLEAN = 6;
+
+  private static final int VALUE_CONSTANT = 0;
+
+  private static final int VALUE_PHI = 1;
+
+  private ShrikeIRCodec() {
+  }
+
+  /**
+   * thrown internally when an IR has a shape this encoding does not cover
+   */
+  private static class UnsupportedIRException extends Exception {
+    private static final long serialVersionUID = -2818357473264734521L;
+  }
+
+  /**
+   * @return the encoding of ir, or null if ir cannot be encoded
+   */
+  static byte[] encode(IR ir) {
+    try {
+      return new Encoder(ir).encode();
+    } catch (UnsupportedIRException e) {
+      return null;
+    }
+  }
+
+  /**
+   * rebuild the IR for a method from an encoding produced by {@link #encode(IR)}
+   *
+   * @return the IR, or null if the record does not match the method's bytecode
+   * @throws IllegalArgumentException if the record is malformed
+   */
+  static IR decode(IBytecodeMethod<IInstruction> method, SSAOptions options, ByteBuffer record) {
+    try {
+      return new Decoder(method, options, record).decode();
+    } catch (InvalidClassFileException e) {
+      return null;
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException("malformed IR record for " + method, e);
+    }
+  }
+
+  private static class Encoder extends SSAInstruction.Visitor {
+
+    private final IR ir;
+
+    private final ObjectIntHashMap<String> pool = new ObjectIntHashMap<>();
+
+    private final List<String> poolStrings = new ArrayList<>();
+
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+    private boolean supported;
+
+    Encoder(IR ir) {
+      this.ir = ir;
+    }
+
+    byte[] encode() throws UnsupportedIRException {
+      if (ir.getIndirectionData() != null && !ir.getIndirectionData().getNames().isEmpty()) {
+        throw new UnsupportedIRException();
+      }
+
+      SSAInstruction[] instructions = ir.getInstructions();
+      writeInt(instructions.length);
+
+      // symbol table: constants and phis, which are shared with the basic blocks
+      SymbolTable symbolTable = ir.getSymbolTable();
+      int max = symbolTable.getMaxValueNumber();
+      writeInt(max);
+      int count = 0;
+      for (int vn = 1; vn <= max; vn++) {
+        if (symbolTable.getValue(vn) != null) {
+          count++;
+        }
+      }
+      writeInt(count);
+      for (int vn = 1; vn <= max; vn++) {
+        Value v = symbolTable.getValue(vn);
+        if (v == null) {
+          continue;
+        }
+        writeInt(vn);
+        if (v instanceof ConstantValue) {
+          writeInt(VALUE_CONSTANT);
+          writeConstant(((ConstantValue) v).getValue());
+        } else if (v instanceof PhiValue) {
+          SSAPhiInstruction phi = ((PhiValue) v).getPhiInstruction();
+          if (phi.getDef() != vn || phi.iindex != SSAInstruction.NO_INDEX) {
+            throw new UnsupportedIRException();
+          }
+          writeInt(VALUE_PHI);
+          writeUses(phi);
+        } else {
+          throw new UnsupportedIRException();
+        }
+      }
+
+      SSACFG cfg = ir.getControlFlowGraph();
+      writeInt(cfg.getNumberOfNodes());
+      for (int b = 0; b < cfg.getNumberOfNodes(); b++) {
+        SSACFG.BasicBlock bb = cfg.getNode(b);
+        List<SSAPhiInstruction> phis = new ArrayList<>();
+        for (Iterator<SSAPhiInstruction> it = bb.iteratePhis(); it.hasNext();) {
+          SSAPhiInstruction phi = it.next();
+          Value v = symbolTable.getValue(phi.getDef());
+          if (!(v instanceof PhiValue) || ((PhiValue) v).getPhiInstruction() != phi) {
+            throw new UnsupportedIRException();
+          }
+          phis.add(phi);
+        }
+        writeInt(phis.size());
+        for (SSAPhiInstruction phi : phis) {
+          writeInt(phi.getDef());
+        }
+        SSAGetCaughtExceptionInstruction c = bb instanceof SSACFG.ExceptionHandlerBasicBlock ? ((SSACFG.ExceptionHandlerBasicBlock) bb)
+            .getCatchInstruction() : null;
+        if (c == null) {
+          writeInt(-1);
+        } else {
+          if (c.getBasicBlockNumber() != b || c.iindex != SSAInstruction.NO_INDEX) {
+            throw new UnsupportedIRException();
+          }
+          writeInt(c.getException());
+        }
+      }
+
+      for (SSAInstruction s : instructions) {
+        if (s == null) {
+          writeInt(0);
+        } else {
+          supported = false;
+          writeInt(1);
+          writeInt(s.iindex);
+          s.visit(this);
+          if (!supported) {
+            throw new UnsupportedIRException();
+          }
+        }
+      }
+
+      IR.SSA2LocalMap map = ir.getLocalMap();
+      if (map == null) {
+        writeInt(0);
+      } else if (map instanceof SSA2LocalMap) {
+        writeInt(1);
+        IntPair[] localStoreMap = ((SSA2LocalMap) map).getLocalStoreMap();
+        writeInt(localStoreMap.length);
+        for (int i = 0; i < localStoreMap.length; i++) {
+          if (localStoreMap[i] != null) {
+            writeInt(i);
+            writeInt(localStoreMap[i].getX());
+            writeInt(localStoreMap[i].getY());
+          }
+        }
+        writeInt(-1);
+        int[][] block2LocalState = ((SSA2LocalMap) map).getBlock2LocalState();
+        writeInt(block2LocalState.length);
+        for (int[] locals : block2LocalState) {
+          writeInts(locals);
+        }
+      } else {
+        throw new UnsupportedIRException();
+      }
+
+      // the pool goes first, so that the decoder can resolve names as it reads
+      byte[] b = body.toByteArray();
+      body.reset();
+      writeInt(poolStrings.size());
+      for (String s : poolStrings) {
+        writeInt(s.length());
+        for (int i = 0; i < s.length(); i++) {
+          writeInt(s.charAt(i));
+        }
+      }
+      body.write(b, 0, b.length);
+      return body.toByteArray();
+    }
+
+    private void writeInt(int x) {
+      int v = (x << 1) ^ (x >> 31);
+      while ((v & ~0x7F) != 0) {
+        body.write((v & 0x7F) | 0x80);
+        v >>>= 7;
+      }
+      body.write(v);
+    }
+
+    private void writeLong(long x) {
+      writeInt((int) (x >>> 32));
+      writeInt((int) x);
+    }
+
+    private void writeInts(int[] x) {
+      if (x == null) {
+        writeInt(-1);
+      } else {
+        writeInt(x.length);
+        for (int i : x) {
+          writeInt(i);
+        }
+      }
+    }
+
+    private void writeString(String s) {
+      int index = pool.get(s);
+      if (index == -1) {
+        index = poolStrings.size();
+        pool.put(s, index);
+        poolStrings.add(s);
+      }
+      writeInt(index);
+    }
+
+    private void writeType(TypeReference t) {
+      if (t == null) {
+        writeInt(-1);
+      } else {
+        writeString(t.getClassLoader().getName().toString());
+        writeString(t.getName().toString());
+      }
+    }
+
+    private void writeField(FieldReference f) {
+      writeType(f.getDeclaringClass());
+      writeString(f.getName().toString());
+      writeType(f.getFieldType());
+    }
+
+    private void writeMethod(MethodReference m) {
+      writeType(m.getDeclaringClass());
+      writeString(m.getSelector().toString());
+    }
+
+    private void writeConstant(Object o) throws UnsupportedIRException {
+      if (o == null) {
+        writeInt(CONSTANT_NULL);
+      } else if (o instanceof Integer) {
+        writeInt(CONSTANT_INT);
+        writeInt((Integer) o);
+      } else if (o instanceof Long) {
+        writeInt(CONSTANT_LONG);
+        writeLong((Long) o);
+      } else if (o instanceof Float) {
+        writeInt(CONSTANT_FLOAT);
+        writeInt(Float.floatToRawIntBits((Float) o));
+      } else if (o instanceof Double) {
+        writeInt(CONSTANT_DOUBLE);
+        writeLong(Double.doubleToRawLongBits((Double) o));
+      } else if (o instanceof String) {
+        writeInt(CONSTANT_STRING);
+        writeString((String) o);
+      } else if (o instanceof Boolean) {
+        writeInt(CONSTANT_BOOLEAN);
+        writeInt(((Boolean) o) ? 1 : 0);
+      } else {
+        throw new UnsupportedIRException();
+      }
+    }
+
+    private void writeUses(SSAInstruction s) {
+      writeInt(s.getNumberOfUses());
+      for (int i = 0; i < s.getNumberOfUses(); i++) {
+        writeInt(s.getUse(i));
+      }
+    }
+
+    private void emit(int tag) {
+      writeInt(tag);
+      supported = true;
+    }
+
+    @Override
+    public void visitArrayLength(SSAArrayLengthInstruction instruction) {
+      emit(ARRAY_LENGTH);
+      writeInt(instruction.getDef());
+      writeInt(instruction.getArrayRef());
+    }
+
+    @Override
+    public void visitArrayLoad(SSAArrayLoadInstruction instruction) {
+      emit(ARRAY_LOAD);
+      writeInt(instruction.getDef());
+      writeInt(instruction.getArrayRef());
+      writeInt(instruction.getIndex());
+      writeType(instruction.getElementType());
+    }
+
+    @Override
+    public void visitArrayStore(SSAArrayStoreInstruction instruction) {
+      emit(ARRAY_STORE);
+      writeInt(instruction.getArrayRef());
+      writeInt(instruction.getIndex());
+      writeInt(instruction.getValue());
+      writeType(instruction.getElementType());
+    }
+
+    @Override
+    public void visitBinaryOp(SSABinaryOpInstruction instruction) {
+      IBinaryOpInstruction.IOperator op = instruction.getOperator();
+      if (op instanceof IBinaryOpInstruction.Operator) {
+        emit(BINARY_OP);
+        writeInt(((IBinaryOpInstruction.Operator) op).ordinal());
+      } else if (op instanceof IShiftInstruction.Operator) {
+        emit(SHIFT_OP);
+        writeInt(((IShiftInstruction.Operator) op).ordinal());
+      } else {
+        return;
+      }
+      writeInt(instruction.getDef());
+      writeInt(instruction.getUse(0));
+      writeInt(instruction.getUse(1));
+      writeInt(instruction.mayBeIntegerOp() ? 1 : 0);
+    }
+
+    @Override
+    public void visitCheckCast(SSACheckCastInstruction instruction) {
+      if (instruction.getDeclaredResultTypes() == null) {
+        return;
+      }
+      emit(CHECK_CAST);
+      writeInt(instruction.getResult());
+      writeInt(instruction.getVal());
+      writeInt(instruction.isPEI() ? 1 : 0);
+      writeInt(instruction.getDeclaredResultTypes().length);
+      for (TypeReference t : instruction.getDeclaredResultTypes()) {
+        writeType(t);
+      }
+    }
+
+    @Override
+    public void visitComparison(SSAComparisonInstruction instruction) {
+      emit(COMPARISON);
+      writeInt(instruction.getOperator().ordinal());
+      writeInt(instruction.getDef());
+      writeInt(instruction.getUse(0));
+      writeInt(instruction.getUse(1));
+    }
+
+    @Override
+    public void visitConditionalBranch(SSAConditionalBranchInstruction instruction) {
+      if (!(instruction.getOperator() instanceof IConditionalBranchInstruction.Operator)) {
+        return;
+      }
+      emit(CONDITIONAL_BRANCH);
+      writeInt(((IConditionalBranchInstruction.Operator) instruction.getOperator()).ordinal());
+      writeType(instruction.getType());
+      writeInt(instruction.getUse(0));
+      writeInt(instruction.getUse(1));
+      writeInt(instruction.getTarget());
+    }
+
+    @Override
+    public void visitConversion(SSAConversionInstruction instruction) {
+      emit(CONVERSION);
+      writeInt(instruction.getDef());
+      writeInt(instruction.getUse(0));
+      writeType(instruction.getFromType());
+      writeType(instruction.getToType());
+    }
+
+    @Override
+    public void visitGet(SSAGetInstruction instruction) {
+      if (instruction.isStatic()) {
+        emit(GET_STATIC);
+      } else {
+        emit(GET);
+        writeInt(instruction.getRef());
+      }
+      writeInt(instruction.getDef());
+      writeField(instruction.getDeclaredField());
+    }
+
+    @Override
+    public void visitGoto(SSAGotoInstruction instruction) {
+      emit(GOTO);
+      writeInt(instruction.getTarget());
+    }
+
+    @Override
+    public void visitInstanceof(SSAInstanceofInstruction instruction) {
+      emit(INSTANCEOF);
+      writeInt(instruction.getDef());
+      writeInt(instruction.getRef());
+      writeType(instruction.getCheckedType());
+    }
+
+    @Override
+    public void visitInvoke(SSAInvokeInstruction instruction) {
+      if (instruction instanceof SSAInvokeDynamicInstruction
+          || !(instruction.getCallSite().getInvocationCode() instanceof IInvokeInstruction.Dispatch)) {
+        return;
+      }
+      emit(INVOKE);
+      CallSiteReference site = instruction.getCallSite();
+      writeInt(site.getProgramCounter());
+      writeInt(((IInvokeInstruction.Dispatch) site.getInvocationCode()).ordinal());
+      writeMethod(site.getDeclaredTarget());
+      writeInt(instruction.getNumberOfReturnValues() == 0 ? -1 : instruction.getReturnValue(0));
+      writeInt(instruction.getException());
+      writeInt(instruction.getNumberOfPositionalParameters());
+      for (int i = 0; i < instruction.getNumberOfPositionalParameters(); i++) {
+        writeInt(instruction.getUse(i));
+      }
+    }
+
+    @Override
+    public void visitLoadMetadata(SSALoadMetadataInstruction instruction) {
+      if (!(instruction.getToken() instanceof TypeReference)) {
+        return;
+      }
+      emit(LOAD_METADATA);
+      writeInt(instruction.getDef());
+      writeType(instruction.getType());
+      writeType((TypeReference) instruction.getToken());
+    }
+
+    @Override
+    public void visitMonitor(SSAMonitorInstruction instruction) {
+      emit(MONITOR);
+      writeInt(instruction.getRef());
+      writeInt(instruction.isMonitorEnter() ? 1 : 0);
+    }
+
+    @Override
+    public void visitNew(SSANewInstruction instruction) {
+      if (instruction.getExceptionTypes() == JavaLanguage.getNewSafeArrayExceptions()) {
+        emit(NEW_SAFE_ARRAY);
+      } else {
+        emit(NEW);
+      }
+      writeInt(instruction.getDef());
+      writeInt(instruction.getNewSite().getProgramCounter());
+      writeType(instruction.getNewSite().getDeclaredType());
+      writeUses(instruction);
+    }
+
+    @Override
+    public void visitPut(SSAPutInstruction instruction) {
+      if (instruction.isStatic()) {
+        emit(PUT_STATIC);
+      } else {
+        emit(PUT);
+        writeInt(instruction.getRef());
+      }
+      writeInt(instruction.getVal());
+      writeField(instruction.getDeclaredField());
+    }
+
+    @Override
+    public void visitReturn(SSAReturnInstruction instruction) {
+      if (instruction.returnsVoid()) {
+        emit(RETURN_VOID);
+      } else {
+        emit(RETURN);
+        writeInt(instruction.getResult());
+        writeInt(instruction.returnsPrimitiveType() ? 1 : 0);
+      }
+    }
+
+    @Override
+    public void visitSwitch(SSASwitchInstruction instruction) {
+      emit(SWITCH);
+      writeInt(instruction.getUse(0));
+      writeInt(instruction.getDefault());
+      writeInts(instruction.getCasesAndLabels());
+    }
+
+    @Override
+    public void visitThrow(SSAThrowInstruction instruction) {
+      emit(THROW);
+      writeInt(instruction.getException());
+    }
+
+    @Override
+    public void visitUnaryOp(SSAUnaryOpInstruction instruction) {
+      if (!(instruction.getOpcode() instanceof IUnaryOpInstruction.Operator)) {
+        return;
+      }
+      emit(UNARY_OP);
+      writeInt(((IUnaryOpInstruction.Operator) instruction.getOpcode()).ordinal());
+      writeInt(instruction.getDef());
+      writeInt(instruction.getUse(0));
+    }
+  }
+
+  private static class Decoder {
+
+    private final IBytecodeMethod<IInstruction> method;
+
+    private final SSAOptions options;
+
+    private final ByteBuffer in;
+
+    private final Map<String, ClassLoaderReference> loaders = HashMapFactory.make();
+
+    private String[] pool;
+
+    Decoder(IBytecodeMethod<IInstruction> method, SSAOptions options, ByteBuffer in) {
+      this.method = method;
+      this.options = options;
+      this.in = in;
+      for (IClassLoader loader : method.getClassHierarchy().getLoaders()) {
+        loaders.put(loader.getReference().getName().toString(), loader.getReference());
+      }
+    }
+
+    IR decode() throws InvalidClassFileException {
+      pool = new String[readInt()];
+      for (int i = 0; i < pool.length; i++) {
+        char[] chars = new char[readInt()];
+        for (int j = 0; j < chars.length; j++) {
+          chars[j] = (char) readInt();
+        }
+        pool[i] = new String(chars);
+      }
+
+      int nInstructions = readInt();
+      if (nInstructions != method.getInstructions().length) {
+        return null;
+      }
+      ShrikeCFG shrikeCFG = ShrikeCFG.make(method);
+      SSAInstruction[] instructions = new SSAInstruction[nInstructions];
+      SSACFG cfg = new SSACFG(method, shrikeCFG, instructions);
+      SSAInstructionFactory insts = method.getDeclaringClass().getClassLoader().getInstructionFactory();
+
+      SymbolTable symbolTable = new SymbolTable(method.getNumberOfParameters());
+      int max = readInt();
+      if (max > symbolTable.getMaxValueNumber()) {
+        symbolTable.ensureSymbol(max);
+      }
+      IntObjectHashMap<SSAPhiInstruction> phis = new IntObjectHashMap<>();
+      for (int count = readInt(); count > 0; count--) {
+        int vn = readInt();
+        switch (readInt()) {
+        case VALUE_CONSTANT:
+          symbolTable.restoreConstant(vn, new ConstantValue(readConstant()));
+          break;
+        case VALUE_PHI:
+          SSAPhiInstruction phi = new SSAPhiInstruction(SSAInstruction.NO_INDEX, vn, readInts());
+          symbolTable.restorePhi(phi);
+          phis.put(vn, phi);
+          break;
+        default:
+          throw new IllegalArgumentException("bad value kind");
+        }
+      }
+
+      if (readInt() != cfg.getNumberOfNodes()) {
+        return null;
+      }
+      for (int b = 0; b < cfg.getNumberOfNodes(); b++) {
+        SSACFG.BasicBlock bb = cfg.getNode(b);
+        int nPhis = readInt();
+        for (int i = 0; i < nPhis; i++) {
+          bb.addPhiForLocal(i, phis.get(readInt()));
+        }
+        int exception = readInt();
+        if (exception != -1) {
+          ((SSACFG.ExceptionHandlerBasicBlock) bb).setCatchInstruction(insts.GetCaughtExceptionInstruction(SSAInstruction.NO_INDEX, b,
+              exception));
+        }
+      }
+
+      for (int i = 0; i < nInstructions; i++) {
+        instructions[i] = readInstruction(insts);
+      }
+
+      SSA2LocalMap localMap = null;
+      if (readInt() == 1) {
+        IntPair[] localStoreMap = new IntPair[readInt()];
+        for (int i = readInt(); i != -1; i = readInt()) {
+          localStoreMap[i] = new IntPair(readInt(), readInt());
+        }
+        int[][] block2LocalState = new int[readInt()][];
+        for (int i = 0; i < block2LocalState.length; i++) {
+          block2LocalState[i] = readInts();
+        }
+        localMap = new SSA2LocalMap(shrikeCFG, localStoreMap, block2LocalState);
+      }
+
+      return new RestoredIR(method, instructions, symbolTable, cfg, options, localMap);
+    }
+
+    private SSAInstruction readInstruction(SSAInstructionFactory insts) {
+      if (readInt() == 0) {
+        return null;
+      }
+      int iindex = readInt();
+      int tag = readInt();
+      switch (tag) {
+      case ARRAY_LENGTH:
+        return insts.ArrayLengthInstruction(iindex, readInt(), readInt());
+      case ARRAY_LOAD:
+        return insts.ArrayLoadInstruction(iindex, readInt(), readInt(), readInt(), readType());
+      case ARRAY_STORE:
+        return insts.ArrayStoreInstruction(iindex, readInt(), readInt(), readInt(), readType());
+      case BINARY_OP:
+      case SHIFT_OP: {
+        IBinaryOpInstruction.IOperator op = tag == BINARY_OP ? IBinaryOpInstruction.Operator.values()[readInt()]
+            : IShiftInstruction.Operator.values()[readInt()];
+        return insts.BinaryOpInstruction(iindex, op, false, false, readInt(), readInt(), readInt(), readInt() == 1);
+      }
+      case CHECK_CAST: {
+        int result = readInt();
+        int val = readInt();
+        boolean isPEI = readInt() == 1;
+        TypeReference[] types = new TypeReference[readInt()];
+        for (int i = 0; i < types.length; i++) {
+          types[i] = readType();
+        }
+        return insts.CheckCastInstruction(iindex, result, val, types, isPEI);
+      }
+      case COMPARISON:
+        return insts.ComparisonInstruction(iindex, IComparisonInstruction.Operator.values()[readInt()], readInt(), readInt(), readInt());
+      case CONDITIONAL_BRANCH:
+        return insts.ConditionalBranchInstruction(iindex, IConditionalBranchInstruction.Operator.values()[readInt()], readType(),
+            readInt(), readInt(), readInt());
+      case CONVERSION:
+        return insts.ConversionInstruction(iindex, readInt(), readInt(), readType(), readType(), false);
+      case GET: {
+        int ref = readInt();
+        return insts.GetInstruction(iindex, readInt(), ref, readField());
+      }
+      case GET_STATIC:
+        return insts.GetInstruction(iindex, readInt(), readField());
+      case GOTO:
+        return insts.GotoInstruction(iindex, readInt());
+      case INSTANCEOF:
+        return insts.InstanceofInstruction(iindex, readInt(), readInt(), readType());
+      case INVOKE: {
+        int pc = readInt();
+        IInvokeInstruction.Dispatch code = IInvokeInstruction.Dispatch.values()[readInt()];
+        CallSiteReference site = CallSiteReference.make(pc, readMethod(), code);
+        int result = readInt();
+        int exception = readInt();
+        int[] params = readInts();
+        return result == -1 ? insts.InvokeInstruction(iindex, params, exception, site, null) : insts.InvokeInstruction(iindex, result,
+            params, exception, site, null);
+      }
+      case LOAD_METADATA:
+        return insts.LoadMetadataInstruction(iindex, readInt(), readType(), readType());
+      case MONITOR:
+        return insts.MonitorInstruction(iindex, readInt(), readInt() == 1);
+      case NEW:
+      case NEW_SAFE_ARRAY: {
+        int result = readInt();
+        NewSiteReference site = NewSiteReference.make(readInt(), readType());
+        int[] params = readInts();
+        if (tag == NEW_SAFE_ARRAY) {
+          // as in ShrikeIRFactory, which proves that these allocations cannot throw NegativeArraySizeException
+          return new SSANewInstruction(iindex, result, site, params) {
+            @Override
+            public Collection<TypeReference> getExceptionTypes() {
+              return JavaLanguage.getNewSafeArrayExceptions();
+            }
+          };
+        }
+        return params.length == 0 ? insts.NewInstruction(iindex, result, site) : insts.NewInstruction(iindex, result, site, params);
+      }
+      case PUT: {
+        int ref = readInt();
+        return insts.PutInstruction(iindex, ref, readInt(), readField());
+      }
+      case PUT_STATIC:
+        return insts.PutInstruction(iindex, readInt(), readField());
+      case RETURN:
+        return insts.ReturnInstruction(iindex, readInt(), readInt() == 1);
+      case RETURN_VOID:
+        return insts.ReturnInstruction(iindex);
+      case SWITCH:
+        return insts.SwitchInstruction(iindex, readInt(), readInt(), readInts());
+      case THROW:
+        return insts.ThrowInstruction(iindex, readInt());
+      case UNARY_OP:
+        return insts.UnaryOpInstruction(iindex, IUnaryOpInstruction.Operator.values()[readInt()], readInt(), readInt());
+      default:
+        throw new IllegalArgumentException("bad instruction tag " + tag);
+      }
+    }
+
+    private int readInt() {
+      int v = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = in.get();
+        v |= (b & 0x7F) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0);
+      return (v >>> 1) ^ -(v & 1);
+    }
+
+    private long readLong() {
+      long high = readInt();
+      return (high << 32) | (readInt() & 0xFFFFFFFFL);
+    }
+
+    private int[] readInts() {
+      int n = readInt();
+      if (n == -1) {
+        return null;
+      }
+      int[] result = new int[n];
+      for (int i = 0; i < n; i++) {
+        result[i] = readInt();
+      }
+      return result;
+    }
+
+    private String readString() {
+      return pool[readInt()];
+    }
+
+    private TypeReference readType() {
+      int loader = readInt();
+      if (loader == -1) {
+        return null;
+      }
+      ClassLoaderReference ref = loaders.get(pool[loader]);
+      if (ref == null) {
+        throw new IllegalArgumentException("unknown loader " + pool[loader]);
+      }
+      return TypeReference.findOrCreate(ref, readString());
+    }
+
+    private FieldReference readField() {
+      TypeReference declaringClass = readType();
+      Atom name = Atom.findOrCreateUnicodeAtom(readString());
+      return FieldReference.findOrCreate(declaringClass, name, readType());
+    }
+
+    private MethodReference readMethod() {
+      TypeReference declaringClass = readType();
+      return MethodReference.findOrCreate(declaringClass, Selector.make(readString()));
+    }
+
+    private Object readConstant() {
+      switch (readInt()) {
+      case CONSTANT_NULL:
+        return null;
+      case CONSTANT_INT:
+        return Integer.valueOf(readInt());
+      case CONSTANT_LONG:
+        return Long.valueOf(readLong());
+      case CONSTANT_FLOAT:
+        return Float.valueOf(Float.intBitsToFloat(readInt()));
+      case CONSTANT_DOUBLE:
+        return Double.valueOf(Double.longBitsToDouble(readLong()));
+      case CONSTANT_STRING:
+        return readString();
+      case CONSTANT_BOOLEAN:
+        return Boolean.valueOf(readInt() == 1);
+      default:
+        throw new IllegalArgumentException("bad constant kind");
+      }
+    }
+  }
+
+  /**
+   * an IR restored from a record; behaves like the IRs built by {@link com.ibm.wala.classLoader.ShrikeIRFactory}
+   */
+  private static class RestoredIR extends IR {
+
+    private final IBytecodeMethod<IInstruction> bytecodeMethod;
+
+    private final SSA2LocalMap localMap;
+
+    private final ShrikeIndirectionData indirectionData;
+
+    RestoredIR(IBytecodeMethod<IInstruction> method, SSAInstruction[] instructions, SymbolTable symbolTable, SSACFG cfg,
+        SSAOptions options, SSA2LocalMap localMap) {
+      super(method, instructions, symbolTable, cfg, options);
+      this.bytecodeMethod = method;
+      this.localMap = localMap;
+      this.indirectionData = new ShrikeIndirectionData(instructions.length);
+      setupLocationMap();
+    }
+
+    @Override
+    protected String instructionPosition(int instructionIndex) {
+      try {
+        int lineNumber = bytecodeMethod.getLineNumber(bytecodeMethod.getBytecodeIndex(instructionIndex));
+        return lineNumber == -1 ? "" : "(line " + lineNumber + ')';
+      } catch (InvalidClassFileException e) {
+        return "";
+      }
+    }
+
+    @Override
+    protected SSA2LocalMap getLocalMap() {
+      return localMap;
+    }
+
+    @Override
+    protected <T extends SSAIndirectionData.Name> SSAIndirectionData<T> getIndirectionData() {
+      // records hold no indirections, so the data is empty and holds no names of any type
+      @SuppressWarnings("unchecked")
+      SSAIndirectionData<T> result = (SSAIndirectionData<T>) (SSAIndirectionData<?>) indirectionData;
+      return result;
+    }
+  }
+}
@@ -11,9 +11,8 @@
 package com.ibm.wala.ssa;
 
 import java.util.Arrays;
-import java.util.HashMap;
 
-import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.ObjectIntHashMap;
 import com.ibm.wala.util.debug.Assertions;
 
 /**
@@ -35,7 +34,7 @@ public class SymbolTable implements Cloneable {
   /**
    * Mapping from Constant -&gt; value number
    */
-  private HashMap<ConstantValue, Integer> constants = HashMapFactory.make(10);
+  private ObjectIntHashMap<ConstantValue> constants = new ObjectIntHashMap<>(10, -1);
 
   private boolean copy = false;
   
@@ -76,18 +75,17 @@ public class SymbolTable implements Cloneable {
    */
   int findOrCreateConstant(Object o) {
     ConstantValue v = new ConstantValue(o);
-    Integer result = constants.get(v);
-    if (result == null) {
+    int result = constants.get(v);
+    if (result == -1) {
       assert ! copy : "making value for " + o;
-      int r = getNewValueNumber();
-      result = Integer.valueOf(r);
+      result = getNewValueNumber();
       constants.put(v, result);
-      assert r < nextFreeValueNumber;
-      values[r] = v;
+      assert result < nextFreeValueNumber;
+      values[result] = v;
     } else {
-      assert values[result.intValue()] instanceof ConstantValue;
+      assert values[result] instanceof ConstantValue;
     }
-    return result.intValue();
+    return result;
 
   }
 
@@ -100,6 +98,23 @@ public class SymbolTable implements Cloneable {
     }
   }
 
+  /**
+   * record a constant for a value number that has already been allocated; used when restoring a persisted IR
+   */
+  void restoreConstant(int vn, ConstantValue val) {
+    assert vn < nextFreeValueNumber;
+    values[vn] = val;
+    constants.put(val, vn);
+  }
+
+  /**
+   * record a phi for a value number that has already been allocated; used when restoring a persisted IR
+   */
+  void restorePhi(SSAPhiInstruction phi) {
+    assert phi.getDef() < nextFreeValueNumber;
+    values[phi.getDef()] = new PhiValue(phi);
+  }
+
   private Object[] defaultValues;
   
   /**
@@ -444,7 +459,7 @@ public class SymbolTable implements Cloneable {
       if (this.defaultValues != null) {
         nt.defaultValues = this.defaultValues.clone();
       }
-      nt.constants = HashMapFactory.make(this.constants);
+      nt.constants = new ObjectIntHashMap<>(this.constants);
       nt.copy = true;
       return nt;
     } catch (CloneNotSupportedException e) {
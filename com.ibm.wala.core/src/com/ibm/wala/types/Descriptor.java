@@ -11,9 +11,9 @@
 package com.ibm.wala.types;
 
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.ibm.wala.classLoader.Language;
-import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.strings.ImmutableByteArray;
 import com.ibm.wala.util.strings.StringStuff;
 import com.ibm.wala.util.strings.UTF8Convert;
@@ -26,9 +26,9 @@ import com.ibm.wala.util.strings.UTF8Convert;
 public final class Descriptor {
 
   /**
-   * A mapping from Key -&gt; Descriptor
+   * A mapping from Key -&gt; Descriptor; concurrent, since class files may be parsed on several threads
    */
-  private static final Map<Key, Descriptor> map = HashMapFactory.make();
+  private static final Map<Key, Descriptor> map = new ConcurrentHashMap<>();
 
   /**
    * key holds the logical value of this descriptor
@@ -48,12 +48,7 @@ public final class Descriptor {
       parameters = null;
     }
     Key k = new Key(returnType, parameters);
-    Descriptor result = map.get(k);
-    if (result == null) {
-      result = new Descriptor(k);
-      map.put(k, result);
-    }
-    return result;
+    return map.computeIfAbsent(k, Descriptor::new);
   }
 
   /**
@@ -64,12 +59,7 @@ public final class Descriptor {
     TypeName returnType = StringStuff.parseForReturnTypeName(l, b);
     TypeName[] parameters = StringStuff.parseForParameterNames(l, b);
     Key k = new Key(returnType, parameters);
-    Descriptor result = map.get(k);
-    if (result == null) {
-      result = new Descriptor(k);
-      map.put(k, result);
-    }
-    return result;
+    return map.computeIfAbsent(k, Descriptor::new);
   }
 
   public static Descriptor findOrCreate(ImmutableByteArray b) throws IllegalArgumentException {
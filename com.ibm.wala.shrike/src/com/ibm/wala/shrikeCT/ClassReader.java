@@ -10,13 +10,18 @@
  */
 package com.ibm.wala.shrikeCT;
 
+import java.nio.ByteBuffer;
+
 /**
  * This is the core class for reading class file data.
  * 
  * ClassReader performs lazy parsing, and thus most of the methods can throw an InvalidClassFileException.
  */
 public final class ClassReader implements ClassConstants {
-  private final byte[] bytes;
+  /**
+   * the class file data, from position 0 to the limit
+   */
+  private final ByteBuffer bytes;
 
   private int[] methodOffsets;
 
@@ -40,14 +45,26 @@ public final class ClassReader implements ClassConstants {
    * @throws InvalidClassFileException the class file data is corrupt
    */
   public ClassReader(byte[] bytes) throws InvalidClassFileException {
-    this.bytes = bytes;
+    this(ByteBuffer.wrap(bytes));
+  }
+
+  /**
+   * Build a reader on the remaining bytes of a buffer, e.g. a view of a memory-mapped file. The data is not copied, so the
+   * buffer contents must not change while the reader is in use. The position of the buffer is not changed.
+   * 
+   * @param bytes the class file data
+   * @throws InvalidClassFileException the class file data is corrupt
+   */
+  public ClassReader(ByteBuffer bytes) throws InvalidClassFileException {
+    // a slice is big-endian, as is the class file format
+    this.bytes = bytes.slice();
     parse();
   }
 
   private void checkLength(int offset, int required) throws InvalidClassFileException {
-    if (bytes.length < offset + required) {
+    if (bytes.limit() < offset + required) {
       throw new InvalidClassFileException(offset, "file truncated, expected " + required + " bytes, saw only "
-          + (bytes.length - offset));
+          + (bytes.limit() - offset));
     }
   }
 
@@ -103,7 +120,7 @@ public final class ClassReader implements ClassConstants {
     int attrCount = getUShort(offset);
     offset = skipAttributes(offset + 2, attrCount);
 
-    if (offset != bytes.length) {
+    if (offset != bytes.limit()) {
       throw new InvalidClassFileException(offset, "extra data in class file");
     }
   }
@@ -149,10 +166,39 @@ public final class ClassReader implements ClassConstants {
   }
 
   /**
-   * @return the raw class data bytes
+   * @return the raw class data bytes. If the reader was not built from a byte array, this copies the data; use
+   *         {@link #getBytes(int, byte[], int, int)} to copy only part of it.
    */
   public byte[] getBytes() {
-    return bytes;
+    if (bytes.hasArray() && bytes.arrayOffset() == 0 && bytes.array().length == bytes.limit()) {
+      return bytes.array();
+    }
+    byte[] result = new byte[bytes.limit()];
+    getBytes(0, result, 0, result.length);
+    return result;
+  }
+
+  /**
+   * copy len bytes of class data starting at offset into dst, starting at dstOffset
+   */
+  public void getBytes(int offset, byte[] dst, int dstOffset, int len) {
+    ByteBuffer b = bytes.duplicate();
+    b.position(offset);
+    b.get(dst, dstOffset, len);
+  }
+
+  /**
+   * @return the class data, as a read-only buffer from position 0
+   */
+  public ByteBuffer getBuffer() {
+    return bytes.asReadOnlyBuffer();
+  }
+
+  /**
+   * @return the length of the class data, in bytes
+   */
+  public int getLength() {
+    return bytes.limit();
   }
 
   /**
@@ -302,35 +348,35 @@ public final class ClassReader implements ClassConstants {
    * @return the signed 32-bit value at offset i in the class data
    */
   public int getInt(int i) {
-    return (bytes[i] << 24) + ((bytes[i + 1] & 0xFF) << 16) + ((bytes[i + 2] & 0xFF) << 8) + (bytes[i + 3] & 0xFF);
+    return bytes.getInt(i);
   }
 
   /**
    * @return the unsigned 16-bit value at offset i in the class data
    */
   public int getUShort(int i) {
-    return ((bytes[i] & 0xFF) << 8) + (bytes[i + 1] & 0xFF);
+    return bytes.getShort(i) & 0xFFFF;
   }
 
   /**
    * @return the signed 16-bit value at offset i in the class data
    */
   public int getShort(int i) {
-    return (bytes[i] << 8) + (bytes[i + 1] & 0xFF);
+    return bytes.getShort(i);
   }
 
   /**
    * @return the signed 8-bit value at offset i in the class data
    */
   public byte getByte(int i) {
-    return bytes[i];
+    return bytes.get(i);
   }
   
   /**
    * @return the unsigned 8-bit value at offset i in the class data
    */
   public int getUnsignedByte(int i) {
-    return bytes[i] & 0xff;
+    return bytes.get(i) & 0xff;
   }
 
   /**
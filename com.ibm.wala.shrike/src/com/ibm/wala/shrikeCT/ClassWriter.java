@@ -785,7 +785,7 @@ public class ClassWriter implements ClassConstants {
     if (rawCP != null) {
       int len = rawCP.getRawSize();
       int offset = reserveBuf(len);
-      System.arraycopy(rawCP.getRawBytes(), rawCP.getRawOffset(), buf, offset, len);
+      rawCP.getRawBytes(buf, offset);
     }
 
     char[] chars = noChars;
@@ -10,6 +10,8 @@
  */
 package com.ibm.wala.shrikeCT;
 
+import java.nio.ByteBuffer;
+
 import com.ibm.wala.shrikeCT.BootstrapMethodsReader.BootstrapMethod;
 import com.ibm.wala.shrikeCT.ClassReader.AttrIterator;
 
@@ -87,7 +89,10 @@ public final class ConstantPoolParser implements ClassConstants {
     }
   }
 
-  final private byte[] bytes;
+  /**
+   * the class file data, from position 0 to the limit
+   */
+  final private ByteBuffer bytes;
 
   private int[] cpOffsets;
 
@@ -121,6 +126,15 @@ public final class ConstantPoolParser implements ClassConstants {
    * @param itemCount the number of items in the pool
    */
   public ConstantPoolParser(byte[] bytes, int offset, int itemCount) throws InvalidClassFileException {
+    this(ByteBuffer.wrap(bytes), offset, itemCount);
+  }
+
+  /**
+   * @param bytes the raw class file data, from position 0 to the limit; not copied
+   * @param offset the start of the constant pool data
+   * @param itemCount the number of items in the pool
+   */
+  public ConstantPoolParser(ByteBuffer bytes, int offset, int itemCount) throws InvalidClassFileException {
     this.bytes = bytes;
     if (offset < 0) {
       throw new IllegalArgumentException("invalid offset: " + offset);
@@ -132,10 +146,25 @@ public final class ConstantPoolParser implements ClassConstants {
   }
 
   /**
-   * @return the buffer holding the raw class file data
+   * @return the buffer holding the raw class file data. If the parser was not built from a byte array, this copies the data; use
+   *         {@link #getRawBytes(byte[], int)} to copy just the constant pool.
    */
   public byte[] getRawBytes() {
-    return bytes;
+    if (bytes.hasArray() && bytes.arrayOffset() == 0 && bytes.array().length == bytes.limit()) {
+      return bytes.array();
+    }
+    byte[] result = new byte[bytes.limit()];
+    bytes.duplicate().get(result);
+    return result;
+  }
+
+  /**
+   * copy the raw constant pool data, see {@link #getRawOffset()} and {@link #getRawSize()}, into dst, starting at dstOffset
+   */
+  public void getRawBytes(byte[] dst, int dstOffset) {
+    ByteBuffer b = bytes.duplicate();
+    b.position(getRawOffset());
+    b.get(dst, dstOffset, getRawSize());
   }
 
   /**
@@ -166,9 +195,9 @@ public final class ConstantPoolParser implements ClassConstants {
   }
 
   private void checkLength(int offset, int required) throws InvalidClassFileException {
-    if (bytes.length < offset + required) {
+    if (bytes.limit() < offset + required) {
       throw new InvalidClassFileException(offset, "file truncated, expected " + required + " bytes, saw only "
-          + (bytes.length - offset));
+          + (bytes.limit() - offset));
     }
   }
 
@@ -649,11 +678,11 @@ public final class ConstantPoolParser implements ClassConstants {
   }
 
   private byte getByte(int i) {
-    return bytes[i];
+    return bytes.get(i);
   }
 
   private int getUShort(int i) {
-    return ((bytes[i] & 0xFF) << 8) + (bytes[i + 1] & 0xFF);
+    return bytes.getShort(i) & 0xFFFF;
   }
 
   // private short getShort(int i) {
@@ -661,7 +690,7 @@ public final class ConstantPoolParser implements ClassConstants {
   // }
 
   private int getInt(int i) {
-    return (bytes[i] << 24) + ((bytes[i + 1] & 0xFF) << 16) + ((bytes[i + 2] & 0xFF) << 8) + (bytes[i + 3] & 0xFF);
+    return bytes.getInt(i);
   }
 
   private long getLong(int i) {
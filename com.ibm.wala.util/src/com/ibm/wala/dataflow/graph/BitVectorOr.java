@@ -37,16 +37,9 @@ public class BitVectorOr extends UnaryOperator<BitVectorVariable> {
     if (rhs == null) {
       throw new IllegalArgumentException("rhs == null");
     }
-    BitVectorVariable U = new BitVectorVariable();
-    U.copyState(lhs);
-    U.addAll(rhs);
-    U.addAll(v);
-    if (!lhs.sameValue(U)) {
-      lhs.copyState(U);
-      return CHANGED;
-    } else {
-      return NOT_CHANGED;
-    }
+    boolean changed = lhs.addAll(rhs);
+    changed |= lhs.addAll(v);
+    return changed ? CHANGED : NOT_CHANGED;
   }
 
   @Override
@@ -55,16 +55,11 @@ public class BitVectorUnion extends AbstractMeetOperator<BitVectorVariable> {
     if (rhs == null) {
       throw new IllegalArgumentException("rhs == null");
     }
-    BitVectorVariable U = new BitVectorVariable();
-    U.copyState(lhs);
+    // union in place; each addAll reports whether it changed lhs, so there is no need to compare with the old value
+    boolean changed = false;
     for (BitVectorVariable R : rhs) {
-      U.addAll(R);
-    }
-    if (!lhs.sameValue(U)) {
-      lhs.copyState(U);
-      return CHANGED;
-    } else {
-      return NOT_CHANGED;
+      changed |= lhs.addAll(R);
     }
+    return changed ? CHANGED : NOT_CHANGED;
   }
 }
@@ -34,16 +34,12 @@ public class BitVectorUnionConstant extends UnaryOperator<BitVectorVariable> {
     if (lhs == null) {
       throw new IllegalArgumentException("lhs == null");
     }
-    BitVectorVariable U = new BitVectorVariable();
-    U.copyState(lhs);
-    U.addAll(rhs);
-    U.set(c);
-    if (!lhs.sameValue(U)) {
-      lhs.copyState(U);
-      return CHANGED;
-    } else {
-      return NOT_CHANGED;
+    boolean changed = lhs.addAll(rhs);
+    if (!lhs.get(c)) {
+      lhs.set(c);
+      changed = true;
     }
+    return changed ? CHANGED : NOT_CHANGED;
   }
 
   @Override
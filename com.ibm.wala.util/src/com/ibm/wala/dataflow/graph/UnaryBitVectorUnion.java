@@ -35,15 +35,10 @@ public class UnaryBitVectorUnion extends UnaryOperator<BitVectorVariable> {
       throw new IllegalArgumentException("lhs == null");
     }
 
-    BitVectorVariable U = new BitVectorVariable();
-    U.copyState(lhs);
-    U.addAll(rhs);
-    if (lhs.sameValue(U)) {
-      return NOT_CHANGED;
-    } else {
-      lhs.copyState(U);
-      return CHANGED;
+    if (rhs == null) {
+      throw new IllegalArgumentException("rhs == null");
     }
+    return lhs.addAll(rhs) ? CHANGED : NOT_CHANGED;
   }
 
   @Override
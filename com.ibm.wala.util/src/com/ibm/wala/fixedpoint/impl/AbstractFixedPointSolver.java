@@ -10,13 +10,16 @@
  */
 package com.ibm.wala.fixedpoint.impl;
 
+import java.util.EnumMap;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.Map;
 
 import com.ibm.wala.fixpoint.AbstractOperator;
 import com.ibm.wala.fixpoint.AbstractStatement;
 import com.ibm.wala.fixpoint.FixedPointConstants;
 import com.ibm.wala.fixpoint.IFixedPointSolver;
+import com.ibm.wala.fixpoint.IFixedPointSolverListener;
 import com.ibm.wala.fixpoint.IFixedPointStatement;
 import com.ibm.wala.fixpoint.IVariable;
 import com.ibm.wala.fixpoint.UnaryOperator;
@@ -93,16 +96,31 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<T>> implement
    */
   private int nCreated = 0;
 
+  /**
+   * the order in which the worklist hands out statements
+   */
+  private WorklistStrategy worklistStrategy = WorklistStrategy.PRIORITY;
+
+  /**
+   * strategy ordinal -&gt; number of dataflow equations evaluated while that strategy was in use
+   */
+  private final int[] evaluationsByStrategy = new int[WorklistStrategy.values().length];
+
   /**
    * worklist for the iterative solver
    */
-  protected Worklist workList = new Worklist();
+  protected Worklist workList = new Worklist(worklistStrategy);
 
   /**
    * A boolean which is initially true, but set to false after the first call to solve();
    */
   private boolean firstSolve = true;
 
+  /**
+   * receives solver events; null if nobody is listening
+   */
+  private IFixedPointSolverListener<T> listener;
+
   protected abstract T[] makeStmtRHS(int size);
   
   /**
@@ -115,6 +133,13 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<T>> implement
     firstSolve = false;
   }
 
+  /**
+   * @return true iff {@link #initForFirstSolve()} has not been performed yet
+   */
+  public boolean isFirstSolve() {
+    return firstSolve;
+  }
+
   /**
    * @return true iff work list is empty
    */
@@ -149,17 +174,8 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<T>> implement
       if (DEBUG) {
         System.err.println(("Before evaluation " + s));
       }
-      byte code = s.evaluate();
-      nEvaluated++;
-      if (verbose) {
-        if (nEvaluated % getVerboseInterval() == 0) {
-          performVerboseAction();
-        }
-        if (nEvaluated % getPeriodicMaintainInterval() == 0) {
-          periodicMaintenance();
-        }
-
-      }
+      byte code = evaluate(s);
+      statementEvaluated(s, code);
       if (DEBUG) {
         System.err.println(("After evaluation  " + s + ' ' + isChanged(code)));
       }
@@ -174,11 +190,19 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<T>> implement
     return globalChange;
   }
 
+  /**
+   * evaluate a statement taken from the worklist. Subclasses may override this to evaluate it differently, e.g. together with
+   * related statements; those must then add the uses of the other variables they change to the worklist themselves.
+   */
+  protected byte evaluate(AbstractStatement<T, ?> s) {
+    return s.evaluate();
+  }
+
   @Override
   public void performVerboseAction() {
     System.err.println("Evaluated " + nEvaluated);
     System.err.println("Created   " + nCreated);
-    System.err.println("Worklist  " + workList.size());
+    System.err.println("Worklist  " + workList.size() + " (" + worklistStrategy + ")");
     if (MORE_VERBOSE) {
       if (!workList.isEmpty()) {
         AbstractStatement<?, ?> s = workList.takeStatement();
@@ -288,10 +312,17 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<T>> implement
 
   @SuppressWarnings("unchecked")
   private void incorporateNewStatement(boolean toWorkList, boolean eager, AbstractStatement s) {
+    if (listener != null) {
+      listener.statementCreated(s);
+    }
     if (eager) {
       byte code = s.evaluate();
+      if (listener != null) {
+        listener.statementEvaluated(s, code, workList.size());
+      }
       if (verbose) {
         nEvaluated++;
+        evaluationsByStrategy[worklistStrategy.ordinal()]++;
         if (nEvaluated % getVerboseInterval() == 0) {
           performVerboseAction();
         }
@@ -474,7 +505,13 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<T>> implement
         System.err.println("Reorder " + nEvaluated + ' ' + nCreated);
       }
     }
-    reorder();
+    if (listener != null) {
+      long start = System.nanoTime();
+      reorder();
+      listener.statementsReordered(System.nanoTime() - start);
+    } else {
+      reorder();
+    }
     if (verbose) {
       if (nEvaluated > 0) {
         System.err.println("Reorder finished " + nEvaluated + ' ' + nCreated);
@@ -507,17 +544,43 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<T>> implement
    */
   private void reorder() {
     // drain the worklist
+    LinkedList<AbstractStatement> temp = drainWorkList();
+
+    // compute new ordering
+    getFixedPointSystem().reorder();
+
+    // re-populate worklist; it is kept, so that strategies which remember past evaluations still do
+    for (AbstractStatement s : temp) {
+      workList.insertStatement(s);
+    }
+  }
+
+  private LinkedList<AbstractStatement> drainWorkList() {
     LinkedList<AbstractStatement> temp = new LinkedList<>();
     while (!workList.isEmpty()) {
       AbstractStatement eq = workList.takeStatement();
       temp.add(eq);
     }
-    workList = new Worklist();
+    return temp;
+  }
 
-    // compute new ordering
-    getFixedPointSystem().reorder();
+  public WorklistStrategy getWorklistStrategy() {
+    return worklistStrategy;
+  }
 
-    // re-populate worklist
+  /**
+   * Change the order in which statements are evaluated. Statements already on the worklist move to the new one.
+   */
+  public final void setWorklistStrategy(WorklistStrategy strategy) {
+    if (strategy == null) {
+      throw new IllegalArgumentException("strategy is null");
+    }
+    if (strategy == worklistStrategy) {
+      return;
+    }
+    LinkedList<AbstractStatement> temp = drainWorkList();
+    worklistStrategy = strategy;
+    workList = new Worklist(strategy);
     for (AbstractStatement s : temp) {
       workList.insertStatement(s);
     }
@@ -565,6 +628,57 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<T>> implement
 
   public void incNumberOfEvaluations() {
     nEvaluated++;
+    evaluationsByStrategy[worklistStrategy.ordinal()]++;
+  }
+
+  /**
+   * account for the evaluation of a statement taken from the worklist, as {@link #solve(IProgressMonitor)} does: count it,
+   * report it to the listener, and perform the verbose action and periodic maintenance when due. Solvers that take statements
+   * from the worklist themselves should call this once per evaluation.
+   */
+  public void statementEvaluated(AbstractStatement<T, ?> s, byte code) {
+    incNumberOfEvaluations();
+    if (listener != null) {
+      listener.statementEvaluated(s, code, workList.size());
+    }
+    if (verbose) {
+      if (nEvaluated % getVerboseInterval() == 0) {
+        performVerboseAction();
+      }
+      if (nEvaluated % getPeriodicMaintainInterval() == 0) {
+        periodicMaintenance();
+      }
+    }
+  }
+
+  /**
+   * @return for each strategy that has been used, the number of dataflow equations evaluated under it; these add up to
+   *         {@link #getNumberOfEvaluations()}
+   */
+  public Map<WorklistStrategy, Integer> getEvaluationsByStrategy() {
+    Map<WorklistStrategy, Integer> result = new EnumMap<>(WorklistStrategy.class);
+    for (WorklistStrategy strategy : WorklistStrategy.values()) {
+      if (evaluationsByStrategy[strategy.ordinal()] > 0) {
+        result.put(strategy, evaluationsByStrategy[strategy.ordinal()]);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the listener receiving solver events, or null if none
+   */
+  public IFixedPointSolverListener<T> getListener() {
+    return listener;
+  }
+
+  /**
+   * register a listener for solver events, replacing any previous one
+   *
+   * @param listener the listener, or null to stop reporting events
+   */
+  public void setListener(IFixedPointSolverListener<T> listener) {
+    this.listener = listener;
   }
 
   /**
@@ -202,7 +202,7 @@ public class DefaultFixedPointSystem<T extends IVariable<T>> implements IFixedPo
       checkGraph();
     }
 
-    Iterator<INodeWithNumber> order = Topological.makeTopologicalIter(graph).iterator();
+    Iterator<INodeWithNumber> order = Topological.makeTopologicalOrder(graph).iterator();
     int number = 0;
     while (order.hasNext()) {
       Object elt = order.next();
@@ -16,34 +16,178 @@ import java.util.NoSuchElementException;
 import com.ibm.wala.fixpoint.AbstractStatement;
 import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Heap;
+import com.ibm.wala.util.collections.ObjectIntHashMap;
 
 /**
- * Worklist for fixed-point solver implementation
+ * Worklist for fixed-point solver implementation. The order in which statements come out is given by a
+ * {@link WorklistStrategy}; a statement already on the worklist is not added again.
+ *
+ * Every strategy orders the heap by a rank each statement gets when it is inserted, and then by order number. The rank does
+ * not change while the statement waits, so the heap stays consistent.
  */
 @SuppressWarnings("rawtypes")
 public class Worklist extends Heap<AbstractStatement> {
 
+  /**
+   * number of statements per generation of {@link #fired}
+   */
+  private static final int FIRED_GENERATION = 1 << 16;
+
   private final HashSet<AbstractStatement> contents = HashSetFactory.make();
 
+  private final WorklistStrategy strategy;
+
+  /**
+   * statement on the worklist -&gt; its rank: the sweep or phase it waits for, the time it last fired or the time it was
+   * inserted, depending on the strategy. Not used by {@link WorklistStrategy#PRIORITY}.
+   */
+  private final ObjectIntHashMap<AbstractStatement> rank = new ObjectIntHashMap<>(16, 0);
+
+  /**
+   * for {@link WorklistStrategy#TWO_PHASE_LRF}, statement on the worklist -&gt; time it last fired, which orders the
+   * statements of a phase; null for the other strategies
+   */
+  private final ObjectIntHashMap<AbstractStatement> lastFired;
+
+  /**
+   * for the LRF strategies, statement -&gt; time of its last evaluation; the clock starts at 1. Only this generation and the
+   * one before are kept, so the memory used is bounded. A statement that is forgotten, or has never fired, counts as 0: it
+   * fired before all those that are remembered.
+   */
+  private ObjectIntHashMap<AbstractStatement> fired = new ObjectIntHashMap<>(16, 0);
+
+  private ObjectIntHashMap<AbstractStatement> olderFired = new ObjectIntHashMap<>(16, 0);
+
+  /**
+   * number of statements taken, or for {@link WorklistStrategy#FIFO} inserted
+   */
+  private int clock = 0;
+
+  /**
+   * the current sweep or phase
+   */
+  private int round = 0;
+
+  /**
+   * order number of the last statement taken in this sweep
+   */
+  private int position = Integer.MIN_VALUE;
+
   public Worklist() {
+    this(WorklistStrategy.PRIORITY);
+  }
+
+  public Worklist(WorklistStrategy strategy) {
     super(100);
+    if (strategy == null) {
+      throw new IllegalArgumentException("strategy is null");
+    }
+    this.strategy = strategy;
+    this.lastFired = strategy == WorklistStrategy.TWO_PHASE_LRF ? new ObjectIntHashMap<>(16, 0) : null;
+  }
+
+  public WorklistStrategy getStrategy() {
+    return strategy;
   }
 
   @Override
   protected final boolean compareElements(AbstractStatement eq1, AbstractStatement eq2) {
+    if (strategy != WorklistStrategy.PRIORITY) {
+      int r1 = rank.get(eq1);
+      int r2 = rank.get(eq2);
+      if (r1 != r2) {
+        return r1 < r2;
+      }
+      if (lastFired != null) {
+        int t1 = lastFired.get(eq1);
+        int t2 = lastFired.get(eq2);
+        if (t1 != t2) {
+          return t1 < t2;
+        }
+      }
+    }
     return (eq1.getOrderNumber() < eq2.getOrderNumber());
   }
 
   public AbstractStatement takeStatement() throws NoSuchElementException {
-    AbstractStatement result = super.take();
+    AbstractStatement result = take();
     contents.remove(result);
     return result;
   }
-  
+
   public void insertStatement(AbstractStatement eq) {
     if (contents.add(eq)) {
-      super.insert(eq);
+      insert(eq);
     }
   }
 
+  @Override
+  public void insert(AbstractStatement eq) {
+    switch (strategy) {
+    case PRIORITY:
+      break;
+    case TOPOLOGICAL:
+      // a statement behind the current position waits for the next sweep
+      rank.put(eq, eq.getOrderNumber() > position ? round : round + 1);
+      break;
+    case LRF:
+      rank.put(eq, timeFired(eq));
+      break;
+    case TWO_PHASE_LRF:
+      // a statement added during a phase waits for the next one
+      rank.put(eq, round + 1);
+      lastFired.put(eq, timeFired(eq));
+      break;
+    case FIFO:
+      rank.put(eq, ++clock);
+      break;
+    default:
+      throw new IllegalStateException("unknown strategy " + strategy);
+    }
+    super.insert(eq);
+  }
+
+  @Override
+  public AbstractStatement take() throws NoSuchElementException {
+    AbstractStatement result = super.take();
+    switch (strategy) {
+    case PRIORITY:
+    case FIFO:
+      break;
+    case TOPOLOGICAL:
+      round = rank.get(result);
+      position = result.getOrderNumber();
+      break;
+    case LRF:
+      fire(result);
+      break;
+    case TWO_PHASE_LRF:
+      round = rank.get(result);
+      lastFired.remove(result);
+      fire(result);
+      break;
+    default:
+      throw new IllegalStateException("unknown strategy " + strategy);
+    }
+    rank.remove(result);
+    return result;
+  }
+
+  private int timeFired(AbstractStatement eq) {
+    int t = fired.get(eq);
+    return t != 0 ? t : olderFired.get(eq);
+  }
+
+  private void fire(AbstractStatement eq) {
+    if (fired.size() >= FIRED_GENERATION) {
+      olderFired = fired;
+      fired = new ObjectIntHashMap<>(16, 0);
+    }
+    fired.put(eq, ++clock);
+  }
+
+  @Override
+  public String toString() {
+    return strategy + " " + super.toString();
+  }
 }
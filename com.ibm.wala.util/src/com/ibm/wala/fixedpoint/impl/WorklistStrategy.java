@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.fixedpoint.impl;
+
+/**
+ * The order in which a {@link Worklist} hands out statements. In every strategy a statement is on the worklist at most once.
+ *
+ * Any order reaches the same fixed point only for monotone systems such as the pointer analysis; solvers whose operators
+ * depend on the order of evaluation, like the stack machine behind SSA construction, should keep {@link #PRIORITY}.
+ *
+ * See Hardekopf and Lin, The Ant and the Grasshopper, PLDI 2007, and Pereira and Berlin, Wave Propagation and Deep
+ * Propagation for Pointer Analysis, CGO 2009.
+ */
+public enum WorklistStrategy {
+  /**
+   * lowest order number first; order numbers follow a topological order of the system, refreshed from time to time
+   */
+  PRIORITY,
+
+  /**
+   * sweeps in topological order: statements are taken by order number, and a statement added behind the current position
+   * waits for the next sweep, so each sweep is one wave over the components of the system
+   */
+  TOPOLOGICAL,
+
+  /**
+   * least recently fired first: the statement whose last evaluation is oldest, or that has never been evaluated
+   */
+  LRF,
+
+  /**
+   * least recently fired first within a phase; statements added during a phase wait for the next one
+   */
+  TWO_PHASE_LRF,
+
+  /**
+   * first in, first out
+   */
+  FIFO;
+
+  /**
+   * name of the system property that chooses the default strategy of the pointer analysis; see
+   * {@code AnalysisOptions.setWorklistStrategy}
+   */
+  public static final String CONFIG_PROPERTY_NAME = "com.ibm.wala.fixedpoint.worklistStrategy";
+
+  /**
+   * @return the strategy named by the system property {@link #CONFIG_PROPERTY_NAME}, or {@link #PRIORITY}
+   */
+  public static WorklistStrategy getDefault() {
+    String name = System.getProperty(CONFIG_PROPERTY_NAME);
+    return name == null ? PRIORITY : valueOf(name);
+  }
+}
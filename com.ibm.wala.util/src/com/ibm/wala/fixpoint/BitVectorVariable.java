@@ -50,32 +50,38 @@ public class BitVectorVariable extends AbstractVariable<BitVectorVariable> {
 
   /**
    * Add all the bits in B to this bit vector
+   * 
+   * @return true iff the value of this variable changes
    */
-  public void addAll(BitVector B) {
+  public boolean addAll(BitVector B) {
     if (B == null) {
       throw new IllegalArgumentException("null B");
     }
     if (V == null) {
       V = new MutableSharedBitVectorIntSet(new BitVectorIntSet(B));
-      return;
+      return !V.isEmpty();
     } else {
-      V.addAll(new BitVectorIntSet(B));
+      return V.addAll(new BitVectorIntSet(B));
     }
   }
 
   /**
    * Add all the bits from other to this bit vector
+   * 
+   * @return true iff the value of this variable changes
    */
-  public void addAll(BitVectorVariable other) {
+  public boolean addAll(BitVectorVariable other) {
     if (other == null) {
       throw new IllegalArgumentException("null other");
     }
+    if (other == this || other.V == null) {
+      return false;
+    }
     if (V == null) {
       copyState(other);
+      return !V.isEmpty();
     } else {
-      if (other.V != null) {
-        V.addAll(other.V);
-      }
+      return V.addAll(other.V);
     }
   }
 
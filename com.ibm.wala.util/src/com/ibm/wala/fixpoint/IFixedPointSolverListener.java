@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.fixpoint;
+
+/**
+ * Receives events from an {@link IFixedPointSolver} as it runs, e.g. to collect metrics.
+ *
+ * Callbacks run on the solving thread, in the middle of the solver's inner loop, so implementations should be cheap. A solver
+ * with no listener pays only a null check per event.
+ */
+public interface IFixedPointSolverListener<T extends IVariable<T>> {
+
+  /**
+   * called when a new statement has been added to the system
+   */
+  default void statementCreated(@SuppressWarnings("unused") AbstractStatement<T, ?> s) {
+  }
+
+  /**
+   * called after each evaluation of a statement
+   *
+   * @param code the result of {@link AbstractStatement#evaluate()}, see {@link FixedPointConstants}
+   * @param worklistSize the number of statements left on the worklist
+   */
+  default void statementEvaluated(@SuppressWarnings("unused") AbstractStatement<T, ?> s, @SuppressWarnings("unused") byte code,
+      @SuppressWarnings("unused") int worklistSize) {
+  }
+
+  /**
+   * called after the solver has put the statements in topological order
+   *
+   * @param nanos time spent ordering
+   */
+  default void statementsReordered(@SuppressWarnings("unused") long nanos) {
+  }
+}
@@ -24,8 +24,31 @@ public abstract class IntSetVariable<T extends IntSetVariable<T>> extends Abstra
 
   MutableIntSet V;
 
+  /**
+   * called before every access to the value of this variable. Subclasses that keep the value elsewhere at times, e.g. on disk,
+   * restore it here with {@link #replaceValue(MutableIntSet)}.
+   */
+  protected void beforeAccess() {
+  }
+
+  /**
+   * @return the value of this variable as it is in memory, without calling {@link #beforeAccess()}
+   */
+  protected final MutableIntSet peekValue() {
+    return V;
+  }
+
+  /**
+   * replace the value of this variable, without calling {@link #beforeAccess()}
+   */
+  protected final void replaceValue(MutableIntSet value) {
+    V = value;
+  }
+
   @Override
   public void copyState(T other) {
+    beforeAccess();
+    other.beforeAccess();
     if (V == null) {
       if (other.V == null) {
         return;
@@ -46,6 +69,7 @@ public abstract class IntSetVariable<T extends IntSetVariable<T>> extends Abstra
    * @return true iff the value of this changes
    */
   public boolean addAll(IntSet B) {
+    beforeAccess();
     if (V == null) {
       V = IntSetUtil.getDefaultIntSetFactory().makeCopy(B);
       return (B.size() > 0);
@@ -61,6 +85,8 @@ public abstract class IntSetVariable<T extends IntSetVariable<T>> extends Abstra
    * @return true iff the contents of this variable changes.
    */
   public boolean addAll(T other) {
+    beforeAccess();
+    other.beforeAccess();
     if (V == null) {
       copyState(other);
       return (V != null);
@@ -75,6 +101,8 @@ public abstract class IntSetVariable<T extends IntSetVariable<T>> extends Abstra
   }
 
   public boolean sameValue(IntSetVariable other) {
+    beforeAccess();
+    other.beforeAccess();
     if (V == null) {
       return (other.V == null);
     } else {
@@ -88,6 +116,7 @@ public abstract class IntSetVariable<T extends IntSetVariable<T>> extends Abstra
 
   @Override
   public String toString() {
+    beforeAccess();
     if (V == null) {
       return "[Empty]";
     }
@@ -100,6 +129,7 @@ public abstract class IntSetVariable<T extends IntSetVariable<T>> extends Abstra
    * @param b the bit to set
    */
   public boolean add(int b) {
+    beforeAccess();
     if (V == null) {
       V = IntSetUtil.getDefaultIntSetFactory().make();
     }
@@ -112,6 +142,7 @@ public abstract class IntSetVariable<T extends IntSetVariable<T>> extends Abstra
    * @param b the bit to check
    */
   public boolean contains(int b) {
+    beforeAccess();
     if (V == null) {
       return false;
     } else {
@@ -123,24 +154,30 @@ public abstract class IntSetVariable<T extends IntSetVariable<T>> extends Abstra
    * @return the value of this variable as a MutableSparseIntSet ... null if the set is empty.
    */
   public MutableIntSet getValue() {
+    beforeAccess();
     return V;
   }
 
   public void remove(int i) {
+    beforeAccess();
     if (V != null) {
       V.remove(i);
     }
   }
 
   public int size() {
+    beforeAccess();
     return (V == null) ? 0 : V.size();
   }
 
   public boolean containsAny(IntSet instances) {
+    beforeAccess();
     return V.containsAny(instances);
   }
 
   public boolean addAllInIntersection(T other, IntSet filter) {
+    beforeAccess();
+    other.beforeAccess();
     if (V == null) {
       copyState(other);
       if (V != null) {
@@ -161,6 +198,7 @@ public abstract class IntSetVariable<T extends IntSetVariable<T>> extends Abstra
   }
 
   public boolean addAllInIntersection(IntSet other, IntSet filter) {
+    beforeAccess();
     if (V == null) {
       V = IntSetUtil.getDefaultIntSetFactory().makeCopy(other);
       V.intersectWith(filter);
@@ -175,6 +213,7 @@ public abstract class IntSetVariable<T extends IntSetVariable<T>> extends Abstra
   }
 
   public void removeAll() {
+    beforeAccess();
     V = null;
   }
 }
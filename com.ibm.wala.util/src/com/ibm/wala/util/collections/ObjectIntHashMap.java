@@ -0,0 +1,315 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.collections;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A map from objects to ints, which stores the ints unboxed.
+ *
+ * Keys live in a single open-addressing table with linear probing, so a lookup touches no objects other than the key, and
+ * a put allocates nothing unless the table grows. Removal shifts later entries back rather than leaving tombstones. As in
+ * {@link java.util.HashMap}, keys are compared with equals only when their hash codes match, so a key whose equals accepts
+ * objects of other classes is still told apart from them.
+ *
+ * {@link #get(Object)} returns a "missing" value, chosen at construction, for keys that are not in the map. The null key is
+ * allowed.
+ */
+public class ObjectIntHashMap<K> implements Serializable {
+
+  private static final long serialVersionUID = 5838391283735408375L;
+
+  private static final int DEFAULT_CAPACITY = 8;
+
+  /**
+   * keys, or null for empty slots
+   */
+  private Object[] keys;
+
+  /**
+   * spread hash codes of the keys
+   */
+  private int[] hashes;
+
+  private int[] values;
+
+  /**
+   * number of entries in the table, not counting the null key
+   */
+  private int size;
+
+  private boolean hasNullKey;
+
+  private int nullValue;
+
+  private final int missingValue;
+
+  /**
+   * bumped by structural changes, to detect concurrent modification during iteration
+   */
+  private transient int modCount;
+
+  /**
+   * a map with missing value -1
+   */
+  public ObjectIntHashMap() {
+    this(DEFAULT_CAPACITY, -1);
+  }
+
+  /**
+   * @param expectedSize number of entries the map can hold before it grows
+   * @param missingValue value returned by {@link #get(Object)} for absent keys
+   */
+  public ObjectIntHashMap(int expectedSize, int missingValue) {
+    if (expectedSize < 0) {
+      throw new IllegalArgumentException("illegal expectedSize: " + expectedSize);
+    }
+    int capacity = DEFAULT_CAPACITY;
+    while (capacity * 3 / 4 < expectedSize) {
+      capacity *= 2;
+    }
+    keys = new Object[capacity];
+    hashes = new int[capacity];
+    values = new int[capacity];
+    this.missingValue = missingValue;
+  }
+
+  /**
+   * a copy of other
+   */
+  public ObjectIntHashMap(ObjectIntHashMap<? extends K> other) {
+    if (other == null) {
+      throw new IllegalArgumentException("other is null");
+    }
+    keys = other.keys.clone();
+    hashes = other.hashes.clone();
+    values = other.values.clone();
+    size = other.size;
+    hasNullKey = other.hasNullKey;
+    nullValue = other.nullValue;
+    missingValue = other.missingValue;
+  }
+
+  private static int hash(Object key) {
+    int h = key.hashCode() * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * @return the slot holding key, or the empty slot where it would go
+   */
+  private int slot(Object key, int h) {
+    int mask = keys.length - 1;
+    int i = h & mask;
+    while (keys[i] != null && (hashes[i] != h || (keys[i] != key && !keys[i].equals(key)))) {
+      i = (i + 1) & mask;
+    }
+    return i;
+  }
+
+  public int getMissingValue() {
+    return missingValue;
+  }
+
+  /**
+   * @return the value for key, or the missing value if there is none
+   */
+  public int get(Object key) {
+    if (key == null) {
+      return hasNullKey ? nullValue : missingValue;
+    }
+    int i = slot(key, hash(key));
+    return keys[i] == null ? missingValue : values[i];
+  }
+
+  public boolean containsKey(Object key) {
+    if (key == null) {
+      return hasNullKey;
+    }
+    return keys[slot(key, hash(key))] != null;
+  }
+
+  /**
+   * @return the previous value for key, or the missing value if there was none
+   */
+  public int put(K key, int value) {
+    if (key == null) {
+      int old = hasNullKey ? nullValue : missingValue;
+      if (!hasNullKey) {
+        hasNullKey = true;
+        modCount++;
+      }
+      nullValue = value;
+      return old;
+    }
+    int h = hash(key);
+    int i = slot(key, h);
+    if (keys[i] != null) {
+      int old = values[i];
+      values[i] = value;
+      return old;
+    }
+    keys[i] = key;
+    hashes[i] = h;
+    values[i] = value;
+    modCount++;
+    if (++size > keys.length * 3 / 4) {
+      grow();
+    }
+    return missingValue;
+  }
+
+  /**
+   * @return the previous value for key, or the missing value if there was none
+   */
+  public int remove(Object key) {
+    if (key == null) {
+      if (!hasNullKey) {
+        return missingValue;
+      }
+      hasNullKey = false;
+      modCount++;
+      return nullValue;
+    }
+    int i = slot(key, hash(key));
+    if (keys[i] == null) {
+      return missingValue;
+    }
+    int old = values[i];
+    // shift back later entries of the probe sequence that would no longer be found
+    int mask = keys.length - 1;
+    int j = i;
+    while (true) {
+      j = (j + 1) & mask;
+      if (keys[j] == null) {
+        break;
+      }
+      int home = hashes[j] & mask;
+      if (((j - home) & mask) >= ((j - i) & mask)) {
+        keys[i] = keys[j];
+        hashes[i] = hashes[j];
+        values[i] = values[j];
+        i = j;
+      }
+    }
+    keys[i] = null;
+    size--;
+    modCount++;
+    return old;
+  }
+
+  public int size() {
+    return size + (hasNullKey ? 1 : 0);
+  }
+
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  public void clear() {
+    Arrays.fill(keys, null);
+    size = 0;
+    hasNullKey = false;
+    modCount++;
+  }
+
+  private void grow() {
+    Object[] oldKeys = keys;
+    int[] oldHashes = hashes;
+    int[] oldValues = values;
+    keys = new Object[2 * oldKeys.length];
+    hashes = new int[2 * oldKeys.length];
+    values = new int[2 * oldKeys.length];
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != null) {
+        int j = slot(oldKeys[i], oldHashes[i]);
+        keys[j] = oldKeys[i];
+        hashes[j] = oldHashes[i];
+        values[j] = oldValues[i];
+      }
+    }
+  }
+
+  /**
+   * @return a view of the keys; removing through the view is not supported
+   */
+  public Set<K> keySet() {
+    return new AbstractSet<K>() {
+      @Override
+      public Iterator<K> iterator() {
+        return new KeyIterator();
+      }
+
+      @Override
+      public boolean contains(Object o) {
+        return containsKey(o);
+      }
+
+      @Override
+      public int size() {
+        return ObjectIntHashMap.this.size();
+      }
+    };
+  }
+
+  private class KeyIterator implements Iterator<K> {
+    private final int expectedModCount = modCount;
+
+    /**
+     * next slot to look at; -1 for the null key
+     */
+    private int next = hasNullKey ? -1 : advance(0);
+
+    private int advance(int i) {
+      while (i < keys.length && keys[i] == null) {
+        i++;
+      }
+      return i;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next < keys.length;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public K next() {
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      K result = next == -1 ? null : (K) keys[next];
+      next = advance(next + 1);
+      return result;
+    }
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder result = new StringBuilder("{");
+    for (K key : keySet()) {
+      if (result.length() > 1) {
+        result.append(", ");
+      }
+      result.append(key).append('=').append(get(key));
+    }
+    return result.append('}').toString();
+  }
+}
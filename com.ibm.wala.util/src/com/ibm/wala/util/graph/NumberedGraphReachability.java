@@ -0,0 +1,455 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
+
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.MonitorUtil;
+import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+import com.ibm.wala.util.graph.traverse.ParallelSCC;
+import com.ibm.wala.util.intset.BitVectorIntSet;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableMapping;
+import com.ibm.wala.util.intset.OrdinalSet;
+
+/**
+ * Computes, for each node of a {@link NumberedGraph}, the set of "interesting" nodes that are reachable, like
+ * {@link GraphReachability}, but keeps the result up to date as edges are added.
+ *
+ * Strongly connected components are condensed, and the reachable sets are computed bottom-up over the resulting DAG by
+ * or-ing bit vectors, a word at a time. Sets are never modified once published: a component whose set would equal that of
+ * a successor shares it, and a component whose set grows gets a fresh copy. So {@link #getReachableSet(Object)} is a lookup,
+ * and the sets it returns are snapshots.
+ *
+ * New edges are reported with {@link #edgeAdded(Object, Object)}. The components are kept in a topological order, which is
+ * repaired locally when an edge violates it, as in Pearce and Kelly's dynamic topological sort; if the edge closes a cycle,
+ * the components on the cycle are merged. Only the components that can reach the new edge are then updated.
+ */
+public class NumberedGraphReachability<T, S> {
+
+  /**
+   * Governing graph
+   */
+  private final NumberedGraph<T> g;
+
+  /**
+   * "interesting" node definition
+   */
+  private final Predicate<? super T> filter;
+
+  /**
+   * set of "interesting" nodes
+   */
+  final MutableMapping<S> domain;
+
+  /**
+   * node number -&gt; parent in the union-find forest of components, or -1 for nodes not yet seen
+   */
+  private int[] leader = new int[0];
+
+  /**
+   * node number -&gt; next node of the same component, in a circular list
+   */
+  private int[] nextMember = new int[0];
+
+  /**
+   * component representative -&gt; position in topological order
+   */
+  private int[] ord = new int[0];
+
+  /**
+   * component representative -&gt; interesting nodes reachable, or null if none
+   */
+  private BitVectorIntSet[] reach = new BitVectorIntSet[0];
+
+  /**
+   * next unused position in topological order
+   */
+  private int nextOrd;
+
+  /**
+   * node number -&gt; last search that visited it, forward and backward
+   */
+  private int[] visitedForward = new int[0];
+
+  private int[] visitedBackward = new int[0];
+
+  private int search;
+
+  private boolean solved;
+
+  /**
+   * @param g graph to analyze
+   * @param filter "interesting" node definition
+   * @throws IllegalArgumentException if g is null
+   */
+  public NumberedGraphReachability(NumberedGraph<T> g, Predicate<? super T> filter) {
+    if (g == null) {
+      throw new IllegalArgumentException("g is null");
+    }
+    if (filter == null) {
+      throw new IllegalArgumentException("filter is null");
+    }
+    this.g = g;
+    this.filter = filter;
+    this.domain = MutableMapping.make();
+  }
+
+  /**
+   * compute the reachable sets from scratch
+   */
+  public void solve(IProgressMonitor monitor) throws CancelException {
+    ensureCapacity(g.getMaxNumber() + 1);
+    Arrays.fill(leader, -1);
+    Arrays.fill(reach, null);
+    List<Set<T>> sccs = ParallelSCC.computeSCCs(g);
+    int[] reps = new int[sccs.size()];
+    for (int i = 0; i < reps.length; i++) {
+      int rep = -1;
+      for (T n : sccs.get(i)) {
+        int v = g.getNumber(n);
+        if (rep == -1) {
+          rep = v;
+          nextMember[v] = v;
+        } else {
+          nextMember[v] = nextMember[rep];
+          nextMember[rep] = v;
+        }
+        leader[v] = rep;
+        addToDomain(n);
+      }
+      ord[rep] = i;
+      reps[i] = rep;
+    }
+    nextOrd = reps.length;
+    // successors come later in topological order, so go backwards
+    for (int i = reps.length - 1; i >= 0; i--) {
+      MonitorUtil.throwExceptionIfCanceled(monitor);
+      reach[reps[i]] = summarize(reps[i]);
+    }
+    solved = true;
+  }
+
+  /**
+   * @return the set of interesting nodes reachable from n
+   */
+  public OrdinalSet<S> getReachableSet(Object n) throws IllegalStateException {
+    if (!solved) {
+      throw new IllegalStateException("must call solve() before calling getReachableSet()");
+    }
+    @SuppressWarnings("unchecked")
+    int v = g.getNumber((T) n);
+    if (v < 0 || v >= leader.length || leader[v] == -1) {
+      throw new IllegalArgumentException("unknown node " + n);
+    }
+    BitVectorIntSet s = reach[find(v)];
+    return s == null ? OrdinalSet.<S> empty() : new OrdinalSet<>(s, domain);
+  }
+
+  /**
+   * update the reachable sets after the edge src -&gt; dst has been added to the graph. Endpoints that were added to the
+   * graph since the last call are taken into account too; their other edges must be reported as well.
+   *
+   * @return true iff some reachable set changed
+   */
+  public boolean edgeAdded(T src, T dst) throws IllegalStateException {
+    if (!solved) {
+      throw new IllegalStateException("must call solve() before calling edgeAdded()");
+    }
+    if (!g.hasEdge(src, dst)) {
+      throw new IllegalArgumentException("no edge " + src + " -> " + dst);
+    }
+    int s = find(nodeAdded(src));
+    int d = find(nodeAdded(dst));
+    if (s == d) {
+      return false;
+    }
+    if (ord[s] > ord[d]) {
+      s = reorder(s, d);
+      if (s == find(d)) {
+        // the edge closed a cycle, which is now one component
+        propagate(s);
+        return true;
+      }
+    }
+    if (reach[d] == null || (reach[s] != null && reach[d].isSubset(reach[s]))) {
+      return false;
+    }
+    reach[s] = union(reach[s], reach[d]);
+    propagate(s);
+    return true;
+  }
+
+  /**
+   * start tracking a node that is new in the graph, as a component by itself
+   *
+   * @return its number
+   */
+  private int nodeAdded(T n) {
+    int v = g.getNumber(n);
+    if (v < 0) {
+      throw new IllegalArgumentException("node not in graph " + n);
+    }
+    if (v >= leader.length) {
+      int old = leader.length;
+      ensureCapacity(Math.max(v + 1, 2 * old));
+      Arrays.fill(leader, old, leader.length, -1);
+    }
+    if (leader[v] == -1) {
+      leader[v] = v;
+      nextMember[v] = v;
+      ord[v] = nextOrd++;
+      int index = addToDomain(n);
+      if (index >= 0) {
+        reach[v] = new BitVectorIntSet();
+        reach[v].add(index);
+      }
+    }
+    return v;
+  }
+
+  /**
+   * @return the domain index of n, or -1 if n is not interesting
+   */
+  @SuppressWarnings("unchecked")
+  private int addToDomain(T n) {
+    if (!filter.test(n)) {
+      return -1;
+    }
+    int index = domain.getMappedIndex(n);
+    return index >= 0 ? index : domain.add((S) n);
+  }
+
+  private void ensureCapacity(int n) {
+    if (n > leader.length) {
+      leader = Arrays.copyOf(leader, n);
+      nextMember = Arrays.copyOf(nextMember, n);
+      ord = Arrays.copyOf(ord, n);
+      reach = Arrays.copyOf(reach, n);
+      visitedForward = Arrays.copyOf(visitedForward, n);
+      visitedBackward = Arrays.copyOf(visitedBackward, n);
+    }
+  }
+
+  private int find(int v) {
+    int root = v;
+    while (leader[root] != root) {
+      root = leader[root];
+    }
+    while (leader[v] != root) {
+      int next = leader[v];
+      leader[v] = root;
+      v = next;
+    }
+    return root;
+  }
+
+  /**
+   * @return a set holding a and b, which may be either of them if it already does
+   */
+  private static BitVectorIntSet union(BitVectorIntSet a, BitVectorIntSet b) {
+    if (b == null || (a != null && b.isSubset(a))) {
+      return a;
+    }
+    if (a == null || a.isSubset(b)) {
+      return b;
+    }
+    BitVectorIntSet result = new BitVectorIntSet(a);
+    result.addAll(b);
+    return result;
+  }
+
+  /**
+   * @return the interesting nodes reachable from a component, from the sets of its successors
+   */
+  private BitVectorIntSet summarize(int rep) {
+    BitVectorIntSet own = null;
+    BitVectorIntSet[] result = new BitVectorIntSet[1];
+    int v = rep;
+    do {
+      int index = domain.getMappedIndex(g.getNode(v));
+      if (index >= 0) {
+        if (own == null) {
+          own = new BitVectorIntSet();
+        }
+        own.add(index);
+      }
+      forEachSucc(v, w -> {
+        int c = find(w);
+        if (c != rep) {
+          result[0] = union(result[0], reach[c]);
+        }
+      });
+      v = nextMember[v];
+    } while (v != rep);
+    return union(result[0], own);
+  }
+
+  /**
+   * push the set of a component to everything that reaches it
+   */
+  private void propagate(int rep) {
+    List<Integer> worklist = new ArrayList<>();
+    worklist.add(rep);
+    while (!worklist.isEmpty()) {
+      int c = worklist.remove(worklist.size() - 1);
+      BitVectorIntSet s = reach[c];
+      if (s == null) {
+        // reaches no interesting node, so there is nothing to push
+        continue;
+      }
+      forEachPredComponent(c, p -> {
+        if (p != c && (reach[p] == null || !s.isSubset(reach[p]))) {
+          reach[p] = union(reach[p], s);
+          worklist.add(p);
+        }
+      });
+    }
+  }
+
+  /**
+   * restore the topological order after adding an edge from s to d, where s comes after d, merging the components on a cycle
+   * if there is one
+   *
+   * @return the component of s afterwards
+   */
+  private int reorder(int s, int d) {
+    int lower = ord[d];
+    int upper = ord[s];
+    search++;
+    // components reachable from d that may come before s
+    List<Integer> forward = new ArrayList<>();
+    boolean[] cycle = new boolean[1];
+    visitedForward[d] = search;
+    forward.add(d);
+    for (int i = 0; i < forward.size(); i++) {
+      forEachSuccComponent(forward.get(i), c -> {
+        if (c == s) {
+          cycle[0] = true;
+        }
+        if (visitedForward[c] != search && ord[c] <= upper) {
+          visitedForward[c] = search;
+          forward.add(c);
+        }
+      });
+    }
+    // components reaching s that may come after d
+    List<Integer> backward = new ArrayList<>();
+    visitedBackward[s] = search;
+    backward.add(s);
+    for (int i = 0; i < backward.size(); i++) {
+      forEachPredComponent(backward.get(i), c -> {
+        if (visitedBackward[c] != search && ord[c] >= lower) {
+          visitedBackward[c] = search;
+          backward.add(c);
+        }
+      });
+    }
+
+    int[] positions = new int[forward.size() + backward.size()];
+    int k = 0;
+    for (int c : forward) {
+      positions[k++] = ord[c];
+    }
+    for (int c : backward) {
+      positions[k++] = ord[c];
+    }
+    Arrays.sort(positions);
+    forward.sort((a, b) -> Integer.compare(ord[a], ord[b]));
+    backward.sort((a, b) -> Integer.compare(ord[a], ord[b]));
+
+    // what reaches s, then the cycle if any, then what is reachable from d
+    k = 0;
+    int merged = -1;
+    if (cycle[0]) {
+      // the components both reachable from d and reaching s form the cycle
+      for (int c : forward) {
+        if (visitedBackward[c] == search) {
+          merged = merged == -1 ? c : merge(merged, c);
+        }
+      }
+    }
+    for (int c : backward) {
+      if (visitedForward[c] != search || !cycle[0]) {
+        ord[c] = positions[k++];
+      }
+    }
+    if (merged != -1) {
+      ord[merged] = positions[k++];
+    }
+    for (int c : forward) {
+      if (visitedBackward[c] != search || !cycle[0]) {
+        ord[c] = positions[k++];
+      }
+    }
+    return find(s);
+  }
+
+  /**
+   * @return the representative of the union of two components
+   */
+  private int merge(int a, int b) {
+    leader[b] = a;
+    int next = nextMember[a];
+    nextMember[a] = nextMember[b];
+    nextMember[b] = next;
+    reach[a] = union(reach[a], reach[b]);
+    reach[b] = null;
+    return a;
+  }
+
+  private void forEachSucc(int v, IntConsumer action) {
+    IntSet s = g.getSuccNodeNumbers(g.getNode(v));
+    if (s != null) {
+      s.foreach(w -> {
+        if (w < leader.length && leader[w] != -1) {
+          action.accept(w);
+        }
+      });
+    }
+  }
+
+  private void forEachPred(int v, IntConsumer action) {
+    IntSet s = g.getPredNodeNumbers(g.getNode(v));
+    if (s != null) {
+      s.foreach(w -> {
+        if (w < leader.length && leader[w] != -1) {
+          action.accept(w);
+        }
+      });
+    }
+  }
+
+  /**
+   * apply action to the components of the successors of the members of a component, possibly several times each
+   */
+  private void forEachSuccComponent(int rep, IntConsumer action) {
+    int v = rep;
+    do {
+      forEachSucc(v, w -> action.accept(find(w)));
+      v = nextMember[v];
+    } while (v != rep);
+  }
+
+  private void forEachPredComponent(int rep, IntConsumer action) {
+    int v = rep;
+    do {
+      forEachPred(v, w -> action.accept(find(w)));
+      v = nextMember[v];
+    } while (v != rep);
+  }
+}
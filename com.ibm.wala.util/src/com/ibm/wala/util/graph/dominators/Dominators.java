@@ -40,10 +40,15 @@ import com.ibm.wala.util.graph.traverse.SlowDFSDiscoverTimeIterator;
 public abstract class Dominators<T> {
   static final boolean DEBUG = false;
 
+  /**
+   * if true, {@link #make(Graph, Object)} uses {@link SemiNCADominators} for numbered graphs
+   */
+  private static boolean useSemiNCA = !"false".equals(System.getProperty("com.ibm.wala.semiNCADominators"));
+
   /**
    * a mapping from DFS number to node
    */
-  private final T[] vertex;
+  private T[] vertex;
 
   /**
    * a convenient place to locate the graph to avoid passing it internally
@@ -65,7 +70,6 @@ public abstract class Dominators<T> {
    * @param root The root from which to compute dominators
    * @throws IllegalArgumentException if G is null
    */
-  @SuppressWarnings("unchecked")
   public Dominators(Graph<T> G, T root) throws IllegalArgumentException {
     if (G == null) {
       throw new IllegalArgumentException("G is null");
@@ -75,17 +79,29 @@ public abstract class Dominators<T> {
     if (G.getNumberOfNodes() == 0) {
       throw new IllegalArgumentException("G has no nodes");
     }
-    this.vertex = (T[]) new Object[G.getNumberOfNodes() + 1];
   }
 
   public static <T> Dominators<T> make(Graph<T> G, T root) {
     if (G instanceof NumberedGraph) {
-      return new NumberedDominators<>((NumberedGraph<T>) G, root);
+      NumberedGraph<T> NG = (NumberedGraph<T>) G;
+      return useSemiNCA ? new SemiNCADominators<>(NG, root) : new NumberedDominators<>(NG, root);
     } else {
       return new GenericDominators<>(G, root);
     }
   }
 
+  /**
+   * choose the algorithm {@link #make(Graph, Object)} uses for numbered graphs: Semi-NCA, the default, or Lengauer and
+   * Tarjan's. The default can also be changed with the system property com.ibm.wala.semiNCADominators=false.
+   */
+  public static void setUseSemiNCA(boolean useSemiNCA) {
+    Dominators.useSemiNCA = useSemiNCA;
+  }
+
+  public static boolean getUseSemiNCA() {
+    return useSemiNCA;
+  }
+
   /**
    * is node dominated by master?
    */
@@ -261,8 +277,10 @@ public abstract class Dominators<T> {
   /**
    * The goal of this step is to perform a DFS numbering on the CFG, starting at the root. The exit node is not included.
    */
+  @SuppressWarnings("unchecked")
   private void step1() {
     reachableNodeCount = 0;
+    vertex = (T[]) new Object[G.getNumberOfNodes() + 1];
 
     DFSDiscoverTimeIterator<T> dfs = new SlowDFSDiscoverTimeIterator<T>(G, root) {
       public static final long serialVersionUID = 88831771771711L;
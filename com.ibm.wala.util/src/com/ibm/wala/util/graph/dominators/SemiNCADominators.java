@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.graph.dominators;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import com.ibm.wala.util.debug.Assertions;
+import com.ibm.wala.util.graph.NumberedGraph;
+
+/**
+ * Calculate dominators using the Semi-NCA algorithm of Georgiadis, Tarjan and Werneck (Finding Dominators in Practice, JGAA
+ * 10(1), 2006). Semidominators are computed as in Lengauer and Tarjan's algorithm, with simple path compression, and the
+ * immediate dominator of each node is then found as the nearest common ancestor, in the partial dominator tree, of its DFS
+ * parent and semidominator.
+ *
+ * All state is kept in int arrays indexed by node number or DFS number, and the DFS is iterative, so this works well on
+ * very large graphs. The dominator tree is numbered with pre- and post-order intervals, so {@link #isDominatedBy} takes
+ * constant time.
+ *
+ * Edges are walked with {@link NumberedGraph#getSuccNodes} and {@link NumberedGraph#getPredNodes}, as in
+ * {@link NumberedDominators}, since some graphs, such as inverted control-flow graphs, do not answer the node number queries.
+ */
+public class SemiNCADominators<T> extends Dominators<T> {
+
+  /**
+   * node number -&gt; DFS number, 1-based, or 0 if unreachable
+   */
+  private final int[] dfnum;
+
+  /**
+   * DFS number -&gt; node number
+   */
+  private final int[] vertex;
+
+  /**
+   * DFS number -&gt; DFS number of immediate dominator
+   */
+  private final int[] idom;
+
+  /**
+   * DFS number -&gt; interval in a pre-order numbering of the dominator tree
+   */
+  private final int[] treeFirst;
+
+  private final int[] treeLast;
+
+  public SemiNCADominators(NumberedGraph<T> G, T root) throws IllegalArgumentException {
+    super(G, root);
+    int n = G.getMaxNumber() + 1;
+    dfnum = new int[n];
+    vertex = new int[G.getNumberOfNodes() + 1];
+    int[] parent = new int[vertex.length];
+    dfs(G, parent);
+    idom = computeIdoms(G, parent);
+    treeFirst = new int[reachableNodeCount + 1];
+    treeLast = new int[reachableNodeCount + 1];
+    numberTree();
+  }
+
+  @SuppressWarnings("unchecked")
+  private NumberedGraph<T> graph() {
+    return (NumberedGraph<T>) G;
+  }
+
+  /**
+   * number the nodes reachable from the root in DFS preorder
+   */
+  private void dfs(NumberedGraph<T> G, int[] parent) {
+    int[] stack = new int[vertex.length];
+    ArrayList<Iterator<? extends T>> succs = new ArrayList<>();
+    int r = G.getNumber(root);
+    dfnum[r] = ++reachableNodeCount;
+    vertex[reachableNodeCount] = r;
+    stack[0] = r;
+    succs.add(G.getSuccNodes(root));
+    while (!succs.isEmpty()) {
+      int sp = succs.size() - 1;
+      Iterator<? extends T> it = succs.get(sp);
+      if (it.hasNext()) {
+        T succ = it.next();
+        int w = G.getNumber(succ);
+        if (dfnum[w] == 0) {
+          dfnum[w] = ++reachableNodeCount;
+          vertex[reachableNodeCount] = w;
+          parent[reachableNodeCount] = dfnum[stack[sp]];
+          stack[sp + 1] = w;
+          succs.add(G.getSuccNodes(succ));
+        }
+      } else {
+        succs.remove(sp);
+      }
+    }
+  }
+
+  private int[] computeIdoms(NumberedGraph<T> G, int[] parent) {
+    int count = reachableNodeCount;
+    int[] semi = new int[count + 1];
+    int[] label = new int[count + 1];
+    int[] ancestor = new int[count + 1];
+    int[] path = new int[count + 1];
+    for (int i = 1; i <= count; i++) {
+      semi[i] = i;
+      label[i] = i;
+    }
+    for (int i = count; i > 1; i--) {
+      for (T pred : Iterator2Iterable.make(G.getPredNodes(G.getNode(vertex[i])))) {
+        int v = dfnum[G.getNumber(pred)];
+        if (v == 0) {
+          // unreachable from the root
+          continue;
+        }
+        // EVAL(v), compressing the path to the root of its tree in the forest
+        if (ancestor[v] != 0) {
+          int len = 0;
+          for (int x = v; ancestor[ancestor[x]] != 0; x = ancestor[x]) {
+            path[len++] = x;
+          }
+          for (int k = len - 1; k >= 0; k--) {
+            int x = path[k];
+            int a = ancestor[x];
+            if (semi[label[a]] < semi[label[x]]) {
+              label[x] = label[a];
+            }
+            ancestor[x] = ancestor[a];
+          }
+        }
+        int u = label[v];
+        if (semi[u] < semi[i]) {
+          semi[i] = semi[u];
+        }
+      }
+      // LINK(parent(i), i)
+      ancestor[i] = parent[i];
+    }
+    // the idom of each node is the nearest ancestor of its parent whose DFS number is at most its semidominator
+    int[] result = new int[count + 1];
+    for (int i = 2; i <= count; i++) {
+      int d = parent[i];
+      while (d > semi[i]) {
+        d = result[d];
+      }
+      result[i] = d;
+    }
+    return result;
+  }
+
+  /**
+   * number the dominator tree in pre-order, so that the nodes dominated by x are those numbered in [treeFirst[x],
+   * treeLast[x]]
+   */
+  private void numberTree() {
+    int count = reachableNodeCount;
+    // children lists
+    int[] firstChild = new int[count + 1];
+    int[] nextSibling = new int[count + 1];
+    for (int i = count; i > 1; i--) {
+      nextSibling[i] = firstChild[idom[i]];
+      firstChild[idom[i]] = i;
+    }
+    int[] stack = new int[count + 1];
+    int sp = 0;
+    int number = 0;
+    if (count > 0) {
+      stack[sp++] = 1;
+      treeFirst[1] = ++number;
+    }
+    while (sp > 0) {
+      int x = stack[sp - 1];
+      int c = firstChild[x];
+      if (c != 0) {
+        // visit the next child, and forget it
+        firstChild[x] = nextSibling[c];
+        treeFirst[c] = ++number;
+        stack[sp++] = c;
+      } else {
+        treeLast[x] = number;
+        sp--;
+      }
+    }
+  }
+
+  /**
+   * @return the DFS number of node, or 0 if it is unreachable or not in the graph
+   */
+  private int dfnum(T node) {
+    int n = graph().getNumber(node);
+    return n < 0 || n >= dfnum.length ? 0 : dfnum[n];
+  }
+
+  /**
+   * is node dominated by master? Takes constant time.
+   */
+  @Override
+  public boolean isDominatedBy(T node, T master) {
+    int x = dfnum(node);
+    int m = dfnum(master);
+    if (x == 0 || m == 0) {
+      return node.equals(master);
+    }
+    return treeFirst[m] <= treeFirst[x] && treeFirst[x] <= treeLast[m];
+  }
+
+  @Override
+  public T getIdom(T node) {
+    int x = dfnum(node);
+    return x <= 1 ? null : graph().getNode(vertex[idom[x]]);
+  }
+
+  /**
+   * all per-node state is kept in arrays, so there are no {@link Dominators.DominatorInfo} objects
+   */
+  @Override
+  protected DominatorInfo getInfo(T node) {
+    Assertions.UNREACHABLE();
+    return null;
+  }
+}
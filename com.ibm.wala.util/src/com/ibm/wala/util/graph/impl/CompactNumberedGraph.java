@@ -0,0 +1,469 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.graph.impl;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.graph.AbstractNumberedGraph;
+import com.ibm.wala.util.graph.INodeWithNumber;
+import com.ibm.wala.util.graph.NumberedEdgeManager;
+import com.ibm.wala.util.graph.NumberedGraph;
+import com.ibm.wala.util.graph.NumberedNodeManager;
+import com.ibm.wala.util.intset.EmptyIntSet;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.SparseIntSet;
+
+/**
+ * A read-only snapshot of a {@link NumberedGraph} in compressed sparse row form.
+ *
+ * The successors of all nodes are held in one int array, sorted by source node number, with a second array giving the offset
+ * of each node's row; predecessors are held the same way. This costs two ints per edge and two per node number, rather than
+ * an {@link IntSet} object per node, and read-only traversals such as {@link com.ibm.wala.util.graph.traverse.SCCIterator}
+ * or {@link com.ibm.wala.util.graph.dominators.Dominators} walk the rows sequentially.
+ *
+ * Nodes keep the numbers they had in the original graph. The edge arrays may optionally live off the Java heap, in direct
+ * buffers. Any attempt to modify the graph throws an {@link UnsupportedOperationException}.
+ */
+public class CompactNumberedGraph<T> extends AbstractNumberedGraph<T> {
+
+  /**
+   * number -&gt; node; null for numbers that are not used
+   */
+  private final Object[] nodes;
+
+  private final int numberOfNodes;
+
+  /**
+   * node -&gt; number, for nodes that do not carry their own number; null if all nodes do
+   */
+  private final Map<Object, Integer> numbers;
+
+  /**
+   * the successors of node number i are succs[succOffsets[i]] ... succs[succOffsets[i+1]-1], in increasing order
+   */
+  private final IntBuffer succOffsets;
+
+  private final IntBuffer succs;
+
+  /**
+   * the predecessors of node number i are preds[predOffsets[i]] ... preds[predOffsets[i+1]-1], in increasing order
+   */
+  private final IntBuffer predOffsets;
+
+  private final IntBuffer preds;
+
+  private final Nodes nodeManager = new Nodes();
+
+  private final Edges edgeManager = new Edges();
+
+  /**
+   * @return a compact copy of g, with its edges on the Java heap
+   */
+  public static <T> CompactNumberedGraph<T> make(NumberedGraph<T> g) {
+    return make(g, false);
+  }
+
+  /**
+   * @param offHeap if true, hold the edges in direct buffers outside the Java heap
+   * @return a compact copy of g
+   */
+  public static <T> CompactNumberedGraph<T> make(NumberedGraph<T> g, boolean offHeap) {
+    if (g == null) {
+      throw new IllegalArgumentException("g is null");
+    }
+    return new CompactNumberedGraph<>(g, offHeap);
+  }
+
+  private CompactNumberedGraph(NumberedGraph<T> g, boolean offHeap) {
+    int n = g.getMaxNumber() + 1;
+    nodes = new Object[n];
+    int count = 0;
+    boolean selfNumbered = true;
+    for (T node : g) {
+      int number = g.getNumber(node);
+      nodes[number] = node;
+      count++;
+      selfNumbered &= node instanceof INodeWithNumber && ((INodeWithNumber) node).getGraphNodeId() == number;
+    }
+    numberOfNodes = count;
+    if (selfNumbered) {
+      numbers = null;
+    } else {
+      numbers = HashMapFactory.make(count);
+      for (int i = 0; i < n; i++) {
+        if (nodes[i] != null) {
+          numbers.put(nodes[i], i);
+        }
+      }
+    }
+
+    // successor rows, sorted and without duplicates
+    int[] succOffsets = new int[n + 1];
+    int[] succs = new int[16];
+    int nEdges = 0;
+    for (int i = 0; i < n; i++) {
+      succOffsets[i] = nEdges;
+      @SuppressWarnings("unchecked")
+      T node = (T) nodes[i];
+      if (node == null) {
+        continue;
+      }
+      for (Iterator<T> it = g.getSuccNodes(node); it.hasNext();) {
+        if (nEdges == succs.length) {
+          succs = Arrays.copyOf(succs, 2 * succs.length);
+        }
+        succs[nEdges++] = g.getNumber(it.next());
+      }
+      Arrays.sort(succs, succOffsets[i], nEdges);
+      int last = succOffsets[i];
+      for (int j = succOffsets[i] + 1; j < nEdges; j++) {
+        if (succs[j] != succs[last]) {
+          succs[++last] = succs[j];
+        }
+      }
+      if (nEdges > succOffsets[i]) {
+        nEdges = last + 1;
+      }
+    }
+    succOffsets[n] = nEdges;
+
+    // predecessor rows, by transposing the successor rows; visiting sources in order keeps each row sorted
+    int[] predOffsets = new int[n + 1];
+    for (int e = 0; e < nEdges; e++) {
+      predOffsets[succs[e] + 1]++;
+    }
+    for (int i = 0; i < n; i++) {
+      predOffsets[i + 1] += predOffsets[i];
+    }
+    int[] preds = new int[nEdges];
+    int[] next = Arrays.copyOf(predOffsets, n);
+    for (int i = 0; i < n; i++) {
+      for (int e = succOffsets[i]; e < succOffsets[i + 1]; e++) {
+        preds[next[succs[e]]++] = i;
+      }
+    }
+
+    this.succOffsets = allocate(succOffsets, n + 1, offHeap);
+    this.succs = allocate(succs, nEdges, offHeap);
+    this.predOffsets = allocate(predOffsets, n + 1, offHeap);
+    this.preds = allocate(preds, nEdges, offHeap);
+  }
+
+  private static IntBuffer allocate(int[] values, int length, boolean offHeap) {
+    if (!offHeap) {
+      return IntBuffer.wrap(length == values.length ? values : Arrays.copyOf(values, length));
+    }
+    IntBuffer result = ByteBuffer.allocateDirect(4 * length).order(ByteOrder.nativeOrder()).asIntBuffer();
+    result.put(values, 0, length);
+    return result;
+  }
+
+  /**
+   * @return true iff the edges of this graph are held outside the Java heap
+   */
+  public boolean isOffHeap() {
+    return succs.isDirect();
+  }
+
+  /**
+   * @return the number of edges in this graph
+   */
+  public int getNumberOfEdges() {
+    return succs.capacity();
+  }
+
+  /**
+   * @return the number of successors of the node numbered number
+   */
+  public int getOutDegree(int number) {
+    return succOffsets.get(number + 1) - succOffsets.get(number);
+  }
+
+  /**
+   * @return the number of the i'th successor of the node numbered number, in increasing order of successor numbers
+   */
+  public int getSuccNumber(int number, int i) {
+    return succs.get(succOffsets.get(number) + i);
+  }
+
+  /**
+   * @return the number of predecessors of the node numbered number
+   */
+  public int getInDegree(int number) {
+    return predOffsets.get(number + 1) - predOffsets.get(number);
+  }
+
+  /**
+   * @return the number of the i'th predecessor of the node numbered number, in increasing order of predecessor numbers
+   */
+  public int getPredNumber(int number, int i) {
+    return preds.get(predOffsets.get(number) + i);
+  }
+
+  @Override
+  protected NumberedNodeManager<T> getNodeManager() {
+    return nodeManager;
+  }
+
+  @Override
+  protected NumberedEdgeManager<T> getEdgeManager() {
+    return edgeManager;
+  }
+
+  /**
+   * an int set holding a copy of one row
+   */
+  private static final class Row extends SparseIntSet {
+    private static final long serialVersionUID = -2593093468017389416L;
+
+    Row(int[] elements) {
+      super(elements);
+    }
+  }
+
+  private static IntSet row(IntBuffer offsets, IntBuffer edges, int number) {
+    int start = offsets.get(number);
+    int end = offsets.get(number + 1);
+    if (start == end) {
+      return EmptyIntSet.instance;
+    }
+    int[] elements = new int[end - start];
+    for (int i = 0; i < elements.length; i++) {
+      elements[i] = edges.get(start + i);
+    }
+    return new Row(elements);
+  }
+
+  /**
+   * iterates the nodes of one row
+   */
+  private final class RowIterator implements Iterator<T> {
+    private final IntBuffer edges;
+
+    private int next;
+
+    private final int end;
+
+    RowIterator(IntBuffer offsets, IntBuffer edges, int number) {
+      this.edges = edges;
+      this.next = offsets.get(number);
+      this.end = offsets.get(number + 1);
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next < end;
+    }
+
+    @Override
+    public T next() {
+      if (next >= end) {
+        throw new NoSuchElementException();
+      }
+      return nodeManager.getNode(edges.get(next++));
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  private final class Nodes implements NumberedNodeManager<T> {
+
+    @Override
+    public Iterator<T> iterator() {
+      return new Iterator<T>() {
+        private int next = advance(0);
+
+        private int advance(int i) {
+          while (i < nodes.length && nodes[i] == null) {
+            i++;
+          }
+          return i;
+        }
+
+        @Override
+        public boolean hasNext() {
+          return next < nodes.length;
+        }
+
+        @Override
+        public T next() {
+          if (next >= nodes.length) {
+            throw new NoSuchElementException();
+          }
+          T result = getNode(next);
+          next = advance(next + 1);
+          return result;
+        }
+      };
+    }
+
+    @Override
+    public Stream<T> stream() {
+      return StreamSupport.stream(spliterator(), false);
+    }
+
+    @Override
+    public int getNumberOfNodes() {
+      return numberOfNodes;
+    }
+
+    @Override
+    public void addNode(T n) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeNode(T n) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean containsNode(T n) {
+      return getNumber(n) != -1;
+    }
+
+    @Override
+    public int getNumber(T n) {
+      if (numbers == null) {
+        if (n instanceof INodeWithNumber) {
+          int number = ((INodeWithNumber) n).getGraphNodeId();
+          if (number >= 0 && number < nodes.length && nodes[number] == n) {
+            return number;
+          }
+        }
+        return -1;
+      }
+      Integer number = numbers.get(n);
+      return number == null ? -1 : number.intValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public T getNode(int number) {
+      if (number < 0 || number >= nodes.length) {
+        throw new IllegalArgumentException("invalid number: " + number);
+      }
+      return (T) nodes[number];
+    }
+
+    @Override
+    public int getMaxNumber() {
+      return nodes.length - 1;
+    }
+
+    @Override
+    public Iterator<T> iterateNodes(IntSet s) {
+      return new NumberedNodeIterator<>(s, this);
+    }
+  }
+
+  private final class Edges implements NumberedEdgeManager<T> {
+
+    private int number(T n) {
+      int number = nodeManager.getNumber(n);
+      if (number == -1) {
+        throw new IllegalArgumentException("node not in graph: " + n);
+      }
+      return number;
+    }
+
+    @Override
+    public Iterator<T> getPredNodes(T n) {
+      return new RowIterator(predOffsets, preds, number(n));
+    }
+
+    @Override
+    public int getPredNodeCount(T n) {
+      return getInDegree(number(n));
+    }
+
+    @Override
+    public Iterator<T> getSuccNodes(T n) {
+      return new RowIterator(succOffsets, succs, number(n));
+    }
+
+    @Override
+    public int getSuccNodeCount(T n) {
+      return getOutDegree(number(n));
+    }
+
+    @Override
+    public IntSet getSuccNodeNumbers(T node) {
+      return row(succOffsets, succs, number(node));
+    }
+
+    @Override
+    public IntSet getPredNodeNumbers(T node) {
+      return row(predOffsets, preds, number(node));
+    }
+
+    @Override
+    public boolean hasEdge(T src, T dst) {
+      int s = nodeManager.getNumber(src);
+      int d = nodeManager.getNumber(dst);
+      if (s == -1 || d == -1) {
+        return false;
+      }
+      // binary search in the sorted row
+      int lo = succOffsets.get(s);
+      int hi = succOffsets.get(s + 1) - 1;
+      while (lo <= hi) {
+        int mid = (lo + hi) >>> 1;
+        int x = succs.get(mid);
+        if (x < d) {
+          lo = mid + 1;
+        } else if (x > d) {
+          hi = mid - 1;
+        } else {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public void addEdge(T src, T dst) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeEdge(T src, T dst) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeAllIncidentEdges(T node) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeIncomingEdges(T node) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeOutgoingEdges(T node) {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
@@ -0,0 +1,335 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.graph.traverse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.ibm.wala.util.graph.NumberedGraph;
+import com.ibm.wala.util.graph.impl.CompactNumberedGraph;
+import com.ibm.wala.util.intset.BitVectorIntSet;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableIntSet;
+
+/**
+ * Level-synchronous breadth-first search over a {@link NumberedGraph}, in parallel.
+ *
+ * Each level expands the current frontier as fork/join tasks over slices of it. Visited nodes are recorded in a shared
+ * bitset, claimed with compare-and-set, so every node joins exactly one frontier. Each frontier is sorted, so results do not
+ * depend on scheduling.
+ *
+ * {@link #multiSourceReachable} answers the bounded reachability questions of many sources in one traversal, in the manner
+ * of Then et al.'s MS-BFS: each node carries a 64-bit mask of the sources that have reached it, and one visit of a node
+ * advances all of them at once.
+ *
+ * The graph is read from several threads at once. Graphs that build their edges lazily, such as the interprocedural CFGs,
+ * should first be frozen into a {@link CompactNumberedGraph}.
+ */
+public class ParallelBFS {
+
+  /**
+   * frontier slices of at most this many nodes are expanded sequentially
+   */
+  private static final int SEQUENTIAL_THRESHOLD = 256;
+
+  /**
+   * @return node number -&gt; number of hops from the nearest root, or -1 for nodes more than k hops away from every root.
+   *         Runs in the common fork/join pool.
+   */
+  public static <T> int[] computeDistances(NumberedGraph<T> G, Collection<? extends T> roots, int k) {
+    return computeDistances(G, roots, k, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * @return node number -&gt; number of hops from the nearest root, or -1 for nodes more than k hops away from every root
+   */
+  public static <T> int[] computeDistances(NumberedGraph<T> G, Collection<? extends T> roots, int k, ForkJoinPool pool) {
+    check(G, roots, k, pool);
+    int n = G.getMaxNumber() + 1;
+    int[] distance = new int[n];
+    Arrays.fill(distance, -1);
+    AtomicLongArray visited = new AtomicLongArray((n + 63) >> 6);
+    int[] frontier = numbers(G, roots);
+    for (int v : frontier) {
+      claim(visited, v);
+      distance[v] = 0;
+    }
+    for (int level = 1; level <= k && frontier.length > 0; level++) {
+      int hops = level;
+      frontier = expand(pool, frontier, (v, out) -> {
+        IntSet succ = G.getSuccNodeNumbers(G.getNode(v));
+        if (succ != null) {
+          succ.foreach(w -> {
+            if (claim(visited, w)) {
+              distance[w] = hops;
+              out.add(w);
+            }
+          });
+        }
+      });
+    }
+    return distance;
+  }
+
+  /**
+   * @return the nodes within k hops of the roots, in breadth-first order; Integer.MAX_VALUE means no bound
+   */
+  public static <T> List<T> reachableWithin(NumberedGraph<T> G, Collection<? extends T> roots, int k) {
+    int[] distance = computeDistances(G, roots, k);
+    // bucket by distance, so that the order is by level and then by number
+    int levels = 0;
+    for (int d : distance) {
+      levels = Math.max(levels, d + 1);
+    }
+    int[] start = new int[levels + 1];
+    for (int d : distance) {
+      if (d >= 0) {
+        start[d + 1]++;
+      }
+    }
+    for (int i = 0; i < levels; i++) {
+      start[i + 1] += start[i];
+    }
+    Object[] result = new Object[start[levels]];
+    for (int v = 0; v < distance.length; v++) {
+      if (distance[v] >= 0) {
+        result[start[distance[v]]++] = G.getNode(v);
+      }
+    }
+    List<T> list = new ArrayList<>(result.length);
+    for (Object o : result) {
+      @SuppressWarnings("unchecked")
+      T t = (T) o;
+      list.add(t);
+    }
+    return list;
+  }
+
+  /**
+   * @return for each source, in order, the numbers of the nodes within k hops of it. Runs in the common fork/join pool.
+   */
+  public static <T> List<IntSet> multiSourceReachable(NumberedGraph<T> G, List<? extends T> sources, int k) {
+    return multiSourceReachable(G, sources, k, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * @return for each source, in order, the numbers of the nodes within k hops of it
+   */
+  public static <T> List<IntSet> multiSourceReachable(NumberedGraph<T> G, List<? extends T> sources, int k, ForkJoinPool pool) {
+    check(G, sources, k, pool);
+    List<IntSet> result = new ArrayList<>(sources.size());
+    for (int batch = 0; batch < sources.size(); batch += 64) {
+      List<? extends T> s = sources.subList(batch, Math.min(sources.size(), batch + 64));
+      result.addAll(multiSourceBatch(G, s, k, pool));
+    }
+    return result;
+  }
+
+  /**
+   * one traversal for at most 64 sources
+   */
+  private static <T> List<MutableIntSet> multiSourceBatch(NumberedGraph<T> G, List<? extends T> sources, int k, ForkJoinPool pool) {
+    int n = G.getMaxNumber() + 1;
+    // node number -> sources that have reached it, that reached it at the last level, and that reach it at the next
+    long[] seen = new long[n];
+    long[] visit = new long[n];
+    AtomicLongArray next = new AtomicLongArray(n);
+    for (int i = 0; i < sources.size(); i++) {
+      int v = G.getNumber(sources.get(i));
+      seen[v] |= 1L << i;
+      visit[v] |= 1L << i;
+    }
+    int[] frontier = numbers(G, sources);
+    for (int level = 1; level <= k && frontier.length > 0; level++) {
+      // push the masks of the frontier to their successors; a node joins the next frontier once, when its mask leaves 0
+      int[] touched = expand(pool, frontier, (v, out) -> {
+        long mask = visit[v];
+        IntSet succ = G.getSuccNodeNumbers(G.getNode(v));
+        if (succ != null) {
+          succ.foreach(w -> {
+            long m = mask & ~seen[w];
+            if (m != 0 && next.getAndAccumulate(w, m, (a, b) -> a | b) == 0) {
+              out.add(w);
+            }
+          });
+        }
+      });
+      for (int v : frontier) {
+        visit[v] = 0;
+      }
+      expand(pool, touched, (w, out) -> {
+        long m = next.getAndSet(w, 0);
+        seen[w] |= m;
+        visit[w] = m;
+      });
+      frontier = touched;
+    }
+
+    List<MutableIntSet> result = new ArrayList<>(sources.size());
+    for (int i = 0; i < sources.size(); i++) {
+      result.add(new BitVectorIntSet());
+    }
+    for (int v = 0; v < n; v++) {
+      for (long m = seen[v]; m != 0; m &= m - 1) {
+        result.get(Long.numberOfTrailingZeros(m)).add(v);
+      }
+    }
+    return result;
+  }
+
+  private static <T> void check(NumberedGraph<T> G, Collection<? extends T> roots, int k, ForkJoinPool pool) {
+    if (G == null) {
+      throw new IllegalArgumentException("G is null");
+    }
+    if (roots == null) {
+      throw new IllegalArgumentException("roots is null");
+    }
+    if (k < 0) {
+      throw new IllegalArgumentException("invalid k: " + k);
+    }
+    if (pool == null) {
+      throw new IllegalArgumentException("pool is null");
+    }
+  }
+
+  /**
+   * @return the distinct numbers of nodes, sorted
+   */
+  private static <T> int[] numbers(NumberedGraph<T> G, Collection<? extends T> nodes) {
+    int[] result = new int[nodes.size()];
+    int k = 0;
+    for (T n : nodes) {
+      int v = G.getNumber(n);
+      if (v < 0) {
+        throw new IllegalArgumentException("node not in graph: " + n);
+      }
+      result[k++] = v;
+    }
+    Arrays.sort(result);
+    int m = 0;
+    for (int i = 0; i < k; i++) {
+      if (m == 0 || result[m - 1] != result[i]) {
+        result[m++] = result[i];
+      }
+    }
+    return Arrays.copyOf(result, m);
+  }
+
+  /**
+   * set the bit for v
+   *
+   * @return true iff it was not already set
+   */
+  private static boolean claim(AtomicLongArray bits, int v) {
+    int word = v >> 6;
+    long bit = 1L << v;
+    long old;
+    do {
+      old = bits.get(word);
+      if ((old & bit) != 0) {
+        return false;
+      }
+    } while (!bits.compareAndSet(word, old, old | bit));
+    return true;
+  }
+
+  /**
+   * work done for one node of a frontier
+   */
+  @FunctionalInterface
+  private interface Step {
+    /**
+     * @param out nodes to put in the next frontier
+     */
+    void apply(int v, IntList out);
+  }
+
+  /**
+   * apply step to each node of a frontier in parallel
+   *
+   * @return the nodes the steps output, sorted
+   */
+  private static int[] expand(ForkJoinPool pool, int[] frontier, Step step) {
+    if (frontier.length == 0) {
+      return frontier;
+    }
+    IntList out = pool.invoke(new Slice(frontier, 0, frontier.length, step));
+    int[] result = Arrays.copyOf(out.elements, out.size);
+    Arrays.sort(result);
+    return result;
+  }
+
+  private static final class Slice extends RecursiveTask<IntList> {
+    private static final long serialVersionUID = -2916435377618451627L;
+
+    private final int[] frontier;
+
+    private final int from;
+
+    private final int to;
+
+    private final Step step;
+
+    Slice(int[] frontier, int from, int to, Step step) {
+      this.frontier = frontier;
+      this.from = from;
+      this.to = to;
+      this.step = step;
+    }
+
+    @Override
+    protected IntList compute() {
+      if (to - from <= SEQUENTIAL_THRESHOLD) {
+        IntList out = new IntList();
+        for (int i = from; i < to; i++) {
+          step.apply(frontier[i], out);
+        }
+        return out;
+      }
+      int mid = (from + to) >>> 1;
+      Slice left = new Slice(frontier, from, mid, step);
+      left.fork();
+      IntList right = new Slice(frontier, mid, to, step).compute();
+      IntList result = left.join();
+      result.addAll(right);
+      return result;
+    }
+  }
+
+  /**
+   * a growable array of ints, private to one task
+   */
+  private static final class IntList {
+    private int[] elements = new int[16];
+
+    private int size;
+
+    void add(int x) {
+      if (size == elements.length) {
+        elements = Arrays.copyOf(elements, 2 * size);
+      }
+      elements[size++] = x;
+    }
+
+    void addAll(IntList other) {
+      if (size + other.size > elements.length) {
+        elements = Arrays.copyOf(elements, Math.max(size + other.size, 2 * elements.length));
+      }
+      System.arraycopy(other.elements, 0, elements, size, other.size);
+      size += other.size;
+    }
+  }
+}
@@ -0,0 +1,431 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.graph.traverse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.graph.NumberedGraph;
+import com.ibm.wala.util.graph.impl.CompactNumberedGraph;
+
+/**
+ * Computes the strongly connected components of a {@link NumberedGraph} in parallel.
+ *
+ * Nodes with no predecessors or no successors are first trimmed away as trivial components. The rest is split by the
+ * forward-backward algorithm of Fleischer, Hendrickson and Pinar: the nodes both reachable from and reaching a pivot form its
+ * component, and every other component lies entirely among the nodes only reachable from the pivot, only reaching it, or
+ * neither, so these three parts are solved independently as fork/join tasks. Parts below a threshold are finished with an
+ * iterative (non-recursive) version of Tarjan's algorithm.
+ *
+ * The graph is first frozen into a {@link CompactNumberedGraph}, unless it is one already.
+ */
+public class ParallelSCC {
+
+  /**
+   * parts with at most this many nodes are solved sequentially
+   */
+  private static final int SEQUENTIAL_THRESHOLD = 1024;
+
+  /**
+   * partition of nodes that are not in the graph, or whose component is known
+   */
+  private static final int DONE = -1;
+
+  /**
+   * @return the strongly connected components of G, in topological order: if there is an edge from a node in one component
+   *         to a node in another, the first component comes first. Runs in the common fork/join pool.
+   */
+  public static <T> List<Set<T>> computeSCCs(NumberedGraph<T> G) {
+    return computeSCCs(G, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * @return the strongly connected components of G, in topological order, computed in pool
+   */
+  public static <T> List<Set<T>> computeSCCs(NumberedGraph<T> G, ForkJoinPool pool) {
+    if (G == null) {
+      throw new IllegalArgumentException("G is null");
+    }
+    if (pool == null) {
+      throw new IllegalArgumentException("pool is null");
+    }
+    CompactNumberedGraph<T> C = freeze(G);
+    Solver solver = new Solver(C);
+    int[] live = solver.trim();
+    if (live.length > 0) {
+      pool.invoke(solver.new Part(live, 0));
+    }
+    List<Set<T>> result = new ArrayList<>(solver.nComponents.get());
+    for (int c : solver.topologicalOrder()) {
+      Set<T> scc = HashSetFactory.make(solver.components[c].length);
+      for (int v : solver.components[c]) {
+        scc.add(C.getNode(v));
+      }
+      result.add(scc);
+    }
+    return result;
+  }
+
+  static <T> CompactNumberedGraph<T> freeze(NumberedGraph<T> G) {
+    return (G instanceof CompactNumberedGraph) ? (CompactNumberedGraph<T>) G : CompactNumberedGraph.make(G);
+  }
+
+  /**
+   * Tarjan's algorithm, with explicit stacks, over those of the given nodes whose partition is id. Each component is passed to
+   * out as soon as it is found, so successors come before predecessors. Nodes of a component are moved to partition
+   * {@link #DONE}.
+   *
+   * @param index per-node scratch space, -1 for each of the given nodes on entry
+   * @param low per-node scratch space
+   */
+  static void tarjan(CompactNumberedGraph<?> G, int[] nodes, int[] part, int id, int[] index, int[] low, Consumer<int[]> out) {
+    int counter = 0;
+    int[] stack = new int[nodes.length];
+    int sp = 0;
+    int[] callNode = new int[nodes.length];
+    int[] callEdge = new int[nodes.length];
+    for (int root : nodes) {
+      if (part[root] != id || index[root] != -1) {
+        continue;
+      }
+      index[root] = low[root] = counter++;
+      stack[sp++] = root;
+      callNode[0] = root;
+      callEdge[0] = 0;
+      int csp = 1;
+      while (csp > 0) {
+        int v = callNode[csp - 1];
+        int e = callEdge[csp - 1];
+        if (e < G.getOutDegree(v)) {
+          callEdge[csp - 1]++;
+          int w = G.getSuccNumber(v, e);
+          if (part[w] != id) {
+            // not in this part, or in a component already found
+            continue;
+          }
+          if (index[w] == -1) {
+            index[w] = low[w] = counter++;
+            stack[sp++] = w;
+            callNode[csp] = w;
+            callEdge[csp] = 0;
+            csp++;
+          } else {
+            // w is on the stack
+            low[v] = Math.min(low[v], index[w]);
+          }
+        } else {
+          csp--;
+          if (low[v] == index[v]) {
+            int start = sp;
+            do {
+              start--;
+            } while (stack[start] != v);
+            int[] scc = Arrays.copyOfRange(stack, start, sp);
+            sp = start;
+            for (int w : scc) {
+              part[w] = DONE;
+            }
+            out.accept(scc);
+          }
+          if (csp > 0) {
+            int u = callNode[csp - 1];
+            low[u] = Math.min(low[u], low[v]);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * shared state of one computation. Concurrent tasks work on disjoint sets of nodes, and each only writes the entries of its
+   * own nodes; a task recognizes its nodes by their partition, and partition ids are never reused.
+   */
+  private static final class Solver {
+    private final CompactNumberedGraph<?> G;
+
+    /**
+     * node number -&gt; partition it currently belongs to, or DONE
+     */
+    private final int[] part;
+
+    private final int[] index;
+
+    private final int[] low;
+
+    /**
+     * node number -&gt; component
+     */
+    private final int[] component;
+
+    /**
+     * component -&gt; node numbers
+     */
+    private final int[][] components;
+
+    private final AtomicInteger nComponents = new AtomicInteger();
+
+    private final AtomicInteger nPartitions = new AtomicInteger();
+
+    Solver(CompactNumberedGraph<?> G) {
+      this.G = G;
+      int n = G.getMaxNumber() + 1;
+      part = new int[n];
+      index = new int[n];
+      low = new int[n];
+      component = new int[n];
+      components = new int[n][];
+      Arrays.fill(index, -1);
+      for (int i = 0; i < n; i++) {
+        if (G.getNode(i) == null) {
+          part[i] = DONE;
+        }
+      }
+    }
+
+    private void record(int[] scc) {
+      int c = nComponents.getAndIncrement();
+      components[c] = scc;
+      for (int v : scc) {
+        component[v] = c;
+        part[v] = DONE;
+      }
+    }
+
+    /**
+     * repeatedly remove nodes with no remaining predecessors or successors, each of which is a component of its own
+     *
+     * @return the remaining nodes
+     */
+    int[] trim() {
+      int n = part.length;
+      int[] in = new int[n];
+      int[] out = new int[n];
+      int[] queue = new int[n];
+      int head = 0;
+      int tail = 0;
+      for (int v = 0; v < n; v++) {
+        if (part[v] != DONE) {
+          in[v] = G.getInDegree(v);
+          out[v] = G.getOutDegree(v);
+          if (in[v] == 0 || out[v] == 0) {
+            queue[tail++] = v;
+            part[v] = DONE;
+          }
+        }
+      }
+      while (head < tail) {
+        int v = queue[head++];
+        record(new int[] { v });
+        for (int i = 0; i < G.getOutDegree(v); i++) {
+          int w = G.getSuccNumber(v, i);
+          if (part[w] != DONE && --in[w] == 0) {
+            queue[tail++] = w;
+            part[w] = DONE;
+          }
+        }
+        for (int i = 0; i < G.getInDegree(v); i++) {
+          int w = G.getPredNumber(v, i);
+          if (part[w] != DONE && --out[w] == 0) {
+            queue[tail++] = w;
+            part[w] = DONE;
+          }
+        }
+      }
+      int[] live = new int[n - tail];
+      int k = 0;
+      for (int v = 0; v < n; v++) {
+        if (part[v] != DONE) {
+          live[k++] = v;
+        }
+      }
+      return Arrays.copyOf(live, k);
+    }
+
+    /**
+     * @return the components in topological order of the condensed graph; ties are broken by smallest node number, so the
+     *         order does not depend on scheduling
+     */
+    int[] topologicalOrder() {
+      int nc = nComponents.get();
+      int[] minNode = new int[nc];
+      int[] inDegree = new int[nc];
+      for (int c = 0; c < nc; c++) {
+        int min = Integer.MAX_VALUE;
+        for (int v : components[c]) {
+          min = Math.min(min, v);
+          for (int i = 0; i < G.getOutDegree(v); i++) {
+            int d = component[G.getSuccNumber(v, i)];
+            if (d != c) {
+              inDegree[d]++;
+            }
+          }
+        }
+        minNode[c] = min;
+      }
+      PriorityQueue<Integer> ready = new PriorityQueue<>(Math.max(1, nc), (a, b) -> Integer.compare(minNode[a], minNode[b]));
+      for (int c = 0; c < nc; c++) {
+        if (inDegree[c] == 0) {
+          ready.add(c);
+        }
+      }
+      int[] result = new int[nc];
+      int k = 0;
+      while (!ready.isEmpty()) {
+        int c = ready.poll();
+        result[k++] = c;
+        for (int v : components[c]) {
+          for (int i = 0; i < G.getOutDegree(v); i++) {
+            int d = component[G.getSuccNumber(v, i)];
+            if (d != c && --inDegree[d] == 0) {
+              ready.add(d);
+            }
+          }
+        }
+      }
+      assert k == nc;
+      return result;
+    }
+
+    /**
+     * a set of nodes, all in partition id, that is closed under strongly connected components
+     */
+    private final class Part extends RecursiveAction {
+      private static final long serialVersionUID = 4236183829378245723L;
+
+      private final int[] nodes;
+
+      private final int id;
+
+      Part(int[] nodes, int id) {
+        this.nodes = nodes;
+        this.id = id;
+      }
+
+      @Override
+      protected void compute() {
+        // the largest sub-part is handled in this task and the others are forked, so forked parts are at most half as big as
+        // their parent, and tasks nest only logarithmically deep
+        List<Part> forked = new ArrayList<>();
+        int[] nodes = this.nodes;
+        int id = this.id;
+        while (nodes.length > SEQUENTIAL_THRESHOLD) {
+          int[][] parts = split(nodes, id);
+          int largest = -1;
+          for (int i = 0; i < 3; i++) {
+            if (parts[i] != null && (largest == -1 || parts[i].length > parts[largest].length)) {
+              largest = i;
+            }
+          }
+          for (int i = 0; i < 3; i++) {
+            if (parts[i] != null && i != largest) {
+              Part p = new Part(parts[i], parts[i + 3][0]);
+              p.fork();
+              forked.add(p);
+            }
+          }
+          if (largest == -1) {
+            nodes = null;
+            break;
+          }
+          id = parts[largest + 3][0];
+          nodes = parts[largest];
+        }
+        if (nodes != null) {
+          tarjan(G, nodes, part, id, index, low, Solver.this::record);
+        }
+        for (Part p : forked) {
+          p.join();
+        }
+      }
+
+      /**
+       * find the component of a pivot, and split the rest of nodes into those reachable from the pivot, those reaching it,
+       * and the others
+       *
+       * @return the three sets of nodes, each null if empty, followed by their partition ids as singleton arrays
+       */
+      private int[][] split(int[] nodes, int id) {
+        int pivot = nodes[0];
+        int fw = nPartitions.incrementAndGet();
+        int bw = nPartitions.incrementAndGet();
+        int[] queue = new int[nodes.length];
+
+        // nodes reachable from the pivot move to partition fw
+        int head = 0;
+        int tail = 0;
+        part[pivot] = fw;
+        queue[tail++] = pivot;
+        while (head < tail) {
+          int v = queue[head++];
+          for (int i = 0; i < G.getOutDegree(v); i++) {
+            int w = G.getSuccNumber(v, i);
+            if (part[w] == id) {
+              part[w] = fw;
+              queue[tail++] = w;
+            }
+          }
+        }
+
+        // nodes reaching the pivot are in its component if also reachable from it, and otherwise move to partition bw
+        head = 0;
+        tail = 0;
+        part[pivot] = DONE;
+        queue[tail++] = pivot;
+        int nScc = 1;
+        while (head < tail) {
+          int v = queue[head++];
+          for (int i = 0; i < G.getInDegree(v); i++) {
+            int w = G.getPredNumber(v, i);
+            if (part[w] == fw) {
+              part[w] = DONE;
+              queue[tail++] = w;
+              nScc++;
+            } else if (part[w] == id) {
+              part[w] = bw;
+              queue[tail++] = w;
+            }
+          }
+        }
+        int[] scc = new int[nScc];
+        int k = 0;
+        for (int i = 0; i < tail; i++) {
+          if (part[queue[i]] == DONE) {
+            scc[k++] = queue[i];
+          }
+        }
+        record(scc);
+
+        int[] ids = new int[] { fw, bw, id };
+        int[][] result = new int[6][];
+        for (int p = 0; p < 3; p++) {
+          int[] members = new int[nodes.length];
+          int m = 0;
+          for (int v : nodes) {
+            if (part[v] == ids[p]) {
+              members[m++] = v;
+            }
+          }
+          result[p] = m > 0 ? Arrays.copyOf(members, m) : null;
+          result[p + 3] = new int[] { ids[p] };
+        }
+        return result;
+      }
+    }
+  }
+}
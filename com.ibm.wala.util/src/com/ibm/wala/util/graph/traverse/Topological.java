@@ -10,10 +10,16 @@
  */
 package com.ibm.wala.util.graph.traverse;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 
 import com.ibm.wala.util.collections.ReverseIterator;
 import com.ibm.wala.util.graph.Graph;
+import com.ibm.wala.util.graph.NumberedGraph;
+import com.ibm.wala.util.graph.impl.CompactNumberedGraph;
 import com.ibm.wala.util.graph.impl.GraphInverter;
 
 /**
@@ -52,4 +58,40 @@ public class Topological {
       return DFS.iterateFinishTime(G_T, rev);
     };
   }
+
+  /**
+   * Build a list of all the nodes in a numbered graph, in an order such that SCCs are visited in topological order. Unlike
+   * {@link #makeTopologicalIter(Graph)}, this uses no recursion and no hashing: it runs an iterative Tarjan's algorithm over
+   * node numbers.
+   * 
+   * @throws IllegalArgumentException if graph == null
+   */
+  public static <T> List<T> makeTopologicalOrder(NumberedGraph<T> graph) throws IllegalArgumentException {
+    if (graph == null) {
+      throw new IllegalArgumentException("graph == null");
+    }
+    CompactNumberedGraph<T> G = ParallelSCC.freeze(graph);
+    int n = G.getMaxNumber() + 1;
+    int[] nodes = new int[G.getNumberOfNodes()];
+    int[] part = new int[n];
+    int k = 0;
+    for (int i = 0; i < n; i++) {
+      if (G.getNode(i) != null) {
+        nodes[k++] = i;
+      } else {
+        part[i] = -1;
+      }
+    }
+    int[] index = new int[n];
+    Arrays.fill(index, -1);
+    // Tarjan's algorithm finds successor SCCs first
+    List<T> result = new ArrayList<>(nodes.length);
+    ParallelSCC.tarjan(G, nodes, part, 0, index, new int[n], scc -> {
+      for (int i = scc.length - 1; i >= 0; i--) {
+        result.add(G.getNode(scc[i]));
+      }
+    });
+    Collections.reverse(result);
+    return result;
+  }
 }
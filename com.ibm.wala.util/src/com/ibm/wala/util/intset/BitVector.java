@@ -206,18 +206,44 @@ public class BitVector extends BitVectorBase<BitVector> {
     int n = Math.min(bits.length, otherBits.length);
     for (int i = n - 1; i >= 0;) {
       int v1 = bits[i];
-      int v2 = otherBits[i];
-      if (v1 != v2) {
-        delta -= Bits.populationCount(v1);
-        int v3 = v1 | v2;
-        delta += Bits.populationCount(v3);
-        bits[i] = v3;
+      int added = otherBits[i] & ~v1;
+      if (added != 0) {
+        delta += Integer.bitCount(added);
+        bits[i] = v1 | added;
       }
       i--;
     }
     return delta;
   }
 
+  /**
+   * Logically ORs this bit set with the specified set of bits, and reports whether that changed this. Cheaper than
+   * {@link #orWithDelta(BitVector)} when the caller does not need the number of bits added.
+   * 
+   * @return true iff some bit of set was not already in this.
+   * @throws IllegalArgumentException if set is null
+   */
+  public final boolean orWithChange(BitVector set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set is null");
+    }
+    if (this == set) {
+      return false;
+    }
+    ensureCapacity(set);
+    int[] otherBits = set.bits;
+    int n = Math.min(bits.length, otherBits.length);
+    int changed = 0;
+    for (int i = n - 1; i >= 0;) {
+      int v1 = bits[i];
+      int v3 = v1 | otherBits[i];
+      changed |= v3 ^ v1;
+      bits[i] = v3;
+      i--;
+    }
+    return changed != 0;
+  }
+
   /**
    * Return a new FixedSizeBitVector as the OR of two others
    */
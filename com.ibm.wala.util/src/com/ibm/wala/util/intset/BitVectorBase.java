@@ -86,7 +86,7 @@ abstract public class BitVectorBase<T extends BitVectorBase> implements Cloneabl
   public final int populationCount() {
     int count = 0;
     for (int bit : bits) {
-      count += Bits.populationCount(bit);
+      count += Integer.bitCount(bit);
     }
     return count;
   }
@@ -143,14 +143,6 @@ abstract public class BitVectorBase<T extends BitVectorBase> implements Cloneabl
     return get(i);
   }
 
-  private static final int[][] masks = new int[][] {
-      { 0xFFFF0000 },
-      { 0xFF000000, 0x0000FF00 },
-      { 0xF0000000, 0x00F00000, 0x0000F000, 0x000000F0 },
-      { 0xC0000000, 0x0C000000, 0x00C00000, 0x000C0000, 0x0000C000, 0x00000C00, 0x000000C0, 0x0000000C },
-      { 0x80000000, 0x20000000, 0x08000000, 0x02000000, 0x00800000, 0x00200000, 0x00080000, 0x00020000, 0x00008000, 0x00002000,
-          0x00000800, 0x00000200, 0x00000080, 0x00000020, 0x00000008, 0x00000002 } };
-
   public int max() {
     int lastWord = bits.length - 1;
 
@@ -160,21 +152,7 @@ abstract public class BitVectorBase<T extends BitVectorBase> implements Cloneabl
     if (lastWord < 0)
       return -1;
 
-    int count = lastWord * BITS_PER_UNIT;
-
-    int top = bits[lastWord];
-
-    int j = 0;
-    for (int[] mask2 : masks) {
-      if ((top & mask2[j]) != 0) {
-        j <<= 1;
-      } else {
-        j <<= 1;
-        j++;
-      }
-    }
-
-    return count + (31 - j);
+    return lastWord * BITS_PER_UNIT + (BITS_PER_UNIT - 1 - Integer.numberOfLeadingZeros(bits[lastWord]));
   }
 
   /**
@@ -185,24 +163,18 @@ abstract public class BitVectorBase<T extends BitVectorBase> implements Cloneabl
       throw new IllegalArgumentException("illegal start: " + start);
     }
     int word = subscript(start);
-    int bit = (1 << (start & LOW_MASK));
-    while (word < bits.length) {
-      if (bits[word] != 0) {
-        do {
-          if ((bits[word] & bit) != 0)
-            return start;
-          bit <<= 1;
-          start++;
-        } while (bit != 0);
-      } else {
-        start += (BITS_PER_UNIT - (start & LOW_MASK));
+    if (word >= bits.length) {
+      return -1;
+    }
+    // skip the bits below start in the first word, then whole words at a time
+    int w = bits[word] & (MASK << (start & LOW_MASK));
+    while (w == 0) {
+      if (++word == bits.length) {
+        return -1;
       }
-
-      word++;
-      bit = 1;
+      w = bits[word];
     }
-
-    return -1;
+    return word * BITS_PER_UNIT + Integer.numberOfTrailingZeros(w);
   }
 
   /**
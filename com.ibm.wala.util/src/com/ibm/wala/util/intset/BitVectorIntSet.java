@@ -101,9 +101,12 @@ public final class BitVectorIntSet implements MutableIntSet {
   public boolean addAll(IntSet set) {
     if (set instanceof BitVectorIntSet) {
       BitVector B = ((BitVectorIntSet) set).bitVector;
+      if (populationCount == UNDEFINED) {
+        // no count to maintain, so don't pay for one
+        return bitVector.orWithChange(B);
+      }
       int delta = bitVector.orWithDelta(B);
       populationCount += delta;
-      populationCount = (populationCount == (delta + UNDEFINED)) ? UNDEFINED : populationCount;
       return (delta != 0);
     } else {
       BitVectorIntSet other = new BitVectorIntSet(set);
@@ -365,6 +368,8 @@ public final class BitVectorIntSet implements MutableIntSet {
       return sameValueInternal((SparseIntSet) that);
     } else if (that instanceof MutableSharedBitVectorIntSet) {
       return sameValue(((MutableSharedBitVectorIntSet) that).makeDenseCopy());
+    } else if (that instanceof CompressedMutableIntSet) {
+      return that.sameValue(this);
     } else {
       Assertions.UNREACHABLE("unexpected argument type " + that.getClass());
       return false;
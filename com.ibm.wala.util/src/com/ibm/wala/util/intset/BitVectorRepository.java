@@ -10,15 +10,25 @@
  */
 package com.ibm.wala.util.intset;
 
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
 import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.Map;
-
-import com.ibm.wala.util.collections.HashMapFactory;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * A repository for shared bit vectors as described by Heintze
+ *
+ * The repository may be used from many threads at once. Entries are bucketed by size in a concurrent map, and each bucket is a
+ * lock-free queue, so lookups never block each other. Entries are held weakly: a shared vector that no
+ * {@link MutableSharedBitVectorIntSet} uses any more is reclaimed by the garbage collector, and its entry is dropped the next
+ * time the repository is used.
+ *
+ * Two threads that miss on equal values at the same time both add an entry to the same bucket, and then both return the
+ * earlier of the two, so racing threads still share.
  */
 public class BitVectorRepository {
 
@@ -26,13 +36,39 @@ public class BitVectorRepository {
 
   private final static int STATS_WINDOW = 100;
 
-  private static int queries = 0;
+  private final static int SUBSET_DELTA = 5;
 
-  private static int hits = 0;
+  /**
+   * a weak reference to a shared vector, which remembers the bucket it lives in
+   */
+  private static final class Entry extends WeakReference<BitVectorIntSet> {
+    private final int size;
 
-  private final static int SUBSET_DELTA = 5;
+    Entry(BitVectorIntSet referent, ReferenceQueue<BitVectorIntSet> q) {
+      super(referent, q);
+      this.size = referent.size();
+    }
+  }
 
-  final private static Map<Integer, LinkedList<WeakReference<BitVectorIntSet>>> buckets = HashMapFactory.make();
+  /**
+   * size -&gt; shared vectors of that size
+   */
+  private final static ConcurrentMap<Integer, ConcurrentLinkedQueue<Entry>> buckets = new ConcurrentHashMap<>();
+
+  /**
+   * entries whose vectors have been collected
+   */
+  private final static ReferenceQueue<BitVectorIntSet> cleared = new ReferenceQueue<>();
+
+  private final static AtomicInteger entries = new AtomicInteger();
+
+  private final static LongAdder queries = new LongAdder();
+
+  private final static LongAdder hits = new LongAdder();
+
+  private final static LongAdder queriedElements = new LongAdder();
+
+  private final static LongAdder sharedElements = new LongAdder();
 
   /**
    * @return the BitVector in this repository which is the canonical shared
@@ -40,66 +76,139 @@ public class BitVectorRepository {
    *         as value, except it may exclude up to SUBSET_DELTA bits.
    * @throws IllegalArgumentException  if value is null
    */
-  public static synchronized BitVectorIntSet findOrCreateSharedSubset(BitVectorIntSet value) {
+  public static BitVectorIntSet findOrCreateSharedSubset(BitVectorIntSet value) {
     if (value == null) {
       throw new IllegalArgumentException("value is null");
     }
-    if (STATS) {
-      queries++;
-      if (queries % STATS_WINDOW == 0) {
-        reportStats();
-      }
-    }
+    expungeClearedEntries();
     int size = value.size();
+    queries.increment();
+    queriedElements.add(size);
+    if (STATS && queries.sum() % STATS_WINDOW == 0) {
+      reportStats();
+    }
     for (int i = size; i > size - SUBSET_DELTA; i--) {
-      LinkedList<WeakReference<BitVectorIntSet>> m = buckets.get(Integer.valueOf(i));
+      ConcurrentLinkedQueue<Entry> m = buckets.get(Integer.valueOf(i));
       if (m != null) {
-        Iterator<WeakReference<BitVectorIntSet>> it = m.iterator();
-        while (it.hasNext()) {
-          WeakReference<BitVectorIntSet> wr = it.next();
-          BitVectorIntSet bv = wr.get();
-          if (bv != null) {
-            if (bv.isSubset(value)) {
-              // FOUND ONE!
-              if (STATS) {
-                hits++;
-              }
-              return bv;            
-            }
-          } else {
-            // remove the weak reference to avoid leaks
-            it.remove();
+        for (Entry e : m) {
+          BitVectorIntSet bv = e.get();
+          if (bv != null && bv.isSubset(value)) {
+            // FOUND ONE!
+            hits.increment();
+            sharedElements.add(i);
+            return bv;
           }
         }
       }
     }
     // didn't find one. create one.
-    LinkedList<WeakReference<BitVectorIntSet>> m = buckets.get(size);
-    if (m == null) {
-      m = new LinkedList<>();
-      buckets.put(size, m);
-    }
     BitVectorIntSet bv = new BitVectorIntSet(value);
-    m.add(new WeakReference<>(bv));
+    // Entry computes the population count, so readers of the shared vector never update it
+    Entry e = new Entry(bv, cleared);
+    ConcurrentLinkedQueue<Entry> m = buckets.computeIfAbsent(size, k -> new ConcurrentLinkedQueue<>());
+    m.add(e);
+    entries.incrementAndGet();
+    // another thread may have added a suitable vector meanwhile; if so, the earlier entry wins
+    for (Entry other : m) {
+      if (other == e) {
+        break;
+      }
+      BitVectorIntSet shared = other.get();
+      if (shared != null && shared.isSubset(value)) {
+        if (m.remove(e)) {
+          entries.decrementAndGet();
+        }
+        hits.increment();
+        sharedElements.add(size);
+        return shared;
+      }
+    }
     return bv;
   }
 
   /**
-   * 
+   * remove the entries whose vectors have been collected, to avoid leaks
+   */
+  private static void expungeClearedEntries() {
+    for (Entry e = (Entry) cleared.poll(); e != null; e = (Entry) cleared.poll()) {
+      ConcurrentLinkedQueue<Entry> m = buckets.get(e.size);
+      if (m != null && m.remove(e)) {
+        entries.decrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * @return number of calls to {@link #findOrCreateSharedSubset}
+   */
+  public static long getQueries() {
+    return queries.sum();
+  }
+
+  /**
+   * @return number of calls to {@link #findOrCreateSharedSubset} that returned an existing vector
+   */
+  public static long getHits() {
+    return hits.sum();
+  }
+
+  /**
+   * @return the total size of the values passed to {@link #findOrCreateSharedSubset}
+   */
+  public static long getQueriedElements() {
+    return queriedElements.sum();
+  }
+
+  /**
+   * @return the total size of the existing vectors returned by {@link #findOrCreateSharedSubset}, i.e. the number of bits that
+   *         callers did not have to store themselves
+   */
+  public static long getSharedElements() {
+    return sharedElements.sum();
+  }
+
+  /**
+   * @return the fraction of queried elements that were served from existing vectors, between 0 and 1
+   */
+  public static double getSharingRatio() {
+    long q = queriedElements.sum();
+    return q == 0 ? 0.0 : (double) sharedElements.sum() / q;
+  }
+
+  /**
+   * @return the number of vectors in the repository. The count is rough, since collected vectors are only dropped on the next
+   *         query.
+   */
+  public static int getNumberOfEntries() {
+    return entries.get();
+  }
+
+  /**
+   * reset the statistics counters; the repository itself is unaffected
+   */
+  public static void resetStatistics() {
+    queries.reset();
+    hits.reset();
+    queriedElements.reset();
+    sharedElements.reset();
+  }
+
+  /**
+   *
    */
   private static void reportStats() {
-    double percent = 100.0 * hits / queries;
-    System.err.println(("BitVectorRepository: queries " + queries + " hits " + percent));
-    System.err.println(("                     entries " + countEntries()));
+    double percent = 100.0 * getHits() / getQueries();
+    System.err.println(("BitVectorRepository: queries " + getQueries() + " hits " + percent));
+    System.err.println(("                     entries " + countEntries() + " sharing ratio " + getSharingRatio()));
   }
 
   /**
    */
   private static int countEntries() {
     int result = 0;
-    for (LinkedList<WeakReference<BitVectorIntSet>> l : buckets.values()) {
+    for (Iterator<ConcurrentLinkedQueue<Entry>> it = buckets.values().iterator(); it.hasNext();) {
       // don't worry about cleared WeakReferences; count will be rough
-      result += l.size();
+      result += it.next().size();
     }
     return result;
   }
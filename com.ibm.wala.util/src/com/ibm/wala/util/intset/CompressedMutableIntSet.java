@@ -0,0 +1,963 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.intset;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A {@link MutableIntSet} for sets that are sparse, but whose elements range over a wide interval, in the style of Roaring
+ * bitmaps.
+ *
+ * The set is split into chunks of 2^16 consecutive integers, and only non-empty chunks are represented. A chunk with at most
+ * {@link #ARRAY_MAX} elements holds its low 16 bits in a sorted char array; a fuller chunk holds a fixed bitmap of 2^16 bits.
+ * Set operations between two such sets work chunk by chunk, skipping chunks present in only one of them, so their cost depends
+ * on the number of elements rather than on the largest element.
+ */
+public class CompressedMutableIntSet implements MutableIntSet {
+
+  private static final long serialVersionUID = -2786124936212085932L;
+
+  /**
+   * the largest number of elements held in an array chunk; larger chunks are held as bitmaps
+   */
+  static final int ARRAY_MAX = 4096;
+
+  private static final int BITMAP_WORDS = 1 << 10;
+
+  private static final int INITIAL_CHUNKS = 2;
+
+  /**
+   * high 16 bits of the elements of each chunk, in increasing order
+   */
+  private char[] keys;
+
+  /**
+   * for each chunk, either a sorted char[] of low 16 bits, or a long[] bitmap of {@link #BITMAP_WORDS} words
+   */
+  private Object[] chunks;
+
+  /**
+   * number of elements in each chunk
+   */
+  private int[] cardinalities;
+
+  private int nChunks;
+
+  private int size;
+
+  public CompressedMutableIntSet() {
+    clear();
+  }
+
+  public CompressedMutableIntSet(IntSet set) throws IllegalArgumentException {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    clear();
+    copySet(set);
+  }
+
+  @Override
+  public void clear() {
+    keys = new char[INITIAL_CHUNKS];
+    chunks = new Object[INITIAL_CHUNKS];
+    cardinalities = new int[INITIAL_CHUNKS];
+    nChunks = 0;
+    size = 0;
+  }
+
+  private static char high(int i) {
+    return (char) (i >>> 16);
+  }
+
+  private static char low(int i) {
+    return (char) i;
+  }
+
+  /**
+   * @return index of the chunk with the given key, or (-(insertion point) - 1)
+   */
+  private int findChunk(char key) {
+    return Arrays.binarySearch(keys, 0, nChunks, key);
+  }
+
+  private void ensureChunkCapacity(int n) {
+    if (n > keys.length) {
+      int newLength = Math.max(n, 2 * keys.length);
+      keys = Arrays.copyOf(keys, newLength);
+      chunks = Arrays.copyOf(chunks, newLength);
+      cardinalities = Arrays.copyOf(cardinalities, newLength);
+    }
+  }
+
+  private void insertChunk(int pos, char key, Object chunk, int cardinality) {
+    ensureChunkCapacity(nChunks + 1);
+    System.arraycopy(keys, pos, keys, pos + 1, nChunks - pos);
+    System.arraycopy(chunks, pos, chunks, pos + 1, nChunks - pos);
+    System.arraycopy(cardinalities, pos, cardinalities, pos + 1, nChunks - pos);
+    keys[pos] = key;
+    chunks[pos] = chunk;
+    cardinalities[pos] = cardinality;
+    nChunks++;
+  }
+
+  private void removeChunk(int pos) {
+    System.arraycopy(keys, pos + 1, keys, pos, nChunks - pos - 1);
+    System.arraycopy(chunks, pos + 1, chunks, pos, nChunks - pos - 1);
+    System.arraycopy(cardinalities, pos + 1, cardinalities, pos, nChunks - pos - 1);
+    nChunks--;
+    chunks[nChunks] = null;
+  }
+
+  private static boolean bitmapContains(long[] bitmap, char low) {
+    return (bitmap[low >>> 6] & (1L << low)) != 0;
+  }
+
+  private static boolean arrayContains(char[] array, int cardinality, char low) {
+    return Arrays.binarySearch(array, 0, cardinality, low) >= 0;
+  }
+
+  private static boolean chunkContains(Object chunk, int cardinality, char low) {
+    if (chunk instanceof long[]) {
+      return bitmapContains((long[]) chunk, low);
+    } else {
+      return arrayContains((char[]) chunk, cardinality, low);
+    }
+  }
+
+  private static long[] toBitmap(char[] array, int cardinality) {
+    long[] bitmap = new long[BITMAP_WORDS];
+    for (int i = 0; i < cardinality; i++) {
+      bitmap[array[i] >>> 6] |= 1L << array[i];
+    }
+    return bitmap;
+  }
+
+  private static char[] toArray(long[] bitmap, int cardinality) {
+    char[] array = new char[cardinality];
+    int j = 0;
+    for (int w = 0; w < BITMAP_WORDS; w++) {
+      long word = bitmap[w];
+      while (word != 0) {
+        array[j++] = (char) ((w << 6) + Long.numberOfTrailingZeros(word));
+        word &= word - 1;
+      }
+    }
+    return array;
+  }
+
+  private static Object copyChunk(Object chunk, int cardinality) {
+    if (chunk instanceof long[]) {
+      return ((long[]) chunk).clone();
+    } else {
+      return Arrays.copyOf((char[]) chunk, cardinality);
+    }
+  }
+
+  /**
+   * @return the chunk holding cardinality elements, converted to a bitmap or array as appropriate
+   */
+  private static Object normalize(Object chunk, int cardinality) {
+    if (chunk instanceof long[]) {
+      return cardinality > ARRAY_MAX ? chunk : toArray((long[]) chunk, cardinality);
+    } else {
+      return cardinality > ARRAY_MAX ? toBitmap((char[]) chunk, cardinality) : chunk;
+    }
+  }
+
+  @Override
+  public boolean contains(int i) {
+    if (i < 0) {
+      return false;
+    }
+    int pos = findChunk(high(i));
+    return pos >= 0 && chunkContains(chunks[pos], cardinalities[pos], low(i));
+  }
+
+  @Override
+  public boolean add(int i) {
+    if (i < 0) {
+      throw new IllegalArgumentException("invalid i: " + i);
+    }
+    char key = high(i);
+    char low = low(i);
+    int pos = findChunk(key);
+    if (pos < 0) {
+      char[] array = new char[4];
+      array[0] = low;
+      insertChunk(-pos - 1, key, array, 1);
+      size++;
+      return true;
+    }
+    Object chunk = chunks[pos];
+    int cardinality = cardinalities[pos];
+    if (chunk instanceof long[]) {
+      long[] bitmap = (long[]) chunk;
+      if (bitmapContains(bitmap, low)) {
+        return false;
+      }
+      bitmap[low >>> 6] |= 1L << low;
+    } else {
+      char[] array = (char[]) chunk;
+      int j = Arrays.binarySearch(array, 0, cardinality, low);
+      if (j >= 0) {
+        return false;
+      }
+      j = -j - 1;
+      if (cardinality == ARRAY_MAX) {
+        long[] bitmap = toBitmap(array, cardinality);
+        bitmap[low >>> 6] |= 1L << low;
+        chunks[pos] = bitmap;
+      } else {
+        if (cardinality == array.length) {
+          array = Arrays.copyOf(array, Math.min(ARRAY_MAX, 2 * cardinality));
+          chunks[pos] = array;
+        }
+        System.arraycopy(array, j, array, j + 1, cardinality - j);
+        array[j] = low;
+      }
+    }
+    cardinalities[pos]++;
+    size++;
+    return true;
+  }
+
+  @Override
+  public boolean remove(int i) {
+    if (i < 0) {
+      return false;
+    }
+    char low = low(i);
+    int pos = findChunk(high(i));
+    if (pos < 0) {
+      return false;
+    }
+    Object chunk = chunks[pos];
+    int cardinality = cardinalities[pos];
+    if (chunk instanceof long[]) {
+      long[] bitmap = (long[]) chunk;
+      if (!bitmapContains(bitmap, low)) {
+        return false;
+      }
+      bitmap[low >>> 6] &= ~(1L << low);
+    } else {
+      char[] array = (char[]) chunk;
+      int j = Arrays.binarySearch(array, 0, cardinality, low);
+      if (j < 0) {
+        return false;
+      }
+      System.arraycopy(array, j + 1, array, j, cardinality - j - 1);
+    }
+    size--;
+    if (--cardinalities[pos] == 0) {
+      removeChunk(pos);
+    } else {
+      chunks[pos] = normalize(chunks[pos], cardinalities[pos]);
+    }
+    return true;
+  }
+
+  @Override
+  public void copySet(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    if (set == this) {
+      return;
+    }
+    if (set instanceof CompressedMutableIntSet) {
+      CompressedMutableIntSet s = (CompressedMutableIntSet) set;
+      int n = Math.max(s.nChunks, INITIAL_CHUNKS);
+      keys = Arrays.copyOf(s.keys, n);
+      cardinalities = Arrays.copyOf(s.cardinalities, n);
+      chunks = new Object[n];
+      for (int i = 0; i < s.nChunks; i++) {
+        chunks[i] = copyChunk(s.chunks[i], s.cardinalities[i]);
+      }
+      nChunks = s.nChunks;
+      size = s.size;
+    } else {
+      clear();
+      for (IntIterator it = set.intIterator(); it.hasNext();) {
+        add(it.next());
+      }
+    }
+  }
+
+  @Override
+  public boolean addAll(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    if (set == this) {
+      return false;
+    }
+    if (!(set instanceof CompressedMutableIntSet)) {
+      boolean result = false;
+      for (IntIterator it = set.intIterator(); it.hasNext();) {
+        result |= add(it.next());
+      }
+      return result;
+    }
+
+    CompressedMutableIntSet s = (CompressedMutableIntSet) set;
+    if (s.size == 0) {
+      return false;
+    }
+    int oldSize = size;
+    // merge the chunk lists into fresh arrays
+    int n = nChunks + s.nChunks;
+    char[] newKeys = new char[n];
+    Object[] newChunks = new Object[n];
+    int[] newCardinalities = new int[n];
+    int i = 0, j = 0, k = 0;
+    while (i < nChunks || j < s.nChunks) {
+      if (j == s.nChunks || (i < nChunks && keys[i] < s.keys[j])) {
+        newKeys[k] = keys[i];
+        newChunks[k] = chunks[i];
+        newCardinalities[k] = cardinalities[i];
+        i++;
+      } else if (i == nChunks || s.keys[j] < keys[i]) {
+        newKeys[k] = s.keys[j];
+        newChunks[k] = copyChunk(s.chunks[j], s.cardinalities[j]);
+        newCardinalities[k] = s.cardinalities[j];
+        size += s.cardinalities[j];
+        j++;
+      } else {
+        newKeys[k] = keys[i];
+        int cardinality = cardinalities[i];
+        newChunks[k] = or(chunks[i], cardinality, s.chunks[j], s.cardinalities[j], newCardinalities, k);
+        size += newCardinalities[k] - cardinality;
+        i++;
+        j++;
+      }
+      k++;
+    }
+    keys = newKeys;
+    chunks = newChunks;
+    cardinalities = newCardinalities;
+    nChunks = k;
+    return size != oldSize;
+  }
+
+  /**
+   * @return the union of chunk c1, which may be updated in place, and chunk c2; its cardinality is stored in result[index]
+   */
+  private static Object or(Object c1, int card1, Object c2, int card2, int[] result, int index) {
+    if (c1 instanceof long[]) {
+      long[] b1 = (long[]) c1;
+      int cardinality = card1;
+      if (c2 instanceof long[]) {
+        long[] b2 = (long[]) c2;
+        cardinality = 0;
+        for (int w = 0; w < BITMAP_WORDS; w++) {
+          b1[w] |= b2[w];
+          cardinality += Long.bitCount(b1[w]);
+        }
+      } else {
+        char[] a2 = (char[]) c2;
+        for (int i = 0; i < card2; i++) {
+          long mask = 1L << a2[i];
+          int w = a2[i] >>> 6;
+          if ((b1[w] & mask) == 0) {
+            b1[w] |= mask;
+            cardinality++;
+          }
+        }
+      }
+      result[index] = cardinality;
+      return b1;
+    } else if (c2 instanceof long[]) {
+      long[] b = ((long[]) c2).clone();
+      return or(b, card2, c1, card1, result, index);
+    } else {
+      char[] a1 = (char[]) c1;
+      char[] a2 = (char[]) c2;
+      char[] merged = new char[card1 + card2];
+      int i = 0, j = 0, k = 0;
+      while (i < card1 && j < card2) {
+        char x = a1[i];
+        char y = a2[j];
+        if (x < y) {
+          merged[k++] = x;
+          i++;
+        } else if (y < x) {
+          merged[k++] = y;
+          j++;
+        } else {
+          merged[k++] = x;
+          i++;
+          j++;
+        }
+      }
+      while (i < card1) {
+        merged[k++] = a1[i++];
+      }
+      while (j < card2) {
+        merged[k++] = a2[j++];
+      }
+      result[index] = k;
+      if (k == card1) {
+        // nothing new
+        return a1;
+      }
+      return normalize(merged, k);
+    }
+  }
+
+  @Override
+  public void intersectWith(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    if (set == this) {
+      return;
+    }
+    if (!(set instanceof CompressedMutableIntSet)) {
+      CompressedMutableIntSet result = new CompressedMutableIntSet();
+      for (IntIterator it = intIterator(); it.hasNext();) {
+        int x = it.next();
+        if (set.contains(x)) {
+          result.add(x);
+        }
+      }
+      copySet(result);
+      return;
+    }
+
+    CompressedMutableIntSet s = (CompressedMutableIntSet) set;
+    int k = 0;
+    size = 0;
+    for (int i = 0, j = 0; i < nChunks && j < s.nChunks;) {
+      if (keys[i] < s.keys[j]) {
+        i++;
+      } else if (s.keys[j] < keys[i]) {
+        j++;
+      } else {
+        Object chunk = and(chunks[i], cardinalities[i], s.chunks[j], s.cardinalities[j], cardinalities, k);
+        if (cardinalities[k] > 0) {
+          keys[k] = keys[i];
+          chunks[k] = chunk;
+          size += cardinalities[k];
+          k++;
+        }
+        i++;
+        j++;
+      }
+    }
+    for (int i = k; i < nChunks; i++) {
+      chunks[i] = null;
+    }
+    nChunks = k;
+  }
+
+  /**
+   * @return the intersection of chunk c1, which may be updated in place, and chunk c2; its cardinality is stored in
+   *         result[index]
+   */
+  private static Object and(Object c1, int card1, Object c2, int card2, int[] result, int index) {
+    if (c1 instanceof long[]) {
+      long[] b1 = (long[]) c1;
+      if (c2 instanceof long[]) {
+        long[] b2 = (long[]) c2;
+        int cardinality = 0;
+        for (int w = 0; w < BITMAP_WORDS; w++) {
+          b1[w] &= b2[w];
+          cardinality += Long.bitCount(b1[w]);
+        }
+        result[index] = cardinality;
+        return normalize(b1, cardinality);
+      } else {
+        char[] a2 = (char[]) c2;
+        char[] a = new char[card2];
+        int k = 0;
+        for (int i = 0; i < card2; i++) {
+          if (bitmapContains(b1, a2[i])) {
+            a[k++] = a2[i];
+          }
+        }
+        result[index] = k;
+        return a;
+      }
+    } else {
+      char[] a1 = (char[]) c1;
+      int k = 0;
+      if (c2 instanceof long[]) {
+        long[] b2 = (long[]) c2;
+        for (int i = 0; i < card1; i++) {
+          if (bitmapContains(b2, a1[i])) {
+            a1[k++] = a1[i];
+          }
+        }
+      } else {
+        char[] a2 = (char[]) c2;
+        for (int i = 0, j = 0; i < card1 && j < card2;) {
+          if (a1[i] < a2[j]) {
+            i++;
+          } else if (a2[j] < a1[i]) {
+            j++;
+          } else {
+            a1[k++] = a1[i];
+            i++;
+            j++;
+          }
+        }
+      }
+      result[index] = k;
+      return a1;
+    }
+  }
+
+  /**
+   * Subtract a set from this one, i.e. this = this \ set.
+   * 
+   * @return this
+   */
+  public CompressedMutableIntSet removeAll(CompressedMutableIntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    if (set == this) {
+      clear();
+      return this;
+    }
+    int k = 0;
+    size = 0;
+    for (int i = 0, j = 0; i < nChunks; i++) {
+      while (j < set.nChunks && set.keys[j] < keys[i]) {
+        j++;
+      }
+      Object chunk = chunks[i];
+      if (j < set.nChunks && set.keys[j] == keys[i]) {
+        chunk = andNot(chunk, cardinalities[i], set.chunks[j], set.cardinalities[j], cardinalities, i);
+      }
+      if (cardinalities[i] > 0) {
+        keys[k] = keys[i];
+        chunks[k] = chunk;
+        cardinalities[k] = cardinalities[i];
+        size += cardinalities[k];
+        k++;
+      }
+    }
+    for (int i = k; i < nChunks; i++) {
+      chunks[i] = null;
+    }
+    nChunks = k;
+    return this;
+  }
+
+  /**
+   * @return a new set holding the elements of A that are not in B
+   */
+  public static CompressedMutableIntSet diff(CompressedMutableIntSet A, CompressedMutableIntSet B) {
+    if (A == null) {
+      throw new IllegalArgumentException("A == null");
+    }
+    return new CompressedMutableIntSet(A).removeAll(B);
+  }
+
+  /**
+   * @return chunk c1, which may be updated in place, without the elements of chunk c2; its cardinality is stored in
+   *         result[index]
+   */
+  private static Object andNot(Object c1, int card1, Object c2, int card2, int[] result, int index) {
+    int cardinality = 0;
+    if (c1 instanceof long[]) {
+      long[] b1 = (long[]) c1;
+      if (c2 instanceof long[]) {
+        long[] b2 = (long[]) c2;
+        for (int w = 0; w < BITMAP_WORDS; w++) {
+          b1[w] &= ~b2[w];
+          cardinality += Long.bitCount(b1[w]);
+        }
+      } else {
+        char[] a2 = (char[]) c2;
+        cardinality = card1;
+        for (int i = 0; i < card2; i++) {
+          if (bitmapContains(b1, a2[i])) {
+            b1[a2[i] >>> 6] &= ~(1L << a2[i]);
+            cardinality--;
+          }
+        }
+      }
+      result[index] = cardinality;
+      return normalize(b1, cardinality);
+    }
+    char[] a1 = (char[]) c1;
+    if (c2 instanceof long[]) {
+      long[] b2 = (long[]) c2;
+      for (int i = 0; i < card1; i++) {
+        if (!bitmapContains(b2, a1[i])) {
+          a1[cardinality++] = a1[i];
+        }
+      }
+    } else {
+      char[] a2 = (char[]) c2;
+      int j = 0;
+      for (int i = 0; i < card1; i++) {
+        while (j < card2 && a2[j] < a1[i]) {
+          j++;
+        }
+        if (j == card2 || a2[j] != a1[i]) {
+          a1[cardinality++] = a1[i];
+        }
+      }
+    }
+    result[index] = cardinality;
+    return a1;
+  }
+
+  @Override
+  public boolean addAllInIntersection(IntSet other, IntSet filter) {
+    if (other == null) {
+      throw new IllegalArgumentException("other == null");
+    }
+    if (filter == null) {
+      throw new IllegalArgumentException("filter == null");
+    }
+    if (other instanceof CompressedMutableIntSet && filter instanceof CompressedMutableIntSet) {
+      CompressedMutableIntSet temp = new CompressedMutableIntSet(other);
+      temp.intersectWith(filter);
+      return addAll(temp);
+    }
+    boolean result = false;
+    for (IntIterator it = other.intIterator(); it.hasNext();) {
+      int x = it.next();
+      if (filter.contains(x)) {
+        result |= add(x);
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public boolean containsAny(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    if (set instanceof CompressedMutableIntSet) {
+      CompressedMutableIntSet s = (CompressedMutableIntSet) set;
+      for (int i = 0, j = 0; i < nChunks && j < s.nChunks;) {
+        if (keys[i] < s.keys[j]) {
+          i++;
+        } else if (s.keys[j] < keys[i]) {
+          j++;
+        } else {
+          if (intersects(chunks[i], cardinalities[i], s.chunks[j], s.cardinalities[j])) {
+            return true;
+          }
+          i++;
+          j++;
+        }
+      }
+      return false;
+    }
+    if (set.size() < size) {
+      for (IntIterator it = set.intIterator(); it.hasNext();) {
+        if (contains(it.next())) {
+          return true;
+        }
+      }
+    } else {
+      for (IntIterator it = intIterator(); it.hasNext();) {
+        if (set.contains(it.next())) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static boolean intersects(Object c1, int card1, Object c2, int card2) {
+    if (c1 instanceof long[]) {
+      long[] b1 = (long[]) c1;
+      if (c2 instanceof long[]) {
+        long[] b2 = (long[]) c2;
+        for (int w = 0; w < BITMAP_WORDS; w++) {
+          if ((b1[w] & b2[w]) != 0) {
+            return true;
+          }
+        }
+        return false;
+      } else {
+        char[] a2 = (char[]) c2;
+        for (int i = 0; i < card2; i++) {
+          if (bitmapContains(b1, a2[i])) {
+            return true;
+          }
+        }
+        return false;
+      }
+    } else if (c2 instanceof long[]) {
+      return intersects(c2, card2, c1, card1);
+    } else {
+      char[] a1 = (char[]) c1;
+      char[] a2 = (char[]) c2;
+      for (int i = 0, j = 0; i < card1 && j < card2;) {
+        if (a1[i] < a2[j]) {
+          i++;
+        } else if (a2[j] < a1[i]) {
+          j++;
+        } else {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  @Override
+  public IntSet intersection(IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("that == null");
+    }
+    CompressedMutableIntSet result = new CompressedMutableIntSet(this);
+    result.intersectWith(that);
+    return result;
+  }
+
+  @Override
+  public IntSet union(IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("that == null");
+    }
+    CompressedMutableIntSet result = new CompressedMutableIntSet(this);
+    result.addAll(that);
+    return result;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return the number of chunks of 2^16 integers that hold elements of this set
+   */
+  public int getNumberOfChunks() {
+    return nChunks;
+  }
+
+  @Override
+  public int max() {
+    if (nChunks == 0) {
+      return -1;
+    }
+    int last = nChunks - 1;
+    Object chunk = chunks[last];
+    int low;
+    if (chunk instanceof long[]) {
+      long[] bitmap = (long[]) chunk;
+      int w = BITMAP_WORDS - 1;
+      while (bitmap[w] == 0) {
+        w--;
+      }
+      low = (w << 6) + 63 - Long.numberOfLeadingZeros(bitmap[w]);
+    } else {
+      low = ((char[]) chunk)[cardinalities[last] - 1];
+    }
+    return (keys[last] << 16) | low;
+  }
+
+  @Override
+  public boolean sameValue(IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("that == null");
+    }
+    if (that.size() != size) {
+      return false;
+    }
+    if (that instanceof CompressedMutableIntSet) {
+      CompressedMutableIntSet s = (CompressedMutableIntSet) that;
+      if (s.nChunks != nChunks) {
+        return false;
+      }
+      for (int i = 0; i < nChunks; i++) {
+        if (keys[i] != s.keys[i] || cardinalities[i] != s.cardinalities[i]) {
+          return false;
+        }
+        // both chunks have the same representation, since they have the same cardinality
+        Object c1 = chunks[i];
+        Object c2 = s.chunks[i];
+        if (c1 instanceof long[]) {
+          if (!Arrays.equals((long[]) c1, (long[]) c2)) {
+            return false;
+          }
+        } else {
+          char[] a1 = (char[]) c1;
+          char[] a2 = (char[]) c2;
+          for (int j = 0; j < cardinalities[i]; j++) {
+            if (a1[j] != a2[j]) {
+              return false;
+            }
+          }
+        }
+      }
+      return true;
+    }
+    return isSubset(that);
+  }
+
+  @Override
+  public boolean isSubset(IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("that == null");
+    }
+    if (that instanceof CompressedMutableIntSet) {
+      CompressedMutableIntSet s = (CompressedMutableIntSet) that;
+      if (size > s.size) {
+        return false;
+      }
+      for (int i = 0, j = 0; i < nChunks; i++) {
+        while (j < s.nChunks && s.keys[j] < keys[i]) {
+          j++;
+        }
+        if (j == s.nChunks || s.keys[j] != keys[i] || !isSubset(chunks[i], cardinalities[i], s.chunks[j], s.cardinalities[j])) {
+          return false;
+        }
+      }
+      return true;
+    }
+    for (IntIterator it = intIterator(); it.hasNext();) {
+      if (!that.contains(it.next())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isSubset(Object c1, int card1, Object c2, int card2) {
+    if (card1 > card2) {
+      return false;
+    }
+    if (c1 instanceof long[]) {
+      // then c2 is a bitmap too
+      long[] b1 = (long[]) c1;
+      long[] b2 = (long[]) c2;
+      for (int w = 0; w < BITMAP_WORDS; w++) {
+        if ((b1[w] & ~b2[w]) != 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+    char[] a1 = (char[]) c1;
+    for (int i = 0; i < card1; i++) {
+      if (!chunkContains(c2, card2, a1[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public IntIterator intIterator() {
+    return new IntIterator() {
+      private int chunk = 0;
+
+      /**
+       * position of the next element within an array chunk, or of the current word within a bitmap chunk
+       */
+      private int index = 0;
+
+      /**
+       * bits of the current word not yet returned, for a bitmap chunk
+       */
+      private long word = initialWord();
+
+      private long initialWord() {
+        return nChunks > 0 && chunks[0] instanceof long[] ? ((long[]) chunks[0])[0] : 0;
+      }
+
+      @Override
+      public boolean hasNext() {
+        while (chunk < nChunks) {
+          Object c = chunks[chunk];
+          if (c instanceof long[]) {
+            long[] bitmap = (long[]) c;
+            while (word == 0 && index < BITMAP_WORDS - 1) {
+              word = bitmap[++index];
+            }
+            if (word != 0) {
+              return true;
+            }
+          } else if (index < cardinalities[chunk]) {
+            return true;
+          }
+          chunk++;
+          index = 0;
+          word = chunk < nChunks && chunks[chunk] instanceof long[] ? ((long[]) chunks[chunk])[0] : 0;
+        }
+        return false;
+      }
+
+      @Override
+      public int next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        int high = keys[chunk] << 16;
+        Object c = chunks[chunk];
+        if (c instanceof long[]) {
+          int low = (index << 6) + Long.numberOfTrailingZeros(word);
+          word &= word - 1;
+          return high | low;
+        } else {
+          return high | ((char[]) c)[index++];
+        }
+      }
+    };
+  }
+
+  @Override
+  public void foreach(IntSetAction action) {
+    if (action == null) {
+      throw new IllegalArgumentException("null action");
+    }
+    for (IntIterator it = intIterator(); it.hasNext();) {
+      action.act(it.next());
+    }
+  }
+
+  @Override
+  public void foreachExcluding(IntSet X, IntSetAction action) {
+    if (X == null) {
+      throw new IllegalArgumentException("null X");
+    }
+    if (action == null) {
+      throw new IllegalArgumentException("null action");
+    }
+    for (IntIterator it = intIterator(); it.hasNext();) {
+      int x = it.next();
+      if (!X.contains(x)) {
+        action.act(x);
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder(6 * size);
+    sb.append("{ ");
+    for (IntIterator it = intIterator(); it.hasNext();) {
+      sb.append(it.next());
+      sb.append(' ');
+    }
+    sb.append('}');
+    return sb.toString();
+  }
+}
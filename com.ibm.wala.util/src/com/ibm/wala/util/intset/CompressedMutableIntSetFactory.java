@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.intset;
+
+/**
+ * A factory for {@link CompressedMutableIntSet}s. Install it with {@link IntSetUtil#setDefaultIntSetFactory} to use compressed
+ * sets for points-to sets and other set variables.
+ */
+public class CompressedMutableIntSetFactory implements MutableIntSetFactory<CompressedMutableIntSet> {
+
+  /**
+   * @throws IllegalArgumentException if set is null
+   */
+  @Override
+  public CompressedMutableIntSet make(int[] set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set is null");
+    }
+    CompressedMutableIntSet result = new CompressedMutableIntSet();
+    for (int element : set) {
+      result.add(element);
+    }
+    return result;
+  }
+
+  @Override
+  public CompressedMutableIntSet parse(String string) throws NumberFormatException {
+    return make(SparseIntSet.parseIntArray(string));
+  }
+
+  @Override
+  public CompressedMutableIntSet makeCopy(IntSet x) throws IllegalArgumentException {
+    return new CompressedMutableIntSet(x);
+  }
+
+  @Override
+  public CompressedMutableIntSet make() {
+    return new CompressedMutableIntSet();
+  }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.intset;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A map from ints to ints, with no boxing.
+ *
+ * Entries live in an open-addressing table with linear probing; 0 marks an empty slot, and the key 0 itself is kept aside.
+ * Unlike {@link SparseIntVector}, lookup and update take constant expected time whatever the keys.
+ *
+ * {@link #get(int)} returns a "missing" value, chosen at construction, for keys that are not in the map.
+ */
+public class IntIntHashMap implements Serializable {
+
+  private static final long serialVersionUID = -3370462512350591276L;
+
+  private static final int DEFAULT_CAPACITY = 8;
+
+  private int[] keys;
+
+  private int[] values;
+
+  /**
+   * number of entries in the table, not counting the key 0
+   */
+  private int size;
+
+  private boolean hasZeroKey;
+
+  private int zeroValue;
+
+  private final int missingValue;
+
+  /**
+   * a map with missing value -1
+   */
+  public IntIntHashMap() {
+    this(DEFAULT_CAPACITY, -1);
+  }
+
+  /**
+   * @param expectedSize number of entries the map can hold before it grows
+   * @param missingValue value returned by {@link #get(int)} for absent keys
+   */
+  public IntIntHashMap(int expectedSize, int missingValue) {
+    if (expectedSize < 0) {
+      throw new IllegalArgumentException("illegal expectedSize: " + expectedSize);
+    }
+    int capacity = DEFAULT_CAPACITY;
+    while (capacity * 3 / 4 < expectedSize) {
+      capacity *= 2;
+    }
+    keys = new int[capacity];
+    values = new int[capacity];
+    this.missingValue = missingValue;
+  }
+
+  static int hash(int key) {
+    int h = key * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * @return the slot holding key, or the empty slot where it would go
+   */
+  private int slot(int key) {
+    int mask = keys.length - 1;
+    int i = hash(key) & mask;
+    while (keys[i] != 0 && keys[i] != key) {
+      i = (i + 1) & mask;
+    }
+    return i;
+  }
+
+  public int getMissingValue() {
+    return missingValue;
+  }
+
+  /**
+   * @return the value for key, or the missing value if there is none
+   */
+  public int get(int key) {
+    if (key == 0) {
+      return hasZeroKey ? zeroValue : missingValue;
+    }
+    int i = slot(key);
+    return keys[i] == 0 ? missingValue : values[i];
+  }
+
+  public boolean containsKey(int key) {
+    if (key == 0) {
+      return hasZeroKey;
+    }
+    return keys[slot(key)] != 0;
+  }
+
+  /**
+   * @return the previous value for key, or the missing value if there was none
+   */
+  public int put(int key, int value) {
+    if (key == 0) {
+      int old = hasZeroKey ? zeroValue : missingValue;
+      hasZeroKey = true;
+      zeroValue = value;
+      return old;
+    }
+    int i = slot(key);
+    if (keys[i] != 0) {
+      int old = values[i];
+      values[i] = value;
+      return old;
+    }
+    keys[i] = key;
+    values[i] = value;
+    if (++size > keys.length * 3 / 4) {
+      grow();
+    }
+    return missingValue;
+  }
+
+  /**
+   * @return the previous value for key, or the missing value if there was none
+   */
+  public int remove(int key) {
+    if (key == 0) {
+      if (!hasZeroKey) {
+        return missingValue;
+      }
+      hasZeroKey = false;
+      return zeroValue;
+    }
+    int i = slot(key);
+    if (keys[i] == 0) {
+      return missingValue;
+    }
+    int old = values[i];
+    // shift back later entries of the probe sequence that would no longer be found
+    int mask = keys.length - 1;
+    int j = i;
+    while (true) {
+      j = (j + 1) & mask;
+      if (keys[j] == 0) {
+        break;
+      }
+      int home = hash(keys[j]) & mask;
+      if (((j - home) & mask) >= ((j - i) & mask)) {
+        keys[i] = keys[j];
+        values[i] = values[j];
+        i = j;
+      }
+    }
+    keys[i] = 0;
+    size--;
+    return old;
+  }
+
+  public int size() {
+    return size + (hasZeroKey ? 1 : 0);
+  }
+
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  public void clear() {
+    Arrays.fill(keys, 0);
+    size = 0;
+    hasZeroKey = false;
+  }
+
+  private void grow() {
+    int[] oldKeys = keys;
+    int[] oldValues = values;
+    keys = new int[2 * oldKeys.length];
+    values = new int[2 * oldKeys.length];
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != 0) {
+        int j = slot(oldKeys[i]);
+        keys[j] = oldKeys[i];
+        values[j] = oldValues[i];
+      }
+    }
+  }
+
+  /**
+   * @return the keys, in no particular order; the map must not change during the iteration
+   */
+  public IntIterator keyIterator() {
+    return new IntIterator() {
+      private int next = hasZeroKey ? -1 : advance(0);
+
+      private int advance(int i) {
+        while (i < keys.length && keys[i] == 0) {
+          i++;
+        }
+        return i;
+      }
+
+      @Override
+      public boolean hasNext() {
+        return next < keys.length;
+      }
+
+      @Override
+      public int next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        int result = next == -1 ? 0 : keys[next];
+        next = advance(next + 1);
+        return result;
+      }
+    };
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder result = new StringBuilder("{");
+    for (IntIterator it = keyIterator(); it.hasNext();) {
+      int key = it.next();
+      if (result.length() > 1) {
+        result.append(", ");
+      }
+      result.append(key).append('=').append(get(key));
+    }
+    return result.append('}').toString();
+  }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.intset;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A map from ints to objects, with no boxing of the keys.
+ *
+ * Entries live in an open-addressing table with linear probing; 0 marks an empty slot, and the key 0 itself is kept aside.
+ * Unlike {@link com.ibm.wala.util.collections.SparseVector}, lookup and update take constant expected time whatever the
+ * keys. Null values are not allowed, so {@link #get(int)} returns null exactly for absent keys.
+ */
+public class IntObjectHashMap<V> implements Serializable {
+
+  private static final long serialVersionUID = 1967384602749193751L;
+
+  private static final int DEFAULT_CAPACITY = 8;
+
+  private int[] keys;
+
+  private Object[] values;
+
+  /**
+   * number of entries in the table, not counting the key 0
+   */
+  private int size;
+
+  private Object zeroValue;
+
+  public IntObjectHashMap() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @param expectedSize number of entries the map can hold before it grows
+   */
+  public IntObjectHashMap(int expectedSize) {
+    if (expectedSize < 0) {
+      throw new IllegalArgumentException("illegal expectedSize: " + expectedSize);
+    }
+    int capacity = DEFAULT_CAPACITY;
+    while (capacity * 3 / 4 < expectedSize) {
+      capacity *= 2;
+    }
+    keys = new int[capacity];
+    values = new Object[capacity];
+  }
+
+  /**
+   * @return the slot holding key, or the empty slot where it would go
+   */
+  private int slot(int key) {
+    int mask = keys.length - 1;
+    int i = IntIntHashMap.hash(key) & mask;
+    while (keys[i] != 0 && keys[i] != key) {
+      i = (i + 1) & mask;
+    }
+    return i;
+  }
+
+  /**
+   * @return the value for key, or null if there is none
+   */
+  @SuppressWarnings("unchecked")
+  public V get(int key) {
+    if (key == 0) {
+      return (V) zeroValue;
+    }
+    return (V) values[slot(key)];
+  }
+
+  public boolean containsKey(int key) {
+    return get(key) != null;
+  }
+
+  /**
+   * @return the previous value for key, or null if there was none
+   * @throws IllegalArgumentException if value is null
+   */
+  @SuppressWarnings("unchecked")
+  public V put(int key, V value) {
+    if (value == null) {
+      throw new IllegalArgumentException("value is null");
+    }
+    if (key == 0) {
+      V old = (V) zeroValue;
+      zeroValue = value;
+      return old;
+    }
+    int i = slot(key);
+    V old = (V) values[i];
+    keys[i] = key;
+    values[i] = value;
+    if (old == null && ++size > keys.length * 3 / 4) {
+      grow();
+    }
+    return old;
+  }
+
+  /**
+   * @return the previous value for key, or null if there was none
+   */
+  @SuppressWarnings("unchecked")
+  public V remove(int key) {
+    if (key == 0) {
+      V old = (V) zeroValue;
+      zeroValue = null;
+      return old;
+    }
+    int i = slot(key);
+    V old = (V) values[i];
+    if (old == null) {
+      return null;
+    }
+    // shift back later entries of the probe sequence that would no longer be found
+    int mask = keys.length - 1;
+    int j = i;
+    while (true) {
+      j = (j + 1) & mask;
+      if (keys[j] == 0) {
+        break;
+      }
+      int home = IntIntHashMap.hash(keys[j]) & mask;
+      if (((j - home) & mask) >= ((j - i) & mask)) {
+        keys[i] = keys[j];
+        values[i] = values[j];
+        i = j;
+      }
+    }
+    keys[i] = 0;
+    values[i] = null;
+    size--;
+    return old;
+  }
+
+  public int size() {
+    return size + (zeroValue != null ? 1 : 0);
+  }
+
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  public void clear() {
+    Arrays.fill(keys, 0);
+    Arrays.fill(values, null);
+    size = 0;
+    zeroValue = null;
+  }
+
+  private void grow() {
+    int[] oldKeys = keys;
+    Object[] oldValues = values;
+    keys = new int[2 * oldKeys.length];
+    values = new Object[2 * oldKeys.length];
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != 0) {
+        int j = slot(oldKeys[i]);
+        keys[j] = oldKeys[i];
+        values[j] = oldValues[i];
+      }
+    }
+  }
+
+  /**
+   * @return the keys, in no particular order; the map must not change during the iteration
+   */
+  public IntIterator keyIterator() {
+    return new IntIterator() {
+      private int next = zeroValue != null ? -1 : advance(0);
+
+      private int advance(int i) {
+        while (i < keys.length && keys[i] == 0) {
+          i++;
+        }
+        return i;
+      }
+
+      @Override
+      public boolean hasNext() {
+        return next < keys.length;
+      }
+
+      @Override
+      public int next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        int result = next == -1 ? 0 : keys[next];
+        next = advance(next + 1);
+        return result;
+      }
+    };
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder result = new StringBuilder("{");
+    for (IntIterator it = keyIterator(); it.hasNext();) {
+      int key = it.next();
+      if (result.length() > 1) {
+        result.append(", ");
+      }
+      result.append(key).append('=').append(get(key));
+    }
+    return result.append('}').toString();
+  }
+}
@@ -87,6 +87,8 @@ public class IntSetUtil {
       return new MutableSharedBitVectorIntSet((MutableSharedBitVectorIntSet) set);
     } else if (set instanceof SemiSparseMutableIntSet) {
       return new SemiSparseMutableIntSet((SemiSparseMutableIntSet) set);
+    } else if (set instanceof CompressedMutableIntSet) {
+      return new CompressedMutableIntSet(set);
     } else if (set instanceof DebuggingMutableIntSet) {
       MutableIntSet pCopy = makeMutableCopy(((DebuggingMutableIntSet) set).primaryImpl);
       MutableIntSet sCopy = makeMutableCopy(((DebuggingMutableIntSet) set).secondaryImpl);
@@ -149,6 +151,8 @@ public class IntSetUtil {
     } else if (A instanceof SemiSparseMutableIntSet && B instanceof SemiSparseMutableIntSet) {
       IntSet d = SemiSparseMutableIntSet.diff((SemiSparseMutableIntSet) A, (SemiSparseMutableIntSet) B);
       return d;
+    } else if (A instanceof CompressedMutableIntSet && B instanceof CompressedMutableIntSet) {
+      return CompressedMutableIntSet.diff((CompressedMutableIntSet) A, (CompressedMutableIntSet) B);
     } else {
       return defaultSlowDiff(A, B, factory);
     }
@@ -171,6 +175,8 @@ public class IntSetUtil {
         System.err.println("call SemiSparseMutableIntSet.removeAll");
       }
       return ((SemiSparseMutableIntSet) A).removeAll((SemiSparseMutableIntSet) B);
+    } else if (A instanceof CompressedMutableIntSet && B instanceof CompressedMutableIntSet) {
+      return ((CompressedMutableIntSet) A).removeAll((CompressedMutableIntSet) B);
     } else {
       for (IntIterator it = B.intIterator(); it.hasNext();) {
         int I = it.next();